@@ -0,0 +1,307 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import com.nordstrom.finance.dataintegration.common.aws.config.S3ConcurrencyLimitConfig;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+
+/**
+ * Client-side limit on concurrent S3 requests that adapts with AIMD (additive increase,
+ * multiplicative decrease). Every successful request while at least half the permits are in use
+ * raises the limit by 1/limit, i.e. by one per round of requests. A throttled request (SlowDown,
+ * 503 or 429) or a request slower than {@code latencySpikeRatio} x the smoothed latency of its
+ * operation multiplies it by {@code backoffRatio}, at most once per smoothed latency so one burst
+ * of throttling is one decrease. Latency is smoothed per operation, so a part copy taking seconds
+ * is not a spike against millisecond HEAD requests. Throttled requests are retried after a random
+ * delay up to an exponentially growing bound (full jitter); the permit is released while waiting.
+ *
+ * <p>Limit, in-flight count and throttle rate (share of recent requests throttled) are sent as
+ * gauges when the limit changes, if a MetricsClient is given. The SDK client's own retries happen
+ * within one permit.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+  public static final String LIMIT_METRIC = "s3.concurrency.limit";
+  public static final String IN_FLIGHT_METRIC = "s3.concurrency.in_flight";
+  public static final String THROTTLE_RATE_METRIC = "s3.throttle.rate";
+  public static final String THROTTLED_METRIC = "s3.request.throttled.count";
+
+  /** Weight of the newest sample in the smoothed latency and throttle rate. */
+  private static final double SMOOTHING = 0.05;
+
+  /** Requests needed before the smoothed latency is trusted for spike detection. */
+  private static final int LATENCY_WARM_UP = 20;
+
+  private static final String DEFAULT_OPERATION = "default";
+
+  /** Smoothed latency of one operation type; guarded by the limiter lock. */
+  private static final class LatencyBaseline {
+    private long samples;
+    private double smoothedNanos;
+  }
+
+  private final S3ConcurrencyLimitConfig config;
+  private final MetricsClient metricsClient;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition permitReleased = lock.newCondition();
+
+  private double limit;
+  private int inFlight;
+  private final Map<String, LatencyBaseline> latencyBaselines = new HashMap<>();
+  private double throttleRate;
+  private long lastDecreaseNanos;
+
+  /**
+   * @param config limits and retry settings
+   * @param metricsClient receives the limiter gauges; may be null
+   */
+  public AdaptiveConcurrencyLimiter(S3ConcurrencyLimitConfig config, MetricsClient metricsClient) {
+    if (config.getMinLimit() < 1 || config.getMaxLimit() < config.getMinLimit()) {
+      throw new IllegalArgumentException("minLimit must be positive and not above maxLimit");
+    }
+    if (config.getBackoffRatio() <= 0 || config.getBackoffRatio() >= 1) {
+      throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+    }
+    if (config.getMaxAttempts() < 1) {
+      throw new IllegalArgumentException("maxAttempts must be positive");
+    }
+    this.config = config;
+    this.metricsClient = metricsClient;
+    this.limit =
+        Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), config.getInitialLimit()));
+    this.lastDecreaseNanos = System.nanoTime();
+  }
+
+  /**
+   * Runs an S3 request within the limit, retrying it while it is throttled.
+   *
+   * @param request sends the request
+   * @return the response
+   * @throws SdkException the last error of the request; a client exception if interrupted while
+   *     waiting
+   */
+  public <T> T call(Supplier<T> request) {
+    return call(DEFAULT_OPERATION, request);
+  }
+
+  /**
+   * Runs an S3 request within the limit, retrying it while it is throttled. Its latency is compared
+   * with earlier requests of the same operation only.
+   *
+   * @param operation the S3 operation, e.g. HeadObject or UploadPartCopy
+   * @param request sends the request
+   * @return the response
+   * @throws SdkException the last error of the request; a client exception if interrupted while
+   *     waiting
+   */
+  public <T> T call(String operation, Supplier<T> request) {
+    if (!config.isEnabled()) {
+      return request.get();
+    }
+    for (int attempt = 1; ; attempt++) {
+      acquire();
+      final long start = System.nanoTime();
+      try {
+        final T response = request.get();
+        onSuccess(operation, System.nanoTime() - start);
+        return response;
+      } catch (SdkException e) {
+        if (!isThrottling(e)) {
+          onFailure();
+          throw e;
+        }
+        onThrottle(operation);
+        if (attempt >= config.getMaxAttempts()) {
+          log.warn("S3 request still throttled after {} attempts: {}", attempt, e.getMessage());
+          throw e;
+        }
+      } finally {
+        release();
+      }
+      sleep(retryDelayMillis(attempt));
+    }
+  }
+
+  /**
+   * @return the current number of concurrent requests allowed
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of requests currently sent
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the smoothed share of requests throttled, between 0 and 1
+   */
+  public double getThrottleRate() {
+    lock.lock();
+    try {
+      return throttleRate;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  static boolean isThrottling(SdkException e) {
+    return e instanceof AwsServiceException serviceException
+        && (serviceException.isThrottlingException() || serviceException.statusCode() == 503);
+  }
+
+  long retryDelayMillis(int attempt) {
+    final long bound =
+        Math.min(
+            config.getMaxRetryDelayMillis(),
+            config.getBaseRetryDelayMillis() << Math.min(attempt - 1, 30));
+    return ThreadLocalRandom.current().nextLong(Math.max(0, bound) + 1);
+  }
+
+  private void acquire() {
+    lock.lock();
+    try {
+      while (inFlight >= (int) limit) {
+        permitReleased.await();
+      }
+      inFlight++;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw SdkClientException.create("Interrupted while waiting for an S3 request permit", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release() {
+    lock.lock();
+    try {
+      inFlight--;
+      permitReleased.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onSuccess(String operation, long latencyNanos) {
+    final boolean changed;
+    lock.lock();
+    try {
+      final int before = (int) limit;
+      final LatencyBaseline baseline =
+          latencyBaselines.computeIfAbsent(operation, key -> new LatencyBaseline());
+      final boolean spike =
+          config.getLatencySpikeRatio() > 0
+              && baseline.samples >= LATENCY_WARM_UP
+              && latencyNanos > config.getLatencySpikeRatio() * baseline.smoothedNanos;
+      baseline.samples++;
+      baseline.smoothedNanos =
+          baseline.samples == 1
+              ? latencyNanos
+              : baseline.smoothedNanos + SMOOTHING * (latencyNanos - baseline.smoothedNanos);
+      throttleRate -= SMOOTHING * throttleRate;
+      if (spike) {
+        decrease(
+            baseline,
+            operation + " latency spike of " + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms");
+      } else if (inFlight * 2 >= before) {
+        // only grow a limit that is used, or it would be far above the load when throttling starts
+        limit = Math.min(config.getMaxLimit(), limit + 1 / limit);
+        if ((int) limit > before) {
+          permitReleased.signalAll();
+        }
+      }
+      changed = (int) limit != before;
+    } finally {
+      lock.unlock();
+    }
+    if (changed) {
+      recordGauges();
+    }
+  }
+
+  private void onFailure() {
+    lock.lock();
+    try {
+      throttleRate -= SMOOTHING * throttleRate;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onThrottle(String operation) {
+    lock.lock();
+    try {
+      throttleRate += SMOOTHING * (1 - throttleRate);
+      decrease(latencyBaselines.get(operation), operation + " throttling");
+    } finally {
+      lock.unlock();
+    }
+    if (metricsClient != null) {
+      metricsClient.incrementCounter(THROTTLED_METRIC);
+    }
+    recordGauges();
+  }
+
+  /**
+   * Shrinks the limit unless it was shrunk less than one smoothed latency of the operation ago;
+   * holds the lock.
+   */
+  private void decrease(LatencyBaseline baseline, String reason) {
+    final long now = System.nanoTime();
+    if (baseline != null && now - lastDecreaseNanos < baseline.smoothedNanos) {
+      return;
+    }
+    final double before = limit;
+    limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+    lastDecreaseNanos = now;
+    if ((int) limit != (int) before) {
+      log.info(
+          "Lowered the S3 concurrency limit from {} to {} after {}",
+          (int) before,
+          (int) limit,
+          reason);
+    }
+  }
+
+  private void recordGauges() {
+    if (metricsClient == null) {
+      return;
+    }
+    metricsClient.recordGaugeValue(LIMIT_METRIC, getLimit());
+    metricsClient.recordGaugeValue(IN_FLIGHT_METRIC, getInFlight());
+    metricsClient.recordGaugeValue(THROTTLE_RATE_METRIC, getThrottleRate());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw SdkClientException.create("Interrupted while waiting to retry an S3 request", e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Filter of a streamed object listing. Prefix, delimiter, start-after and page size are applied by
+ * S3; suffix and modified-since are applied to each listed object. All fields are optional.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ObjectListingFilter {
+
+  /** Lists every object of the bucket. */
+  public static final ObjectListingFilter ALL = ObjectListingFilter.builder().build();
+
+  /** Only keys starting with this prefix. */
+  String prefix;
+
+  /**
+   * Keys containing the delimiter after the prefix are not listed; they are rolled up into common
+   * prefixes (see {@link S3Utility#listCommonPrefixes}), e.g. "/" lists one folder level.
+   */
+  String delimiter;
+
+  /** Only keys after this key, in UTF-8 binary order. */
+  String startAfter;
+
+  /** Only objects last modified at or after this instant. */
+  Instant modifiedSince;
+
+  /** Only keys ending with this suffix, e.g. ".csv". */
+  String suffix;
+
+  /** Keys per ListObjectsV2 request, at most 1000 (the default). */
+  Integer pageSize;
+
+  boolean matches(S3Object s3Object) {
+    return (suffix == null || s3Object.key().endsWith(suffix))
+        && (modifiedSince == null
+            || (s3Object.lastModified() != null
+                && !s3Object.lastModified().isBefore(modifiedSince)));
+  }
+}
@@ -0,0 +1,143 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Iterator over the objects of several prefixes, each listed by its own paginator on a background
+ * thread once the first object is requested. Pages are handed over through a bounded queue, so
+ * scans pause while the consumer is behind. Objects of one prefix keep their order; prefixes are
+ * interleaved. A failed scan fails the iterator with its exception. {@link #close()} stops the
+ * scans.
+ */
+@Slf4j
+final class ParallelPrefixListing implements Iterator<S3Object>, AutoCloseable {
+
+  private static final int PAGES_PER_SCAN = 2;
+  private static final AtomicInteger LISTING_COUNT = new AtomicInteger();
+
+  /** A page of matching objects, a failure or the end of one prefix. */
+  private record Page(List<S3Object> objects, RuntimeException error, boolean end) {}
+
+  private final List<String> prefixes;
+  private final int threads;
+  private final Function<String, Iterable<List<S3Object>>> paginator;
+  private final BlockingQueue<Page> pages;
+
+  private ExecutorService scanner;
+
+  private int finishedPrefixes;
+  private Iterator<S3Object> current = Collections.emptyIterator();
+  private boolean closed;
+
+  /**
+   * @param prefixes prefixes to scan
+   * @param parallelism prefixes scanned at the same time
+   * @param paginator pages of one prefix, filtered
+   */
+  ParallelPrefixListing(
+      List<String> prefixes,
+      int parallelism,
+      Function<String, Iterable<List<S3Object>>> paginator) {
+    this.prefixes = List.copyOf(prefixes);
+    this.threads = Math.max(1, Math.min(parallelism, prefixes.size()));
+    this.paginator = paginator;
+    this.pages = new ArrayBlockingQueue<>(threads * PAGES_PER_SCAN);
+  }
+
+  private void start() {
+    final int listingNumber = LISTING_COUNT.incrementAndGet();
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.scanner =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              final Thread thread =
+                  new Thread(
+                      runnable, "S3-List-" + listingNumber + "-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    for (String prefix : prefixes) {
+      scanner.execute(() -> scan(prefix));
+    }
+    scanner.shutdown();
+  }
+
+  private void scan(String prefix) {
+    try {
+      try {
+        for (List<S3Object> objects : paginator.apply(prefix)) {
+          if (!objects.isEmpty()) {
+            pages.put(new Page(objects, null, false));
+          }
+        }
+      } catch (RuntimeException ex) {
+        log.error("Error listing objects with prefix {}: {}", prefix, ex.getMessage(), ex);
+        pages.put(new Page(List.of(), ex, false));
+      }
+      pages.put(new Page(List.of(), null, true));
+    } catch (InterruptedException ex) {
+      // listing closed
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      if (closed || finishedPrefixes == prefixes.size()) {
+        return false;
+      }
+      if (scanner == null) {
+        start();
+      }
+      final Page page;
+      try {
+        page = pages.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new IllegalStateException("Interrupted while listing objects", ex);
+      }
+      if (page.error() != null) {
+        close();
+        throw page.error();
+      }
+      if (page.end()) {
+        finishedPrefixes++;
+      } else {
+        current = page.objects().iterator();
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public S3Object next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    current = Collections.emptyIterator();
+    if (scanner != null) {
+      scanner.shutdownNow();
+    }
+    pages.clear();
+  }
+}
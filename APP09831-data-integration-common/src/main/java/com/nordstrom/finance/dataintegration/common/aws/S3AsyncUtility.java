@@ -0,0 +1,458 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import com.nordstrom.finance.dataintegration.common.aws.config.S3AsyncConfig;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.crt.S3CrtHttpConfiguration;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Asynchronous counterpart of {@link S3Utility} backed by an {@link S3AsyncClient}, by default the
+ * AWS CRT-based client. Every method returns at once; the returned future completes on an SDK
+ * thread when the request is done, so callers can overlap S3 I/O with their own work. This utility
+ * is configured to work exclusively with the us-west-2 region.
+ *
+ * <p>Errors are handled as in {@link S3Utility}: they are logged and the future completes with
+ * false, null or an empty list, never exceptionally. Callbacks chained to the futures run on SDK
+ * threads and must not block.
+ *
+ * <p>Available Methods:
+ *
+ * <ul>
+ *   <li>uploadFile - Upload file to S3
+ *   <li>uploadLocalFile - Upload a local file to S3 without loading it into memory
+ *   <li>downloadFileAsStream - Get file as InputStream once the response starts
+ *   <li>getObjectMetadata - Get size, ETag and other metadata of a file
+ *   <li>listFileKeys - Get all file keys from bucket
+ *   <li>copyFileToAnotherBucket - Copy file between buckets
+ *   <li>moveFileToAnotherBucket - Move file between buckets
+ *   <li>deleteFile - Delete file from S3
+ *   <li>fileExists - Check if file exists in bucket
+ * </ul>
+ */
+@Slf4j
+public class S3AsyncUtility implements Closeable {
+
+  private static final Region AWS_REGION = Region.US_WEST_2;
+
+  private final S3AsyncClient s3AsyncClient;
+
+  S3AsyncUtility(S3AsyncClient s3AsyncClient) {
+    this.s3AsyncClient = s3AsyncClient;
+  }
+
+  /**
+   * Creates an S3AsyncUtility with its own client. The client holds a connection pool (and native
+   * resources for the CRT-based client); create one per application and close it on shutdown.
+   */
+  public static S3AsyncUtility create(@NonNull S3AsyncConfig config) {
+    try {
+      log.debug(
+          "Creating {} S3 async client for region: {}",
+          config.isCrtEnabled() ? "CRT-based" : "Netty-based",
+          AWS_REGION);
+      return new S3AsyncUtility(buildClient(config));
+    } catch (Exception e) {
+      log.error("Error initiating S3AsyncClient for region {}: {}", AWS_REGION, e.getMessage(), e);
+      throw new RuntimeException("Failed to create S3AsyncClient for region: " + AWS_REGION, e);
+    }
+  }
+
+  private static S3AsyncClient buildClient(S3AsyncConfig config) {
+    final Duration connectionTimeout = Duration.ofSeconds(config.getConnectionTimeoutSeconds());
+    if (config.isCrtEnabled()) {
+      return S3AsyncClient.crtBuilder()
+          .region(AWS_REGION)
+          .maxConcurrency(config.getMaxConcurrency())
+          .targetThroughputInGbps(config.getTargetThroughputInGbps())
+          .minimumPartSizeInBytes(config.getMinimumPartSizeInBytes())
+          .httpConfiguration(
+              S3CrtHttpConfiguration.builder().connectionTimeout(connectionTimeout).build())
+          .build();
+    }
+    return S3AsyncClient.builder()
+        .region(AWS_REGION)
+        .httpClientBuilder(
+            NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(config.getMaxConcurrency())
+                .maxPendingConnectionAcquires(config.getMaxPendingConnectionAcquires())
+                .connectionTimeout(connectionTimeout))
+        .build();
+  }
+
+  /** Closes the S3 client and releases its connections. Requests in flight fail. */
+  @Override
+  public void close() {
+    try {
+      log.debug("Closing S3 async client");
+      s3AsyncClient.close();
+    } catch (Exception e) {
+      log.warn("Error closing S3 async client: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Uploads a file to the specified S3 bucket with server-side encryption (AES256). The content
+   * type is automatically determined based on the file extension.
+   *
+   * @param fileContent the content of the file to upload as a String
+   * @param fileName the name/key of the file in S3 (including path if applicable)
+   * @param bucketName the name of the S3 bucket
+   * @return future of true if the upload was successful, false otherwise
+   */
+  public CompletableFuture<Boolean> uploadFile(
+      String fileContent, String fileName, String bucketName) {
+    if (fileContent == null || fileContent.isEmpty()) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: fileContent cannot be null or empty",
+          fileName,
+          bucketName);
+      return CompletableFuture.completedFuture(false);
+    }
+    return upload(
+        () -> AsyncRequestBody.fromBytes(fileContent.getBytes(StandardCharsets.UTF_8)),
+        fileName,
+        bucketName);
+  }
+
+  /**
+   * Uploads a local file to the specified S3 bucket with server-side encryption (AES256). The file
+   * is streamed from disk, and the CRT-based client uploads large files in parallel parts.
+   *
+   * @param file local file to upload
+   * @param fileName the name/key of the file in S3 (including path if applicable)
+   * @param bucketName the name of the S3 bucket
+   * @return future of true if the upload was successful, false otherwise
+   */
+  public CompletableFuture<Boolean> uploadLocalFile(Path file, String fileName, String bucketName) {
+    if (file == null || !Files.isRegularFile(file)) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: {} is not a readable file",
+          fileName,
+          bucketName,
+          file);
+      return CompletableFuture.completedFuture(false);
+    }
+    return upload(() -> AsyncRequestBody.fromFile(file), fileName, bucketName);
+  }
+
+  private CompletableFuture<Boolean> upload(
+      Supplier<AsyncRequestBody> requestBody, String fileName, String bucketName) {
+    log.info("Attempting to upload file {} to S3 bucket {}", fileName, bucketName);
+
+    try {
+      S3Utility.validateInputs(fileName, bucketName);
+
+      PutObjectRequest putObjectRequest =
+          PutObjectRequest.builder()
+              .bucket(bucketName)
+              .key(fileName)
+              .contentType(S3Utility.getContentType(fileName))
+              .serverSideEncryption(ServerSideEncryption.AES256)
+              .build();
+
+      return s3AsyncClient
+          .putObject(putObjectRequest, requestBody.get())
+          .handle(
+              (response, error) -> {
+                if (error != null) {
+                  logError("uploading file " + fileName + " to bucket " + bucketName, error);
+                  return false;
+                }
+                log.info(
+                    "File {} uploaded successfully to S3 bucket {}. ETag: {}",
+                    fileName,
+                    bucketName,
+                    response.eTag());
+                return true;
+              });
+    } catch (Exception e) {
+      logError("uploading file " + fileName + " to bucket " + bucketName, e);
+      return CompletableFuture.completedFuture(false);
+    }
+  }
+
+  /**
+   * Downloads a file from S3. The future completes with a stream as soon as the response starts;
+   * the body is read from the stream while it arrives. The caller is responsible for closing the
+   * returned stream.
+   *
+   * @param fileName the name/key of the file to download from S3
+   * @param bucketName the name of the S3 bucket
+   * @return future of the file data, or of null if an error occurs
+   */
+  public CompletableFuture<ResponseInputStream<GetObjectResponse>> downloadFileAsStream(
+      final String fileName, final String bucketName) {
+    log.info("Attempting to read file {} from S3 bucket {}", fileName, bucketName);
+
+    try {
+      S3Utility.validateInputs(fileName, bucketName);
+
+      GetObjectRequest getObjectRequest =
+          GetObjectRequest.builder().bucket(bucketName).key(fileName).build();
+      return s3AsyncClient
+          .getObject(getObjectRequest, AsyncResponseTransformer.toBlockingInputStream())
+          .handle(
+              (file, error) -> {
+                if (error != null) {
+                  logError("reading file " + fileName + " from bucket " + bucketName, error);
+                  return null;
+                }
+                log.info("Successfully retrieved file {} from S3", fileName);
+                return file;
+              });
+    } catch (Exception e) {
+      logError("reading file " + fileName + " from bucket " + bucketName, e);
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  /**
+   * Reads the metadata (size, ETag, last modified, ...) of a file without downloading it.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the S3 bucket
+   * @return future of the HEAD response of the object, or of null if it does not exist or an error
+   *     occurs
+   */
+  public CompletableFuture<HeadObjectResponse> getObjectMetadata(
+      final String fileName, final String bucketName) {
+    return headObject(fileName, bucketName)
+        .handle(
+            (response, error) -> {
+              if (error == null) {
+                return response;
+              }
+              if (isNotFound(error)) {
+                log.info("File {} does not exist in bucket {}", fileName, bucketName);
+              } else {
+                logError(
+                    "reading metadata of file " + fileName + " in bucket " + bucketName, error);
+              }
+              return null;
+            });
+  }
+
+  /**
+   * Lists all file keys (object names) in the specified S3 bucket, following every page.
+   *
+   * @param bucketName the name of the S3 bucket
+   * @return future of the file keys, or of an empty list if the bucket is empty or an error occurs
+   */
+  public CompletableFuture<List<String>> listFileKeys(String bucketName) {
+    log.info("Attempting to get all files from S3 bucket {}", bucketName);
+
+    try {
+      if (bucketName == null || bucketName.trim().isEmpty()) {
+        throw new IllegalArgumentException("bucketName cannot be null or empty");
+      }
+
+      ListObjectsV2Request listObjectsRequest =
+          ListObjectsV2Request.builder().bucket(bucketName).build();
+      // pages are delivered one at a time, so the list needs no synchronization
+      final List<String> fileNames = new ArrayList<>();
+      return s3AsyncClient
+          .listObjectsV2Paginator(listObjectsRequest)
+          .subscribe(page -> page.contents().forEach(s3Object -> fileNames.add(s3Object.key())))
+          .handle(
+              (ignored, error) -> {
+                if (error != null) {
+                  logError("getting files from bucket " + bucketName, error);
+                  return List.of();
+                }
+                log.info("Retrieved {} files from bucket {}", fileNames.size(), bucketName);
+                return fileNames;
+              });
+    } catch (Exception e) {
+      logError("getting files from bucket " + bucketName, e);
+      return CompletableFuture.completedFuture(List.of());
+    }
+  }
+
+  /**
+   * Copies a file to another bucket under the same key with server-side encryption (AES256). The
+   * CRT-based client copies large files in parallel parts.
+   *
+   * @param fileName the name/key of the file to copy
+   * @param sourceBucketName the name of the source S3 bucket
+   * @param destinationBucketName the name of the destination S3 bucket
+   * @return future of true if the copy was successful, false otherwise
+   */
+  public CompletableFuture<Boolean> copyFileToAnotherBucket(
+      String fileName, String sourceBucketName, String destinationBucketName) {
+    log.info(
+        "Attempting to copy file {} from bucket {} to bucket {}",
+        fileName,
+        sourceBucketName,
+        destinationBucketName);
+
+    try {
+      S3Utility.validateInputs(fileName, sourceBucketName);
+      if (destinationBucketName == null || destinationBucketName.trim().isEmpty()) {
+        throw new IllegalArgumentException("destinationBucketName cannot be null or empty");
+      }
+
+      CopyObjectRequest copyObjectRequest =
+          CopyObjectRequest.builder()
+              .sourceBucket(sourceBucketName)
+              .sourceKey(fileName)
+              .destinationBucket(destinationBucketName)
+              .destinationKey(fileName)
+              .serverSideEncryption(ServerSideEncryption.AES256)
+              .build();
+
+      return s3AsyncClient
+          .copyObject(copyObjectRequest)
+          .handle(
+              (response, error) -> {
+                if (error != null) {
+                  logError(
+                      "copying file "
+                          + fileName
+                          + " from bucket "
+                          + sourceBucketName
+                          + " to bucket "
+                          + destinationBucketName,
+                      error);
+                  return false;
+                }
+                log.info(
+                    "File {} copied to bucket {} with ETag: {}",
+                    fileName,
+                    destinationBucketName,
+                    response.copyObjectResult().eTag());
+                return true;
+              });
+    } catch (Exception e) {
+      logError("copying file " + fileName, e);
+      return CompletableFuture.completedFuture(false);
+    }
+  }
+
+  /**
+   * Moves a file from one S3 bucket to another by copying and then deleting the original. If the
+   * copy succeeds but delete fails, the file will exist in both locations.
+   *
+   * @param fileName the name/key of the file to move
+   * @param sourceBucketName the name of the source S3 bucket
+   * @param destinationBucketName the name of the destination S3 bucket
+   * @return future of true if the move (copy + delete) was successful, false otherwise
+   */
+  public CompletableFuture<Boolean> moveFileToAnotherBucket(
+      String fileName, String sourceBucketName, String destinationBucketName) {
+    return copyFileToAnotherBucket(fileName, sourceBucketName, destinationBucketName)
+        .thenCompose(
+            copied ->
+                copied
+                    ? deleteFile(fileName, sourceBucketName)
+                    : CompletableFuture.completedFuture(false));
+  }
+
+  /**
+   * Deletes a file from the specified S3 bucket.
+   *
+   * @param fileName the name/key of the file to delete
+   * @param bucketName the name of the S3 bucket
+   * @return future of true if the deletion was successful, false otherwise
+   */
+  public CompletableFuture<Boolean> deleteFile(String fileName, String bucketName) {
+    log.info("Attempting to delete file {} from S3 bucket {}", fileName, bucketName);
+
+    try {
+      S3Utility.validateInputs(fileName, bucketName);
+
+      DeleteObjectRequest deleteObjectRequest =
+          DeleteObjectRequest.builder().bucket(bucketName).key(fileName).build();
+
+      return s3AsyncClient
+          .deleteObject(deleteObjectRequest)
+          .handle(
+              (response, error) -> {
+                if (error != null) {
+                  logError("deleting file " + fileName + " from bucket " + bucketName, error);
+                  return false;
+                }
+                log.info("File {} deleted successfully from bucket {}", fileName, bucketName);
+                return true;
+              });
+    } catch (Exception e) {
+      logError("deleting file " + fileName + " from bucket " + bucketName, e);
+      return CompletableFuture.completedFuture(false);
+    }
+  }
+
+  /**
+   * Checks if a file exists in the specified S3 bucket.
+   *
+   * @param fileName the name/key of the file to check
+   * @param bucketName the name of the S3 bucket
+   * @return future of true if the file exists, false otherwise (including error cases)
+   */
+  public CompletableFuture<Boolean> fileExists(String fileName, String bucketName) {
+    return headObject(fileName, bucketName)
+        .handle(
+            (response, error) -> {
+              if (error == null) {
+                log.info("File {} exists in bucket {}", fileName, bucketName);
+                return true;
+              }
+              if (isNotFound(error)) {
+                log.info("File {} does not exist in bucket {}", fileName, bucketName);
+              } else {
+                logError("checking if file " + fileName + " exists in bucket " + bucketName, error);
+              }
+              return false;
+            });
+  }
+
+  private CompletableFuture<HeadObjectResponse> headObject(String fileName, String bucketName) {
+    try {
+      S3Utility.validateInputs(fileName, bucketName);
+      return s3AsyncClient.headObject(
+          HeadObjectRequest.builder().bucket(bucketName).key(fileName).build());
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** HEAD responses have no body, so a missing key can also arrive as a plain 404. */
+  private static boolean isNotFound(Throwable error) {
+    final Throwable cause = unwrap(error);
+    return cause instanceof NoSuchKeyException
+        || (cause instanceof S3Exception s3Exception && s3Exception.statusCode() == 404);
+  }
+
+  private static void logError(String action, Throwable error) {
+    final Throwable cause = unwrap(error);
+    if (cause instanceof IllegalArgumentException) {
+      log.error("Invalid input for {}: {}", action, cause.getMessage());
+    } else if (cause instanceof S3Exception s3Exception && s3Exception.awsErrorDetails() != null) {
+      log.error(
+          "S3 error {}: {}", action, s3Exception.awsErrorDetails().errorMessage(), s3Exception);
+    } else {
+      log.error("Error {}: {}", action, cause.getMessage(), cause);
+    }
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+}
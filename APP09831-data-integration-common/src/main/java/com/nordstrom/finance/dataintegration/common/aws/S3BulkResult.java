@@ -0,0 +1,31 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+
+/** Per-key outcome of a bulk S3 operation. */
+@Value
+public class S3BulkResult {
+
+  /** Keys the operation succeeded for. */
+  List<String> succeededKeys;
+
+  /** Keys the operation failed for, with the reason. */
+  Map<String, String> failedKeys;
+
+  S3BulkResult(List<String> succeededKeys, Map<String, String> failedKeys) {
+    this.succeededKeys = Collections.unmodifiableList(new ArrayList<>(succeededKeys));
+    this.failedKeys = Collections.unmodifiableMap(new LinkedHashMap<>(failedKeys));
+  }
+
+  /**
+   * @return true if the operation succeeded for every key
+   */
+  public boolean isSuccessful() {
+    return failedKeys.isEmpty();
+  }
+}
@@ -0,0 +1,293 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+/**
+ * OutputStream that uploads its bytes to S3 as a multipart upload while they are written. Bytes are
+ * collected in part-sized buffers; every full buffer is uploaded as one part on a background
+ * thread, up to {@code maxPartsInFlight} parts at a time. Writes block while all buffers are in
+ * flight, so the stream holds at most {@code (maxPartsInFlight + 1) x partSize} bytes whatever the
+ * size of the file. Content that fits in one buffer is sent with a single PutObject on close.
+ *
+ * <p>{@link #close()} uploads the last part and completes the upload, which makes the file visible;
+ * it throws an IOException when the upload failed. {@link #abort()} discards the upload instead.
+ * Call it when producing the content fails, otherwise close would publish a truncated file. A
+ * failed part aborts the upload and fails the next write. Not thread-safe.
+ *
+ * <p>Created by {@link S3Utility#openUploadStream}.
+ */
+@Slf4j
+public class S3MultipartUploadStream extends OutputStream {
+
+  /** S3 limit on the number of parts of an upload. */
+  static final int MAX_PARTS = 10_000;
+
+  private static final long ABORT_AWAIT_SECONDS = 60;
+  private static final AtomicInteger STREAM_COUNT = new AtomicInteger();
+
+  private final S3Utility s3Utility;
+  private final String fileName;
+  private final String bucketName;
+  private final int partSize;
+  private final int maxBuffers;
+  private final BlockingQueue<byte[]> freeBuffers;
+  private final ExecutorService uploader;
+  private final List<Future<CompletedPart>> parts = new ArrayList<>();
+
+  private int allocatedBuffers;
+  private byte[] buffer;
+  private int position;
+  private long bytesWritten;
+  private String uploadId;
+  private volatile boolean partFailed;
+  private boolean closed;
+
+  S3MultipartUploadStream(
+      S3Utility s3Utility, String fileName, String bucketName, int partSize, int maxPartsInFlight) {
+    S3Utility.validateInputs(fileName, bucketName);
+    if (partSize < 1 || maxPartsInFlight < 1) {
+      throw new IllegalArgumentException("partSize and maxPartsInFlight must be positive");
+    }
+    this.s3Utility = s3Utility;
+    this.fileName = fileName;
+    this.bucketName = bucketName;
+    this.partSize = partSize;
+    this.maxBuffers = maxPartsInFlight + 1;
+    this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+    final int streamNumber = STREAM_COUNT.incrementAndGet();
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.uploader =
+        Executors.newFixedThreadPool(
+            maxPartsInFlight,
+            runnable -> {
+              final Thread thread =
+                  new Thread(
+                      runnable, "S3-Upload-" + streamNumber + "-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureWritable();
+    if (buffer == null || position == partSize) {
+      nextBuffer();
+    }
+    buffer[position++] = (byte) b;
+    bytesWritten++;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    ensureWritable();
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    while (length > 0) {
+      if (buffer == null || position == partSize) {
+        nextBuffer();
+      }
+      final int chunk = Math.min(length, partSize - position);
+      System.arraycopy(bytes, offset, buffer, position, chunk);
+      position += chunk;
+      offset += chunk;
+      length -= chunk;
+      bytesWritten += chunk;
+    }
+  }
+
+  /** Number of bytes written so far. */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * Uploads the remaining bytes and completes the upload. Does nothing when the stream was already
+   * closed or aborted.
+   *
+   * @throws IOException if a part, the completion or the single-request upload failed; the
+   *     multipart upload is aborted then
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (uploadId == null) {
+        uploadSingleRequest();
+        return;
+      }
+      if (position > 0) {
+        submitPart();
+      }
+      final List<CompletedPart> completedParts = awaitParts();
+      if (!s3Utility.completeMultipartUpload(fileName, bucketName, uploadId, completedParts)) {
+        abortUpload();
+        throw new IOException("Could not complete the upload of file " + fileName);
+      }
+      log.info(
+          "Uploaded {} bytes of file {} to bucket {} in {} parts",
+          bytesWritten,
+          fileName,
+          bucketName,
+          completedParts.size());
+    } finally {
+      uploader.shutdownNow();
+      buffer = null;
+      freeBuffers.clear();
+    }
+  }
+
+  /**
+   * Discards the upload: stops the parts in flight and aborts the multipart upload, so no file is
+   * created. Does nothing when the stream was already closed or aborted.
+   */
+  public void abort() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    abortUpload();
+    buffer = null;
+    freeBuffers.clear();
+  }
+
+  private void ensureWritable() throws IOException {
+    if (closed) {
+      throw new IOException("Upload stream of file " + fileName + " is closed");
+    }
+    if (partFailed) {
+      abort();
+      throw new IOException("Upload of a part of file " + fileName + " failed; upload aborted");
+    }
+  }
+
+  /** Sends the full buffer as a part and takes a free one, waiting while all are in flight. */
+  private void nextBuffer() throws IOException {
+    if (buffer != null) {
+      if (uploadId == null) {
+        uploadId = s3Utility.createMultipartUpload(fileName, bucketName);
+        if (uploadId == null) {
+          abort();
+          throw new IOException("Could not start the upload of file " + fileName);
+        }
+      }
+      submitPart();
+    }
+    byte[] next = freeBuffers.poll();
+    if (next == null && allocatedBuffers < maxBuffers) {
+      allocatedBuffers++;
+      next = new byte[partSize];
+    }
+    if (next == null) {
+      try {
+        next = freeBuffers.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        abort();
+        throw new InterruptedIOException("Interrupted while uploading file " + fileName);
+      }
+    }
+    buffer = next;
+    position = 0;
+  }
+
+  private void submitPart() throws IOException {
+    final int partNumber = parts.size() + 1;
+    if (partNumber > MAX_PARTS) {
+      abort();
+      throw new IOException(
+          "File "
+              + fileName
+              + " needs more than "
+              + MAX_PARTS
+              + " parts of "
+              + partSize
+              + " bytes");
+    }
+    final byte[] part = buffer;
+    final int length = position;
+    buffer = null;
+    parts.add(
+        uploader.submit(
+            () -> {
+              try {
+                final CompletedPart completedPart =
+                    s3Utility.uploadPart(fileName, bucketName, uploadId, partNumber, part, length);
+                if (completedPart == null) {
+                  partFailed = true;
+                }
+                return completedPart;
+              } finally {
+                freeBuffers.offer(part);
+              }
+            }));
+  }
+
+  private List<CompletedPart> awaitParts() throws IOException {
+    final List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+    try {
+      for (Future<CompletedPart> part : parts) {
+        final CompletedPart completedPart = part.get();
+        if (completedPart == null) {
+          abortUpload();
+          throw new IOException("Upload of a part of file " + fileName + " failed; upload aborted");
+        }
+        completedParts.add(completedPart);
+      }
+      return completedParts;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      abortUpload();
+      throw new InterruptedIOException("Interrupted while uploading file " + fileName);
+    } catch (ExecutionException ex) {
+      abortUpload();
+      throw new IOException("Upload of a part of file " + fileName + " failed", ex.getCause());
+    }
+  }
+
+  private void uploadSingleRequest() throws IOException {
+    final int length = buffer == null ? 0 : position;
+    final byte[] content = buffer == null ? new byte[0] : buffer;
+    if (!s3Utility.upload(
+        RequestBody.fromInputStream(new ByteArrayInputStream(content, 0, length), length),
+        fileName,
+        bucketName)) {
+      throw new IOException("Could not upload file " + fileName);
+    }
+  }
+
+  /** Parts still uploading after the abort would be stored again, so wait for them first. */
+  private void abortUpload() {
+    uploader.shutdownNow();
+    if (uploadId == null) {
+      return;
+    }
+    try {
+      if (!uploader.awaitTermination(ABORT_AWAIT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Parts of file {} still uploading while aborting the upload", fileName);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    s3Utility.abortMultipartUpload(fileName, bucketName, uploadId);
+  }
+}
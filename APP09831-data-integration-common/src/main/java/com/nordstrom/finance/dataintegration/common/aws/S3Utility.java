@@ -1,11 +1,33 @@
 package com.nordstrom.finance.dataintegration.common.aws;
 
+import com.nordstrom.finance.dataintegration.common.aws.config.S3ConcurrencyLimitConfig;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -16,27 +38,67 @@ import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 
 /**
  * Instance-based S3 Service for uploading files to AWS S3. Thread-safe singleton pattern. This
- * utility is configured to work exclusively with the us-west-2 region.
+ * utility is configured to work exclusively with the us-west-2 region. It is the S3 implementation
+ * of {@link ObjectStore}; services that only need the ObjectStore operations should depend on the
+ * interface so they can run against a local or in-memory store.
  *
  * <p>Available Methods:
  *
  * <ul>
  *   <li>uploadFile - Upload file to S3
+ *   <li>uploadLocalFile - Upload a local file to S3 without loading it into memory
+ *   <li>uploadStreamed, openUploadStream - Upload content while it is written, in parts, with
+ *       memory use independent of the file size
  *   <li>downloadFileAsStream - Get file as InputStream
+ *   <li>downloadFileRangeAsStream - Get a byte range of a file as InputStream
+ *   <li>getObjectMetadata - Get size, ETag and other metadata of a file
  *   <li>listAllObject - Get all S3Objects with metadata
+ *   <li>streamObjects, streamFileKeys - Lazily list objects matching a filter, optionally scanning
+ *       several prefixes concurrently
+ *   <li>listCommonPrefixes - Get the sub-prefixes (folders) below a prefix
  *   <li>moveFileToAnotherBucket - Move file between buckets
+ *   <li>createMultipartUpload, uploadPart, uploadPartCopy, completeMultipartUpload,
+ *       abortMultipartUpload - Upload or copy large files in parts
  *   <li>deleteFile - Delete file from S3
+ *   <li>deleteFiles, moveFilesToAnotherBucket - Delete or move many files with batched and
+ *       concurrent requests
  *   <li>listFileKeys - Get all file keys from bucket
  *   <li>fileExists - Check if file exists in bucket
  * </ul>
+ *
+ * <p>Single-request calls go through an {@link AdaptiveConcurrencyLimiter}. It is off unless a
+ * service opts in with {@link #configureConcurrencyLimit}; then it shrinks the number of concurrent
+ * requests when S3 throttles (SlowDown/503) and retries throttled requests with jittered backoff.
+ * Paginated listings are not limited.
  */
 @Slf4j
-public class S3Utility {
+public class S3Utility implements ObjectStore {
 
   private static final Region AWS_REGION = Region.US_WEST_2;
 
+  /** Part size of streamed uploads; S3 requires at least 5 MiB for all parts but the last. */
+  public static final int DEFAULT_UPLOAD_PART_SIZE = 8 * 1024 * 1024;
+
+  static final int MIN_UPLOAD_PART_SIZE = 5 * 1024 * 1024;
+
+  /** S3 limit on the keys of one DeleteObjects request. */
+  private static final int MAX_KEYS_PER_DELETE = 1000;
+
+  private static final AtomicInteger MOVE_COUNT = new AtomicInteger();
+
+  /** Parts of a streamed upload sent concurrently. */
+  public static final int DEFAULT_UPLOAD_PARTS_IN_FLIGHT = 4;
+
+  /** Writes the content of a streamed upload. */
+  @FunctionalInterface
+  public interface ContentWriter {
+    void write(Writer writer) throws IOException;
+  }
+
   private static volatile S3Utility instance;
   private volatile S3Client s3Client;
+  private volatile AdaptiveConcurrencyLimiter concurrencyLimiter =
+      new AdaptiveConcurrencyLimiter(new S3ConcurrencyLimitConfig(), null);
 
   private static final Map<String, String> EXTENSION_TO_CONTENT_TYPE =
       Map.ofEntries(
@@ -110,16 +172,170 @@ public class S3Utility {
     }
   }
 
+  /**
+   * Replaces the limit on concurrent S3 requests, e.g. to tune it from service configuration or to
+   * send its gauges. Requests already waiting for a permit keep the previous limiter.
+   *
+   * @param config limits and retry settings; disabled sends every request at once, unretried
+   * @param metricsClient receives the limit, in-flight and throttle rate gauges; may be null
+   */
+  public void configureConcurrencyLimit(
+      S3ConcurrencyLimitConfig config, MetricsClient metricsClient) {
+    log.info("Configuring S3 concurrency limit: {}", config);
+    concurrencyLimiter = new AdaptiveConcurrencyLimiter(config, metricsClient);
+  }
+
+  /**
+   * @return the limiter of concurrent S3 requests, for its current limit and throttle rate
+   */
+  public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+    return concurrencyLimiter;
+  }
+
+  /** Same as {@link #closeS3Client()}. */
+  @Override
+  public void close() {
+    closeS3Client();
+  }
+
   /**
    * Uploads a file to the specified S3 bucket with server-side encryption (AES256). The content
    * type is automatically determined based on the file extension.
    *
+   * <p>The content is held in memory twice (String and UTF-8 bytes); use {@link #uploadStreamed}
+   * for large files.
+   *
    * @param fileContent the content of the file to upload as a String
    * @param fileName the name/key of the file in S3 (including path if applicable)
    * @param bucketName the name of the S3 bucket
    * @return true if the upload was successful, false otherwise
    */
+  @Override
   public boolean uploadFile(String fileContent, String fileName, String bucketName) {
+    if (fileContent == null || fileContent.isEmpty()) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: fileContent cannot be null or empty",
+          fileName,
+          bucketName);
+      return false;
+    }
+    final byte[] fileBytes = fileContent.getBytes(StandardCharsets.UTF_8);
+    return upload(
+        RequestBody.fromInputStream(new ByteArrayInputStream(fileBytes), fileBytes.length),
+        fileName,
+        bucketName);
+  }
+
+  /**
+   * Uploads a local file to the specified S3 bucket with server-side encryption (AES256). The file
+   * is streamed from disk, so its size is not limited by the heap. The content type is determined
+   * from the S3 key.
+   *
+   * @param file local file to upload
+   * @param fileName the name/key of the file in S3 (including path if applicable)
+   * @param bucketName the name of the S3 bucket
+   * @return true if the upload was successful, false otherwise
+   */
+  @Override
+  public boolean uploadLocalFile(Path file, String fileName, String bucketName) {
+    if (file == null || !Files.isRegularFile(file)) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: {} is not a readable file",
+          fileName,
+          bucketName,
+          file);
+      return false;
+    }
+    return upload(RequestBody.fromFile(file), fileName, bucketName);
+  }
+
+  /**
+   * Uploads text content to the specified S3 bucket while it is written, with server-side
+   * encryption (AES256). The writer encodes UTF-8 into part-sized buffers that are uploaded in the
+   * background as a multipart upload, so memory use is bounded by {@link #DEFAULT_UPLOAD_PART_SIZE}
+   * x ({@link #DEFAULT_UPLOAD_PARTS_IN_FLIGHT} + 1) whatever the size of the file. If the content
+   * writer throws, the upload is aborted and no file is created.
+   *
+   * @param fileName the name/key of the file in S3 (including path if applicable)
+   * @param bucketName the name of the S3 bucket
+   * @param contentWriter writes the content to the given writer; must not close it
+   * @return true if the upload was successful, false otherwise
+   */
+  public boolean uploadStreamed(String fileName, String bucketName, ContentWriter contentWriter) {
+    final S3MultipartUploadStream uploadStream;
+    try {
+      uploadStream = openUploadStream(fileName, bucketName);
+    } catch (IllegalArgumentException e) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: {}",
+          fileName,
+          bucketName,
+          e.getMessage());
+      return false;
+    }
+    try {
+      final Writer writer =
+          new BufferedWriter(new OutputStreamWriter(uploadStream, StandardCharsets.UTF_8));
+      contentWriter.write(writer);
+      writer.flush();
+    } catch (Exception e) {
+      uploadStream.abort();
+      log.error(
+          "Error writing file {} to S3 bucket {}, upload aborted: {}",
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return false;
+    }
+    try {
+      uploadStream.close();
+      return true;
+    } catch (IOException e) {
+      log.error(
+          "Error uploading file {} to S3 bucket {}: {}", fileName, bucketName, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Opens a stream that uploads its bytes to the specified S3 bucket while they are written, with
+   * server-side encryption (AES256), using parts of {@link #DEFAULT_UPLOAD_PART_SIZE} bytes and
+   * {@link #DEFAULT_UPLOAD_PARTS_IN_FLIGHT} concurrent part uploads. Closing the stream completes
+   * the upload; call {@link S3MultipartUploadStream#abort()} instead when producing the content
+   * fails.
+   *
+   * @param fileName the name/key of the file in S3 (including path if applicable)
+   * @param bucketName the name of the S3 bucket
+   * @return the upload stream
+   * @throws IllegalArgumentException if fileName or bucketName is null or empty
+   */
+  public S3MultipartUploadStream openUploadStream(String fileName, String bucketName) {
+    return openUploadStream(
+        fileName, bucketName, DEFAULT_UPLOAD_PART_SIZE, DEFAULT_UPLOAD_PARTS_IN_FLIGHT);
+  }
+
+  /**
+   * Opens a stream that uploads its bytes to the specified S3 bucket while they are written. The
+   * stream holds at most partSize x (maxPartsInFlight + 1) bytes; files can have up to 10,000
+   * parts.
+   *
+   * @param fileName the name/key of the file in S3 (including path if applicable)
+   * @param bucketName the name of the S3 bucket
+   * @param partSize bytes per part, at least 5 MiB
+   * @param maxPartsInFlight parts uploaded concurrently
+   * @return the upload stream
+   * @throws IllegalArgumentException if an argument is invalid
+   */
+  public S3MultipartUploadStream openUploadStream(
+      String fileName, String bucketName, int partSize, int maxPartsInFlight) {
+    if (partSize < MIN_UPLOAD_PART_SIZE) {
+      throw new IllegalArgumentException("partSize must be at least " + MIN_UPLOAD_PART_SIZE);
+    }
+    return new S3MultipartUploadStream(this, fileName, bucketName, partSize, maxPartsInFlight);
+  }
+
+  boolean upload(RequestBody requestBody, String fileName, String bucketName) {
     log.info(
         "Attempting to upload file {} to S3 bucket {} in region {}",
         fileName,
@@ -129,14 +345,8 @@ public class S3Utility {
     try {
       validateInputs(fileName, bucketName);
 
-      if (fileContent == null || fileContent.isEmpty()) {
-        throw new IllegalArgumentException("fileContent cannot be null or empty");
-      }
-
       S3Client client = getS3Client();
 
-      byte[] fileBytes = fileContent.getBytes(StandardCharsets.UTF_8);
-
       String contentType = getContentType(fileName);
 
       PutObjectRequest putObjectRequest =
@@ -148,9 +358,8 @@ public class S3Utility {
               .build();
 
       PutObjectResponse response =
-          client.putObject(
-              putObjectRequest,
-              RequestBody.fromInputStream(new ByteArrayInputStream(fileBytes), fileBytes.length));
+          concurrencyLimiter.call(
+              "PutObject", () -> client.putObject(putObjectRequest, requestBody));
 
       log.info(
           "File {} uploaded successfully to S3 bucket {}. ETag: {}",
@@ -189,6 +398,7 @@ public class S3Utility {
    * @param bucketName the name of the S3 bucket
    * @return ResponseInputStream containing the file data, or null if an error occurs
    */
+  @Override
   public ResponseInputStream<GetObjectResponse> downloadFileAsStream(
       final String fileName, final String bucketName) {
     log.info("Attempting to read file {} from S3 bucket {}", fileName, bucketName);
@@ -199,7 +409,8 @@ public class S3Utility {
       GetObjectRequest getObjectRequest =
           GetObjectRequest.builder().bucket(bucketName).key(fileName).build();
       S3Client client = getS3Client();
-      ResponseInputStream<GetObjectResponse> file = client.getObject(getObjectRequest);
+      ResponseInputStream<GetObjectResponse> file =
+          concurrencyLimiter.call("GetObject", () -> client.getObject(getObjectRequest));
       log.info("Successfully retrieved file {} from S3", fileName);
       return file;
     } catch (Exception e) {
@@ -208,9 +419,103 @@ public class S3Utility {
     }
   }
 
+  /**
+   * Downloads a byte range of a file from S3 and returns it as a ResponseInputStream. When an ETag
+   * is given the request only succeeds while the object still has that ETag, so ranges of one
+   * object version can be stitched together safely. The caller is responsible for closing the
+   * returned stream.
+   *
+   * @param fileName the name/key of the file to download from S3
+   * @param bucketName the name of the S3 bucket
+   * @param firstByte zero-based offset of the first byte to read
+   * @param lastByte offset of the last byte to read (inclusive), or -1 to read to the end
+   * @param eTag expected ETag of the object, or null to read whatever version is current
+   * @return ResponseInputStream containing the requested bytes, or null if an error occurs
+   *     (including an ETag mismatch)
+   */
+  @Override
+  public ResponseInputStream<GetObjectResponse> downloadFileRangeAsStream(
+      final String fileName,
+      final String bucketName,
+      final long firstByte,
+      final long lastByte,
+      final String eTag) {
+    log.info(
+        "Attempting to read bytes {}-{} of file {} from S3 bucket {}",
+        firstByte,
+        lastByte < 0 ? "" : lastByte,
+        fileName,
+        bucketName);
+
+    try {
+      validateInputs(fileName, bucketName);
+      if (firstByte < 0 || (lastByte >= 0 && lastByte < firstByte)) {
+        throw new IllegalArgumentException(
+            "Invalid byte range " + firstByte + "-" + (lastByte < 0 ? "" : lastByte));
+      }
+
+      GetObjectRequest getObjectRequest =
+          GetObjectRequest.builder()
+              .bucket(bucketName)
+              .key(fileName)
+              .range("bytes=" + firstByte + "-" + (lastByte < 0 ? "" : lastByte))
+              .ifMatch(eTag)
+              .build();
+      S3Client client = getS3Client();
+      ResponseInputStream<GetObjectResponse> file =
+          concurrencyLimiter.call("GetObject", () -> client.getObject(getObjectRequest));
+      log.info(
+          "Successfully retrieved range {} of file {} from S3",
+          file.response().contentRange(),
+          fileName);
+      return file;
+    } catch (Exception e) {
+      log.error("Unable to read range of file {} from bucket: {}", fileName, e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Reads the metadata (size, ETag, last modified, ...) of a file without downloading it.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the S3 bucket
+   * @return size, ETag and last-modified time of the object, or null if it does not exist or an
+   *     error occurs
+   */
+  @Override
+  public ObjectMetadata getObjectMetadata(final String fileName, final String bucketName) {
+    try {
+      validateInputs(fileName, bucketName);
+
+      HeadObjectRequest headObjectRequest =
+          HeadObjectRequest.builder().bucket(bucketName).key(fileName).build();
+      final S3Client client = getS3Client();
+      final HeadObjectResponse response =
+          concurrencyLimiter.call("HeadObject", () -> client.headObject(headObjectRequest));
+      if (response.contentLength() == null) {
+        log.error("S3 returned no size for file {} in bucket {}", fileName, bucketName);
+        return null;
+      }
+      return new ObjectMetadata(response.contentLength(), response.eTag(), response.lastModified());
+    } catch (NoSuchKeyException e) {
+      log.info("File {} does not exist in bucket {}", fileName, bucketName);
+      return null;
+    } catch (Exception e) {
+      log.error(
+          "Error reading metadata of file {} in S3 bucket {}: {}",
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return null;
+    }
+  }
+
   /**
    * Lists all S3 objects in the specified bucket with their metadata. This method uses pagination
-   * to handle buckets with large numbers of objects.
+   * to handle buckets with large numbers of objects, but holds all of them in memory; use {@link
+   * #streamObjects(String, ObjectListingFilter)} for large buckets.
    *
    * @param bucketName the name of the S3 bucket
    * @return a list of S3Object instances containing object metadata, or an empty list if the bucket
@@ -256,6 +561,137 @@ public class S3Utility {
     }
   }
 
+  /**
+   * Lists the objects of a bucket lazily: a page of keys is requested only when the stream reaches
+   * it, so the first objects arrive after one request and at most one page is held in memory.
+   * Objects come in UTF-8 binary key order. S3 errors are thrown as unchecked SdkExceptions while
+   * the stream is consumed. Close the stream when it is not consumed to the end.
+   *
+   * @param bucketName the name of the S3 bucket
+   * @param filter the objects to list
+   * @return stream of matching objects
+   * @throws IllegalArgumentException if bucketName is null or empty
+   */
+  public Stream<S3Object> streamObjects(String bucketName, ObjectListingFilter filter) {
+    if (bucketName == null || bucketName.trim().isEmpty()) {
+      throw new IllegalArgumentException("bucketName cannot be null or empty");
+    }
+    log.info("Streaming objects of S3 bucket {} with {}", bucketName, filter);
+    return pages(getS3Client(), bucketName, filter, filter.getPrefix()).stream()
+        .flatMap(page -> page.contents().stream())
+        .filter(filter::matches);
+  }
+
+  /**
+   * Lists the keys of a bucket lazily; see {@link #streamObjects(String, ObjectListingFilter)}.
+   *
+   * @param bucketName the name of the S3 bucket
+   * @param filter the objects to list
+   * @return stream of matching keys
+   * @throws IllegalArgumentException if bucketName is null or empty
+   */
+  public Stream<String> streamFileKeys(String bucketName, ObjectListingFilter filter) {
+    return streamObjects(bucketName, filter).map(S3Object::key);
+  }
+
+  /**
+   * Lists the objects below several prefixes, e.g. date partitions, with one paginator per prefix
+   * and up to parallelism prefixes scanned concurrently on background threads. Each prefix replaces
+   * the prefix of the filter. Scans start when the first object is requested and pause while the
+   * consumer is a few pages behind. Objects of one prefix keep their key order, but prefixes are
+   * interleaved. A failed scan throws its SdkException from the stream. Close the stream (e.g.
+   * try-with-resources) to stop the scans when it is not consumed to the end.
+   *
+   * @param bucketName the name of the S3 bucket
+   * @param prefixes the prefixes to scan; they should not overlap
+   * @param filter the objects to list
+   * @param parallelism number of prefixes scanned at the same time
+   * @return stream of matching objects
+   * @throws IllegalArgumentException if bucketName is null or empty or parallelism is not positive
+   */
+  public Stream<S3Object> streamObjects(
+      String bucketName, List<String> prefixes, ObjectListingFilter filter, int parallelism) {
+    if (bucketName == null || bucketName.trim().isEmpty()) {
+      throw new IllegalArgumentException("bucketName cannot be null or empty");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    log.info(
+        "Streaming objects of {} prefixes of S3 bucket {} with {}, {} at a time",
+        prefixes.size(),
+        bucketName,
+        filter,
+        parallelism);
+    final S3Client client = getS3Client();
+    final ParallelPrefixListing listing =
+        new ParallelPrefixListing(
+            prefixes,
+            parallelism,
+            prefix ->
+                () ->
+                    pages(client, bucketName, filter, prefix).stream()
+                        .map(page -> page.contents().stream().filter(filter::matches).toList())
+                        .iterator());
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(listing, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(listing::close);
+  }
+
+  /**
+   * Lists the distinct sub-prefixes below a prefix up to the next delimiter, like the folders of a
+   * directory, e.g. the date partitions "archive/2025-10-01/", "archive/2025-10-02/" of prefix
+   * "archive/" with delimiter "/".
+   *
+   * @param bucketName the name of the S3 bucket
+   * @param prefix the parent prefix, or null for the bucket root
+   * @param delimiter the delimiter, e.g. "/"
+   * @return the common prefixes, or an empty list if there are none or an error occurs
+   */
+  public List<String> listCommonPrefixes(String bucketName, String prefix, String delimiter) {
+    try {
+      if (bucketName == null || bucketName.trim().isEmpty()) {
+        throw new IllegalArgumentException("bucketName cannot be null or empty");
+      }
+      if (delimiter == null || delimiter.isEmpty()) {
+        throw new IllegalArgumentException("delimiter cannot be null or empty");
+      }
+      final ObjectListingFilter filter =
+          ObjectListingFilter.builder().prefix(prefix).delimiter(delimiter).build();
+      final List<String> commonPrefixes =
+          pages(getS3Client(), bucketName, filter, prefix).commonPrefixes().stream()
+              .map(CommonPrefix::prefix)
+              .toList();
+      log.info(
+          "Found {} prefixes below {} in bucket {}", commonPrefixes.size(), prefix, bucketName);
+      return commonPrefixes;
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for listing prefixes of bucket {}: {}", bucketName, e.getMessage());
+      return Collections.emptyList();
+    } catch (Exception e) {
+      log.error(
+          "Error listing prefixes below {} in S3 bucket {}: {}",
+          prefix,
+          bucketName,
+          e.getMessage(),
+          e);
+      return Collections.emptyList();
+    }
+  }
+
+  private static ListObjectsV2Iterable pages(
+      S3Client client, String bucketName, ObjectListingFilter filter, String prefix) {
+    return client.listObjectsV2Paginator(
+        ListObjectsV2Request.builder()
+            .bucket(bucketName)
+            .prefix(prefix)
+            .delimiter(filter.getDelimiter())
+            .startAfter(filter.getStartAfter())
+            .maxKeys(filter.getPageSize())
+            .build());
+  }
+
   /**
    * Moves a file from one S3 bucket to another by copying and then deleting the original. The
    * destination file will have server-side encryption (AES256) applied. If the copy succeeds but
@@ -266,6 +702,7 @@ public class S3Utility {
    * @param destinationBucketName the name of the destination S3 bucket
    * @return true if the move (copy + delete) was successful, false otherwise
    */
+  @Override
   public boolean moveFileToAnotherBucket(
       String fileName, String sourceBucketName, String destinationBucketName) {
     log.info(
@@ -283,26 +720,12 @@ public class S3Utility {
 
       S3Client client = getS3Client();
 
-      CopyObjectRequest copyObjectRequest =
-          CopyObjectRequest.builder()
-              .sourceBucket(sourceBucketName)
-              .sourceKey(fileName)
-              .destinationBucket(destinationBucketName)
-              .destinationKey(fileName)
-              .serverSideEncryption(ServerSideEncryption.AES256)
-              .build();
-
-      CopyObjectResponse copyResponse = client.copyObject(copyObjectRequest);
-      log.info(
-          "File {} copied to bucket {} with ETag: {}",
-          fileName,
-          destinationBucketName,
-          copyResponse.copyObjectResult().eTag());
+      copyObject(client, fileName, sourceBucketName, destinationBucketName);
 
       DeleteObjectRequest deleteObjectRequest =
           DeleteObjectRequest.builder().bucket(sourceBucketName).key(fileName).build();
 
-      client.deleteObject(deleteObjectRequest);
+      concurrencyLimiter.call("DeleteObject", () -> client.deleteObject(deleteObjectRequest));
       log.info("File {} deleted from source bucket {}", fileName, sourceBucketName);
 
       log.info(
@@ -338,6 +761,364 @@ public class S3Utility {
     }
   }
 
+  /**
+   * Moves files from one S3 bucket to another: copies up to concurrency files at a time, then
+   * deletes the copied sources with batched DeleteObjects requests. Destination files get
+   * server-side encryption (AES256). A file whose copy failed stays in the source bucket only; a
+   * file whose source could not be deleted exists in both buckets and is reported as failed.
+   *
+   * @param fileNames the names/keys of the files to move
+   * @param sourceBucketName the name of the source S3 bucket
+   * @param destinationBucketName the name of the destination S3 bucket
+   * @param concurrency number of copies in flight
+   * @return per-key outcome; every key is failed if the input is invalid
+   */
+  public S3BulkResult moveFilesToAnotherBucket(
+      final List<String> fileNames,
+      final String sourceBucketName,
+      final String destinationBucketName,
+      final int concurrency) {
+    log.info(
+        "Attempting to move {} files from bucket {} to bucket {}, {} at a time",
+        fileNames.size(),
+        sourceBucketName,
+        destinationBucketName,
+        concurrency);
+    final Map<String, String> failedKeys = new LinkedHashMap<>();
+    try {
+      if (sourceBucketName == null || sourceBucketName.trim().isEmpty()) {
+        throw new IllegalArgumentException("sourceBucketName cannot be null or empty");
+      }
+      if (destinationBucketName == null || destinationBucketName.trim().isEmpty()) {
+        throw new IllegalArgumentException("destinationBucketName cannot be null or empty");
+      }
+      if (concurrency < 1) {
+        throw new IllegalArgumentException("concurrency must be positive");
+      }
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for moving files: {}", e.getMessage());
+      fileNames.forEach(fileName -> failedKeys.put(fileName, e.getMessage()));
+      return new S3BulkResult(List.of(), failedKeys);
+    }
+
+    final S3Client client = getS3Client();
+    final List<String> copiedKeys = new ArrayList<>();
+    final int moveNumber = MOVE_COUNT.incrementAndGet();
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ExecutorService copier =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(concurrency, fileNames.size())),
+            runnable -> {
+              final Thread thread =
+                  new Thread(
+                      runnable, "S3-Copy-" + moveNumber + "-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      final Map<String, Future<?>> copies = new LinkedHashMap<>();
+      for (String fileName : fileNames) {
+        copies.put(
+            fileName,
+            copier.submit(
+                () -> {
+                  validateInputs(fileName, sourceBucketName);
+                  copyObject(client, fileName, sourceBucketName, destinationBucketName);
+                }));
+      }
+      for (Map.Entry<String, Future<?>> copy : copies.entrySet()) {
+        try {
+          copy.getValue().get();
+          copiedKeys.add(copy.getKey());
+        } catch (ExecutionException e) {
+          log.error("Error copying file {}: {}", copy.getKey(), errorMessage(e.getCause()));
+          failedKeys.put(copy.getKey(), "Copy failed: " + errorMessage(e.getCause()));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      fileNames.stream()
+          .filter(fileName -> !copiedKeys.contains(fileName))
+          .forEach(fileName -> failedKeys.putIfAbsent(fileName, "Interrupted before the copy"));
+    } finally {
+      copier.shutdownNow();
+    }
+
+    final S3BulkResult deleted = deleteFiles(copiedKeys, sourceBucketName);
+    deleted
+        .getFailedKeys()
+        .forEach(
+            (fileName, reason) ->
+                failedKeys.put(fileName, "Copied but source not deleted: " + reason));
+    log.info(
+        "Moved {} of {} files from bucket {} to bucket {}",
+        deleted.getSucceededKeys().size(),
+        fileNames.size(),
+        sourceBucketName,
+        destinationBucketName);
+    return new S3BulkResult(deleted.getSucceededKeys(), failedKeys);
+  }
+
+  private void copyObject(
+      S3Client client, String fileName, String sourceBucketName, String destinationBucketName) {
+    CopyObjectRequest copyObjectRequest =
+        CopyObjectRequest.builder()
+            .sourceBucket(sourceBucketName)
+            .sourceKey(fileName)
+            .destinationBucket(destinationBucketName)
+            .destinationKey(fileName)
+            .serverSideEncryption(ServerSideEncryption.AES256)
+            .build();
+
+    CopyObjectResponse copyResponse =
+        concurrencyLimiter.call("CopyObject", () -> client.copyObject(copyObjectRequest));
+    log.info(
+        "File {} copied to bucket {} with ETag: {}",
+        fileName,
+        destinationBucketName,
+        copyResponse.copyObjectResult().eTag());
+  }
+
+  /**
+   * Starts a multipart upload of a file with server-side encryption (AES256), e.g. to copy an
+   * object larger than a single CopyObject request allows. The upload must be completed with {@link
+   * #completeMultipartUpload} or aborted with {@link #abortMultipartUpload}.
+   *
+   * @param fileName the name/key of the file to create
+   * @param bucketName the name of the S3 bucket
+   * @return the upload id, or null if an error occurs
+   */
+  public String createMultipartUpload(final String fileName, final String bucketName) {
+    try {
+      validateInputs(fileName, bucketName);
+
+      CreateMultipartUploadRequest createMultipartUploadRequest =
+          CreateMultipartUploadRequest.builder()
+              .bucket(bucketName)
+              .key(fileName)
+              .contentType(getContentType(fileName))
+              .serverSideEncryption(ServerSideEncryption.AES256)
+              .build();
+      String uploadId =
+          limited(
+                  "CreateMultipartUpload",
+                  client -> client.createMultipartUpload(createMultipartUploadRequest))
+              .uploadId();
+      log.info(
+          "Started multipart upload {} of file {} to bucket {}", uploadId, fileName, bucketName);
+      return uploadId;
+    } catch (Exception e) {
+      log.error(
+          "Error starting multipart upload of file {} to S3 bucket {}: {}",
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Uploads bytes as one part of a multipart upload. The encryption of the upload is set when it is
+   * created.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the S3 bucket
+   * @param uploadId id of the multipart upload
+   * @param partNumber one-based number of the part
+   * @param bytes content of the part
+   * @param length number of bytes of the array that belong to the part
+   * @return the completed part, or null if an error occurs
+   */
+  public CompletedPart uploadPart(
+      final String fileName,
+      final String bucketName,
+      final String uploadId,
+      final int partNumber,
+      final byte[] bytes,
+      final int length) {
+    try {
+      validateInputs(fileName, bucketName);
+      if (length < 0 || length > bytes.length) {
+        throw new IllegalArgumentException("Invalid part length " + length);
+      }
+
+      UploadPartRequest uploadPartRequest =
+          UploadPartRequest.builder()
+              .bucket(bucketName)
+              .key(fileName)
+              .uploadId(uploadId)
+              .partNumber(partNumber)
+              .contentLength((long) length)
+              .build();
+      UploadPartResponse response =
+          limited(
+              "UploadPart",
+              client ->
+                  client.uploadPart(
+                      uploadPartRequest,
+                      RequestBody.fromInputStream(
+                          new ByteArrayInputStream(bytes, 0, length), length)));
+      log.debug("Uploaded {} bytes of file {} as part {}", length, fileName, partNumber);
+      return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+    } catch (Exception e) {
+      log.error(
+          "Error uploading part {} of file {} to S3 bucket {}: {}",
+          partNumber,
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Copies a byte range of a file into one part of a multipart upload (UploadPartCopy), without the
+   * data passing through this JVM. When an ETag is given the copy only succeeds while the source
+   * object still has that ETag.
+   *
+   * @param fileName the name/key of the source file, also the key of the upload
+   * @param sourceBucketName the bucket of the source file
+   * @param destinationBucketName the bucket of the multipart upload
+   * @param uploadId id of the multipart upload
+   * @param partNumber one-based number of the part
+   * @param firstByte zero-based offset of the first byte of the part
+   * @param lastByte offset of the last byte of the part (inclusive)
+   * @param eTag expected ETag of the source object, or null to copy whatever version is current
+   * @return the completed part, or null if an error occurs (including an ETag mismatch)
+   */
+  public CompletedPart uploadPartCopy(
+      final String fileName,
+      final String sourceBucketName,
+      final String destinationBucketName,
+      final String uploadId,
+      final int partNumber,
+      final long firstByte,
+      final long lastByte,
+      final String eTag) {
+    try {
+      validateInputs(fileName, sourceBucketName);
+      if (firstByte < 0 || lastByte < firstByte) {
+        throw new IllegalArgumentException("Invalid byte range " + firstByte + "-" + lastByte);
+      }
+
+      UploadPartCopyRequest uploadPartCopyRequest =
+          UploadPartCopyRequest.builder()
+              .sourceBucket(sourceBucketName)
+              .sourceKey(fileName)
+              .copySourceIfMatch(eTag)
+              .copySourceRange("bytes=" + firstByte + "-" + lastByte)
+              .destinationBucket(destinationBucketName)
+              .destinationKey(fileName)
+              .uploadId(uploadId)
+              .partNumber(partNumber)
+              .build();
+      UploadPartCopyResponse response =
+          limited("UploadPartCopy", client -> client.uploadPartCopy(uploadPartCopyRequest));
+      log.debug(
+          "Copied bytes {}-{} of file {} as part {}", firstByte, lastByte, fileName, partNumber);
+      return CompletedPart.builder()
+          .partNumber(partNumber)
+          .eTag(response.copyPartResult().eTag())
+          .build();
+    } catch (Exception e) {
+      log.error(
+          "Error copying part {} of file {} to S3 bucket {}: {}",
+          partNumber,
+          fileName,
+          destinationBucketName,
+          e.getMessage(),
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Completes a multipart upload from its parts, which makes the file visible in the bucket.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the S3 bucket
+   * @param uploadId id of the multipart upload
+   * @param parts all parts of the upload
+   * @return true if the upload was completed, false otherwise
+   */
+  public boolean completeMultipartUpload(
+      final String fileName,
+      final String bucketName,
+      final String uploadId,
+      final List<CompletedPart> parts) {
+    try {
+      validateInputs(fileName, bucketName);
+
+      List<CompletedPart> sortedParts = new ArrayList<>(parts);
+      sortedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+      CompleteMultipartUploadRequest completeMultipartUploadRequest =
+          CompleteMultipartUploadRequest.builder()
+              .bucket(bucketName)
+              .key(fileName)
+              .uploadId(uploadId)
+              .multipartUpload(CompletedMultipartUpload.builder().parts(sortedParts).build())
+              .build();
+      CompleteMultipartUploadResponse response =
+          limited(
+              "CompleteMultipartUpload",
+              client -> client.completeMultipartUpload(completeMultipartUploadRequest));
+      log.info(
+          "Completed multipart upload of file {} to bucket {} from {} parts with ETag: {}",
+          fileName,
+          bucketName,
+          sortedParts.size(),
+          response.eTag());
+      return true;
+    } catch (Exception e) {
+      log.error(
+          "Error completing multipart upload of file {} to S3 bucket {}: {}",
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return false;
+    }
+  }
+
+  /**
+   * Aborts a multipart upload and discards the parts uploaded or copied so far.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the S3 bucket
+   * @param uploadId id of the multipart upload
+   * @return true if the upload was aborted, false otherwise
+   */
+  public boolean abortMultipartUpload(
+      final String fileName, final String bucketName, final String uploadId) {
+    try {
+      validateInputs(fileName, bucketName);
+
+      AbortMultipartUploadRequest abortMultipartUploadRequest =
+          AbortMultipartUploadRequest.builder()
+              .bucket(bucketName)
+              .key(fileName)
+              .uploadId(uploadId)
+              .build();
+      limited(
+          "AbortMultipartUpload",
+          client -> client.abortMultipartUpload(abortMultipartUploadRequest));
+      log.info(
+          "Aborted multipart upload {} of file {} to bucket {}", uploadId, fileName, bucketName);
+      return true;
+    } catch (Exception e) {
+      log.error(
+          "Error aborting multipart upload {} of file {} to S3 bucket {}: {}",
+          uploadId,
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return false;
+    }
+  }
+
   /**
    * Deletes a file from the specified S3 bucket.
    *
@@ -345,6 +1126,7 @@ public class S3Utility {
    * @param bucketName the name of the S3 bucket
    * @return true if the deletion was successful, false otherwise
    */
+  @Override
   public boolean deleteFile(String fileName, String bucketName) {
     log.info(
         "Attempting to delete file {} from S3 bucket {} in region {}",
@@ -360,7 +1142,7 @@ public class S3Utility {
       DeleteObjectRequest deleteObjectRequest =
           DeleteObjectRequest.builder().bucket(bucketName).key(fileName).build();
 
-      client.deleteObject(deleteObjectRequest);
+      concurrencyLimiter.call("DeleteObject", () -> client.deleteObject(deleteObjectRequest));
 
       log.info("File {} deleted successfully from bucket {}", fileName, bucketName);
       return true;
@@ -387,14 +1169,78 @@ public class S3Utility {
     }
   }
 
+  /**
+   * Deletes files from the specified S3 bucket with DeleteObjects requests of up to 1,000 keys.
+   * Deleting a key that does not exist succeeds, as with {@link #deleteFile}.
+   *
+   * @param fileNames the names/keys of the files to delete
+   * @param bucketName the name of the S3 bucket
+   * @return per-key outcome; every key of a request that failed as a whole is failed
+   */
+  public S3BulkResult deleteFiles(final List<String> fileNames, final String bucketName) {
+    log.info("Attempting to delete {} files from S3 bucket {}", fileNames.size(), bucketName);
+    final List<String> succeededKeys = new ArrayList<>();
+    final Map<String, String> failedKeys = new LinkedHashMap<>();
+    if (bucketName == null || bucketName.trim().isEmpty()) {
+      log.error("Invalid input for deleting files: bucketName cannot be null or empty");
+      fileNames.forEach(fileName -> failedKeys.put(fileName, "bucketName cannot be null or empty"));
+      return new S3BulkResult(succeededKeys, failedKeys);
+    }
+
+    for (int from = 0; from < fileNames.size(); from += MAX_KEYS_PER_DELETE) {
+      final List<String> batch =
+          fileNames.subList(from, Math.min(fileNames.size(), from + MAX_KEYS_PER_DELETE));
+      try {
+        DeleteObjectsRequest deleteObjectsRequest =
+            DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(
+                    Delete.builder()
+                        .objects(
+                            batch.stream()
+                                .map(fileName -> ObjectIdentifier.builder().key(fileName).build())
+                                .toList())
+                        .quiet(false)
+                        .build())
+                .build();
+        DeleteObjectsResponse response =
+            limited("DeleteObjects", client -> client.deleteObjects(deleteObjectsRequest));
+        response.deleted().forEach(deleted -> succeededKeys.add(deleted.key()));
+        response
+            .errors()
+            .forEach(error -> failedKeys.put(error.key(), error.code() + ": " + error.message()));
+      } catch (Exception e) {
+        log.error(
+            "Error deleting {} files from S3 bucket {}: {}",
+            batch.size(),
+            bucketName,
+            errorMessage(e),
+            e);
+        batch.forEach(fileName -> failedKeys.put(fileName, errorMessage(e)));
+      }
+    }
+
+    log.info(
+        "Deleted {} of {} files from bucket {}",
+        succeededKeys.size(),
+        fileNames.size(),
+        bucketName);
+    if (!failedKeys.isEmpty()) {
+      log.error("Could not delete {} files from bucket {}", failedKeys.size(), bucketName);
+    }
+    return new S3BulkResult(succeededKeys, failedKeys);
+  }
+
   /**
    * Lists all file keys (object names) in the specified S3 bucket. This method uses pagination to
-   * handle buckets with large numbers of objects.
+   * handle buckets with large numbers of objects, but holds all of them in memory; use {@link
+   * #streamFileKeys} for large buckets.
    *
    * @param bucketName the name of the S3 bucket
    * @return a list of file keys (object names), or an empty list if the bucket is empty or an error
    *     occurs
    */
+  @Override
   public List<String> listFileKeys(String bucketName) {
     log.info("Attempting to get all files from S3 bucket {} in region {}", bucketName, AWS_REGION);
     List<String> fileNames = new ArrayList<>();
@@ -443,6 +1289,7 @@ public class S3Utility {
    * @param bucketName the name of the S3 bucket
    * @return true if the file exists, false otherwise (including error cases)
    */
+  @Override
   public boolean fileExists(String fileName, String bucketName) {
     log.info(
         "Checking if file {} exists in S3 bucket {} in region {}",
@@ -458,7 +1305,7 @@ public class S3Utility {
       HeadObjectRequest headObjectRequest =
           HeadObjectRequest.builder().bucket(bucketName).key(fileName).build();
 
-      client.headObject(headObjectRequest);
+      concurrencyLimiter.call("HeadObject", () -> client.headObject(headObjectRequest));
 
       log.info("File {} exists in bucket {}", fileName, bucketName);
       return true;
@@ -492,8 +1339,20 @@ public class S3Utility {
     }
   }
 
+  /** Sends a request through the concurrency limiter with the client of the calling thread. */
+  private <T> T limited(String operation, Function<S3Client, T> request) {
+    final S3Client client = getS3Client();
+    return concurrencyLimiter.call(operation, () -> request.apply(client));
+  }
+
+  private static String errorMessage(Throwable e) {
+    return e instanceof S3Exception s3Exception && s3Exception.awsErrorDetails() != null
+        ? s3Exception.awsErrorDetails().errorMessage()
+        : e.getMessage();
+  }
+
   /** Validates input parameters */
-  private void validateInputs(String fileName, String bucketName) {
+  static void validateInputs(String fileName, String bucketName) {
     if (fileName == null || fileName.trim().isEmpty()) {
       throw new IllegalArgumentException("fileName cannot be null or empty");
     }
@@ -503,7 +1362,7 @@ public class S3Utility {
   }
 
   /** Determines content type based on file extension */
-  private String getContentType(String fileName) {
+  static String getContentType(String fileName) {
     if (fileName == null || fileName.trim().isEmpty()) return "application/octet-stream";
     String ext = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
     return EXTENSION_TO_CONTENT_TYPE.getOrDefault(ext, "application/octet-stream");
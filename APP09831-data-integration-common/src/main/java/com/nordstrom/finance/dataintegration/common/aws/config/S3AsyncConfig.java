@@ -0,0 +1,37 @@
+package com.nordstrom.finance.dataintegration.common.aws.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class S3AsyncConfig {
+  /**
+   * Use the AWS CRT-based client, which splits large uploads and downloads into parallel parts.
+   * When false the Netty-based client is used. (Default: true)
+   */
+  private boolean crtEnabled = true;
+
+  /**
+   * Maximum number of concurrent requests; the connection pool size of the Netty-based client.
+   * (Default: 64)
+   */
+  private int maxConcurrency = 64;
+
+  /** Throughput the CRT-based client sizes its connections for, in Gbps. (Default: 10.0) */
+  private double targetThroughputInGbps = 10.0;
+
+  /** Part size the CRT-based client splits uploads and downloads into. (Default: 8 MiB) */
+  private long minimumPartSizeInBytes = 8L * 1024 * 1024;
+
+  /**
+   * Requests the Netty-based client queues while all connections are in use; more fail. (Default:
+   * 10000)
+   */
+  private int maxPendingConnectionAcquires = 10_000;
+
+  /** Timeout for establishing a connection, in seconds. (Default: 10) */
+  private int connectionTimeoutSeconds = 10;
+}
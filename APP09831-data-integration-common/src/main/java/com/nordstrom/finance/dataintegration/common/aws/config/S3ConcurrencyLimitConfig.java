@@ -0,0 +1,40 @@
+package com.nordstrom.finance.dataintegration.common.aws.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class S3ConcurrencyLimitConfig {
+  /** Limit concurrent S3 requests and retry throttled ones. (Default: false) */
+  private boolean enabled;
+
+  /** Concurrent requests allowed before any feedback. (Default: 32) */
+  private int initialLimit = 32;
+
+  /** The limit never shrinks below this. (Default: 1) */
+  private int minLimit = 1;
+
+  /** The limit never grows above this. (Default: 256) */
+  private int maxLimit = 256;
+
+  /** Factor the limit is multiplied with on throttling or a latency spike. (Default: 0.5) */
+  private double backoffRatio = 0.5;
+
+  /**
+   * A request slower than this multiple of the smoothed latency counts as a latency spike; 0
+   * disables latency feedback. (Default: 3.0)
+   */
+  private double latencySpikeRatio = 3.0;
+
+  /** Attempts of a throttled request, including the first. (Default: 4) */
+  private int maxAttempts = 4;
+
+  /** Upper bound of the random delay before the first retry, in milliseconds. (Default: 100) */
+  private long baseRetryDelayMillis = 100;
+
+  /** Upper bound of the random delay before any retry, in milliseconds. (Default: 5000) */
+  private long maxRetryDelayMillis = 5_000;
+}
@@ -0,0 +1,183 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ObjectStore} that keeps every file as a byte array on the heap. Reads stream from the
+ * stored array without copying it. The ETag is the quoted MD5 of the content, as S3 computes it for
+ * single-part uploads. Meant for tests and benchmarks; the content is lost when the JVM exits.
+ */
+@Slf4j
+public class InMemoryObjectStore implements ObjectStore {
+
+  private record StoredObject(byte[] content, ObjectMetadata metadata) {}
+
+  private final Map<String, ConcurrentNavigableMap<String, StoredObject>> buckets =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public boolean uploadFile(String fileContent, String fileName, String bucketName) {
+    if (fileContent == null || fileContent.isEmpty()) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: fileContent cannot be null or empty",
+          fileName,
+          bucketName);
+      return false;
+    }
+    return store(fileContent.getBytes(StandardCharsets.UTF_8), fileName, bucketName);
+  }
+
+  @Override
+  public boolean uploadLocalFile(Path file, String fileName, String bucketName) {
+    if (file == null || !Files.isRegularFile(file)) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: {} is not a readable file",
+          fileName,
+          bucketName,
+          file);
+      return false;
+    }
+    try {
+      return store(Files.readAllBytes(file), fileName, bucketName);
+    } catch (IOException e) {
+      log.error("Error reading file {}: {}", file, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  @Override
+  public InputStream downloadFileAsStream(String fileName, String bucketName) {
+    return downloadFileRangeAsStream(fileName, bucketName, 0, -1, null);
+  }
+
+  @Override
+  public InputStream downloadFileRangeAsStream(
+      String fileName, String bucketName, long firstByte, long lastByte, String eTag) {
+    try {
+      ObjectStoreSupport.validateInputs(fileName, bucketName);
+      final StoredObject object = bucket(bucketName).get(fileName);
+      if (object == null) {
+        log.error("File {} does not exist in bucket {}", fileName, bucketName);
+        return null;
+      }
+      if (eTag != null && !eTag.equals(object.metadata().eTag())) {
+        throw new IllegalStateException(
+            "ETag " + object.metadata().eTag() + " does not match the expected " + eTag);
+      }
+      final long end = ObjectStoreSupport.rangeEnd(firstByte, lastByte, object.content().length);
+      return new ByteArrayInputStream(object.content(), (int) firstByte, (int) (end - firstByte));
+    } catch (Exception e) {
+      log.error("Unable to read file {} from bucket {}: {}", fileName, bucketName, e.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  public ObjectMetadata getObjectMetadata(String fileName, String bucketName) {
+    try {
+      ObjectStoreSupport.validateInputs(fileName, bucketName);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for reading metadata of file {}: {}", fileName, e.getMessage());
+      return null;
+    }
+    final StoredObject object = bucket(bucketName).get(fileName);
+    if (object == null) {
+      log.info("File {} does not exist in bucket {}", fileName, bucketName);
+      return null;
+    }
+    return object.metadata();
+  }
+
+  @Override
+  public List<String> listFileKeys(String bucketName) {
+    if (bucketName == null || bucketName.trim().isEmpty()) {
+      log.error("Invalid input for getting files: bucketName cannot be null or empty");
+      return List.of();
+    }
+    return List.copyOf(bucket(bucketName).keySet());
+  }
+
+  @Override
+  public boolean moveFileToAnotherBucket(
+      String fileName, String sourceBucketName, String destinationBucketName) {
+    try {
+      ObjectStoreSupport.validateInputs(fileName, sourceBucketName);
+      ObjectStoreSupport.validateInputs(fileName, destinationBucketName);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for moving file {}: {}", fileName, e.getMessage());
+      return false;
+    }
+    final StoredObject object = bucket(sourceBucketName).remove(fileName);
+    if (object == null) {
+      log.error("File {} does not exist in bucket {}", fileName, sourceBucketName);
+      return false;
+    }
+    bucket(destinationBucketName).put(fileName, object);
+    return true;
+  }
+
+  @Override
+  public boolean deleteFile(String fileName, String bucketName) {
+    try {
+      ObjectStoreSupport.validateInputs(fileName, bucketName);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for deleting file {}: {}", fileName, e.getMessage());
+      return false;
+    }
+    bucket(bucketName).remove(fileName);
+    return true;
+  }
+
+  @Override
+  public boolean fileExists(String fileName, String bucketName) {
+    try {
+      ObjectStoreSupport.validateInputs(fileName, bucketName);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for checking file {}: {}", fileName, e.getMessage());
+      return false;
+    }
+    return bucket(bucketName).containsKey(fileName);
+  }
+
+  private boolean store(byte[] content, String fileName, String bucketName) {
+    try {
+      ObjectStoreSupport.validateInputs(fileName, bucketName);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for uploading file {}: {}", fileName, e.getMessage());
+      return false;
+    }
+    final ObjectMetadata metadata =
+        new ObjectMetadata(content.length, eTag(content), Instant.now());
+    bucket(bucketName).put(fileName, new StoredObject(content, metadata));
+    return true;
+  }
+
+  private ConcurrentNavigableMap<String, StoredObject> bucket(String bucketName) {
+    return buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+  }
+
+  private static String eTag(byte[] content) {
+    try {
+      return "\""
+          + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content))
+          + "\"";
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is not available", e);
+    }
+  }
+}
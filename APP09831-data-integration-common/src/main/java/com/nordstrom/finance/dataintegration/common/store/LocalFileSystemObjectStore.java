@@ -0,0 +1,351 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ObjectStore} on the local file system: every bucket is a directory below the root and
+ * every key a file in it, with "/" in keys as sub-directories. Reads memory-map the file in windows
+ * of {@link #MAPPED_WINDOW_SIZE}, so the content is read straight from the page cache without
+ * copying it through a read buffer. Files are written to a temporary file and renamed into place,
+ * so readers never see a partial file.
+ *
+ * <p>The ETag is derived from the size and last-modified time of the file, not its content.
+ */
+@Slf4j
+public class LocalFileSystemObjectStore implements ObjectStore {
+
+  /** Bytes of a file mapped at a time while it is read. */
+  public static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
+  private static final String TEMP_FILE_PREFIX = ".upload-";
+
+  private final Path root;
+  private final long mappedWindowSize;
+
+  /**
+   * @param root directory holding the buckets, created if needed
+   * @throws IOException if the root directory cannot be created
+   */
+  public LocalFileSystemObjectStore(Path root) throws IOException {
+    this(root, MAPPED_WINDOW_SIZE);
+  }
+
+  LocalFileSystemObjectStore(Path root, long mappedWindowSize) throws IOException {
+    this.root = Files.createDirectories(root).toAbsolutePath().normalize();
+    this.mappedWindowSize = mappedWindowSize;
+  }
+
+  /**
+   * @return the directory holding the buckets
+   */
+  public Path getRoot() {
+    return root;
+  }
+
+  @Override
+  public boolean uploadFile(String fileContent, String fileName, String bucketName) {
+    if (fileContent == null || fileContent.isEmpty()) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: fileContent cannot be null or empty",
+          fileName,
+          bucketName);
+      return false;
+    }
+    try {
+      final Path temp = tempFile(fileName, bucketName);
+      Files.writeString(temp, fileContent, StandardCharsets.UTF_8);
+      return moveIntoPlace(temp, fileName, bucketName);
+    } catch (IllegalArgumentException | IOException e) {
+      log.error("Error writing file {} to bucket {}: {}", fileName, bucketName, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean uploadLocalFile(Path file, String fileName, String bucketName) {
+    if (file == null || !Files.isRegularFile(file)) {
+      log.error(
+          "Invalid input for uploading file {} to bucket {}: {} is not a readable file",
+          fileName,
+          bucketName,
+          file);
+      return false;
+    }
+    try {
+      final Path temp = tempFile(fileName, bucketName);
+      Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+      return moveIntoPlace(temp, fileName, bucketName);
+    } catch (IllegalArgumentException | IOException e) {
+      log.error("Error writing file {} to bucket {}: {}", fileName, bucketName, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  @Override
+  public InputStream downloadFileAsStream(String fileName, String bucketName) {
+    return downloadFileRangeAsStream(fileName, bucketName, 0, -1, null);
+  }
+
+  @Override
+  public InputStream downloadFileRangeAsStream(
+      String fileName, String bucketName, long firstByte, long lastByte, String eTag) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file(fileName, bucketName), StandardOpenOption.READ);
+      final ObjectMetadata metadata = metadata(fileName, bucketName);
+      if (eTag != null && !eTag.equals(metadata.eTag())) {
+        throw new IllegalStateException(
+            "ETag " + metadata.eTag() + " does not match the expected " + eTag);
+      }
+      final long end = ObjectStoreSupport.rangeEnd(firstByte, lastByte, channel.size());
+      return new MappedFileInputStream(channel, firstByte, end, mappedWindowSize);
+    } catch (NoSuchFileException e) {
+      log.error("File {} does not exist in bucket {}", fileName, bucketName);
+    } catch (Exception e) {
+      log.error("Unable to read file {} from bucket {}: {}", fileName, bucketName, e.getMessage());
+    }
+    closeQuietly(channel);
+    return null;
+  }
+
+  @Override
+  public ObjectMetadata getObjectMetadata(String fileName, String bucketName) {
+    try {
+      return metadata(fileName, bucketName);
+    } catch (NoSuchFileException e) {
+      log.info("File {} does not exist in bucket {}", fileName, bucketName);
+      return null;
+    } catch (IllegalArgumentException | IOException e) {
+      log.error(
+          "Error reading metadata of file {} in bucket {}: {}",
+          fileName,
+          bucketName,
+          e.getMessage(),
+          e);
+      return null;
+    }
+  }
+
+  @Override
+  public List<String> listFileKeys(String bucketName) {
+    try {
+      final Path bucket = bucket(bucketName);
+      if (!Files.isDirectory(bucket)) {
+        return List.of();
+      }
+      try (Stream<Path> files = Files.walk(bucket)) {
+        return files
+            .filter(Files::isRegularFile)
+            .filter(file -> !file.getFileName().toString().startsWith(TEMP_FILE_PREFIX))
+            .map(file -> bucket.relativize(file).toString().replace('\\', '/'))
+            .sorted()
+            .toList();
+      }
+    } catch (IllegalArgumentException | IOException e) {
+      log.error("Error getting files from bucket {}: {}", bucketName, e.getMessage(), e);
+      return List.of();
+    }
+  }
+
+  @Override
+  public boolean moveFileToAnotherBucket(
+      String fileName, String sourceBucketName, String destinationBucketName) {
+    try {
+      final Path source = file(fileName, sourceBucketName);
+      final Path destination = file(fileName, destinationBucketName);
+      Files.createDirectories(destination.getParent());
+      Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } catch (IllegalArgumentException | IOException e) {
+      log.error(
+          "Error moving file {} from bucket {} to bucket {}: {}",
+          fileName,
+          sourceBucketName,
+          destinationBucketName,
+          e.getMessage(),
+          e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean deleteFile(String fileName, String bucketName) {
+    try {
+      Files.deleteIfExists(file(fileName, bucketName));
+      return true;
+    } catch (IllegalArgumentException | IOException e) {
+      log.error(
+          "Error deleting file {} from bucket {}: {}", fileName, bucketName, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean fileExists(String fileName, String bucketName) {
+    try {
+      return Files.isRegularFile(file(fileName, bucketName));
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid input for checking file {}: {}", fileName, e.getMessage());
+      return false;
+    }
+  }
+
+  private ObjectMetadata metadata(String fileName, String bucketName) throws IOException {
+    final BasicFileAttributes attributes =
+        Files.readAttributes(file(fileName, bucketName), BasicFileAttributes.class);
+    final Instant lastModified = attributes.lastModifiedTime().toInstant();
+    return new ObjectMetadata(
+        attributes.size(), eTag(attributes.size(), lastModified), lastModified);
+  }
+
+  private Path bucket(String bucketName) {
+    if (bucketName == null || bucketName.trim().isEmpty()) {
+      throw new IllegalArgumentException("bucketName cannot be null or empty");
+    }
+    final Path bucket = root.resolve(bucketName).normalize();
+    if (!bucket.getParent().equals(root)) {
+      throw new IllegalArgumentException("bucketName " + bucketName + " is not a directory name");
+    }
+    return bucket;
+  }
+
+  private Path file(String fileName, String bucketName) {
+    ObjectStoreSupport.validateInputs(fileName, bucketName);
+    final Path bucket = bucket(bucketName);
+    final Path file = bucket.resolve(fileName).normalize();
+    if (!file.startsWith(bucket) || file.equals(bucket)) {
+      throw new IllegalArgumentException("fileName " + fileName + " is outside the bucket");
+    }
+    return file;
+  }
+
+  private Path tempFile(String fileName, String bucketName) throws IOException {
+    final Path file = file(fileName, bucketName);
+    return Files.createTempFile(
+        Files.createDirectories(file.getParent()), TEMP_FILE_PREFIX, ".tmp");
+  }
+
+  private boolean moveIntoPlace(Path temp, String fileName, String bucketName) throws IOException {
+    try {
+      Files.move(
+          temp,
+          file(fileName, bucketName),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static String eTag(long size, Instant lastModified) {
+    return "\""
+        + Long.toHexString(size)
+        + "-"
+        + Long.toHexString(lastModified.toEpochMilli())
+        + "\"";
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.warn("Error closing file channel: {}", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Reads a byte range of a file through read-only mappings of at most windowSize bytes, mapped
+   * when the previous one is used up. Mappings are released by the garbage collector.
+   */
+  private static final class MappedFileInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private final long windowSize;
+    private long position;
+    private MappedByteBuffer window;
+
+    MappedFileInputStream(FileChannel channel, long position, long end, long windowSize) {
+      this.channel = channel;
+      this.position = position;
+      this.end = end;
+      this.windowSize = windowSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return nextWindow() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!nextWindow()) {
+        return -1;
+      }
+      final int read = Math.min(length, window.remaining());
+      window.get(buffer, offset, read);
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      if (n <= 0) {
+        return 0;
+      }
+      final long buffered = window == null ? 0 : window.remaining();
+      if (n < buffered) {
+        window.position(window.position() + (int) n);
+        return n;
+      }
+      final long skipped = Math.min(n, buffered + end - position);
+      position += skipped - buffered;
+      window = null;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      final long available = (window == null ? 0 : window.remaining()) + end - position;
+      return (int) Math.min(Integer.MAX_VALUE, available);
+    }
+
+    @Override
+    public void close() throws IOException {
+      window = null;
+      channel.close();
+    }
+
+    /** Maps the next window if the current one is used up; false at the end of the range. */
+    private boolean nextWindow() throws IOException {
+      if (window != null && window.hasRemaining()) {
+        return true;
+      }
+      if (position >= end) {
+        return false;
+      }
+      final long size = Math.min(windowSize, end - position);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      position += size;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import java.time.Instant;
+
+/**
+ * Size, ETag and last-modified time of a stored object, whatever the backend.
+ *
+ * @param size content length in bytes
+ * @param eTag entity tag that changes with the content, including its quotes as S3 returns it
+ * @param lastModified time the object was last written; may be null
+ */
+public record ObjectMetadata(long size, String eTag, Instant lastModified) {}
@@ -0,0 +1,110 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Bucket/key object storage as used by the data integration services. {@link
+ * com.nordstrom.finance.dataintegration.common.aws.S3Utility} is the production implementation;
+ * {@link LocalFileSystemObjectStore} and {@link InMemoryObjectStore} let services run without AWS,
+ * e.g. for load tests and benchmarks. Pick one with {@link ObjectStoreType}.
+ *
+ * <p>All implementations share the S3Utility contract: errors are logged and reported as false,
+ * null or an empty list instead of being thrown. Content is read as a plain {@link InputStream} and
+ * metadata as an {@link ObjectMetadata}, so callers do not depend on the S3 SDK.
+ */
+public interface ObjectStore {
+
+  /**
+   * Stores text content as UTF-8.
+   *
+   * @param fileContent the content of the file
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @return true if the file was stored, false otherwise
+   */
+  boolean uploadFile(String fileContent, String fileName, String bucketName);
+
+  /**
+   * Stores the content of a local file.
+   *
+   * @param file local file to store
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @return true if the file was stored, false otherwise
+   */
+  boolean uploadLocalFile(Path file, String fileName, String bucketName);
+
+  /**
+   * Opens a file for reading. The caller is responsible for closing the returned stream.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @return the content of the file, or null if it does not exist or an error occurs
+   */
+  InputStream downloadFileAsStream(String fileName, String bucketName);
+
+  /**
+   * Opens a byte range of a file for reading. The caller is responsible for closing the returned
+   * stream.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @param firstByte zero-based offset of the first byte to read
+   * @param lastByte offset of the last byte to read (inclusive), or -1 to read to the end
+   * @param eTag expected ETag of the file, or null to read whatever version is current
+   * @return the requested bytes, or null if an error occurs (including an ETag mismatch)
+   */
+  InputStream downloadFileRangeAsStream(
+      String fileName, String bucketName, long firstByte, long lastByte, String eTag);
+
+  /**
+   * Reads the size, ETag and last-modified time of a file without reading its content.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @return the metadata, or null if the file does not exist or an error occurs
+   */
+  ObjectMetadata getObjectMetadata(String fileName, String bucketName);
+
+  /**
+   * Lists the keys of all files in a bucket.
+   *
+   * @param bucketName the name of the bucket
+   * @return the file keys in key order, or an empty list if the bucket is empty or an error occurs
+   */
+  List<String> listFileKeys(String bucketName);
+
+  /**
+   * Moves a file to another bucket under the same key.
+   *
+   * @param fileName the name/key of the file
+   * @param sourceBucketName the bucket the file is in
+   * @param destinationBucketName the bucket to move the file to
+   * @return true if the file was moved, false otherwise
+   */
+  boolean moveFileToAnotherBucket(
+      String fileName, String sourceBucketName, String destinationBucketName);
+
+  /**
+   * Deletes a file. Deleting a file that does not exist succeeds.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @return true if the file is gone, false otherwise
+   */
+  boolean deleteFile(String fileName, String bucketName);
+
+  /**
+   * Checks if a file exists.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the bucket
+   * @return true if the file exists, false otherwise (including error cases)
+   */
+  boolean fileExists(String fileName, String bucketName);
+
+  /** Releases connections or other resources; the store can still be used afterwards. */
+  default void close() {}
+}
@@ -0,0 +1,34 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+/** Validation shared by the non-S3 object stores. */
+final class ObjectStoreSupport {
+
+  private ObjectStoreSupport() {}
+
+  /** Validates input parameters */
+  static void validateInputs(String fileName, String bucketName) {
+    if (fileName == null || fileName.trim().isEmpty()) {
+      throw new IllegalArgumentException("fileName cannot be null or empty");
+    }
+    if (bucketName == null || bucketName.trim().isEmpty()) {
+      throw new IllegalArgumentException("bucketName cannot be null or empty");
+    }
+  }
+
+  /**
+   * Validates a byte range against the size of a file, like S3 does for a GET with a Range header.
+   *
+   * @return offset after the last byte of the range
+   */
+  static long rangeEnd(long firstByte, long lastByte, long size) {
+    if (firstByte < 0 || (lastByte >= 0 && lastByte < firstByte)) {
+      throw new IllegalArgumentException(
+          "Invalid byte range " + firstByte + "-" + (lastByte < 0 ? "" : lastByte));
+    }
+    if (firstByte > 0 && firstByte >= size) {
+      throw new IllegalArgumentException(
+          "Byte range starting at " + firstByte + " is not within the size " + size);
+    }
+    return lastByte < 0 ? size : Math.min(size, lastByte + 1);
+  }
+}
@@ -0,0 +1,11 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+/** The {@link ObjectStore} implementations a service can be configured with. */
+public enum ObjectStoreType {
+  /** AWS S3 through the S3Utility singleton. */
+  S3,
+  /** One directory per bucket below a local root directory. */
+  LOCAL,
+  /** Buckets held on the heap; the content is lost when the JVM exits. */
+  MEMORY
+}
@@ -0,0 +1,225 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.aws.config.S3ConcurrencyLimitConfig;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static S3ConcurrencyLimitConfig config(int initialLimit, int maxLimit) {
+    S3ConcurrencyLimitConfig config = new S3ConcurrencyLimitConfig();
+    config.setEnabled(true);
+    config.setInitialLimit(initialLimit);
+    config.setMaxLimit(maxLimit);
+    config.setBaseRetryDelayMillis(1);
+    config.setMaxRetryDelayMillis(2);
+    return config;
+  }
+
+  private static S3Exception slowDown() {
+    return (S3Exception)
+        S3Exception.builder()
+            .statusCode(503)
+            .awsErrorDetails(
+                AwsErrorDetails.builder()
+                    .errorCode("SlowDown")
+                    .errorMessage("Please reduce your request rate.")
+                    .build())
+            .message("Please reduce your request rate.")
+            .build();
+  }
+
+  @Test
+  void testThrottledRequestIsRetriedAndShrinksTheLimit() {
+    MetricsClient metricsClient = mock(MetricsClient.class);
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(config(16, 64), metricsClient);
+    AtomicInteger attempts = new AtomicInteger();
+
+    String response =
+        limiter.call(
+            () -> {
+              if (attempts.incrementAndGet() < 3) {
+                throw slowDown();
+              }
+              return "ok";
+            });
+
+    assertEquals("ok", response);
+    assertEquals(3, attempts.get());
+    assertTrue(limiter.getLimit() <= 8, "Limit should be at least halved: " + limiter.getLimit());
+    assertTrue(limiter.getThrottleRate() > 0);
+    assertEquals(0, limiter.getInFlight());
+    verify(metricsClient, times(2)).incrementCounter(AdaptiveConcurrencyLimiter.THROTTLED_METRIC);
+    verify(metricsClient, atLeastOnce())
+        .recordGaugeValue(eq(AdaptiveConcurrencyLimiter.LIMIT_METRIC), anyLong());
+    verify(metricsClient, atLeastOnce())
+        .recordGaugeValue(eq(AdaptiveConcurrencyLimiter.THROTTLE_RATE_METRIC), anyDouble());
+  }
+
+  @Test
+  void testGivesUpAfterMaxAttempts_AndDoesNotRetryOtherErrors() {
+    S3ConcurrencyLimitConfig config = config(4, 4);
+    config.setMaxAttempts(2);
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config, null);
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(
+        S3Exception.class,
+        () ->
+            limiter.call(
+                () -> {
+                  attempts.incrementAndGet();
+                  throw slowDown();
+                }));
+    assertEquals(2, attempts.get());
+
+    attempts.set(0);
+    int limit = limiter.getLimit();
+    assertThrows(
+        S3Exception.class,
+        () ->
+            limiter.call(
+                () -> {
+                  attempts.incrementAndGet();
+                  throw S3Exception.builder().statusCode(403).message("denied").build();
+                }));
+    assertEquals(1, attempts.get());
+    assertEquals(limit, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void testLimitGrowsAdditivelyUpToTheMaximum() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(2, 3), null);
+
+    limiter.call(() -> "first");
+    limiter.call(() -> "second");
+    assertEquals(2, limiter.getLimit(), "Each success adds 1/limit");
+    limiter.call(() -> "third");
+    assertEquals(3, limiter.getLimit());
+    for (int i = 0; i < 10; i++) {
+      limiter.call(() -> "more");
+    }
+    assertEquals(3, limiter.getLimit());
+  }
+
+  @Test
+  void testSlowTransfersAreNotLatencySpikesAgainstFastRequests() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config(8, 8), null);
+
+    for (int i = 0; i < 30; i++) {
+      limiter.call("HeadObject", () -> "head");
+    }
+    for (int i = 0; i < 25; i++) {
+      limiter.call("UploadPartCopy", () -> sleep(20));
+    }
+    assertEquals(8, limiter.getLimit(), "Part copies are compared with part copies only");
+
+    limiter.call("HeadObject", () -> sleep(20));
+    assertEquals(4, limiter.getLimit(), "A slow HEAD is still a spike");
+  }
+
+  private static String sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return "ok";
+  }
+
+  @Test
+  void testConcurrentRequestsStayWithinTheLimit() throws Exception {
+    S3ConcurrencyLimitConfig config = config(2, 2);
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config, null);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        results.add(
+            executor.submit(
+                () ->
+                    limiter.call(
+                        () -> {
+                          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                          started.countDown();
+                          try {
+                            release.await();
+                          } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                          }
+                          running.decrementAndGet();
+                          return "ok";
+                        })));
+      }
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      assertEquals(2, limiter.getInFlight());
+      release.countDown();
+      for (Future<String> result : results) {
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  void testDisabledLimiterSendsRequestsUnretried() {
+    S3ConcurrencyLimitConfig config = config(1, 1);
+    config.setEnabled(false);
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config, null);
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(
+        S3Exception.class,
+        () ->
+            limiter.call(
+                () -> {
+                  attempts.incrementAndGet();
+                  throw slowDown();
+                }));
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void testThrottlingDetectionAndRetryDelay() {
+    assertTrue(AdaptiveConcurrencyLimiter.isThrottling(slowDown()));
+    assertTrue(
+        AdaptiveConcurrencyLimiter.isThrottling(
+            S3Exception.builder().statusCode(429).message("too many").build()));
+    assertFalse(
+        AdaptiveConcurrencyLimiter.isThrottling(
+            S3Exception.builder().statusCode(500).message("internal").build()));
+
+    S3ConcurrencyLimitConfig config = new S3ConcurrencyLimitConfig();
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config, null);
+    for (int attempt = 1; attempt <= 10; attempt++) {
+      long delay = limiter.retryDelayMillis(attempt);
+      assertTrue(delay >= 0 && delay <= config.getMaxRetryDelayMillis(), "delay " + delay);
+    }
+    S3ConcurrencyLimitConfig invalid = config(4, 2);
+    invalid.setMinLimit(3);
+    assertThrows(
+        IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(invalid, null));
+  }
+}
@@ -0,0 +1,206 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.aws.config.S3AsyncConfig;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Publisher;
+
+class S3AsyncUtilityTest {
+
+  private S3AsyncClient mockS3AsyncClient;
+  private S3AsyncUtility s3AsyncUtility;
+
+  @BeforeEach
+  void setUp() {
+    mockS3AsyncClient = mock(S3AsyncClient.class);
+    s3AsyncUtility = new S3AsyncUtility(mockS3AsyncClient);
+  }
+
+  @Test
+  void testUploadFile_Success() {
+    when(mockS3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(PutObjectResponse.builder().eTag("etag").build()));
+
+    assertTrue(s3AsyncUtility.uploadFile("a,b", "dir/test.csv", "bucket").join());
+
+    ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+    verify(mockS3AsyncClient).putObject(request.capture(), any(AsyncRequestBody.class));
+    assertEquals("bucket", request.getValue().bucket());
+    assertEquals("dir/test.csv", request.getValue().key());
+    assertEquals("text/csv", request.getValue().contentType());
+    assertEquals(ServerSideEncryption.AES256, request.getValue().serverSideEncryption());
+  }
+
+  @Test
+  void testUploadFile_EmptyContent() {
+    assertFalse(s3AsyncUtility.uploadFile("", "test.csv", "bucket").join());
+    assertFalse(s3AsyncUtility.uploadFile("a", "test.csv", " ").join());
+    verifyNoInteractions(mockS3AsyncClient);
+  }
+
+  @Test
+  void testUploadFile_S3Error() {
+    when(mockS3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+        .thenReturn(CompletableFuture.failedFuture(s3Exception(403)));
+
+    assertFalse(s3AsyncUtility.uploadFile("a,b", "test.csv", "bucket").join());
+  }
+
+  @Test
+  void testUploadLocalFile(@TempDir Path directory) throws Exception {
+    final Path file = Files.writeString(directory.resolve("test.txt"), "content");
+    when(mockS3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+        .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+    assertTrue(s3AsyncUtility.uploadLocalFile(file, "test.txt", "bucket").join());
+    assertFalse(
+        s3AsyncUtility.uploadLocalFile(directory.resolve("missing"), "test.txt", "bucket").join());
+    verify(mockS3AsyncClient, times(1))
+        .putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testDownloadFileAsStream() {
+    final ResponseInputStream<GetObjectResponse> stream =
+        new ResponseInputStream<>(
+            GetObjectResponse.builder().build(), new ByteArrayInputStream(new byte[0]));
+    when(mockS3AsyncClient.getObject(
+            any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+        .thenReturn(CompletableFuture.completedFuture(stream))
+        .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+    assertSame(stream, s3AsyncUtility.downloadFileAsStream("test.csv", "bucket").join());
+    assertNull(s3AsyncUtility.downloadFileAsStream("test.csv", "bucket").join());
+  }
+
+  @Test
+  void testListFileKeys_FollowsPages() {
+    when(mockS3AsyncClient.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> new ListObjectsV2Publisher(mockS3AsyncClient, invocation.getArgument(0)));
+    when(mockS3AsyncClient.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ListObjectsV2Response.builder()
+                    .contents(S3Object.builder().key("a").build())
+                    .isTruncated(true)
+                    .nextContinuationToken("next")
+                    .build()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ListObjectsV2Response.builder()
+                    .contents(
+                        S3Object.builder().key("b").build(), S3Object.builder().key("c").build())
+                    .isTruncated(false)
+                    .build()));
+
+    assertEquals(List.of("a", "b", "c"), s3AsyncUtility.listFileKeys("bucket").join());
+  }
+
+  @Test
+  void testListFileKeys_Error() {
+    when(mockS3AsyncClient.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> new ListObjectsV2Publisher(mockS3AsyncClient, invocation.getArgument(0)));
+    when(mockS3AsyncClient.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenReturn(CompletableFuture.failedFuture(s3Exception(500)));
+
+    assertEquals(List.of(), s3AsyncUtility.listFileKeys("bucket").join());
+    assertEquals(List.of(), s3AsyncUtility.listFileKeys(null).join());
+  }
+
+  @Test
+  void testMoveFileToAnotherBucket_Success() {
+    when(mockS3AsyncClient.copyObject(any(CopyObjectRequest.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                CopyObjectResponse.builder()
+                    .copyObjectResult(CopyObjectResult.builder().eTag("etag").build())
+                    .build()));
+    when(mockS3AsyncClient.deleteObject(any(DeleteObjectRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(DeleteObjectResponse.builder().build()));
+
+    assertTrue(s3AsyncUtility.moveFileToAnotherBucket("test.csv", "source", "target").join());
+
+    ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+    verify(mockS3AsyncClient).copyObject(copy.capture());
+    assertEquals("source", copy.getValue().sourceBucket());
+    assertEquals("target", copy.getValue().destinationBucket());
+    assertEquals(ServerSideEncryption.AES256, copy.getValue().serverSideEncryption());
+    verify(mockS3AsyncClient)
+        .deleteObject(DeleteObjectRequest.builder().bucket("source").key("test.csv").build());
+  }
+
+  @Test
+  void testMoveFileToAnotherBucket_CopyFailsKeepsSource() {
+    when(mockS3AsyncClient.copyObject(any(CopyObjectRequest.class)))
+        .thenReturn(CompletableFuture.failedFuture(s3Exception(403)));
+
+    assertFalse(s3AsyncUtility.moveFileToAnotherBucket("test.csv", "source", "target").join());
+    verify(mockS3AsyncClient, never()).deleteObject(any(DeleteObjectRequest.class));
+  }
+
+  @Test
+  void testDeleteFile() {
+    when(mockS3AsyncClient.deleteObject(any(DeleteObjectRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(DeleteObjectResponse.builder().build()))
+        .thenReturn(CompletableFuture.failedFuture(s3Exception(500)));
+
+    assertTrue(s3AsyncUtility.deleteFile("test.csv", "bucket").join());
+    assertFalse(s3AsyncUtility.deleteFile("test.csv", "bucket").join());
+  }
+
+  @Test
+  void testFileExistsAndMetadata() {
+    final HeadObjectResponse head = HeadObjectResponse.builder().contentLength(5L).build();
+    when(mockS3AsyncClient.headObject(any(HeadObjectRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(head))
+        .thenReturn(CompletableFuture.failedFuture(s3Exception(404)))
+        .thenReturn(CompletableFuture.completedFuture(head))
+        .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+    assertTrue(s3AsyncUtility.fileExists("test.csv", "bucket").join());
+    assertFalse(s3AsyncUtility.fileExists("test.csv", "bucket").join());
+    assertSame(head, s3AsyncUtility.getObjectMetadata("test.csv", "bucket").join());
+    assertNull(s3AsyncUtility.getObjectMetadata("test.csv", "bucket").join());
+    assertFalse(s3AsyncUtility.fileExists(null, "bucket").join());
+  }
+
+  @Test
+  void testCreateAndClose() {
+    final S3AsyncConfig config = new S3AsyncConfig();
+    config.setCrtEnabled(false);
+    config.setMaxConcurrency(8);
+
+    try (S3AsyncUtility utility = S3AsyncUtility.create(config)) {
+      assertNotNull(utility);
+    }
+
+    config.setCrtEnabled(true);
+    try (S3AsyncUtility utility = S3AsyncUtility.create(config)) {
+      assertNotNull(utility);
+    }
+  }
+
+  private static S3Exception s3Exception(int statusCode) {
+    return (S3Exception) S3Exception.builder().statusCode(statusCode).message("error").build();
+  }
+}
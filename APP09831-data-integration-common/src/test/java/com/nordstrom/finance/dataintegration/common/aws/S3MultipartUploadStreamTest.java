@@ -0,0 +1,141 @@
+package com.nordstrom.finance.dataintegration.common.aws;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+class S3MultipartUploadStreamTest {
+
+  private S3Utility s3Utility;
+  private final Map<Integer, String> uploadedParts = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  void setUp() {
+    s3Utility = mock(S3Utility.class);
+    when(s3Utility.createMultipartUpload("agg.csv", "bucket")).thenReturn("upload-1");
+    when(s3Utility.completeMultipartUpload(eq("agg.csv"), eq("bucket"), eq("upload-1"), anyList()))
+        .thenReturn(true);
+    // buffers are reused, so the content has to be copied when the part is uploaded
+    when(s3Utility.uploadPart(
+            eq("agg.csv"), eq("bucket"), eq("upload-1"), anyInt(), any(byte[].class), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              final int partNumber = invocation.getArgument(3);
+              final byte[] bytes = invocation.getArgument(4);
+              final int length = invocation.getArgument(5);
+              uploadedParts.put(
+                  partNumber, new String(bytes, 0, length, StandardCharsets.US_ASCII));
+              return CompletedPart.builder().partNumber(partNumber).eTag("e" + partNumber).build();
+            });
+  }
+
+  @Test
+  void testSmallContentUsesSingleRequest() throws IOException {
+    when(s3Utility.upload(any(RequestBody.class), eq("agg.csv"), eq("bucket"))).thenReturn(true);
+
+    try (S3MultipartUploadStream stream =
+        new S3MultipartUploadStream(s3Utility, "agg.csv", "bucket", 16, 2)) {
+      stream.write("abc".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+    verify(s3Utility).upload(body.capture(), eq("agg.csv"), eq("bucket"));
+    assertEquals(3L, body.getValue().optionalContentLength().orElseThrow());
+    verify(s3Utility, never()).createMultipartUpload(anyString(), anyString());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testLargeContentIsUploadedInParts() throws IOException {
+    final S3MultipartUploadStream stream =
+        new S3MultipartUploadStream(s3Utility, "agg.csv", "bucket", 4, 2);
+    stream.write("abcdef".getBytes(StandardCharsets.US_ASCII));
+    stream.write('g');
+    stream.write("hijklmnopq".getBytes(StandardCharsets.US_ASCII), 0, 7);
+    stream.close();
+    stream.close();
+
+    assertEquals(14, stream.getBytesWritten());
+    assertEquals(Map.of(1, "abcd", 2, "efgh", 3, "ijkl", 4, "mn"), uploadedParts);
+    ArgumentCaptor<List<CompletedPart>> parts = ArgumentCaptor.forClass(List.class);
+    verify(s3Utility)
+        .completeMultipartUpload(eq("agg.csv"), eq("bucket"), eq("upload-1"), parts.capture());
+    assertEquals(
+        List.of(1, 2, 3, 4), parts.getValue().stream().map(CompletedPart::partNumber).toList());
+    verify(s3Utility, never()).abortMultipartUpload(anyString(), anyString(), anyString());
+  }
+
+  @Test
+  void testPartFailureAbortsUpload() {
+    when(s3Utility.uploadPart(
+            eq("agg.csv"), eq("bucket"), eq("upload-1"), eq(2), any(byte[].class), anyInt()))
+        .thenReturn(null);
+
+    final S3MultipartUploadStream stream =
+        new S3MultipartUploadStream(s3Utility, "agg.csv", "bucket", 4, 1);
+    assertThrows(
+        IOException.class,
+        () -> {
+          stream.write("abcdefghijkl".getBytes(StandardCharsets.US_ASCII));
+          stream.close();
+        });
+
+    verify(s3Utility).abortMultipartUpload("agg.csv", "bucket", "upload-1");
+    verify(s3Utility, never()).completeMultipartUpload(any(), any(), any(), any());
+  }
+
+  @Test
+  void testAbortDiscardsUpload() throws IOException {
+    final S3MultipartUploadStream stream =
+        new S3MultipartUploadStream(s3Utility, "agg.csv", "bucket", 4, 2);
+    stream.write("abcdefghij".getBytes(StandardCharsets.US_ASCII));
+    stream.abort();
+    stream.close();
+
+    verify(s3Utility).abortMultipartUpload("agg.csv", "bucket", "upload-1");
+    verify(s3Utility, never()).completeMultipartUpload(any(), any(), any(), any());
+    verify(s3Utility, never()).upload(any(), any(), any());
+    assertThrows(IOException.class, () -> stream.write('x'));
+  }
+
+  @Test
+  void testPartsInFlightAreBounded() throws IOException {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    when(s3Utility.uploadPart(
+            eq("agg.csv"), eq("bucket"), eq("upload-1"), anyInt(), any(byte[].class), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              Thread.sleep(5);
+              inFlight.decrementAndGet();
+              final int partNumber = invocation.getArgument(3);
+              return CompletedPart.builder().partNumber(partNumber).build();
+            });
+
+    final byte[] content = new byte[4 * 20];
+    Arrays.fill(content, (byte) 'x');
+    try (S3MultipartUploadStream stream =
+        new S3MultipartUploadStream(s3Utility, "agg.csv", "bucket", 4, 2)) {
+      stream.write(content);
+    }
+
+    assertTrue(maxInFlight.get() <= 2, "at most 2 parts in flight, was " + maxInFlight.get());
+    verify(s3Utility, times(20))
+        .uploadPart(
+            eq("agg.csv"), eq("bucket"), eq("upload-1"), anyInt(), any(byte[].class), anyInt());
+  }
+}
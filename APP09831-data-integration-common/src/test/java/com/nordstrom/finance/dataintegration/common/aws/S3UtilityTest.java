@@ -4,13 +4,24 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.nordstrom.finance.dataintegration.common.aws.config.S3ConcurrencyLimitConfig;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -107,6 +118,41 @@ class S3UtilityTest {
             .anyMatch(req -> "application/octet-stream".equals(req.contentType())));
   }
 
+  @Test
+  void testUploadFile_SlowDownIsRetriedAndLowersTheConcurrencyLimit() {
+    S3ConcurrencyLimitConfig config = new S3ConcurrencyLimitConfig();
+    config.setEnabled(true);
+    config.setInitialLimit(8);
+    config.setBaseRetryDelayMillis(1);
+    s3Utility.configureConcurrencyLimit(config, null);
+    S3Exception slowDown =
+        (S3Exception)
+            S3Exception.builder()
+                .statusCode(503)
+                .awsErrorDetails(
+                    AwsErrorDetails.builder()
+                        .errorCode("SlowDown")
+                        .errorMessage("Please reduce your request rate.")
+                        .build())
+                .build();
+    when(mockS3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        .thenThrow(slowDown)
+        .thenReturn(PutObjectResponse.builder().eTag("etag").build());
+
+    assertTrue(s3Utility.uploadFile("a,b", "test.csv", "test-bucket"));
+
+    verify(mockS3Client, times(2)).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    assertEquals(4, s3Utility.getConcurrencyLimiter().getLimit());
+
+    when(mockS3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        .thenThrow(slowDown);
+    assertFalse(
+        s3Utility.uploadFile("a,b", "test.csv", "test-bucket"),
+        "Should fail once every attempt was throttled");
+    verify(mockS3Client, times(2 + config.getMaxAttempts()))
+        .putObject(any(PutObjectRequest.class), any(RequestBody.class));
+  }
+
   @Test
   void testUploadFile_InvalidInputs() {
     String fileContent = "test,data";
@@ -152,6 +198,269 @@ class S3UtilityTest {
     assertFalse(s3Utility.uploadFile(fileContent, fileName, bucketName));
   }
 
+  @Test
+  void testUploadLocalFile(@TempDir Path tempDir) throws Exception {
+    Path file = Files.writeString(tempDir.resolve("rejects"), "1|0|TXN1|bad date\n");
+    when(mockS3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        .thenReturn(PutObjectResponse.builder().eTag("etag").build());
+
+    assertTrue(s3Utility.uploadLocalFile(file, "file_1.rejects.csv", "test-bucket"));
+
+    ArgumentCaptor<PutObjectRequest> requestCaptor =
+        ArgumentCaptor.forClass(PutObjectRequest.class);
+    ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+    verify(mockS3Client).putObject(requestCaptor.capture(), bodyCaptor.capture());
+    assertEquals("file_1.rejects.csv", requestCaptor.getValue().key());
+    assertEquals("text/csv", requestCaptor.getValue().contentType());
+    assertEquals(Files.size(file), bodyCaptor.getValue().optionalContentLength().orElseThrow());
+
+    assertFalse(s3Utility.uploadLocalFile(tempDir.resolve("missing"), "missing", "test-bucket"));
+    assertFalse(s3Utility.uploadLocalFile(file, "file_1.rejects.csv", " "));
+  }
+
+  @Test
+  void testStreamObjects_IsLazyAndFiltered() {
+    when(mockS3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> new ListObjectsV2Iterable(mockS3Client, invocation.getArgument(0)));
+    final Instant since = Instant.parse("2025-10-01T00:00:00Z");
+    final ListObjectsV2Response firstPage =
+        ListObjectsV2Response.builder()
+            .contents(
+                s3Object("archive/a.csv", since.minusSeconds(1)),
+                s3Object("archive/b.csv", since),
+                s3Object("archive/b.csv.rejects.txt", since))
+            .isTruncated(true)
+            .nextContinuationToken("page-2")
+            .build();
+    final ListObjectsV2Response secondPage =
+        ListObjectsV2Response.builder()
+            .contents(s3Object("archive/c.csv", since.plusSeconds(1)))
+            .isTruncated(false)
+            .build();
+    when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenReturn(firstPage, firstPage, secondPage);
+    final ObjectListingFilter filter =
+        ObjectListingFilter.builder()
+            .prefix("archive/")
+            .startAfter("archive/0")
+            .modifiedSince(since)
+            .suffix(".csv")
+            .pageSize(3)
+            .build();
+
+    assertEquals(
+        Optional.of("archive/b.csv"), s3Utility.streamFileKeys("test-bucket", filter).findFirst());
+    ArgumentCaptor<ListObjectsV2Request> requestCaptor =
+        ArgumentCaptor.forClass(ListObjectsV2Request.class);
+    verify(mockS3Client, times(1)).listObjectsV2(requestCaptor.capture());
+    assertEquals("archive/", requestCaptor.getValue().prefix());
+    assertEquals("archive/0", requestCaptor.getValue().startAfter());
+    assertEquals(3, requestCaptor.getValue().maxKeys());
+
+    assertEquals(
+        List.of("archive/b.csv", "archive/c.csv"),
+        s3Utility.streamFileKeys("test-bucket", filter).toList());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> s3Utility.streamObjects(" ", ObjectListingFilter.ALL));
+  }
+
+  @Test
+  void testStreamObjects_ScansPrefixesConcurrently() {
+    when(mockS3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> new ListObjectsV2Iterable(mockS3Client, invocation.getArgument(0)));
+    when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> {
+              ListObjectsV2Request request = invocation.getArgument(0);
+              String prefix = request.prefix();
+              return request.continuationToken() == null
+                  ? ListObjectsV2Response.builder()
+                      .contents(s3Object(prefix + "1.csv", Instant.EPOCH))
+                      .isTruncated(true)
+                      .nextContinuationToken("next")
+                      .build()
+                  : ListObjectsV2Response.builder()
+                      .contents(s3Object(prefix + "2.csv", Instant.EPOCH))
+                      .isTruncated(false)
+                      .build();
+            });
+
+    List<String> prefixes = List.of("d=2025-10-01/", "d=2025-10-02/", "d=2025-10-03/");
+    try (Stream<S3Object> objects =
+        s3Utility.streamObjects("test-bucket", prefixes, ObjectListingFilter.ALL, 2)) {
+      assertEquals(
+          List.of(
+              "d=2025-10-01/1.csv",
+              "d=2025-10-01/2.csv",
+              "d=2025-10-02/1.csv",
+              "d=2025-10-02/2.csv",
+              "d=2025-10-03/1.csv",
+              "d=2025-10-03/2.csv"),
+          objects.map(S3Object::key).sorted().toList());
+    }
+    verify(mockS3Client, times(6)).listObjectsV2(any(ListObjectsV2Request.class));
+  }
+
+  @Test
+  void testStreamObjects_FailedPrefixScanFailsStream() {
+    when(mockS3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> new ListObjectsV2Iterable(mockS3Client, invocation.getArgument(0)));
+    when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenThrow(S3Exception.builder().statusCode(403).message("denied").build());
+
+    try (Stream<S3Object> objects =
+        s3Utility.streamObjects("test-bucket", List.of("a/", "b/"), ObjectListingFilter.ALL, 2)) {
+      assertThrows(S3Exception.class, objects::toList);
+    }
+  }
+
+  @Test
+  void testListCommonPrefixes() {
+    when(mockS3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+        .thenAnswer(
+            invocation -> new ListObjectsV2Iterable(mockS3Client, invocation.getArgument(0)));
+    when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+        .thenReturn(
+            ListObjectsV2Response.builder()
+                .commonPrefixes(
+                    CommonPrefix.builder().prefix("archive/2025-10-01/").build(),
+                    CommonPrefix.builder().prefix("archive/2025-10-02/").build())
+                .isTruncated(false)
+                .build());
+
+    assertEquals(
+        List.of("archive/2025-10-01/", "archive/2025-10-02/"),
+        s3Utility.listCommonPrefixes("test-bucket", "archive/", "/"));
+    ArgumentCaptor<ListObjectsV2Request> requestCaptor =
+        ArgumentCaptor.forClass(ListObjectsV2Request.class);
+    verify(mockS3Client).listObjectsV2(requestCaptor.capture());
+    assertEquals("/", requestCaptor.getValue().delimiter());
+    assertEquals(List.of(), s3Utility.listCommonPrefixes("test-bucket", "archive/", null));
+  }
+
+  private static S3Object s3Object(String key, Instant lastModified) {
+    return S3Object.builder().key(key).lastModified(lastModified).build();
+  }
+
+  @Test
+  void testUploadPart() {
+    when(mockS3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+        .thenReturn(UploadPartResponse.builder().eTag("part-etag").build());
+
+    CompletedPart part =
+        s3Utility.uploadPart("file_1.csv", "archive", "upload-1", 3, new byte[] {1, 2, 3, 4}, 3);
+
+    assertEquals(3, part.partNumber());
+    assertEquals("part-etag", part.eTag());
+    ArgumentCaptor<UploadPartRequest> requestCaptor =
+        ArgumentCaptor.forClass(UploadPartRequest.class);
+    ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+    verify(mockS3Client).uploadPart(requestCaptor.capture(), bodyCaptor.capture());
+    assertEquals("upload-1", requestCaptor.getValue().uploadId());
+    assertEquals(3L, requestCaptor.getValue().contentLength());
+    assertEquals(3L, bodyCaptor.getValue().optionalContentLength().orElseThrow());
+
+    assertNull(s3Utility.uploadPart("file_1.csv", "archive", "upload-1", 1, new byte[1], 2));
+  }
+
+  @Test
+  void testUploadStreamed_SmallContentUsesSingleRequest() {
+    when(mockS3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        .thenReturn(PutObjectResponse.builder().eTag("etag").build());
+
+    assertTrue(
+        s3Utility.uploadStreamed("agg.csv", "test-bucket", writer -> writer.write("a,b\nc,d\n")));
+
+    ArgumentCaptor<PutObjectRequest> requestCaptor =
+        ArgumentCaptor.forClass(PutObjectRequest.class);
+    ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+    verify(mockS3Client).putObject(requestCaptor.capture(), bodyCaptor.capture());
+    assertEquals(ServerSideEncryption.AES256, requestCaptor.getValue().serverSideEncryption());
+    assertEquals(8L, bodyCaptor.getValue().optionalContentLength().orElseThrow());
+    verify(mockS3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+  }
+
+  @Test
+  void testUploadStreamed_WriterFailureAbortsUpload() {
+    assertFalse(
+        s3Utility.uploadStreamed(
+            "agg.csv",
+            "test-bucket",
+            writer -> {
+              writer.write("a,b\n");
+              throw new IOException("query failed");
+            }));
+    assertFalse(s3Utility.uploadStreamed("agg.csv", " ", writer -> writer.write("a")));
+
+    verify(mockS3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+  }
+
+  @Test
+  void testOpenUploadStream_RejectsSmallParts() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> s3Utility.openUploadStream("agg.csv", "test-bucket", 1024, 2));
+  }
+
+  @Test
+  void testMultipartCopy() {
+    when(mockS3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+        .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+    when(mockS3Client.uploadPartCopy(any(UploadPartCopyRequest.class)))
+        .thenReturn(
+            UploadPartCopyResponse.builder()
+                .copyPartResult(CopyPartResult.builder().eTag("part-etag").build())
+                .build());
+    when(mockS3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+        .thenReturn(CompleteMultipartUploadResponse.builder().eTag("etag-2").build());
+
+    assertEquals("upload-1", s3Utility.createMultipartUpload("file_1.csv", "archive"));
+    CompletedPart second =
+        s3Utility.uploadPartCopy(
+            "file_1.csv", "source", "archive", "upload-1", 2, 100, 199, "\"etag\"");
+    CompletedPart first =
+        s3Utility.uploadPartCopy("file_1.csv", "source", "archive", "upload-1", 1, 0, 99, null);
+    assertTrue(
+        s3Utility.completeMultipartUpload(
+            "file_1.csv", "archive", "upload-1", List.of(second, first)));
+
+    ArgumentCaptor<UploadPartCopyRequest> partCaptor =
+        ArgumentCaptor.forClass(UploadPartCopyRequest.class);
+    verify(mockS3Client, times(2)).uploadPartCopy(partCaptor.capture());
+    UploadPartCopyRequest partRequest = partCaptor.getAllValues().get(0);
+    assertEquals("bytes=100-199", partRequest.copySourceRange());
+    assertEquals("\"etag\"", partRequest.copySourceIfMatch());
+    assertEquals(2, partRequest.partNumber());
+    assertEquals("part-etag", second.eTag());
+
+    ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor =
+        ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+    verify(mockS3Client).completeMultipartUpload(completeCaptor.capture());
+    assertEquals(
+        List.of(1, 2),
+        completeCaptor.getValue().multipartUpload().parts().stream()
+            .map(CompletedPart::partNumber)
+            .toList());
+  }
+
+  @Test
+  void testMultipartCopy_Errors() {
+    when(mockS3Client.uploadPartCopy(any(UploadPartCopyRequest.class)))
+        .thenThrow(S3Exception.builder().message("PreconditionFailed").build());
+
+    assertNull(s3Utility.createMultipartUpload("file_1.csv", " "));
+    assertNull(
+        s3Utility.uploadPartCopy("file_1.csv", "source", "archive", "upload-1", 1, 0, 99, "e"));
+    assertNull(
+        s3Utility.uploadPartCopy("file_1.csv", "source", "archive", "upload-1", 1, 99, 0, "e"));
+    assertTrue(s3Utility.abortMultipartUpload("file_1.csv", "archive", "upload-1"));
+    verify(mockS3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+  }
+
   @Test
   void testDownloadFileAsStream_Success_And_InvalidInputs() {
     String fileName = "test.csv";
@@ -187,6 +496,78 @@ class S3UtilityTest {
         "Should return null when exception is thrown");
   }
 
+  @Test
+  void testDownloadFileRangeAsStream_Success_And_InvalidInputs() {
+    String fileName = "test.csv";
+    String bucketName = "test-bucket";
+
+    ResponseInputStream<GetObjectResponse> mockStream =
+        new ResponseInputStream<>(
+            GetObjectResponse.builder().contentRange("bytes 100-111/112").build(),
+            new ByteArrayInputStream("test content".getBytes()));
+    when(mockS3Client.getObject(any(GetObjectRequest.class))).thenReturn(mockStream);
+
+    assertNotNull(s3Utility.downloadFileRangeAsStream(fileName, bucketName, 100, -1, "\"etag\""));
+    assertNotNull(s3Utility.downloadFileRangeAsStream(fileName, bucketName, 0, 9, null));
+
+    ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+    verify(mockS3Client, times(2)).getObject(captor.capture());
+    assertEquals("bytes=100-", captor.getAllValues().get(0).range());
+    assertEquals("\"etag\"", captor.getAllValues().get(0).ifMatch());
+    assertEquals("bytes=0-9", captor.getAllValues().get(1).range());
+    assertNull(captor.getAllValues().get(1).ifMatch());
+
+    assertNull(
+        s3Utility.downloadFileRangeAsStream(null, bucketName, 0, -1, null),
+        "Should return null for null fileName");
+    assertNull(
+        s3Utility.downloadFileRangeAsStream(fileName, bucketName, -1, -1, null),
+        "Should return null for negative offset");
+    assertNull(
+        s3Utility.downloadFileRangeAsStream(fileName, bucketName, 10, 9, null),
+        "Should return null for empty range");
+
+    AwsErrorDetails errorDetails =
+        AwsErrorDetails.builder()
+            .errorCode("PreconditionFailed")
+            .errorMessage("At least one of the pre-conditions you specified did not hold")
+            .build();
+    when(mockS3Client.getObject(any(GetObjectRequest.class)))
+        .thenThrow(S3Exception.builder().awsErrorDetails(errorDetails).statusCode(412).build());
+    assertNull(
+        s3Utility.downloadFileRangeAsStream(fileName, bucketName, 100, -1, "\"stale\""),
+        "Should return null when the ETag no longer matches");
+  }
+
+  @Test
+  void testGetObjectMetadata_Success_NoSuchKey_And_Errors() {
+    String fileName = "test.csv";
+    String bucketName = "test-bucket";
+
+    when(mockS3Client.headObject(any(HeadObjectRequest.class)))
+        .thenReturn(HeadObjectResponse.builder().eTag("\"etag\"").contentLength(42L).build());
+
+    ObjectMetadata metadata = s3Utility.getObjectMetadata(fileName, bucketName);
+    assertNotNull(metadata);
+    assertEquals("\"etag\"", metadata.eTag());
+    assertEquals(42L, metadata.size());
+
+    when(mockS3Client.headObject(any(HeadObjectRequest.class)))
+        .thenReturn(HeadObjectResponse.builder().eTag("\"etag\"").build());
+    assertNull(s3Utility.getObjectMetadata(fileName, bucketName), "Metadata needs a size");
+
+    assertNull(s3Utility.getObjectMetadata(null, bucketName), "Should return null for null name");
+    assertNull(s3Utility.getObjectMetadata(fileName, ""), "Should return null for empty bucket");
+
+    when(mockS3Client.headObject(any(HeadObjectRequest.class)))
+        .thenThrow(NoSuchKeyException.builder().message("Key not found").build());
+    assertNull(s3Utility.getObjectMetadata(fileName, bucketName), "Missing file has no metadata");
+
+    when(mockS3Client.headObject(any(HeadObjectRequest.class)))
+        .thenThrow(new RuntimeException("Error"));
+    assertNull(s3Utility.getObjectMetadata(fileName, bucketName));
+  }
+
   @Test
   void testListAllObject_Success_And_AllErrors() {
     String bucketName = "test-bucket";
@@ -398,6 +779,112 @@ class S3UtilityTest {
         s3Utility.deleteFile(fileName, bucketName), "Should fail when generic exception is thrown");
   }
 
+  @Test
+  void testDeleteFiles_BatchesOf1000_WithPerKeyErrors() {
+    String bucketName = "test-bucket";
+    List<String> fileNames = IntStream.range(0, 1001).mapToObj(i -> "file-" + i + ".csv").toList();
+
+    when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              DeleteObjectsRequest request = invocation.getArgument(0);
+              List<ObjectIdentifier> objects = request.delete().objects();
+              return DeleteObjectsResponse.builder()
+                  .deleted(
+                      objects.stream()
+                          .filter(object -> !object.key().equals("file-7.csv"))
+                          .map(object -> DeletedObject.builder().key(object.key()).build())
+                          .toList())
+                  .errors(
+                      objects.stream()
+                          .filter(object -> object.key().equals("file-7.csv"))
+                          .map(
+                              object ->
+                                  S3Error.builder()
+                                      .key(object.key())
+                                      .code("AccessDenied")
+                                      .message("Access Denied")
+                                      .build())
+                          .toList())
+                  .build();
+            });
+
+    S3BulkResult result = s3Utility.deleteFiles(fileNames, bucketName);
+
+    ArgumentCaptor<DeleteObjectsRequest> captor =
+        ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    verify(mockS3Client, times(2)).deleteObjects(captor.capture());
+    assertEquals(1000, captor.getAllValues().get(0).delete().objects().size());
+    assertEquals(1, captor.getAllValues().get(1).delete().objects().size());
+    assertFalse(result.isSuccessful());
+    assertEquals(1000, result.getSucceededKeys().size());
+    assertEquals(Map.of("file-7.csv", "AccessDenied: Access Denied"), result.getFailedKeys());
+  }
+
+  @Test
+  void testDeleteFiles_FailedRequest_And_InvalidBucket() {
+    List<String> fileNames = List.of("a.csv", "b.csv");
+
+    when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenThrow(new RuntimeException("Unexpected error"));
+    S3BulkResult result = s3Utility.deleteFiles(fileNames, "test-bucket");
+    assertTrue(result.getSucceededKeys().isEmpty());
+    assertEquals(fileNames, List.copyOf(result.getFailedKeys().keySet()));
+    assertEquals("Unexpected error", result.getFailedKeys().get("a.csv"));
+
+    result = s3Utility.deleteFiles(fileNames, " ");
+    assertEquals(2, result.getFailedKeys().size());
+    verify(mockS3Client, times(1)).deleteObjects(any(DeleteObjectsRequest.class));
+  }
+
+  @Test
+  void testMoveFilesToAnotherBucket_ReportsCopyAndDeleteFailures() {
+    String sourceBucket = "source-bucket";
+    String destBucket = "dest-bucket";
+    List<String> fileNames = List.of("a.csv", "b.csv", "c.csv", "d.csv");
+
+    when(mockS3Client.copyObject(any(CopyObjectRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              CopyObjectRequest request = invocation.getArgument(0);
+              if (request.sourceKey().equals("b.csv")) {
+                throw NoSuchKeyException.builder().message("Key not found").build();
+              }
+              assertEquals(ServerSideEncryption.AES256, request.serverSideEncryption());
+              return CopyObjectResponse.builder()
+                  .copyObjectResult(CopyObjectResult.builder().eTag("etag").build())
+                  .build();
+            });
+    when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+        .thenReturn(
+            DeleteObjectsResponse.builder()
+                .deleted(
+                    DeletedObject.builder().key("a.csv").build(),
+                    DeletedObject.builder().key("d.csv").build())
+                .errors(S3Error.builder().key("c.csv").code("InternalError").message("Try").build())
+                .build());
+
+    S3BulkResult result =
+        s3Utility.moveFilesToAnotherBucket(fileNames, sourceBucket, destBucket, 2);
+
+    ArgumentCaptor<DeleteObjectsRequest> captor =
+        ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    verify(mockS3Client, times(4)).copyObject(any(CopyObjectRequest.class));
+    verify(mockS3Client).deleteObjects(captor.capture());
+    assertEquals(sourceBucket, captor.getValue().bucket());
+    assertEquals(
+        List.of("a.csv", "c.csv", "d.csv"),
+        captor.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList());
+    assertEquals(List.of("a.csv", "d.csv"), result.getSucceededKeys());
+    assertEquals("Copy failed: Key not found", result.getFailedKeys().get("b.csv"));
+    assertEquals(
+        "Copied but source not deleted: InternalError: Try", result.getFailedKeys().get("c.csv"));
+
+    result = s3Utility.moveFilesToAnotherBucket(fileNames, sourceBucket, destBucket, 0);
+    assertEquals(4, result.getFailedKeys().size());
+    verifyNoMoreInteractions(mockS3Client);
+  }
+
   @Test
   void testFileExists_Success_NoSuchKey_And_AllErrors() {
     String fileName = "test.csv";
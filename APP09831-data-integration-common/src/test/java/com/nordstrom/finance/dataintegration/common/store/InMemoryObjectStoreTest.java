@@ -0,0 +1,25 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class InMemoryObjectStoreTest extends ObjectStoreContractTest {
+
+  @Override
+  ObjectStore createStore() {
+    return new InMemoryObjectStore();
+  }
+
+  @Test
+  void testETagIsContentMd5() {
+    store.uploadFile("hello", "a.txt", "bucket");
+    store.uploadFile("hello", "b.txt", "bucket");
+
+    assertEquals(
+        "\"5d41402abc4b2a76b9719d911017c592\"", store.getObjectMetadata("a.txt", "bucket").eTag());
+    assertEquals(
+        store.getObjectMetadata("a.txt", "bucket").eTag(),
+        store.getObjectMetadata("b.txt", "bucket").eTag());
+  }
+}
@@ -0,0 +1,59 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LocalFileSystemObjectStoreTest extends ObjectStoreContractTest {
+
+  @Override
+  ObjectStore createStore() throws IOException {
+    // a small window so reads cross several mappings
+    return new LocalFileSystemObjectStore(tempDir.resolve("buckets"), 4);
+  }
+
+  @Test
+  void testBucketsAreDirectories() throws IOException {
+    store.uploadFile("content", "in/ertm.txt", "source");
+
+    Path file = tempDir.resolve("buckets").resolve("source").resolve("in").resolve("ertm.txt");
+    assertEquals("content", Files.readString(file));
+    Files.writeString(file.resolveSibling("other.txt"), "written by hand");
+    assertEquals(List.of("in/ertm.txt", "in/other.txt"), store.listFileKeys("source"));
+  }
+
+  @Test
+  void testReadsAcrossMappedWindows() throws IOException {
+    store.uploadFile("abcdefghijklmnopqrstuvwxyz", "letters.txt", "bucket");
+
+    try (InputStream content =
+        store.downloadFileRangeAsStream("letters.txt", "bucket", 3, 20, null)) {
+      assertEquals('d', content.read());
+      assertEquals(2, content.skip(2));
+      byte[] buffer = new byte[10];
+      assertEquals(1, content.read(buffer), "A read stops at the end of a mapped window");
+      assertEquals('g', buffer[0]);
+      assertEquals(6, content.skip(6));
+      assertEquals("nopqrstu", new String(content.readAllBytes(), StandardCharsets.US_ASCII));
+      assertEquals(-1, content.read());
+    }
+  }
+
+  @Test
+  void testKeysCannotLeaveTheirBucket() {
+    store.uploadFile("secret", "secret.txt", "other");
+
+    assertFalse(store.uploadFile("x", "../escaped.txt", "bucket"));
+    assertNull(store.downloadFileAsStream("../other/secret.txt", "bucket"));
+    assertFalse(store.deleteFile("../other/secret.txt", "bucket"));
+    assertFalse(store.uploadFile("x", "x.txt", "../outside"));
+    assertTrue(store.fileExists("secret.txt", "other"));
+    assertFalse(Files.exists(tempDir.resolve("escaped.txt")));
+  }
+}
@@ -0,0 +1,113 @@
+package com.nordstrom.finance.dataintegration.common.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Behaviour every non-S3 {@link ObjectStore} shares with S3Utility. */
+abstract class ObjectStoreContractTest {
+
+  @TempDir Path tempDir;
+
+  ObjectStore store;
+
+  abstract ObjectStore createStore() throws IOException;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    store = createStore();
+  }
+
+  @Test
+  void testUploadAndDownload() throws IOException {
+    assertTrue(store.uploadFile("line1\nline2\n", "in/ertm.txt", "source"));
+
+    assertTrue(store.fileExists("in/ertm.txt", "source"));
+    assertFalse(store.fileExists("in/ertm.txt", "processed"));
+    try (InputStream content = store.downloadFileAsStream("in/ertm.txt", "source")) {
+      assertEquals("line1\nline2\n", read(content));
+    }
+
+    ObjectMetadata metadata = store.getObjectMetadata("in/ertm.txt", "source");
+    assertEquals(12L, metadata.size());
+    assertNotNull(metadata.eTag());
+    assertNotNull(metadata.lastModified());
+  }
+
+  @Test
+  void testUploadLocalFileReplacesContent() throws IOException {
+    Path localFile = Files.writeString(tempDir.resolve("local.csv"), "a,b\n");
+    assertTrue(store.uploadFile("old", "data.csv", "bucket"));
+
+    assertTrue(store.uploadLocalFile(localFile, "data.csv", "bucket"));
+
+    assertEquals("a,b\n", read(store.downloadFileAsStream("data.csv", "bucket")));
+    assertFalse(store.uploadLocalFile(tempDir.resolve("missing.csv"), "x.csv", "bucket"));
+    assertFalse(store.uploadFile("", "x.csv", "bucket"));
+  }
+
+  @Test
+  void testRangeDownloadPinnedToETag() throws IOException {
+    store.uploadFile("0123456789", "digits.txt", "bucket");
+    String eTag = store.getObjectMetadata("digits.txt", "bucket").eTag();
+
+    try (InputStream range = store.downloadFileRangeAsStream("digits.txt", "bucket", 2, 5, eTag)) {
+      assertEquals("2345", read(range));
+    }
+    assertEquals("789", read(store.downloadFileRangeAsStream("digits.txt", "bucket", 7, -1, null)));
+    assertEquals("89", read(store.downloadFileRangeAsStream("digits.txt", "bucket", 8, 100, null)));
+
+    assertNull(store.downloadFileRangeAsStream("digits.txt", "bucket", 0, -1, "\"other\""));
+    assertNull(store.downloadFileRangeAsStream("digits.txt", "bucket", 10, -1, null));
+    assertNull(store.downloadFileRangeAsStream("digits.txt", "bucket", 5, 2, null));
+  }
+
+  @Test
+  void testListMoveAndDelete() {
+    store.uploadFile("b", "b.txt", "source");
+    store.uploadFile("a", "dir/a.txt", "source");
+    store.uploadFile("c", "c.txt", "source");
+
+    assertEquals(List.of("b.txt", "c.txt", "dir/a.txt"), store.listFileKeys("source"));
+    assertEquals(List.of(), store.listFileKeys("empty"));
+
+    assertTrue(store.moveFileToAnotherBucket("dir/a.txt", "source", "processed"));
+    assertFalse(store.moveFileToAnotherBucket("dir/a.txt", "source", "processed"));
+    assertEquals(List.of("dir/a.txt"), store.listFileKeys("processed"));
+    assertEquals(List.of("b.txt", "c.txt"), store.listFileKeys("source"));
+
+    assertTrue(store.deleteFile("b.txt", "source"));
+    assertTrue(store.deleteFile("b.txt", "source"), "Deleting a missing file succeeds");
+    assertEquals(List.of("c.txt"), store.listFileKeys("source"));
+  }
+
+  @Test
+  void testMissingFilesAndInvalidInputs() {
+    assertNull(store.downloadFileAsStream("missing.txt", "bucket"));
+    assertNull(store.getObjectMetadata("missing.txt", "bucket"));
+    assertFalse(store.fileExists("missing.txt", "bucket"));
+
+    assertFalse(store.uploadFile("x", null, "bucket"));
+    assertFalse(store.uploadFile("x", "x.txt", " "));
+    assertNull(store.downloadFileAsStream("", "bucket"));
+    assertNull(store.getObjectMetadata("x.txt", null));
+    assertFalse(store.deleteFile(null, "bucket"));
+    assertFalse(store.fileExists("x.txt", ""));
+    assertFalse(store.moveFileToAnotherBucket("x.txt", "bucket", null));
+    assertEquals(List.of(), store.listFileKeys(null));
+  }
+
+  static String read(InputStream content) throws IOException {
+    try (content) {
+      return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
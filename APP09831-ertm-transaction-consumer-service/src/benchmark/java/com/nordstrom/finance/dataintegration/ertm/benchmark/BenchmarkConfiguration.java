@@ -0,0 +1,30 @@
+package com.nordstrom.finance.dataintegration.ertm.benchmark;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces StatsD and the cron job entry point for {@link IngestThroughputBenchmark}; the buckets
+ * are a local object store selected with {@code aws.s3.object-store}. Needs {@code
+ * spring.main.allow-bean-definition-overriding} for the command line runner.
+ */
+@TestConfiguration
+@Profile("loadTest")
+public class BenchmarkConfiguration {
+
+  @Bean
+  @Primary
+  public MetricsClient benchmarkMetricsClient() {
+    return new RecordingMetricsClient();
+  }
+
+  /** The benchmark calls the file processor itself; the cron job runner would exit the JVM. */
+  @Bean
+  public CommandLineRunner ertmCommandLineRunnerService() {
+    return args -> {};
+  }
+}
@@ -0,0 +1,100 @@
+package com.nordstrom.finance.dataintegration.ertm.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Throwaway PostgreSQL server with the schema of the Flyway migrations of the infrastructure
+ * module, applied in version order.
+ */
+@Slf4j
+public class EmbeddedPostgresTarget implements Closeable {
+
+  private static final Pattern MIGRATION_VERSION = Pattern.compile("^V(\\d+)__.*\\.sql$");
+
+  private final EmbeddedPostgres postgres;
+
+  private EmbeddedPostgresTarget(EmbeddedPostgres postgres) {
+    this.postgres = postgres;
+  }
+
+  /** Start a server and apply the {@code V<n>__*.sql} migrations of the directory. */
+  public static EmbeddedPostgresTarget start(Path migrationDirectory)
+      throws IOException, SQLException {
+    if (!Files.isDirectory(migrationDirectory)) {
+      throw new IllegalArgumentException(
+          "Migration directory " + migrationDirectory + " does not exist");
+    }
+    final EmbeddedPostgresTarget target = new EmbeddedPostgresTarget(EmbeddedPostgres.start());
+    try {
+      target.migrate(migrationDirectory);
+    } catch (IOException | SQLException | RuntimeException ex) {
+      target.close();
+      throw ex;
+    }
+    return target;
+  }
+
+  public String jdbcUrl() {
+    return postgres.getJdbcUrl("postgres", "postgres");
+  }
+
+  public String username() {
+    return "postgres";
+  }
+
+  public String password() {
+    return "postgres";
+  }
+
+  /** Result of a single-value count query. */
+  public long count(String sql) throws SQLException {
+    try (Connection connection = postgres.getPostgresDatabase().getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(sql)) {
+      result.next();
+      return result.getLong(1);
+    }
+  }
+
+  private void migrate(Path migrationDirectory) throws IOException, SQLException {
+    final List<Path> migrations;
+    try (Stream<Path> files = Files.list(migrationDirectory)) {
+      migrations =
+          files
+              .filter(file -> MIGRATION_VERSION.matcher(file.getFileName().toString()).matches())
+              .sorted(Comparator.comparingInt(EmbeddedPostgresTarget::version))
+              .toList();
+    }
+    try (Connection connection = postgres.getPostgresDatabase().getConnection();
+        Statement statement = connection.createStatement()) {
+      for (Path migration : migrations) {
+        statement.execute(Files.readString(migration));
+      }
+    }
+    log.info("Applied {} migrations from {}", migrations.size(), migrationDirectory);
+  }
+
+  private static int version(Path migration) {
+    final Matcher matcher = MIGRATION_VERSION.matcher(migration.getFileName().toString());
+    return matcher.matches() ? Integer.parseInt(matcher.group(1)) : Integer.MAX_VALUE;
+  }
+
+  @Override
+  public void close() throws IOException {
+    postgres.close();
+  }
+}
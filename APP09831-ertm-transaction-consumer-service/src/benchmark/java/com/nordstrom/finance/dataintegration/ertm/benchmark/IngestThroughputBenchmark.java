@@ -0,0 +1,251 @@
+package com.nordstrom.finance.dataintegration.ertm.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import com.nordstrom.finance.dataintegration.ertm.Application;
+import com.nordstrom.finance.dataintegration.ertm.benchmark.SyntheticErtmFileGenerator.GeneratedFiles;
+import com.nordstrom.finance.dataintegration.ertm.service.FileProcessorService;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * End-to-end ingest benchmark: generates synthetic ERTM files, puts them in a local-filesystem
+ * stand-in for the source bucket and runs {@link FileProcessorService#processCsvFromS3()} against
+ * an embedded PostgreSQL with the production schema.
+ *
+ * <p>A previous-day file holding the duplicate share of the transactions is ingested first and not
+ * timed, so the timed run pays for duplicate detection as production does. Reports rows per second,
+ * p50/p99 batch latency and peak heap, writes them as JSON to {@code benchmark.report} and exits
+ * with 1 when the run left files behind, stored a different number of lines than expected, stayed
+ * below {@code benchmark.min-rows-per-second} or fell more than {@code benchmark.max-regression}
+ * below the throughput of the {@code benchmark.baseline} report. The baseline is the report of an
+ * earlier run; it only counts when it ingested the same workload.
+ *
+ * <p>Settings are system properties: {@code benchmark.records} (200000), {@code benchmark.files}
+ * (1), {@code benchmark.duplicate-ratio} (0.1), {@code benchmark.seed} (42), {@code
+ * benchmark.migration-directory}, {@code benchmark.report}, {@code benchmark.min-rows-per-second}
+ * (0), {@code benchmark.baseline}, {@code benchmark.max-regression} (0.2). Any {@code
+ * file.processing.*} property overrides the consumer configuration.
+ */
+@Slf4j
+public final class IngestThroughputBenchmark {
+
+  private static final String SOURCE_BUCKET = "ertm-benchmark-source";
+  private static final String PROCESSED_BUCKET = "ertm-benchmark-processed";
+
+  private IngestThroughputBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    final long records = Long.getLong("benchmark.records", 200_000);
+    final int fileCount = Integer.getInteger("benchmark.files", 1);
+    final double duplicateRatio =
+        Double.parseDouble(System.getProperty("benchmark.duplicate-ratio", "0.1"));
+    final long seed = Long.getLong("benchmark.seed", 42);
+    final double minRowsPerSecond =
+        Double.parseDouble(System.getProperty("benchmark.min-rows-per-second", "0"));
+    final double maxRegression =
+        Double.parseDouble(System.getProperty("benchmark.max-regression", "0.2"));
+    final Path migrationDirectory =
+        Path.of(required("benchmark.migration-directory")).toAbsolutePath();
+    final Path workDirectory = Files.createTempDirectory("ertm-benchmark");
+
+    final GeneratedFiles generated =
+        new SyntheticErtmFileGenerator(seed)
+            .write(workDirectory.resolve("generated"), fileCount, records, duplicateRatio);
+    log.info(
+        "Generated {} records ({} bytes) in {} files, {} duplicate records",
+        generated.records(),
+        generated.bytes(),
+        fileCount,
+        generated.duplicateRecords());
+
+    final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    final List<String> failures = new ArrayList<>();
+    final Map<String, Object> report;
+    try (EmbeddedPostgresTarget database = EmbeddedPostgresTarget.start(migrationDirectory);
+        ConfigurableApplicationContext context = start(database, workDirectory)) {
+      final FileProcessorService fileProcessorService = context.getBean(FileProcessorService.class);
+      final ObjectStore buckets = context.getBean(ObjectStore.class);
+      final RecordingMetricsClient metrics =
+          (RecordingMetricsClient) context.getBean(MetricsClient.class);
+
+      upload(buckets, List.of(generated.previousDayFile()));
+      fileProcessorService.processCsvFromS3();
+
+      metrics.reset();
+      System.gc();
+      resetPeakHeap();
+      upload(buckets, generated.files());
+      final long start = System.nanoTime();
+      fileProcessorService.processCsvFromS3();
+      final long elapsedNanos = System.nanoTime() - start;
+
+      final List<String> leftOver = buckets.listFileKeys(SOURCE_BUCKET);
+      if (!leftOver.isEmpty()) {
+        failures.add("Files left in the source bucket: " + leftOver);
+      }
+      final long expectedLines =
+          generated.previousDayRecords() + generated.records() - generated.duplicateRecords();
+      final long storedLines = database.count("select count(*) from transaction_line");
+      if (storedLines != expectedLines) {
+        failures.add("Stored " + storedLines + " transaction lines, expected " + expectedLines);
+      }
+      final double rowsPerSecond = generated.records() * 1e9 / elapsedNanos;
+      if (rowsPerSecond < minRowsPerSecond) {
+        failures.add(
+            String.format(
+                "Throughput %.0f rows/s is below the minimum of %.0f rows/s",
+                rowsPerSecond, minRowsPerSecond));
+      }
+      final Long baselineRowsPerSecond =
+          baselineRowsPerSecond(
+              fileCount, generated.records(), generated.duplicateRecords(), mapper);
+      if (baselineRowsPerSecond != null
+          && rowsPerSecond < baselineRowsPerSecond * (1 - maxRegression)) {
+        failures.add(
+            String.format(
+                "Throughput %.0f rows/s is more than %.0f%% below the baseline of %d rows/s",
+                rowsPerSecond, maxRegression * 100, baselineRowsPerSecond));
+      }
+
+      final long[] batchLatencies = metrics.batchLatencies();
+      report = new LinkedHashMap<>();
+      report.put("records", generated.records());
+      report.put("bytes", generated.bytes());
+      report.put("files", fileCount);
+      report.put("duplicateRecords", generated.duplicateRecords());
+      report.put("elapsedMillis", elapsedNanos / 1_000_000);
+      report.put("rowsPerSecond", Math.round(rowsPerSecond));
+      report.put("baselineRowsPerSecond", baselineRowsPerSecond);
+      report.put("batches", batchLatencies.length);
+      report.put("batchLatencyP50Millis", percentile(batchLatencies, 50));
+      report.put("batchLatencyP99Millis", percentile(batchLatencies, 99));
+      report.put("peakHeapBytes", peakHeap());
+      report.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+      report.put("storedTransactionLines", storedLines);
+      report.put("failures", failures);
+    } finally {
+      deleteRecursively(workDirectory);
+    }
+
+    final String reportPath = System.getProperty("benchmark.report");
+    if (reportPath != null) {
+      final Path reportFile = Path.of(reportPath);
+      Files.createDirectories(reportFile.toAbsolutePath().getParent());
+      mapper.writeValue(reportFile.toFile(), report);
+    }
+    log.info("Ingest benchmark result: {}", mapper.writeValueAsString(report));
+    failures.forEach(failure -> log.error("Ingest benchmark failed: {}", failure));
+    System.exit(failures.isEmpty() ? 0 : 1);
+  }
+
+  private static ConfigurableApplicationContext start(
+      EmbeddedPostgresTarget database, Path workDirectory) {
+    // defaults for the environment variables application.yml refers to; system properties win
+    final Map<String, Object> environment = new LinkedHashMap<>();
+    environment.put("APP_ID", "APP09831");
+    environment.put("SPRING_PROFILES_ACTIVE", "benchmark");
+    environment.put("AURORA_POSTGRESQL_USERNAME", database.username());
+    environment.put("AURORA_POSTGRESQL_PASSWORD", database.password());
+    environment.put("AWS_SOURCE_BUCKET", SOURCE_BUCKET);
+    environment.put("AWS_PROCESSED_BUCKET", PROCESSED_BUCKET);
+    environment.put("FILE_PROCESSING_BATCH_SIZE", 10_000);
+    environment.put("FILE_PROCESSING_SPOOL_DIRECTORY", workDirectory.resolve("spool").toString());
+    environment.put("AWS_S3_OBJECT_STORE", "LOCAL");
+    environment.put("AWS_S3_LOCAL_ROOT", workDirectory.resolve("buckets").toString());
+    return new SpringApplicationBuilder(Application.class, BenchmarkConfiguration.class)
+        .profiles("loadTest")
+        .properties(environment)
+        .run(
+            "--spring.main.allow-bean-definition-overriding=true",
+            "--spring.datasource.url=" + database.jdbcUrl());
+  }
+
+  private static void upload(ObjectStore buckets, List<Path> files) {
+    for (Path file : files) {
+      if (!buckets.uploadLocalFile(file, file.getFileName().toString(), SOURCE_BUCKET)) {
+        throw new IllegalStateException("Could not put " + file + " in the source bucket");
+      }
+    }
+  }
+
+  /**
+   * Throughput of the {@code benchmark.baseline} report.
+   *
+   * @return the rows per second of the baseline, or {@code null} if there is no baseline report or
+   *     it ingested a different workload
+   */
+  private static Long baselineRowsPerSecond(
+      int fileCount, long records, long duplicateRecords, ObjectMapper mapper) throws IOException {
+    final String baselinePath = System.getProperty("benchmark.baseline");
+    if (baselinePath == null || baselinePath.isBlank() || !Files.exists(Path.of(baselinePath))) {
+      log.warn("No baseline report, throughput is only checked against the minimum");
+      return null;
+    }
+    final JsonNode baseline = mapper.readTree(Path.of(baselinePath).toFile());
+    if (baseline.path("files").asInt() != fileCount
+        || baseline.path("records").asLong() != records
+        || baseline.path("duplicateRecords").asLong() != duplicateRecords
+        || !baseline.path("rowsPerSecond").isNumber()) {
+      log.warn("Baseline report {} is for a different workload, ignoring it", baselinePath);
+      return null;
+    }
+    return baseline.path("rowsPerSecond").asLong();
+  }
+
+  private static long percentile(long[] sortedValues, int percentile) {
+    if (sortedValues.length == 0) {
+      return 0;
+    }
+    final int index = (int) Math.ceil(percentile / 100.0 * sortedValues.length) - 1;
+    return sortedValues[Math.max(0, index)];
+  }
+
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /** Sum of the peak usage of the heap pools; an upper bound of the peak heap in use. */
+  private static long peakHeap() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .mapToLong(pool -> pool.getPeakUsage().getUsed())
+        .sum();
+  }
+
+  private static String required(String property) {
+    final String value = System.getProperty(property);
+    if (value == null || value.isBlank()) {
+      throw new IllegalArgumentException("System property " + property + " is required");
+    }
+    return value;
+  }
+
+  private static void deleteRecursively(Path directory) {
+    try (var paths = Files.walk(directory)) {
+      paths
+          .sorted((left, right) -> right.getNameCount() - left.getNameCount())
+          .forEach(path -> path.toFile().delete());
+    } catch (Exception ex) {
+      log.warn("Could not delete {}: {}", directory, ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.nordstrom.finance.dataintegration.ertm.benchmark;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.timgroup.statsd.NoOpStatsDClient;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NonNull;
+
+/**
+ * MetricsClient that sends nothing and keeps the batch latencies the consumer reports, so the
+ * benchmark reads them from the same place the dashboards do.
+ */
+public class RecordingMetricsClient extends MetricsClient {
+
+  private final List<Long> batchLatencies = new ArrayList<>();
+
+  public RecordingMetricsClient() {
+    super(new NoOpStatsDClient());
+  }
+
+  @Override
+  public void recordExecutionTime(@NonNull String metricName, long durationMs, String... tags) {
+    if (Metric.BATCH_PROCESSING_TIME.getMetricName().equals(metricName)) {
+      synchronized (batchLatencies) {
+        batchLatencies.add(durationMs);
+      }
+    }
+  }
+
+  /** Batch latencies in milliseconds recorded since the last {@link #reset()}, sorted. */
+  public long[] batchLatencies() {
+    synchronized (batchLatencies) {
+      return batchLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+  }
+
+  public void reset() {
+    synchronized (batchLatencies) {
+      batchLatencies.clear();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.nordstrom.finance.dataintegration.ertm.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes pipe-delimited ERTM files in the production layout: sales of one tender line and one to
+ * six item lines, with stores, departments, amounts and business dates spread over a month.
+ *
+ * <p>A share of the transactions (the duplicate ratio) is also written to a previous-day file. Once
+ * that file is ingested, those transactions are duplicates for the duplicate filter, as they are
+ * when ERTM resends a day. Output is the same for the same seed.
+ */
+public final class SyntheticErtmFileGenerator {
+
+  static final String HEADER =
+      "\"SOURCE_REFERENCE_TRANSACTION_ID\"|\"TRANSACTION_DATE\"|\"BUSINESS_DATE\"|\"SOURCE_PROCESSED_DATE\"|\"RINGING_STORE\"|\"TRANSACTION_TYPE\"|\"TRANSACTION_REVERSAL_CODE\"|\"SOURCE_REFERENCE_LINE_TYPE\"|\"SOURCE_REFERENCE_LINE_ID\"|\"TRANSACTION_LINE_TYPE\"|\"STORE_OF_INTENT\"|\"DEPARTMENT_ID\"|\"CLASS_ID\"|\"FEE_CODE\"|\"STORE_CHARGE_FLAG\"|\"LEGACY_GL_STORE\"|\"CASH_DISBURSEMENT_LINE1\"|\"CASH_DISBURSEMENT_LINE2\"|\"FULFILLMENT_TYPE_DROPSHIP_CODE\"|\"WAIVED_REASON_CODE\"|\"LINE_ITEM_AMOUNT\"|\"TAX_AMOUNT\"|\"EMPLOYEE_DISCOUNT_AMOUNT\"|\"WAIVED_AMOUNT\"|\"TENDER_TYPE\"|\"TENDER_CARD_TYPE\"|\"TENDER_CARD_SUBTYPE\"|\"TENDER_ADJUSTMENT_CODE\"|\"TENDER_AMOUNT\"|\"DATA_SOURCE_CODE\"";
+
+  private static final int COLUMNS = 30;
+  private static final int MAX_ITEM_LINES = 6;
+  private static final LocalDate FIRST_BUSINESS_DATE = LocalDate.of(2023, 6, 1);
+  private static final String[] TENDER_TYPES = {"CA", "CA", "CA", "NG", "NC", "VC", "MC", "DB"};
+
+  /** Files written by {@link #write} and what they hold. */
+  public record GeneratedFiles(
+      List<Path> files,
+      Path previousDayFile,
+      long records,
+      long bytes,
+      long duplicateRecords,
+      long previousDayRecords) {}
+
+  private final Random random;
+
+  public SyntheticErtmFileGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Write about {@code records} lines of whole transactions, split over {@code fileCount} files.
+   *
+   * @param directory directory of the files
+   * @param fileCount number of files of the day
+   * @param records lines to write over all files of the day
+   * @param duplicateRatio share of the transactions also written to the previous-day file
+   */
+  public GeneratedFiles write(Path directory, int fileCount, long records, double duplicateRatio)
+      throws IOException {
+    if (fileCount < 1 || records < 1 || duplicateRatio < 0 || duplicateRatio > 1) {
+      throw new IllegalArgumentException(
+          "Need at least one file and one record and a duplicate ratio between 0 and 1");
+    }
+    Files.createDirectories(directory);
+    final Path previousDayFile = directory.resolve("ERTM_BENCHMARK_PREVIOUS_DAY.txt");
+    final List<Path> files = new ArrayList<>(fileCount);
+    final long recordsPerFile = (records + fileCount - 1) / fileCount;
+    long written = 0;
+    long duplicates = 0;
+    long previousDayRecords = 0;
+    long bytes = 0;
+    long transactionNumber = 0;
+
+    try (BufferedWriter previousDay = open(previousDayFile)) {
+      for (int fileIndex = 0; fileIndex < fileCount; fileIndex++) {
+        final Path file = directory.resolve(String.format("ERTM_BENCHMARK_%03d.txt", fileIndex));
+        files.add(file);
+        try (BufferedWriter writer = open(file)) {
+          long fileRecords = 0;
+          while (fileRecords < recordsPerFile && written < records) {
+            final List<String> lines = transaction(transactionNumber++);
+            final boolean duplicate = random.nextDouble() < duplicateRatio;
+            for (String line : lines) {
+              writer.write(line);
+              writer.newLine();
+              bytes += line.length() + 1;
+              if (duplicate) {
+                previousDay.write(line);
+                previousDay.newLine();
+              }
+            }
+            fileRecords += lines.size();
+            written += lines.size();
+            if (duplicate) {
+              duplicates += lines.size();
+              previousDayRecords += lines.size();
+            }
+          }
+        }
+      }
+    }
+    return new GeneratedFiles(
+        files, previousDayFile, written, bytes, duplicates, previousDayRecords);
+  }
+
+  private static BufferedWriter open(Path file) throws IOException {
+    final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    writer.write(HEADER);
+    writer.newLine();
+    return writer;
+  }
+
+  private List<String> transaction(long transactionNumber) {
+    final String transactionId = String.valueOf(100_000_000L + transactionNumber);
+    final LocalDate businessDate = FIRST_BUSINESS_DATE.plusDays(random.nextInt(30));
+    final String store = String.valueOf(1 + random.nextInt(400));
+    final int itemLines = 1 + random.nextInt(MAX_ITEM_LINES);
+
+    final List<String> lines = new ArrayList<>(itemLines + 1);
+    long tenderCents = 0;
+    for (int item = 1; item <= itemLines; item++) {
+      final long amountCents = 100 + random.nextInt(50_000);
+      final long taxCents = amountCents * 9 / 100;
+      tenderCents += amountCents + taxCents;
+      final String[] fields = commonFields(transactionId, businessDate, store);
+      fields[7] = "ItemLine";
+      fields[8] = transactionId + "_" + item;
+      fields[9] = "S   ";
+      fields[10] = "\"" + store + "\"";
+      fields[11] = "\"" + (100 + random.nextInt(900)) + "\"";
+      fields[12] = "\"" + (1 + random.nextInt(99)) + "\"";
+      fields[18] = "StoreShipSend";
+      fields[20] = amount(amountCents);
+      fields[21] = amount(taxCents);
+      fields[22] = "0.00";
+      lines.add(String.join("|", fields));
+    }
+
+    final String[] tender = commonFields(transactionId, businessDate, store);
+    tender[7] = "Tender";
+    tender[8] = transactionId + "_0";
+    tender[24] = TENDER_TYPES[random.nextInt(TENDER_TYPES.length)];
+    tender[25] = "0";
+    tender[26] = "RR";
+    tender[28] = amount(tenderCents);
+    lines.add(0, String.join("|", tender));
+    return lines;
+  }
+
+  private static String[] commonFields(String transactionId, LocalDate businessDate, String store) {
+    final String[] fields = new String[COLUMNS];
+    Arrays.fill(fields, "");
+    fields[0] = transactionId;
+    fields[1] = businessDate.toString();
+    fields[2] = businessDate.toString();
+    fields[3] = businessDate.plusDays(1).toString();
+    fields[4] = store;
+    fields[5] = "SALE";
+    fields[6] = "N   ";
+    fields[29] = "RPOS";
+    return fields;
+  }
+
+  private static String amount(long cents) {
+    return cents / 100 + "." + String.format("%02d", cents % 100);
+  }
+}
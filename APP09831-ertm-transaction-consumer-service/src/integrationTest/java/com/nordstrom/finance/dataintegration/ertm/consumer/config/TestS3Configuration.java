@@ -12,8 +12,8 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 
 /**
- * Test configuration that provides a mocked S3Utility bean for integration tests. This prevents
- * actual S3 uploads during test execution and focuses testing on database operations.
+ * Test configuration that provides a mocked S3Utility as the ObjectStore for integration tests.
+ * This prevents actual S3 uploads during test execution and focuses testing on database operations.
  */
 @TestConfiguration
 @Profile("integrationTest")
@@ -21,8 +21,8 @@ public class TestS3Configuration {
 
   /**
    * Provides a primary mock of the S3Utility singleton. The mock is pre-configured to: - Return
-   * true for all uploadFile() calls (simulating successful uploads) - Do nothing when
-   * closeS3Client() is called
+   * true for all uploadFile() calls (simulating successful uploads) - Do nothing when close() is
+   * called
    *
    * @return a mocked S3Utility instance
    */
@@ -31,7 +31,7 @@ public class TestS3Configuration {
   public S3Utility mockS3Utility() {
     S3Utility mockS3Utility = Mockito.mock(S3Utility.class);
     when(mockS3Utility.uploadFile(anyString(), anyString(), anyString())).thenReturn(true);
-    doNothing().when(mockS3Utility).closeS3Client();
+    doNothing().when(mockS3Utility).close();
     return mockS3Utility;
   }
 }
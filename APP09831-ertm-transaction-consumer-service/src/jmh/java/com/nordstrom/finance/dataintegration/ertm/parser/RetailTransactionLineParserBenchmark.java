@@ -0,0 +1,103 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the pipe-delimited parser with the opencsv fallback on a synthetic ERTM file shaped like
+ * production data (transactions of one tender line and several item lines).
+ *
+ * <p>Run with {@code ./gradlew jmh}; results are written to {@code build/results/jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetailTransactionLineParserBenchmark {
+
+  private static final String HEADER =
+      "\"SOURCE_REFERENCE_TRANSACTION_ID\"|\"TRANSACTION_DATE\"|\"BUSINESS_DATE\"|\"SOURCE_PROCESSED_DATE\"|\"RINGING_STORE\"|\"TRANSACTION_TYPE\"|\"TRANSACTION_REVERSAL_CODE\"|\"SOURCE_REFERENCE_LINE_TYPE\"|\"SOURCE_REFERENCE_LINE_ID\"|\"TRANSACTION_LINE_TYPE\"|\"STORE_OF_INTENT\"|\"DEPARTMENT_ID\"|\"CLASS_ID\"|\"FEE_CODE\"|\"STORE_CHARGE_FLAG\"|\"LEGACY_GL_STORE\"|\"CASH_DISBURSEMENT_LINE1\"|\"CASH_DISBURSEMENT_LINE2\"|\"FULFILLMENT_TYPE_DROPSHIP_CODE\"|\"WAIVED_REASON_CODE\"|\"LINE_ITEM_AMOUNT\"|\"TAX_AMOUNT\"|\"EMPLOYEE_DISCOUNT_AMOUNT\"|\"WAIVED_AMOUNT\"|\"TENDER_TYPE\"|\"TENDER_CARD_TYPE\"|\"TENDER_CARD_SUBTYPE\"|\"TENDER_ADJUSTMENT_CODE\"|\"TENDER_AMOUNT\"|\"DATA_SOURCE_CODE\"\n";
+
+  private static final int LINES_PER_TRANSACTION = 4;
+
+  @Param({"100000"})
+  private int records;
+
+  private String content;
+  private final RetailTransactionLineParser pipeDelimitedParser =
+      new PipeDelimitedRetailTransactionLineParser();
+  private final RetailTransactionLineParser openCsvParser =
+      new OpenCsvRetailTransactionLineParser();
+
+  @Setup
+  public void generateFile() {
+    final StringBuilder file = new StringBuilder(HEADER);
+    for (int i = 0; i < records; i++) {
+      final String transactionId = String.valueOf(1_000_000 + i / LINES_PER_TRANSACTION);
+      final int lineNumber = i % LINES_PER_TRANSACTION;
+      final String[] fields = new String[30];
+      Arrays.fill(fields, "");
+      fields[0] = transactionId;
+      fields[1] = "2023-04-26";
+      fields[2] = "2023-06-15";
+      fields[3] = "2023-06-16";
+      fields[4] = "808";
+      fields[5] = "SALE";
+      fields[6] = "N   ";
+      fields[8] = transactionId + "_" + lineNumber;
+      fields[29] = "RPOS";
+      if (lineNumber == 0) {
+        fields[7] = "Tender";
+        fields[24] = "VC";
+        fields[25] = "0";
+        fields[26] = "RR";
+        fields[28] = (100 + i % 900) + ".95";
+      } else {
+        fields[7] = "ItemLine";
+        fields[9] = "S   ";
+        fields[10] = "\"808\"";
+        fields[11] = "\"802\"";
+        fields[12] = "\"63\"";
+        fields[18] = "StoreShipSend";
+        fields[20] = (i % 500) + ".00";
+        fields[21] = "4.95";
+        fields[22] = "0.00";
+      }
+      file.append(String.join("|", fields)).append('\n');
+    }
+    content = file.toString();
+  }
+
+  @Benchmark
+  public void pipeDelimited(Blackhole blackhole) {
+    consume(pipeDelimitedParser, blackhole);
+  }
+
+  @Benchmark
+  public void openCsv(Blackhole blackhole) {
+    consume(openCsvParser, blackhole);
+  }
+
+  private void consume(RetailTransactionLineParser parser, Blackhole blackhole) {
+    final Iterator<?> iterator = parser.parse(new StringReader(content));
+    while (iterator.hasNext()) {
+      blackhole.consume(iterator.next());
+    }
+  }
+}
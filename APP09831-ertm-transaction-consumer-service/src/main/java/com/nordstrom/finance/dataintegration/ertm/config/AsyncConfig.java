@@ -0,0 +1,211 @@
+package com.nordstrom.finance.dataintegration.ertm.config;
+
+import java.util.concurrent.Executor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Thread pool configuration for concurrent S3 file processing. The file pool size caps how many
+ * files are processed at the same time. The stage pool runs the pipeline stage workers of every
+ * in-flight file; with the pipeline enabled each file holds up to two Aurora connections (duplicate
+ * lookup and persistence), so twice the files in flight should stay below the Hikari maximum pool
+ * size. The download pool runs the ranged GETs of parallel downloads, {@code
+ * file.processing.download.parallel.concurrency} per in-flight file. The parse pool runs the chunk
+ * workers of chunked parsing, {@code file.processing.chunked-parse.chunks} per in-flight file;
+ * every chunk worker holds an Aurora connection while it looks up duplicates. The decompression
+ * pool runs one decoder per in-flight compressed file. The archive pool runs the background moves
+ * to the processed bucket, one per in-flight file; the archive part pool runs the UploadPartCopy
+ * requests of multipart moves, {@code file.processing.archive.multipart.concurrency} per move. The
+ * lease scheduler sends the heartbeat of the file leases held by this pod.
+ */
+@Slf4j
+@Configuration
+public class AsyncConfig {
+
+  public static final String FILE_PROCESSOR_EXECUTOR_BEAN_NAME = "fileProcessorTaskExecutor";
+  public static final String FILE_STAGE_EXECUTOR_BEAN_NAME = "fileStageTaskExecutor";
+  public static final String FILE_DOWNLOAD_EXECUTOR_BEAN_NAME = "fileDownloadTaskExecutor";
+  public static final String FILE_PARSE_EXECUTOR_BEAN_NAME = "fileParseTaskExecutor";
+  public static final String FILE_DECOMPRESS_EXECUTOR_BEAN_NAME = "fileDecompressTaskExecutor";
+  public static final String FILE_ARCHIVE_EXECUTOR_BEAN_NAME = "fileArchiveTaskExecutor";
+  public static final String FILE_ARCHIVE_PART_EXECUTOR_BEAN_NAME = "fileArchivePartTaskExecutor";
+  public static final String FILE_LEASE_SCHEDULER_BEAN_NAME = "fileLeaseTaskScheduler";
+
+  /** Worker threads per file pipeline: duplicate filter, mapping and persistence. */
+  public static final int PIPELINE_STAGES_PER_FILE = 3;
+
+  @Bean(name = FILE_PROCESSOR_EXECUTOR_BEAN_NAME)
+  public Executor fileProcessorTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-File-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Processor Thread Pool - Files in flight: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_STAGE_EXECUTOR_BEAN_NAME)
+  public Executor fileStageTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight) * PIPELINE_STAGES_PER_FILE;
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-Stage-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Stage Thread Pool - Stage workers: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_DOWNLOAD_EXECUTOR_BEAN_NAME)
+  public Executor fileDownloadTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.download.parallel.concurrency:4}") int downloadConcurrency,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight) * Math.max(1, downloadConcurrency);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-Download-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Download Thread Pool - Download workers: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_PARSE_EXECUTOR_BEAN_NAME)
+  public Executor fileParseTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.chunked-parse.chunks:0}") int chunks,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight) * resolveParseChunks(chunks);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-Parse-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Parse Thread Pool - Chunk workers: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_DECOMPRESS_EXECUTOR_BEAN_NAME)
+  public Executor fileDecompressTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-Decompress-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Decompression Thread Pool - Decoders: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_ARCHIVE_EXECUTOR_BEAN_NAME)
+  public Executor fileArchiveTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-Archive-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Archive Thread Pool - Archive workers: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_ARCHIVE_PART_EXECUTOR_BEAN_NAME)
+  public Executor fileArchivePartTaskExecutor(
+      @Value("${file.processing.concurrency.max-files-in-flight:1}") int maxFilesInFlight,
+      @Value("${file.processing.archive.multipart.concurrency:8}") int partConcurrency,
+      @Value("${file.processing.concurrency.await-termination-seconds:300}")
+          int awaitTerminationSeconds) {
+    final int poolSize = Math.max(1, maxFilesInFlight) * Math.max(1, partConcurrency);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("ERTM-ArchivePart-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+    executor.initialize();
+
+    log.info("Initialized ERTM File Archive Part Thread Pool - Part workers: {}", poolSize);
+
+    return executor;
+  }
+
+  @Bean(name = FILE_LEASE_SCHEDULER_BEAN_NAME)
+  public TaskScheduler fileLeaseTaskScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    scheduler.setPoolSize(1);
+    scheduler.setThreadNamePrefix("ERTM-Lease-");
+    scheduler.setDaemon(true);
+
+    scheduler.initialize();
+
+    log.info("Initialized ERTM File Lease Scheduler");
+
+    return scheduler;
+  }
+
+  /** Chunks per file for chunked parsing; zero or less means one per available processor. */
+  public static int resolveParseChunks(int configuredChunks) {
+    return configuredChunks > 0 ? configuredChunks : Runtime.getRuntime().availableProcessors();
+  }
+}
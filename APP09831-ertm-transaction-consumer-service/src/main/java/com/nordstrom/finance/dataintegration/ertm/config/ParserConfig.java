@@ -0,0 +1,26 @@
+package com.nordstrom.finance.dataintegration.ertm.config;
+
+import com.nordstrom.finance.dataintegration.ertm.parser.OpenCsvRetailTransactionLineParser;
+import com.nordstrom.finance.dataintegration.ertm.parser.ParserType;
+import com.nordstrom.finance.dataintegration.ertm.parser.PipeDelimitedRetailTransactionLineParser;
+import com.nordstrom.finance.dataintegration.ertm.parser.RetailTransactionLineParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Selects the ERTM source file parser; opencsv remains available as a fallback. */
+@Slf4j
+@Configuration
+public class ParserConfig {
+
+  @Bean
+  public RetailTransactionLineParser retailTransactionLineParser(
+      @Value("${file.processing.parser:PIPE_DELIMITED}") ParserType parserType) {
+    log.info("Using {} parser for ERTM source files", parserType);
+    return switch (parserType) {
+      case PIPE_DELIMITED -> new PipeDelimitedRetailTransactionLineParser();
+      case OPENCSV -> new OpenCsvRetailTransactionLineParser();
+    };
+  }
+}
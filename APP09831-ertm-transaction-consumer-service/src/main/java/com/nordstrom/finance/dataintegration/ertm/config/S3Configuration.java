@@ -1,32 +1,76 @@
 package com.nordstrom.finance.dataintegration.ertm.config;
 
 import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
+import com.nordstrom.finance.dataintegration.common.aws.config.S3ConcurrencyLimitConfig;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.InMemoryObjectStore;
+import com.nordstrom.finance.dataintegration.common.store.LocalFileSystemObjectStore;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStoreType;
+import java.io.IOException;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
 /**
- * Configuration for S3Utility bean. Provides the common-lib S3Utility singleton as a Spring-managed
- * bean to enable dependency injection and testing.
+ * Configuration for the ObjectStore bean. {@code aws.s3.object-store} selects the implementation:
+ * S3 (default) provides the common-lib S3Utility singleton, LOCAL and MEMORY run the service
+ * without AWS, e.g. for load tests and benchmarks.
  *
  * <p>This configuration is only active when the "integration-test" profile is NOT active. In
  * integration tests, TestS3Configuration provides a mock bean instead.
  */
+@Slf4j
 @Configuration
 @Profile("!integrationTest")
 public class S3Configuration {
 
   /**
-   * Provides the S3Utility singleton instance as a Spring bean. This allows the singleton to be
-   * injected via constructor injection.
+   * Limit on concurrent S3 requests that shrinks on SlowDown/503 throttling and latency spikes and
+   * grows while requests succeed.
+   *
+   * @return the limiter settings bound from aws.s3.concurrency-limit
+   */
+  @Bean
+  @ConfigurationProperties(prefix = "aws.s3.concurrency-limit", ignoreUnknownFields = false)
+  public S3ConcurrencyLimitConfig s3ConcurrencyLimitConfig() {
+    return new S3ConcurrencyLimitConfig();
+  }
+
+  /**
+   * Provides the configured ObjectStore as a Spring bean, so services get it via constructor
+   * injection.
    *
    * <p>This bean is not created during integration tests (profile="integration-test"), where a mock
    * is used instead.
    *
-   * @return the S3Utility singleton instance from common-lib
+   * @param type implementation to use
+   * @param localRoot directory holding the buckets of the LOCAL store
+   * @param concurrencyLimitConfig adaptive limit on concurrent S3 requests
+   * @param metricsClient receives the S3 concurrency limit gauges
+   * @return the object store
+   * @throws IOException if the LOCAL root directory cannot be created
    */
   @Bean
-  public S3Utility s3Utility() {
-    return S3Utility.getInstance();
+  public ObjectStore objectStore(
+      @Value("${aws.s3.object-store:S3}") ObjectStoreType type,
+      @Value("${aws.s3.local-root:${java.io.tmpdir}/ertm-buckets}") String localRoot,
+      S3ConcurrencyLimitConfig concurrencyLimitConfig,
+      MetricsClient metricsClient)
+      throws IOException {
+    log.info("Using the {} object store", type);
+    return switch (type) {
+      case S3 -> {
+        final S3Utility s3Utility = S3Utility.getInstance();
+        s3Utility.configureConcurrencyLimit(concurrencyLimitConfig, metricsClient);
+        yield s3Utility;
+      }
+      case LOCAL -> new LocalFileSystemObjectStore(Path.of(localRoot));
+      case MEMORY -> new InMemoryObjectStore();
+    };
   }
 }
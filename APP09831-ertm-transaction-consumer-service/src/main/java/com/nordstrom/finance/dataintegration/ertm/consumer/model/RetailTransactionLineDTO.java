@@ -99,4 +99,12 @@ public class RetailTransactionLineDTO {
 
   @CsvBindByName(column = "DATA_SOURCE_CODE")
   private String dataSourceCode;
+
+  // byte offset of the record in the source file, set by parsers that track it; used for
+  // checkpoints
+  private long sourceByteOffset;
+
+  // line number of the record in the source file, set by parsers that track offsets; used for
+  // rejected records
+  private long sourceLineNumber;
 }
@@ -0,0 +1,182 @@
+package com.nordstrom.finance.dataintegration.ertm.database.constant;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * SQL of the staging ingest mode. Rows of one file share a {@code load_id}; the merge statements
+ * reproduce the rules of the entity mappers ({@code toFourDigitFormat}, line type transform, {@code
+ * ertm}/{@code retail} source types) so both ingest modes store identical rows.
+ */
+@UtilityClass
+public final class StagingQueryConstants {
+
+  public static final String STAGING_TABLE = "ertm_transaction_staging";
+
+  /**
+   * Ids handed out per {@code nextval}. Must match the {@code INCREMENT BY} of the sequences and
+   * the {@code allocationSize} of the entities, so staged loads and Hibernate's pooled optimizer
+   * draw disjoint id blocks from the same sequences.
+   */
+  public static final int ID_BLOCK_SIZE = 2000;
+
+  /**
+   * Restricts the duplicate check to ERTM transactions (alias {@code t}). Shared by the staged
+   * merge and the line lookup of the entity path ({@code
+   * TransactionRepository.getExistingLineItems}), so both ingest modes treat the same rows as
+   * stored.
+   */
+  public static final String ERTM_TRANSACTION = "t.source_reference_system_type = 'ertm'";
+
+  /**
+   * Serializes merges of concurrent loads, on this pod and on others: the duplicate check of {@link
+   * #ASSIGN_IDS} cannot see the uncommitted rows of another merge, so two files sharing a line
+   * would both insert it. The lock is released when the merge transaction ends.
+   */
+  public static final String LOCK_MERGE = "SELECT pg_advisory_xact_lock(hashtext('ertm_merge'))";
+
+  public static final String COPY_INTO_STAGING =
+      "COPY "
+          + STAGING_TABLE
+          + " (load_id, line_number, source_reference_transaction_id, source_processed_date, "
+          + "transaction_date, business_date, transaction_type, transaction_reversal_code, "
+          + "source_reference_line_id, source_reference_line_type, transaction_line_type, "
+          + "ringing_store, store_of_intent, department_id, class_id, fee_code, tender_type, "
+          + "tender_card_type, tender_card_subtype, tender_adjustment_code, line_item_amount, "
+          + "tax_amount, employee_discount_amount, tender_amount, cash_disbursement_line1, "
+          + "cash_disbursement_line2, waived_reason_code, waived_amount, "
+          + "fulfillment_type_dropship_code) FROM STDIN";
+
+  /**
+   * Assigns transaction, transaction line and retail line ids to every staged row whose line is not
+   * stored yet (the in-database duplicate check). Ids are carved out of one {@code nextval} per
+   * {@value #ID_BLOCK_SIZE} rows exactly like Hibernate's pooled optimizer does; transactions are
+   * numbered in order of their first line. Rows left without ids are duplicates. Parameters: load
+   * id, load id.
+   */
+  public static final String ASSIGN_IDS =
+      "WITH line AS ("
+          + " SELECT line_number,"
+          + " row_number() OVER (ORDER BY line_number) - 1 AS line_seq,"
+          + " dense_rank() OVER (ORDER BY first_line_number) - 1 AS transaction_seq"
+          + " FROM (SELECT s.line_number, min(s.line_number) OVER"
+          + " (PARTITION BY s.source_reference_transaction_id) AS first_line_number"
+          + " FROM "
+          + STAGING_TABLE
+          + " s WHERE s.load_id = ? AND NOT EXISTS ("
+          + " SELECT 1 FROM transaction t"
+          + " JOIN transaction_line tl ON tl.transaction_id = t.transaction_id"
+          + " WHERE t.source_reference_transaction_id = s.source_reference_transaction_id"
+          + " AND "
+          + ERTM_TRANSACTION
+          + " AND tl.source_reference_line_id = s.source_reference_line_id)) AS new_line),"
+          + idBlocks("transaction_blocks", "transaction_transaction_id_seq", "transaction_seq")
+          + ","
+          + idBlocks("line_blocks", "transaction_line_transaction_line_id_seq", "line_seq")
+          + ","
+          + idBlocks(
+              "retail_blocks", "retail_transaction_line_retail_transaction_line_id_seq", "line_seq")
+          + " UPDATE "
+          + STAGING_TABLE
+          + " s SET transaction_id = "
+          + blockId("transaction_blocks", "line.transaction_seq")
+          + ", transaction_line_id = "
+          + blockId("line_blocks", "line.line_seq")
+          + ", retail_transaction_line_id = "
+          + blockId("retail_blocks", "line.line_seq")
+          + " FROM line, transaction_blocks, line_blocks, retail_blocks"
+          + " WHERE s.load_id = ? AND s.line_number = line.line_number";
+
+  /** One transaction per staged transaction id, taken from its first line. Parameter: load id. */
+  public static final String INSERT_TRANSACTIONS =
+      "INSERT INTO transaction (transaction_id, source_reference_transaction_id,"
+          + " source_reference_system_type, source_reference_type, source_processed_date,"
+          + " transaction_date, business_date, transaction_type, transaction_reversal_code)"
+          + " SELECT DISTINCT ON (s.transaction_id) s.transaction_id,"
+          + " s.source_reference_transaction_id, 'ertm', 'retail', s.source_processed_date,"
+          + " s.transaction_date, s.business_date, s.transaction_type, s.transaction_reversal_code"
+          + " FROM "
+          + STAGING_TABLE
+          + " s WHERE s.load_id = ? AND s.transaction_id IS NOT NULL"
+          + " ORDER BY s.transaction_id, s.line_number";
+
+  /** Parameter: load id. */
+  public static final String INSERT_TRANSACTION_LINES =
+      "INSERT INTO transaction_line (transaction_line_id, transaction_id,"
+          + " source_reference_line_id, source_reference_line_type, transaction_line_type,"
+          + " ringing_store, store_of_intent)"
+          + " SELECT s.transaction_line_id, s.transaction_id, s.source_reference_line_id,"
+          + " s.source_reference_line_type,"
+          + " CASE upper(btrim(s.transaction_line_type))"
+          + " WHEN 'S' THEN 'SALE' WHEN 'R' THEN 'RETN' WHEN 'RETURN' THEN 'RETN'"
+          + " ELSE nullif(upper(btrim(s.transaction_line_type)), '') END, "
+          + fourDigitFormat("s.ringing_store")
+          + ", "
+          + fourDigitFormat("s.store_of_intent")
+          + " FROM "
+          + STAGING_TABLE
+          + " s WHERE s.load_id = ? AND s.transaction_line_id IS NOT NULL";
+
+  /** Parameter: load id. */
+  public static final String INSERT_RETAIL_TRANSACTION_LINES =
+      "INSERT INTO retail_transaction_line (retail_transaction_line_id, transaction_line_id,"
+          + " department_id, class_id, fee_code, tender_type, tender_card_type_code,"
+          + " tender_card_subtype_code, tender_activity_code, line_item_amount, tax_amount,"
+          + " employee_discount_amount, tender_amount, fulfillment_type_dropship_code,"
+          + " cash_disbursement_line1, cash_disbursement_line2, waived_reason_code, waived_amount)"
+          + " SELECT s.retail_transaction_line_id, s.transaction_line_id, "
+          + fourDigitFormat("s.department_id")
+          + ", "
+          + fourDigitFormat("s.class_id")
+          + ", "
+          + fourDigitFormat("s.fee_code")
+          + ", s.tender_type, s.tender_card_type, s.tender_card_subtype,"
+          + " s.tender_adjustment_code, s.line_item_amount, s.tax_amount,"
+          + " s.employee_discount_amount, s.tender_amount, s.fulfillment_type_dropship_code,"
+          + " s.cash_disbursement_line1, s.cash_disbursement_line2, s.waived_reason_code,"
+          + " s.waived_amount FROM "
+          + STAGING_TABLE
+          + " s WHERE s.load_id = ? AND s.retail_transaction_line_id IS NOT NULL";
+
+  /** Parameter: load id. */
+  public static final String DELETE_LOAD = "DELETE FROM " + STAGING_TABLE + " WHERE load_id = ?";
+
+  /** SQL twin of {@code StringFormatUtility.toFourDigitFormat}: left pad 1-3 digit numbers. */
+  private static String fourDigitFormat(String column) {
+    return "CASE WHEN "
+        + column
+        + " ~ '^[0-9]{1,3}$' THEN lpad("
+        + column
+        + ", 4, '0') ELSE "
+        + column
+        + " END";
+  }
+
+  /** Upper ends of the id blocks needed to number {@code seqColumn} (0-based) of the new lines. */
+  private static String idBlocks(String name, String sequence, String seqColumn) {
+    return " "
+        + name
+        + " AS MATERIALIZED (SELECT array_agg(nextval('"
+        + sequence
+        + "') ORDER BY block) AS hi FROM generate_series(1,"
+        + " (SELECT ceil((max("
+        + seqColumn
+        + ") + 1) / "
+        + ID_BLOCK_SIZE
+        + ".0)::int FROM line)) AS block)";
+  }
+
+  /** Id of the {@code seq}-th (0-based) row: block upper end minus its unused tail. */
+  private static String blockId(String blocks, String seq) {
+    return blocks
+        + ".hi[("
+        + seq
+        + " / "
+        + ID_BLOCK_SIZE
+        + " + 1)::int] - "
+        + (ID_BLOCK_SIZE - 1)
+        + " + "
+        + seq
+        + " % "
+        + ID_BLOCK_SIZE;
+  }
+}
@@ -0,0 +1,51 @@
+package com.nordstrom.finance.dataintegration.ertm.database.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * ERTM source file that was fully ingested. {@code eTag} and {@code contentLength} identify the
+ * version of the object, so a file replaced under the same key is ingested again.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "file_ingest_manifest")
+public class FileIngestManifest {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "FILE_INGEST_MANIFEST_ID")
+  private Long id;
+
+  @Column(name = "SOURCE_BUCKET", nullable = false)
+  private String sourceBucket;
+
+  @Column(name = "FILE_KEY", nullable = false, length = 1024)
+  private String fileKey;
+
+  @Column(name = "E_TAG", nullable = false, length = 100)
+  private String eTag;
+
+  @Column(name = "CONTENT_LENGTH", nullable = false)
+  private long contentLength;
+
+  @Column(name = "RECORDS_PROCESSED", nullable = false)
+  private long recordsProcessed;
+
+  @Column(name = "DURATION_MILLIS", nullable = false)
+  private long durationMillis;
+
+  @Column(name = "CREATED_DATETIME", insertable = false, updatable = false)
+  private LocalDateTime createdDateTime;
+
+  @Column(name = "LAST_UPDATED_DATETIME", insertable = false, updatable = false)
+  private LocalDateTime lastUpdatedDateTime;
+}
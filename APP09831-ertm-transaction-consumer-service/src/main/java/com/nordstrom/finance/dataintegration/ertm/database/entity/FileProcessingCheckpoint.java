@@ -0,0 +1,59 @@
+package com.nordstrom.finance.dataintegration.ertm.database.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Last committed position in an ERTM source file. {@code resumeByteOffset} is the offset of the
+ * first record that is not known to be stored, or the object size once the last batch committed;
+ * {@code dataStartByteOffset} is the length of the header row, which is read again in front of the
+ * resumed range.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "file_processing_checkpoint")
+public class FileProcessingCheckpoint {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "FILE_PROCESSING_CHECKPOINT_ID")
+  private Long id;
+
+  @Column(name = "SOURCE_BUCKET", nullable = false)
+  private String sourceBucket;
+
+  @Column(name = "FILE_KEY", nullable = false, length = 1024)
+  private String fileKey;
+
+  @Column(name = "E_TAG", nullable = false, length = 100)
+  private String eTag;
+
+  @Column(name = "RESUME_BYTE_OFFSET", nullable = false)
+  private long resumeByteOffset;
+
+  @Column(name = "DATA_START_BYTE_OFFSET", nullable = false)
+  private long dataStartByteOffset;
+
+  @Column(name = "BATCH_NUMBER", nullable = false)
+  private int batchNumber;
+
+  @Column(name = "RECORDS_PROCESSED", nullable = false)
+  private long recordsProcessed;
+
+  @Column(name = "TRANSACTIONS_SAVED", nullable = false)
+  private long transactionsSaved;
+
+  @Column(name = "CREATED_DATETIME", insertable = false, updatable = false)
+  private LocalDateTime createdDateTime;
+
+  @Column(name = "LAST_UPDATED_DATETIME", insertable = false, updatable = false)
+  private LocalDateTime lastUpdatedDateTime;
+}
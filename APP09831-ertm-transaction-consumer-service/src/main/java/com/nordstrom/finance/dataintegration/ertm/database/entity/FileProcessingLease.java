@@ -0,0 +1,46 @@
+package com.nordstrom.finance.dataintegration.ertm.database.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Claim of an ERTM source file by one consumer pod. The lease is valid until {@code
+ * expiresDateTime}, which the owner keeps pushing forward with heartbeats while it processes the
+ * file.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "file_processing_lease")
+public class FileProcessingLease {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "FILE_PROCESSING_LEASE_ID")
+  private Long id;
+
+  @Column(name = "SOURCE_BUCKET", nullable = false)
+  private String sourceBucket;
+
+  @Column(name = "FILE_KEY", nullable = false, length = 1024)
+  private String fileKey;
+
+  @Column(name = "OWNER_ID", nullable = false)
+  private String ownerId;
+
+  @Column(name = "EXPIRES_DATETIME", nullable = false)
+  private LocalDateTime expiresDateTime;
+
+  @Column(name = "CREATED_DATETIME", insertable = false, updatable = false)
+  private LocalDateTime createdDateTime;
+
+  @Column(name = "LAST_UPDATED_DATETIME", insertable = false, updatable = false)
+  private LocalDateTime lastUpdatedDateTime;
+}
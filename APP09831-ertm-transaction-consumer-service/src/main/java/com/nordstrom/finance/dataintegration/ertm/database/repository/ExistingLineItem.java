@@ -0,0 +1,8 @@
+package com.nordstrom.finance.dataintegration.ertm.database.repository;
+
+/** (source reference transaction id, source reference line id) pair already stored. */
+public interface ExistingLineItem {
+  String getTransactionId();
+
+  String getLineId();
+}
@@ -0,0 +1,38 @@
+package com.nordstrom.finance.dataintegration.ertm.database.repository;
+
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileIngestManifest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface FileIngestManifestRepository extends JpaRepository<FileIngestManifest, Long> {
+
+  @Query(
+      "SELECT COUNT(m) > 0 FROM FileIngestManifest m WHERE m.sourceBucket = :sourceBucket "
+          + "AND m.fileKey = :fileKey AND m.eTag = :eTag AND m.contentLength = :contentLength")
+  boolean existsManifest(
+      @Param("sourceBucket") String sourceBucket,
+      @Param("fileKey") String fileKey,
+      @Param("eTag") String eTag,
+      @Param("contentLength") long contentLength);
+
+  // a file ingested again after its archive move failed twice only refreshes its row
+  @Modifying
+  @Transactional
+  @Query(
+      value =
+          "INSERT INTO file_ingest_manifest (source_bucket, file_key, e_tag, content_length, "
+              + "records_processed, duration_millis) VALUES (:#{#manifest.sourceBucket}, "
+              + ":#{#manifest.fileKey}, :#{#manifest.eTag}, :#{#manifest.contentLength}, "
+              + ":#{#manifest.recordsProcessed}, :#{#manifest.durationMillis}) "
+              + "ON CONFLICT (source_bucket, file_key, e_tag, content_length) DO UPDATE SET "
+              + "records_processed = excluded.records_processed, "
+              + "duration_millis = excluded.duration_millis, "
+              + "last_updated_datetime = CURRENT_TIMESTAMP",
+      nativeQuery = true)
+  int upsertManifest(@Param("manifest") FileIngestManifest manifest);
+}
@@ -0,0 +1,47 @@
+package com.nordstrom.finance.dataintegration.ertm.database.repository;
+
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileProcessingCheckpoint;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface FileProcessingCheckpointRepository
+    extends JpaRepository<FileProcessingCheckpoint, Long> {
+
+  Optional<FileProcessingCheckpoint> findBySourceBucketAndFileKey(
+      String sourceBucket, String fileKey);
+
+  // one round trip per batch whether or not the file already has a checkpoint
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO file_processing_checkpoint (source_bucket, file_key, e_tag, "
+              + "resume_byte_offset, data_start_byte_offset, batch_number, records_processed, "
+              + "transactions_saved) VALUES (:#{#checkpoint.sourceBucket}, "
+              + ":#{#checkpoint.fileKey}, :#{#checkpoint.eTag}, "
+              + ":#{#checkpoint.resumeByteOffset}, :#{#checkpoint.dataStartByteOffset}, "
+              + ":#{#checkpoint.batchNumber}, :#{#checkpoint.recordsProcessed}, "
+              + ":#{#checkpoint.transactionsSaved}) "
+              + "ON CONFLICT (source_bucket, file_key) DO UPDATE SET e_tag = excluded.e_tag, "
+              + "resume_byte_offset = excluded.resume_byte_offset, "
+              + "data_start_byte_offset = excluded.data_start_byte_offset, "
+              + "batch_number = excluded.batch_number, "
+              + "records_processed = excluded.records_processed, "
+              + "transactions_saved = excluded.transactions_saved, "
+              + "last_updated_datetime = CURRENT_TIMESTAMP",
+      nativeQuery = true)
+  int upsertCheckpoint(@Param("checkpoint") FileProcessingCheckpoint checkpoint);
+
+  @Modifying
+  @Transactional
+  @Query(
+      "DELETE FROM FileProcessingCheckpoint c WHERE c.sourceBucket = :sourceBucket "
+          + "AND c.fileKey = :fileKey")
+  int deleteBySourceBucketAndFileKey(
+      @Param("sourceBucket") String sourceBucket, @Param("fileKey") String fileKey);
+}
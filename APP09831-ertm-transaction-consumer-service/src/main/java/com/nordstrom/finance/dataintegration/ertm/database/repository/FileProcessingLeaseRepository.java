@@ -0,0 +1,54 @@
+package com.nordstrom.finance.dataintegration.ertm.database.repository;
+
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileProcessingLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface FileProcessingLeaseRepository extends JpaRepository<FileProcessingLease, Long> {
+
+  // claims a free or expired lease (or extends our own) in one statement; 0 rows if another pod
+  // holds it
+  @Modifying
+  @Transactional
+  @Query(
+      value =
+          "INSERT INTO file_processing_lease (source_bucket, file_key, owner_id, expires_datetime) "
+              + "VALUES (:sourceBucket, :fileKey, :ownerId, "
+              + "CURRENT_TIMESTAMP + make_interval(secs => :ttlSeconds)) "
+              + "ON CONFLICT (source_bucket, file_key) DO UPDATE SET "
+              + "owner_id = excluded.owner_id, expires_datetime = excluded.expires_datetime, "
+              + "last_updated_datetime = CURRENT_TIMESTAMP "
+              + "WHERE file_processing_lease.expires_datetime < CURRENT_TIMESTAMP "
+              + "OR file_processing_lease.owner_id = excluded.owner_id",
+      nativeQuery = true)
+  int tryAcquire(
+      @Param("sourceBucket") String sourceBucket,
+      @Param("fileKey") String fileKey,
+      @Param("ownerId") String ownerId,
+      @Param("ttlSeconds") int ttlSeconds);
+
+  @Modifying
+  @Transactional
+  @Query(
+      value =
+          "UPDATE file_processing_lease SET "
+              + "expires_datetime = CURRENT_TIMESTAMP + make_interval(secs => :ttlSeconds), "
+              + "last_updated_datetime = CURRENT_TIMESTAMP WHERE owner_id = :ownerId",
+      nativeQuery = true)
+  int renewAll(@Param("ownerId") String ownerId, @Param("ttlSeconds") int ttlSeconds);
+
+  @Modifying
+  @Transactional
+  @Query(
+      "DELETE FROM FileProcessingLease l WHERE l.sourceBucket = :sourceBucket "
+          + "AND l.fileKey = :fileKey AND l.ownerId = :ownerId")
+  int release(
+      @Param("sourceBucket") String sourceBucket,
+      @Param("fileKey") String fileKey,
+      @Param("ownerId") String ownerId);
+}
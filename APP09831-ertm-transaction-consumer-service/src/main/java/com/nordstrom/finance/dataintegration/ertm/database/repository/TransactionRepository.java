@@ -1,29 +1,54 @@
 package com.nordstrom.finance.dataintegration.ertm.database.repository;
 
+import com.nordstrom.finance.dataintegration.ertm.database.constant.StagingQueryConstants;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
-  // duplicate check based on transactionId and transactionlineId
+  // duplicate check for a whole batch: candidate (transactionId, lineId) pairs are passed as two
+  // parallel arrays and joined in a single round trip; ERTM transactions only, like the staged
+  // merge
   @Query(
       value =
-          "SELECT tl.SOURCE_REFERENCE_LINE_ID FROM transaction t "
-              + "JOIN transaction_line tl ON t.transaction_id = tl.transaction_id "
-              + "WHERE t.SOURCE_REFERENCE_TRANSACTION_ID = :transactionId "
-              + "AND tl.SOURCE_REFERENCE_LINE_ID IN (:lineIds)",
+          "SELECT t.SOURCE_REFERENCE_TRANSACTION_ID AS \"transactionId\", "
+              + "tl.SOURCE_REFERENCE_LINE_ID AS \"lineId\" "
+              + "FROM unnest(cast(:transactionIds AS text[]), cast(:lineIds AS text[])) "
+              + "AS candidate(transaction_id, line_id) "
+              + "JOIN transaction t ON t.SOURCE_REFERENCE_TRANSACTION_ID = candidate.transaction_id "
+              + "AND "
+              + StagingQueryConstants.ERTM_TRANSACTION
+              + " "
+              + "JOIN transaction_line tl ON tl.transaction_id = t.transaction_id "
+              + "AND tl.SOURCE_REFERENCE_LINE_ID = candidate.line_id",
       nativeQuery = true)
-  List<String> getExistingLineItemIds(
-      @Param("transactionId") String transactionId, @Param("lineIds") List<String> lineIds);
+  List<ExistingLineItem> getExistingLineItems(
+      @Param("transactionIds") String[] transactionIds, @Param("lineIds") String[] lineIds);
 
   // Get Transaction with same source_reference_transaction_id
   @Query(
       "SELECT t.sourceReferenceTransactionId FROM Transaction t WHERE t.sourceReferenceTransactionId in (:transactionIds) and t.sourceReferenceSystemType = 'ertm'")
   List<String> getExistingSourceReferenceTransactionIds(
       @Param("transactionIds") List<String> transactionIds);
+
+  // ERTM transaction ids from a business date on, streamed for the duplicate pre-filter
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+  @Query(
+      "SELECT t.sourceReferenceTransactionId FROM Transaction t WHERE t.sourceReferenceSystemType = 'ertm' and t.businessDate >= :fromBusinessDate")
+  Stream<String> streamSourceReferenceTransactionIds(
+      @Param("fromBusinessDate") LocalDate fromBusinessDate);
+
+  @Query(
+      "SELECT count(t) FROM Transaction t WHERE t.sourceReferenceSystemType = 'ertm' and t.businessDate >= :fromBusinessDate")
+  long countSourceReferenceTransactionIds(@Param("fromBusinessDate") LocalDate fromBusinessDate);
 }
@@ -0,0 +1,242 @@
+package com.nordstrom.finance.dataintegration.ertm.database.service;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.database.constant.StagingQueryConstants;
+import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseOperationException;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Database access of the staging ingest mode: bulk loads parsed records into the unlogged staging
+ * table with PostgreSQL {@code COPY}, then dedupes and fans them out into {@code transaction},
+ * {@code transaction_line} and {@code retail_transaction_line} with set-based SQL.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StagingTableDBService {
+  private final JdbcTemplate jdbcTemplate;
+  private final MetricsClient metricsClient;
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  /** Outcome of merging one staged load into the transaction tables. */
+  public record MergeResult(int transactions, int lines, long duplicateLines) {}
+
+  /**
+   * * Stream records into the staging table with a single {@code COPY}. Only one record is held in
+   * memory at a time.
+   *
+   * @param loadId id shared by all rows of the load
+   * @param records parsed source records
+   * @return number of rows staged
+   * @throws DatabaseOperationException if the copy fails
+   */
+  public long copyToStaging(UUID loadId, Iterator<RetailTransactionLineDTO> records)
+      throws DatabaseOperationException {
+    final long copyStartTime = System.currentTimeMillis();
+    final Long stagedRows;
+    try {
+      stagedRows =
+          jdbcTemplate.execute(
+              (ConnectionCallback<Long>)
+                  connection -> copy(connection.unwrap(PGConnection.class), loadId, records));
+    } catch (DataAccessException e) {
+      log.error("Error copying records of load {} to staging: {}", loadId, e.getMessage(), e);
+      throw new DatabaseOperationException("Failed to copy records to staging table", e);
+    }
+
+    final long copyDuration = System.currentTimeMillis() - copyStartTime;
+    log.info("Staged {} records for load {} in {}ms", stagedRows, loadId, copyDuration);
+    metricsClient.recordExecutionTime(
+        Metric.STAGING_COPY_TIME.getMetricName(),
+        copyDuration,
+        MetricTag.RECORDS_COUNT.getTag(String.valueOf(stagedRows)));
+    return stagedRows == null ? 0 : stagedRows;
+  }
+
+  /**
+   * * Merge a staged load into the transaction tables in one database transaction. Lines already
+   * stored for an {@code ertm} transaction are skipped. Merges run one at a time (see {@link
+   * StagingQueryConstants#LOCK_MERGE}); the copies into staging still run concurrently.
+   *
+   * @param loadId id of the staged load
+   * @param stagedRows number of rows staged for the load, used to count duplicates
+   * @return inserted and skipped counts
+   * @throws DatabaseOperationException if the merge fails
+   */
+  @Transactional
+  public MergeResult mergeStagedLoad(UUID loadId, long stagedRows)
+      throws DatabaseOperationException {
+    final long mergeStartTime = System.currentTimeMillis();
+    final MergeResult result;
+    try {
+      jdbcTemplate.execute(StagingQueryConstants.LOCK_MERGE);
+      final int newLines = jdbcTemplate.update(StagingQueryConstants.ASSIGN_IDS, loadId, loadId);
+      final int transactions =
+          newLines == 0
+              ? 0
+              : jdbcTemplate.update(StagingQueryConstants.INSERT_TRANSACTIONS, loadId);
+      if (newLines > 0) {
+        jdbcTemplate.update(StagingQueryConstants.INSERT_TRANSACTION_LINES, loadId);
+        jdbcTemplate.update(StagingQueryConstants.INSERT_RETAIL_TRANSACTION_LINES, loadId);
+      }
+      result = new MergeResult(transactions, newLines, stagedRows - newLines);
+    } catch (DataAccessException e) {
+      log.error("Error merging staged load {}: {}", loadId, e.getMessage(), e);
+      throw new DatabaseOperationException("Failed to merge staged transactions", e);
+    }
+
+    final long mergeDuration = System.currentTimeMillis() - mergeStartTime;
+    log.info(
+        "Merged load {} in {}ms: {} transactions, {} lines saved, {} duplicate lines skipped",
+        loadId,
+        mergeDuration,
+        result.transactions(),
+        result.lines(),
+        result.duplicateLines());
+    metricsClient.recordExecutionTime(
+        Metric.STAGING_MERGE_TIME.getMetricName(),
+        mergeDuration,
+        MetricTag.RECORDS_COUNT.getTag(String.valueOf(result.lines())));
+    metricsClient.count(Metric.SAVE_TRANSACTION_COUNT.getMetricName(), result.transactions());
+    if (result.duplicateLines() > 0) {
+      metricsClient.count(
+          Metric.DUPLICATE_TRANSACTION_COUNT.getMetricName(), result.duplicateLines());
+    }
+    return result;
+  }
+
+  /**
+   * * Remove the rows of a load from the staging table. Failures are only logged: leftover rows are
+   * ignored by every other load.
+   *
+   * @param loadId id of the staged load
+   */
+  public void deleteStagedLoad(UUID loadId) {
+    try {
+      final int deleted = jdbcTemplate.update(StagingQueryConstants.DELETE_LOAD, loadId);
+      log.debug("Deleted {} staged rows of load {}", deleted, loadId);
+    } catch (DataAccessException e) {
+      log.warn("Could not delete staged rows of load {}: {}", loadId, e.getMessage(), e);
+    }
+  }
+
+  private long copy(
+      PGConnection connection, UUID loadId, Iterator<RetailTransactionLineDTO> records)
+      throws SQLException {
+    final PGCopyOutputStream copyStream =
+        new PGCopyOutputStream(
+            connection, StagingQueryConstants.COPY_INTO_STAGING, COPY_BUFFER_SIZE);
+    try {
+      final Writer writer =
+          new BufferedWriter(
+              new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+      final StringBuilder row = new StringBuilder(512);
+      long lineNumber = 0;
+      while (records.hasNext()) {
+        row.setLength(0);
+        appendCopyRow(row, loadId, ++lineNumber, records.next());
+        writer.append(row);
+      }
+      writer.flush();
+      return copyStream.endCopy();
+    } catch (IOException e) {
+      throw new SQLException("Error writing COPY data: " + e.getMessage(), e);
+    } finally {
+      if (copyStream.isActive()) {
+        copyStream.cancelCopy();
+      }
+    }
+  }
+
+  /** Append one record in {@code COPY} text format, in {@code COPY_INTO_STAGING} column order. */
+  static void appendCopyRow(
+      StringBuilder row, UUID loadId, long lineNumber, RetailTransactionLineDTO record) {
+    row.append(loadId).append('\t').append(lineNumber);
+    appendField(row, record.getSourceReferenceTransactionId());
+    appendField(row, record.getSourceProcessedDate());
+    appendField(row, record.getTransactionDate());
+    appendField(row, record.getBusinessDate());
+    appendField(row, record.getTransactionType());
+    appendField(row, record.getTransactionReversalCode());
+    appendField(row, record.getSourceReferenceLineId());
+    appendField(row, record.getSourceReferenceLineType());
+    appendField(row, record.getTransactionLineType());
+    appendField(row, record.getRingingStore());
+    appendField(row, record.getStoreOfIntent());
+    appendField(row, record.getDepartmentId());
+    appendField(row, record.getClassId());
+    appendField(row, record.getFeeCode());
+    appendField(row, record.getTenderType());
+    appendField(row, record.getTenderCardType());
+    appendField(row, record.getTenderCardSubType());
+    appendField(row, record.getTenderAdjustmentCode());
+    appendField(row, record.getLineItemAmount());
+    appendField(row, record.getTaxAmount());
+    appendField(row, record.getEmployeeDiscountAmount());
+    appendField(row, record.getTenderAmount());
+    appendField(row, record.getCashDisbursementLine1());
+    appendField(row, record.getCashDisbursementLine2());
+    appendField(row, record.getWaivedReasonCode());
+    appendField(row, record.getWaivedAmount());
+    appendField(row, record.getFulfillmentTypeDropshipCode());
+    row.append('\n');
+  }
+
+  private static void appendField(StringBuilder row, LocalDate value) {
+    row.append('\t');
+    if (value == null) {
+      row.append("\\N");
+    } else {
+      row.append(value);
+    }
+  }
+
+  private static void appendField(StringBuilder row, BigDecimal value) {
+    row.append('\t');
+    if (value == null) {
+      row.append("\\N");
+    } else {
+      row.append(value.toPlainString());
+    }
+  }
+
+  private static void appendField(StringBuilder row, String value) {
+    row.append('\t');
+    if (value == null) {
+      row.append("\\N");
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '\\' -> row.append("\\\\");
+        case '\t' -> row.append("\\t");
+        case '\n' -> row.append("\\n");
+        case '\r' -> row.append("\\r");
+        default -> row.append(c);
+      }
+    }
+  }
+}
@@ -1,13 +1,28 @@
 package com.nordstrom.finance.dataintegration.ertm.database.service;
 
 import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileIngestManifest;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileProcessingCheckpoint;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.Transaction;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.ExistingLineItem;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.FileIngestManifestRepository;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.FileProcessingCheckpointRepository;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.FileProcessingLeaseRepository;
 import com.nordstrom.finance.dataintegration.ertm.database.repository.TransactionRepository;
 import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseConnectionException;
 import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseOperationException;
 import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
 import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -18,8 +33,13 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class TransactionDBService {
   private final TransactionRepository transactionRepository;
+  private final FileProcessingCheckpointRepository checkpointRepository;
+  private final FileIngestManifestRepository manifestRepository;
+  private final FileProcessingLeaseRepository leaseRepository;
   private final MetricsClient metricsClient;
 
+  private static final int LINE_ITEM_LOOKUP_CHUNK_SIZE = 10_000;
+
   /**
    * * Check for existing transaction IDs in the database.
    *
@@ -39,21 +59,89 @@ public class TransactionDBService {
   }
 
   /**
-   * * Check for existing line item IDs for a given transaction ID.
+   * * Count the ERTM transactions from a business date on.
+   *
+   * @param fromBusinessDate first business date to count
+   * @return number of transactions
+   */
+  public long countTransactionIds(LocalDate fromBusinessDate) {
+    return transactionRepository.countSourceReferenceTransactionIds(fromBusinessDate);
+  }
+
+  /**
+   * * Stream the ids of the ERTM transactions from a business date on, without loading the
+   * entities.
    *
-   * @param transactionId the transaction ID to check
-   * @param lineIds the list of line item IDs to check
-   * @return list of existing line item IDs
+   * @param fromBusinessDate first business date to read
+   * @param consumer receives every transaction ID
+   * @return number of IDs read
    */
-  public List<String> getExistingLineItemIds(String transactionId, List<String> lineIds) {
-    log.debug("Checking duplicate for transactionId={}, lineId={}", transactionId, lineIds);
-    List<String> duplicateTransactionIds =
-        transactionRepository.getExistingLineItemIds(transactionId, lineIds);
-    if (!duplicateTransactionIds.isEmpty()) {
-      metricsClient.count(
-          Metric.DUPLICATE_TRANSACTION_COUNT.getMetricName(), duplicateTransactionIds.size());
+  @Transactional(readOnly = true)
+  public long forEachTransactionId(LocalDate fromBusinessDate, Consumer<String> consumer) {
+    long count = 0;
+    try (Stream<String> transactionIds =
+        transactionRepository.streamSourceReferenceTransactionIds(fromBusinessDate)) {
+      for (String transactionId : (Iterable<String>) transactionIds::iterator) {
+        consumer.accept(transactionId);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * * Check for existing line item IDs of many transactions at once. The candidate pairs are sent
+   * as arrays, so the cost is one query per {@value #LINE_ITEM_LOOKUP_CHUNK_SIZE} pairs instead of
+   * one query per transaction.
+   *
+   * @param lineIdsByTransactionId candidate line item IDs keyed by transaction ID
+   * @return existing line item IDs keyed by transaction ID; transactions without any are absent
+   */
+  public Map<String, Set<String>> getExistingLineItemIds(
+      Map<String, List<String>> lineIdsByTransactionId) {
+    final Map<String, Set<String>> existingLineIds = new HashMap<>();
+    final List<String> transactionIds = new ArrayList<>(LINE_ITEM_LOOKUP_CHUNK_SIZE);
+    final List<String> lineIds = new ArrayList<>(LINE_ITEM_LOOKUP_CHUNK_SIZE);
+    int queries = 0;
+
+    for (Map.Entry<String, List<String>> entry : lineIdsByTransactionId.entrySet()) {
+      for (String lineId : entry.getValue()) {
+        transactionIds.add(entry.getKey());
+        lineIds.add(lineId);
+        if (transactionIds.size() == LINE_ITEM_LOOKUP_CHUNK_SIZE) {
+          collectExistingLineItems(transactionIds, lineIds, existingLineIds);
+          queries++;
+        }
+      }
+    }
+    if (!transactionIds.isEmpty()) {
+      collectExistingLineItems(transactionIds, lineIds, existingLineIds);
+      queries++;
+    }
+
+    final int duplicateCount = existingLineIds.values().stream().mapToInt(Set::size).sum();
+    log.debug(
+        "Checked {} transactions for duplicate lines in {} queries, found {} duplicate lines",
+        lineIdsByTransactionId.size(),
+        queries,
+        duplicateCount);
+    if (duplicateCount > 0) {
+      metricsClient.count(Metric.DUPLICATE_TRANSACTION_COUNT.getMetricName(), duplicateCount);
+    }
+    return existingLineIds;
+  }
+
+  private void collectExistingLineItems(
+      List<String> transactionIds, List<String> lineIds, Map<String, Set<String>> existingLineIds) {
+    for (ExistingLineItem lineItem :
+        transactionRepository.getExistingLineItems(
+            transactionIds.toArray(new String[0]), lineIds.toArray(new String[0]))) {
+      existingLineIds
+          .computeIfAbsent(lineItem.getTransactionId(), id -> new HashSet<>())
+          .add(lineItem.getLineId());
     }
-    return duplicateTransactionIds;
+    transactionIds.clear();
+    lineIds.clear();
   }
 
   /**
@@ -116,6 +204,133 @@ public class TransactionDBService {
         MetricTag.RECORDS_COUNT.getTag(String.valueOf(transactions.size())));
   }
 
+  /**
+   * * Save a list of transactions and the checkpoint of the file they come from in one database
+   * transaction, so the checkpoint never points past data that was not committed.
+   *
+   * @param transactions the list of transactions to save, may be empty
+   * @param checkpoint position in the source file after this batch
+   * @throws DatabaseConnectionException if there is a database connection issue
+   * @throws DatabaseOperationException if there is a database operation issue
+   */
+  @Transactional
+  public void saveAllTransaction(
+      List<Transaction> transactions, FileProcessingCheckpoint checkpoint)
+      throws DatabaseConnectionException, DatabaseOperationException {
+    saveAllTransaction(transactions);
+    try {
+      checkpointRepository.upsertCheckpoint(checkpoint);
+    } catch (Exception e) {
+      log.error(
+          "Error saving checkpoint of file {}: {}", checkpoint.getFileKey(), e.getMessage(), e);
+      throw new DatabaseOperationException("Failed to save file processing checkpoint", e);
+    }
+    log.debug(
+        "Checkpoint of file {} saved at batch {}, byte offset {}",
+        checkpoint.getFileKey(),
+        checkpoint.getBatchNumber(),
+        checkpoint.getResumeByteOffset());
+  }
+
+  /**
+   * * Find the checkpoint left behind by an interrupted run over a file.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   * @return the checkpoint, or empty if the file was never started or finished cleanly
+   */
+  public Optional<FileProcessingCheckpoint> findCheckpoint(String sourceBucket, String fileKey) {
+    return checkpointRepository.findBySourceBucketAndFileKey(sourceBucket, fileKey);
+  }
+
+  /**
+   * * Remove the checkpoint of a fully processed file. Failures are only logged: a stale checkpoint
+   * is ignored once the file is gone from the source bucket.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   */
+  public void deleteCheckpoint(String sourceBucket, String fileKey) {
+    try {
+      checkpointRepository.deleteBySourceBucketAndFileKey(sourceBucket, fileKey);
+    } catch (Exception e) {
+      log.warn("Could not delete checkpoint of file {}: {}", fileKey, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * * Check whether this version of a file was already ingested completely.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   * @param eTag ETag of the object
+   * @param contentLength size of the object in bytes
+   * @return true if the manifest has the file with the same ETag and size
+   */
+  public boolean isFileIngested(
+      String sourceBucket, String fileKey, String eTag, long contentLength) {
+    return manifestRepository.existsManifest(sourceBucket, fileKey, eTag, contentLength);
+  }
+
+  /**
+   * * Record a fully ingested file in the manifest. Failures are only logged: without the row the
+   * file is processed again if it stays in the source bucket, and deduplicated as before.
+   *
+   * @param manifest the ingested file with its row count and duration
+   */
+  public void recordFileIngested(FileIngestManifest manifest) {
+    try {
+      manifestRepository.upsertManifest(manifest);
+    } catch (Exception e) {
+      log.warn(
+          "Could not record file {} in the ingest manifest: {}",
+          manifest.getFileKey(),
+          e.getMessage(),
+          e);
+    }
+  }
+
+  /**
+   * * Claim a file for this pod. Succeeds if nobody holds the lease, the lease expired, or this pod
+   * already holds it.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   * @param ownerId id of the claiming pod
+   * @param ttlSeconds seconds until the lease expires without a heartbeat
+   * @return true if this pod holds the lease now
+   */
+  public boolean tryAcquireLease(
+      String sourceBucket, String fileKey, String ownerId, int ttlSeconds) {
+    return leaseRepository.tryAcquire(sourceBucket, fileKey, ownerId, ttlSeconds) > 0;
+  }
+
+  /**
+   * * Extend every lease of a pod by the lease duration.
+   *
+   * @param ownerId id of the pod
+   * @param ttlSeconds seconds until the leases expire without the next heartbeat
+   * @return number of leases the pod still holds
+   */
+  public int renewLeases(String ownerId, int ttlSeconds) {
+    return leaseRepository.renewAll(ownerId, ttlSeconds);
+  }
+
+  /**
+   * * Give up the lease of a file. Failures are only logged: the lease expires on its own.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   * @param ownerId id of the pod holding the lease
+   */
+  public void releaseLease(String sourceBucket, String fileKey, String ownerId) {
+    try {
+      leaseRepository.release(sourceBucket, fileKey, ownerId);
+    } catch (Exception e) {
+      log.warn("Could not release lease of file {}: {}", fileKey, e.getMessage(), e);
+    }
+  }
+
   public List<Transaction> getAll() {
     return transactionRepository.findAll();
   }
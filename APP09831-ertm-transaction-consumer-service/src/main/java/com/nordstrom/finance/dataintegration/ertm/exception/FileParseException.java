@@ -0,0 +1,12 @@
+package com.nordstrom.finance.dataintegration.ertm.exception;
+
+/** Represents a malformed record encountered while parsing an ERTM source file */
+public class FileParseException extends RuntimeException {
+  public FileParseException(String message) {
+    super(message);
+  }
+
+  public FileParseException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,12 @@
+package com.nordstrom.finance.dataintegration.ertm.exception;
+
+/** Represents a failure inside one of the file processing pipeline stages */
+public class PipelineStageException extends RuntimeException {
+  public PipelineStageException(String message) {
+    super(message);
+  }
+
+  public PipelineStageException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,25 @@
+package com.nordstrom.finance.dataintegration.ertm.exception;
+
+import lombok.Getter;
+
+/**
+ * Represents a single malformed record of an ERTM source file. The parser has already skipped to
+ * the end of the record, so reading can continue with the next one.
+ */
+@Getter
+public class RejectedRecordException extends FileParseException {
+  private final long lineNumber;
+  private final long sourceByteOffset;
+  private final String sourceReferenceTransactionId;
+
+  public RejectedRecordException(
+      long lineNumber,
+      long sourceByteOffset,
+      String sourceReferenceTransactionId,
+      FileParseException cause) {
+    super(cause.getMessage(), cause);
+    this.lineNumber = lineNumber;
+    this.sourceByteOffset = sourceByteOffset;
+    this.sourceReferenceTransactionId = sourceReferenceTransactionId;
+  }
+}
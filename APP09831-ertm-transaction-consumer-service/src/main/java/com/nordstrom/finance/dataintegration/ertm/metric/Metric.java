@@ -7,7 +7,41 @@ public enum Metric {
   BUCKET_PROCESSING_TIME("bucket.processing.executionTime"),
   FILE_PROCESSING_TIME("file.processing.executionTime"),
   BATCH_PROCESSING_TIME("batch.processing.executionTime"),
-  BATCH_PROCESSING_COUNT("batch.processing.count");
+  BATCH_PROCESSING_COUNT("batch.processing.count"),
+  BATCH_SIZE("batch.processing.size"),
+  FILES_IN_FLIGHT("file.processing.inFlight.count"),
+  FILE_STAGE_TIME("file.stage.executionTime"),
+  FILE_ROWS_PER_SECOND("file.processing.rows.perSecond"),
+  FILE_BYTES_PER_SECOND("file.processing.bytes.perSecond"),
+  BATCH_HEAP_USED("batch.processing.heap.used.bytes"),
+  BATCH_GC_PAUSE_TIME("batch.processing.gc.pause.executionTime"),
+  BATCH_GC_COUNT("batch.processing.gc.count"),
+  PIPELINE_STAGE_TIME("pipeline.stage.executionTime"),
+  PIPELINE_STAGE_RECORDS_COUNT("pipeline.stage.records.count"),
+  PIPELINE_QUEUE_DEPTH("pipeline.stage.queue.depth"),
+  STAGING_COPY_TIME("staging.copy.executionTime"),
+  STAGING_MERGE_TIME("staging.merge.executionTime"),
+  FILE_RESUME_COUNT("file.processing.resume.count"),
+  FILE_MANIFEST_SKIP_COUNT("file.processing.manifest.skip.count"),
+  FILE_LEASE_SKIP_COUNT("file.processing.lease.skip.count"),
+  FILE_LEASE_LOST_COUNT("file.processing.lease.lost.count"),
+  FILE_DOWNLOAD_TIME("file.download.executionTime"),
+  FILE_ARCHIVE_TIME("file.archive.executionTime"),
+  FILE_ARCHIVE_PENDING("file.archive.pending.count"),
+  FILE_CHUNK_COUNT("file.processing.chunk.count"),
+  FILE_RECORDS_COUNT("file.processing.records.count"),
+  FILE_REJECTED_RECORDS_COUNT("file.processing.rejected.records.count"),
+  FILE_SORT_COUNT("file.sort.count"),
+  SORT_TIME("file.sort.executionTime"),
+  SORT_RECORDS_COUNT("file.sort.records.count"),
+  SORT_RUN_COUNT("file.sort.run.count"),
+  FILE_DECOMPRESS_TIME("file.decompress.executionTime"),
+  FILE_DECOMPRESSED_BYTES("file.decompress.bytes.count"),
+  DEDUPE_FILTER_WARMUP_TIME("dedupe.filter.warmup.executionTime"),
+  DEDUPE_FILTER_MEMORY("dedupe.filter.memory.bytes"),
+  DEDUPE_FILTER_HIT_COUNT("dedupe.filter.hit.count"),
+  DEDUPE_FILTER_MISS_COUNT("dedupe.filter.miss.count"),
+  DEDUPE_FILTER_BYPASS_COUNT("dedupe.filter.bypass.count");
   private final String metricName;
 
   Metric(String metricName) {
@@ -2,9 +2,11 @@ package com.nordstrom.finance.dataintegration.ertm.metric;
 
 public enum MetricErrorCode {
   AWS_S3_FILE_READ_ERROR("S3FileReadError"),
+  AWS_S3_FILE_UPLOAD_ERROR("S3FileUploadError"),
   DB_CONNECTION_ERROR("DbConnectionError"),
   AWS_S3_CONNECTION_ERROR("S3ConnectionError"),
-  ENTITY_MAPPING_ERROR("EntityMappingError");
+  ENTITY_MAPPING_ERROR("EntityMappingError"),
+  FILE_PROCESSING_ERROR("FileProcessingError");
 
   private final String name;
 
@@ -3,7 +3,11 @@ package com.nordstrom.finance.dataintegration.ertm.metric;
 public enum MetricTag {
   FILE_NAME("file.name"),
   RECORDS_COUNT("records.count"),
-  BATCH_NUMBER("batch.number");
+  BATCH_NUMBER("batch.number"),
+  PIPELINE_STAGE("pipeline.stage"),
+  FILE_STAGE("file.stage"),
+  SORT_PHASE("sort.phase"),
+  COMPRESSION_CODEC("compression.codec");
   private final String tagKey;
 
   MetricTag(String tagKey) {
@@ -0,0 +1,20 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.opencsv.bean.CsvToBeanBuilder;
+import java.io.Reader;
+import java.util.Iterator;
+
+/** Binds records through the opencsv annotations on {@link RetailTransactionLineDTO}. */
+public class OpenCsvRetailTransactionLineParser implements RetailTransactionLineParser {
+
+  @Override
+  public Iterator<RetailTransactionLineDTO> parse(Reader reader) {
+    return new CsvToBeanBuilder<RetailTransactionLineDTO>(reader)
+        .withIgnoreLeadingWhiteSpace(true)
+        .withType(RetailTransactionLineDTO.class)
+        .withSeparator('|')
+        .build()
+        .iterator();
+  }
+}
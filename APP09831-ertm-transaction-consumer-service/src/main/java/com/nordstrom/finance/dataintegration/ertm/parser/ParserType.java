@@ -0,0 +1,9 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+/** Parser implementations selectable through {@code file.processing.parser}. */
+public enum ParserType {
+  /** Purpose-built streaming parser for the pipe-delimited ERTM layout. */
+  PIPE_DELIMITED,
+  /** Annotation driven opencsv bean binding, kept as a fallback. */
+  OPENCSV
+}
@@ -0,0 +1,486 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.exception.FileParseException;
+import com.nordstrom.finance.dataintegration.ertm.exception.RejectedRecordException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Single-pass state machine behind {@link PipeDelimitedRetailTransactionLineParser}. Characters are
+ * scanned in place in a 64KB buffer; each field is copied once into a reusable field buffer and
+ * decoded from there. Consecutive records of a transaction repeat most values (ids, dates, store,
+ * codes), so every column remembers its last raw value and reuses the decoded object when the next
+ * record carries the same characters.
+ *
+ * <p>The UTF-8 length of the consumed characters is added up lazily, once per record and once per
+ * buffer refill, so every record knows the byte offset and line at which it starts in the source
+ * file.
+ *
+ * <p>A record with an invalid value, a stray quote or the wrong number of fields is read up to its
+ * end and reported as a {@link RejectedRecordException}; the next call continues with the following
+ * record. Only an unterminated quoted field, which swallows the rest of the input, ends the file.
+ */
+final class PipeDelimitedRecordIterator implements Iterator<RetailTransactionLineDTO> {
+
+  private static final char SEPARATOR = '|';
+  private static final char QUOTE = '"';
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int DATE_LENGTH = 10;
+
+  // readField() terminators
+  private static final int FIELD_END = 0;
+  private static final int RECORD_END = 1;
+  private static final int INPUT_END = 2;
+
+  private final Reader reader;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean inputExhausted;
+
+  // UTF-8 bytes of the input before buffer[countedPosition]
+  private long consumedBytes;
+  private int countedPosition;
+
+  private char[] field = new char[256];
+  private int fieldLength;
+
+  private RetailTransactionLineColumn[] columnPlan;
+  private final LastValue[] lastValues = new LastValue[RetailTransactionLineColumn.values().length];
+
+  private long lineNumber = 1;
+  private long recordLineNumber;
+  private RetailTransactionLineDTO nextRecord;
+  private boolean finished;
+
+  PipeDelimitedRecordIterator(Reader reader) {
+    this.reader = reader;
+    for (int i = 0; i < lastValues.length; i++) {
+      lastValues[i] = new LastValue();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextRecord == null && !finished) {
+      try {
+        if (columnPlan == null) {
+          readHeader();
+        }
+        nextRecord = readRecord();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Error reading ERTM file near line " + lineNumber, e);
+      }
+      finished = nextRecord == null;
+    }
+    return nextRecord != null;
+  }
+
+  @Override
+  public RetailTransactionLineDTO next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final RetailTransactionLineDTO record = nextRecord;
+    nextRecord = null;
+    return record;
+  }
+
+  /** Resolve the header row into a field-index to column plan. */
+  private void readHeader() throws IOException {
+    final List<RetailTransactionLineColumn> plan = new ArrayList<>();
+    if (!atEndOfInput()) {
+      if (buffer[position] == BYTE_ORDER_MARK) {
+        position++;
+      }
+      int terminator;
+      do {
+        terminator = readField();
+        plan.add(RetailTransactionLineColumn.fromHeader(new String(field, 0, fieldLength)));
+      } while (terminator == FIELD_END);
+    }
+    columnPlan = plan.toArray(new RetailTransactionLineColumn[0]);
+  }
+
+  /**
+   * Read and bind the next record, or return {@code null} at the end of the input.
+   *
+   * @throws RejectedRecordException if the record is malformed; the input is positioned at the
+   *     start of the next record
+   */
+  private RetailTransactionLineDTO readRecord() throws IOException {
+    if (columnPlan.length == 0 || atEndOfInput()) {
+      return null;
+    }
+    recordLineNumber = lineNumber;
+    final RetailTransactionLineDTO record = new RetailTransactionLineDTO();
+    record.setSourceByteOffset(byteOffset());
+    record.setSourceLineNumber(recordLineNumber);
+
+    // after the first error the rest of the record is only read; the transaction id is still bound
+    // so the whole transaction can be rejected
+    FileParseException error = null;
+    int fieldIndex = 0;
+    int terminator;
+    do {
+      try {
+        terminator = readField();
+      } catch (FileParseException e) {
+        if (inputExhausted) {
+          throw e; // unterminated quote, there is no next record to continue with
+        }
+        error = error == null ? e : error;
+        terminator = skipToLineEnd();
+      }
+      if (fieldIndex < columnPlan.length
+          && columnPlan[fieldIndex] != null
+          && (error == null
+              || columnPlan[fieldIndex]
+                  == RetailTransactionLineColumn.SOURCE_REFERENCE_TRANSACTION_ID)) {
+        try {
+          bind(record, columnPlan[fieldIndex]);
+        } catch (FileParseException e) {
+          error = e;
+        }
+      }
+      fieldIndex++;
+    } while (terminator == FIELD_END);
+
+    if (error == null && fieldIndex != columnPlan.length) {
+      error =
+          new FileParseException(
+              String.format(
+                  "Line %d has %d fields but the header has %d",
+                  recordLineNumber, fieldIndex, columnPlan.length));
+    }
+    if (error != null) {
+      throw new RejectedRecordException(
+          recordLineNumber,
+          record.getSourceByteOffset(),
+          record.getSourceReferenceTransactionId(),
+          error);
+    }
+    return record;
+  }
+
+  /** Copy the current field value into the matching DTO property. */
+  private void bind(RetailTransactionLineDTO record, RetailTransactionLineColumn column) {
+    switch (column) {
+      case SOURCE_REFERENCE_TRANSACTION_ID -> record.setSourceReferenceTransactionId(text(column));
+      case SOURCE_PROCESSED_DATE -> record.setSourceProcessedDate(date(column));
+      case TRANSACTION_DATE -> record.setTransactionDate(date(column));
+      case BUSINESS_DATE -> record.setBusinessDate(date(column));
+      case TRANSACTION_TYPE -> record.setTransactionType(text(column));
+      case TRANSACTION_REVERSAL_CODE -> record.setTransactionReversalCode(text(column));
+      case SOURCE_REFERENCE_LINE_ID -> record.setSourceReferenceLineId(text(column));
+      case SOURCE_REFERENCE_LINE_TYPE -> record.setSourceReferenceLineType(text(column));
+      case TRANSACTION_LINE_TYPE -> record.setTransactionLineType(text(column));
+      case RINGING_STORE -> record.setRingingStore(text(column));
+      case STORE_OF_INTENT -> record.setStoreOfIntent(text(column));
+      case DEPARTMENT_ID -> record.setDepartmentId(text(column));
+      case CLASS_ID -> record.setClassId(text(column));
+      case FEE_CODE -> record.setFeeCode(text(column));
+      case TENDER_TYPE -> record.setTenderType(text(column));
+      case TENDER_CARD_TYPE -> record.setTenderCardType(text(column));
+      case TENDER_CARD_SUBTYPE -> record.setTenderCardSubType(text(column));
+      case TENDER_ADJUSTMENT_CODE -> record.setTenderAdjustmentCode(text(column));
+      case LINE_ITEM_AMOUNT -> record.setLineItemAmount(decimal(column));
+      case TAX_AMOUNT -> record.setTaxAmount(decimal(column));
+      case EMPLOYEE_DISCOUNT_AMOUNT -> record.setEmployeeDiscountAmount(decimal(column));
+      case TENDER_AMOUNT -> record.setTenderAmount(decimal(column));
+      case CASH_DISBURSEMENT_LINE1 -> record.setCashDisbursementLine1(text(column));
+      case CASH_DISBURSEMENT_LINE2 -> record.setCashDisbursementLine2(text(column));
+      case WAIVED_REASON_CODE -> record.setWaivedReasonCode(text(column));
+      case WAIVED_AMOUNT -> record.setWaivedAmount(decimal(column));
+      case FULFILLMENT_TYPE_DROPSHIP_CODE -> record.setFulfillmentTypeDropshipCode(text(column));
+      case DATA_SOURCE_CODE -> record.setDataSourceCode(text(column));
+    }
+  }
+
+  // === FIELD DECODING ===
+
+  private String text(RetailTransactionLineColumn column) {
+    final LastValue last = lastValues[column.ordinal()];
+    if (last.matches(field, fieldLength)) {
+      return (String) last.value;
+    }
+    final String value = new String(field, 0, fieldLength);
+    last.remember(field, fieldLength, value);
+    return value;
+  }
+
+  private LocalDate date(RetailTransactionLineColumn column) {
+    final LastValue last = lastValues[column.ordinal()];
+    if (last.matches(field, fieldLength)) {
+      return (LocalDate) last.value;
+    }
+    final LocalDate value = isBlank() ? null : parseDate(column);
+    last.remember(field, fieldLength, value);
+    return value;
+  }
+
+  private BigDecimal decimal(RetailTransactionLineColumn column) {
+    final LastValue last = lastValues[column.ordinal()];
+    if (last.matches(field, fieldLength)) {
+      return (BigDecimal) last.value;
+    }
+    int start = 0;
+    int end = fieldLength;
+    while (start < end && Character.isWhitespace(field[start])) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(field[end - 1])) {
+      end--;
+    }
+    BigDecimal value = null;
+    if (start < end) {
+      try {
+        value = new BigDecimal(field, start, end - start);
+      } catch (NumberFormatException e) {
+        throw invalidValue(column, e);
+      }
+    }
+    last.remember(field, fieldLength, value);
+    return value;
+  }
+
+  /** Parse a strict {@code yyyy-MM-dd} date from the field buffer. */
+  private LocalDate parseDate(RetailTransactionLineColumn column) {
+    if (fieldLength != DATE_LENGTH || field[4] != '-' || field[7] != '-') {
+      throw invalidValue(column, null);
+    }
+    try {
+      return LocalDate.of(digits(column, 0, 4), digits(column, 5, 7), digits(column, 8, 10));
+    } catch (DateTimeException e) {
+      throw invalidValue(column, e);
+    }
+  }
+
+  private int digits(RetailTransactionLineColumn column, int from, int to) {
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      final int digit = field[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw invalidValue(column, null);
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private boolean isBlank() {
+    for (int i = 0; i < fieldLength; i++) {
+      if (!Character.isWhitespace(field[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private FileParseException invalidValue(RetailTransactionLineColumn column, Throwable cause) {
+    return new FileParseException(
+        String.format(
+            "Invalid %s value '%s' on line %d",
+            column, new String(field, 0, fieldLength), recordLineNumber),
+        cause);
+  }
+
+  // === TOKENIZER ===
+
+  /**
+   * Read one field into {@link #field}. Leading whitespace before an opening quote is dropped;
+   * inside quotes separators and line breaks are literal and {@code ""} is an escaped quote.
+   *
+   * @return {@link #FIELD_END}, {@link #RECORD_END} or {@link #INPUT_END}
+   */
+  private int readField() throws IOException {
+    fieldLength = 0;
+    boolean quoted = false;
+
+    while (true) {
+      if (position == limit && !fill()) {
+        if (quoted) {
+          throw new FileParseException("Unterminated quoted field starting on line " + lineNumber);
+        }
+        return INPUT_END;
+      }
+
+      if (quoted) {
+        final int start = position;
+        while (position < limit && buffer[position] != QUOTE) {
+          if (buffer[position] == '\n') {
+            lineNumber++;
+          }
+          position++;
+        }
+        append(start, position - start);
+        if (position == limit) {
+          continue;
+        }
+        position++; // closing (or first escaping) quote
+        if (position == limit && !fill()) {
+          return INPUT_END;
+        }
+        if (buffer[position] == QUOTE) {
+          appendChar(QUOTE);
+          position++;
+        } else {
+          quoted = false;
+        }
+        continue;
+      }
+
+      final int start = position;
+      while (position < limit) {
+        final char c = buffer[position];
+        if (c == SEPARATOR || c == '\n' || c == '\r' || c == QUOTE) {
+          break;
+        }
+        position++;
+      }
+      append(start, position - start);
+      if (position == limit) {
+        continue;
+      }
+
+      final char delimiter = buffer[position++];
+      switch (delimiter) {
+        case SEPARATOR -> {
+          return FIELD_END;
+        }
+        case '\n' -> {
+          lineNumber++;
+          return RECORD_END;
+        }
+        case '\r' -> {
+          if ((position < limit || fill()) && buffer[position] == '\n') {
+            position++;
+          }
+          lineNumber++;
+          return RECORD_END;
+        }
+        default -> {
+          if (!isBlank()) {
+            throw new FileParseException(
+                "Unexpected quote inside unquoted field on line " + lineNumber);
+          }
+          fieldLength = 0;
+          quoted = true;
+        }
+      }
+    }
+  }
+
+  /** Drop the rest of the current line after a stray quote. */
+  private int skipToLineEnd() throws IOException {
+    while (position < limit || fill()) {
+      final char c = buffer[position++];
+      if (c == '\n') {
+        lineNumber++;
+        return RECORD_END;
+      }
+      if (c == '\r') {
+        if ((position < limit || fill()) && buffer[position] == '\n') {
+          position++;
+        }
+        lineNumber++;
+        return RECORD_END;
+      }
+    }
+    return INPUT_END;
+  }
+
+  private boolean atEndOfInput() throws IOException {
+    return position == limit && !fill();
+  }
+
+  private boolean fill() throws IOException {
+    if (inputExhausted) {
+      return false;
+    }
+    consumedBytes += utf8Length(buffer, countedPosition, limit);
+    countedPosition = limit;
+    int read;
+    do {
+      read = reader.read(buffer, 0, buffer.length);
+    } while (read == 0);
+    if (read < 0) {
+      inputExhausted = true;
+      return false;
+    }
+    position = 0;
+    limit = read;
+    countedPosition = 0;
+    return true;
+  }
+
+  /** Byte offset of {@link #position} in the source, assuming UTF-8 encoded input. */
+  private long byteOffset() {
+    consumedBytes += utf8Length(buffer, countedPosition, position);
+    countedPosition = position;
+    return consumedBytes;
+  }
+
+  /** Encoded UTF-8 length of {@code chars[from, to)}; each half of a surrogate pair counts two. */
+  private static long utf8Length(char[] chars, int from, int to) {
+    long bytes = to - from;
+    for (int i = from; i < to; i++) {
+      final char c = chars[i];
+      if (c >= 0x80) {
+        bytes += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+      }
+    }
+    return bytes;
+  }
+
+  private void append(int start, int length) {
+    if (length == 0) {
+      return;
+    }
+    ensureFieldCapacity(fieldLength + length);
+    System.arraycopy(buffer, start, field, fieldLength, length);
+    fieldLength += length;
+  }
+
+  private void appendChar(char c) {
+    ensureFieldCapacity(fieldLength + 1);
+    field[fieldLength++] = c;
+  }
+
+  private void ensureFieldCapacity(int capacity) {
+    if (capacity > field.length) {
+      field = Arrays.copyOf(field, Math.max(capacity, field.length * 2));
+    }
+  }
+
+  /** Raw characters and decoded value of the previous record for one column. */
+  private static final class LastValue {
+    private char[] chars = new char[32];
+    private int length = -1;
+    private Object value;
+
+    boolean matches(char[] source, int sourceLength) {
+      return length == sourceLength && Arrays.equals(chars, 0, length, source, 0, sourceLength);
+    }
+
+    void remember(char[] source, int sourceLength, Object decoded) {
+      if (chars.length < sourceLength) {
+        chars = new char[Math.max(sourceLength, chars.length * 2)];
+      }
+      System.arraycopy(source, 0, chars, 0, sourceLength);
+      length = sourceLength;
+      value = decoded;
+    }
+  }
+}
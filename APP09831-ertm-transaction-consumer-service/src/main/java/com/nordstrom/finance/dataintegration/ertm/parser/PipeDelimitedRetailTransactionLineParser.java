@@ -0,0 +1,26 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Streaming parser for the pipe-delimited ERTM layout. The header row is resolved once into a
+ * column plan and every record is decoded straight from a reusable character buffer into {@link
+ * RetailTransactionLineDTO} setters, without reflection or per-field intermediate Strings for dates
+ * and amounts. Field semantics follow the opencsv configuration it replaces (quoted fields, {@code
+ * ""} escapes, strict {@code yyyy-MM-dd} dates, blank amounts and dates as {@code null}). Every
+ * record also carries the byte offset at which it starts, assuming UTF-8 input.
+ */
+public class PipeDelimitedRetailTransactionLineParser implements RetailTransactionLineParser {
+
+  @Override
+  public Iterator<RetailTransactionLineDTO> parse(Reader reader) {
+    return new PipeDelimitedRecordIterator(reader);
+  }
+
+  @Override
+  public boolean tracksSourceOffsets() {
+    return true;
+  }
+}
@@ -0,0 +1,89 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Field access on raw pipe-delimited lines, for passes that route whole lines (chunk splitting,
+ * sorting) without binding them to records. Quoting follows the parser: separators inside quotes
+ * are part of the value and surrounding quotes are not.
+ */
+@UtilityClass
+public class RawLineFields {
+
+  public static final String TRANSACTION_ID_COLUMN =
+      RetailTransactionLineColumn.SOURCE_REFERENCE_TRANSACTION_ID.name();
+
+  private static final char SEPARATOR = '|';
+  private static final char QUOTE = '"';
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  /**
+   * Index of a header column (case-insensitive, quotes and surrounding whitespace ignored).
+   *
+   * @param headerLine the header row without its line break
+   * @param columnName the column to look for
+   * @return the field index or -1 if the header has no such column
+   */
+  public static int findColumn(String headerLine, String columnName) {
+    final String header =
+        !headerLine.isEmpty() && headerLine.charAt(0) == BYTE_ORDER_MARK
+            ? headerLine.substring(1)
+            : headerLine;
+    for (int column = 0; ; column++) {
+      final String name = field(header, column);
+      if (name == null) {
+        return -1;
+      }
+      if (name.strip().equalsIgnoreCase(columnName)) {
+        return column;
+      }
+    }
+  }
+
+  /**
+   * Value of one field without surrounding quotes.
+   *
+   * @param line a record line without its line break
+   * @param column the field index
+   * @return the value, or {@code null} if the line has fewer fields
+   */
+  public static String field(String line, int column) {
+    int current = 0;
+    int fieldStart = 0;
+    boolean quoted = false;
+    for (int i = 0; i <= line.length(); i++) {
+      if (i == line.length() || (line.charAt(i) == SEPARATOR && !quoted)) {
+        if (current == column) {
+          return unquote(line, fieldStart, i);
+        }
+        current++;
+        fieldStart = i + 1;
+      } else if (line.charAt(i) == QUOTE) {
+        quoted = !quoted;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Whether a quoted field is still open at the end of the line, i.e. the record goes on after a
+   * line break inside quotes.
+   *
+   * @param line a physical line without its line break
+   * @return {@code true} if the line holds an odd number of quotes
+   */
+  public static boolean endsInsideQuotes(String line) {
+    boolean quoted = false;
+    for (int i = line.indexOf(QUOTE); i >= 0; i = line.indexOf(QUOTE, i + 1)) {
+      quoted = !quoted;
+    }
+    return quoted;
+  }
+
+  private static String unquote(String line, int start, int end) {
+    if (end - start >= 2 && line.charAt(start) == QUOTE && line.charAt(end - 1) == QUOTE) {
+      return line.substring(start + 1, end - 1);
+    }
+    return line.substring(start, end);
+  }
+}
@@ -0,0 +1,50 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Header columns of the ERTM layout that are bound to {@link
+ * com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO}. The constant
+ * names match the header row; columns not listed here are skipped.
+ */
+enum RetailTransactionLineColumn {
+  SOURCE_REFERENCE_TRANSACTION_ID,
+  SOURCE_PROCESSED_DATE,
+  TRANSACTION_DATE,
+  BUSINESS_DATE,
+  TRANSACTION_TYPE,
+  TRANSACTION_REVERSAL_CODE,
+  SOURCE_REFERENCE_LINE_ID,
+  SOURCE_REFERENCE_LINE_TYPE,
+  TRANSACTION_LINE_TYPE,
+  RINGING_STORE,
+  STORE_OF_INTENT,
+  DEPARTMENT_ID,
+  CLASS_ID,
+  FEE_CODE,
+  TENDER_TYPE,
+  TENDER_CARD_TYPE,
+  TENDER_CARD_SUBTYPE,
+  TENDER_ADJUSTMENT_CODE,
+  LINE_ITEM_AMOUNT,
+  TAX_AMOUNT,
+  EMPLOYEE_DISCOUNT_AMOUNT,
+  TENDER_AMOUNT,
+  CASH_DISBURSEMENT_LINE1,
+  CASH_DISBURSEMENT_LINE2,
+  WAIVED_REASON_CODE,
+  WAIVED_AMOUNT,
+  FULFILLMENT_TYPE_DROPSHIP_CODE,
+  DATA_SOURCE_CODE;
+
+  private static final Map<String, RetailTransactionLineColumn> BY_HEADER_NAME =
+      Arrays.stream(values()).collect(Collectors.toMap(Enum::name, Function.identity()));
+
+  /** Resolves a header cell (case-insensitive, surrounding whitespace ignored) or {@code null}. */
+  static RetailTransactionLineColumn fromHeader(String headerName) {
+    return BY_HEADER_NAME.get(headerName.strip().toUpperCase());
+  }
+}
@@ -0,0 +1,30 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.exception.RejectedRecordException;
+import java.io.Reader;
+import java.util.Iterator;
+
+/** Streams {@link RetailTransactionLineDTO} records out of a pipe-delimited ERTM source file. */
+public interface RetailTransactionLineParser {
+
+  /**
+   * Returns a lazy iterator over the records of the file. The first line of the reader must be the
+   * header row. Malformed records surface as runtime exceptions from {@link Iterator#next()}. A
+   * {@link RejectedRecordException} concerns that record only, and iteration may continue past it;
+   * any other exception ends the file.
+   *
+   * @param reader reader positioned at the header row
+   * @return iterator reading one record at a time
+   */
+  Iterator<RetailTransactionLineDTO> parse(Reader reader);
+
+  /**
+   * Whether parsed records carry the UTF-8 byte offset of their first character in {@link
+   * RetailTransactionLineDTO#getSourceByteOffset()}. Only then can processing of a file resume from
+   * a checkpoint.
+   */
+  default boolean tracksSourceOffsets() {
+    return false;
+  }
+}
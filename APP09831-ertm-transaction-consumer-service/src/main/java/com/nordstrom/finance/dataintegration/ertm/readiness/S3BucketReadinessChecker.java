@@ -1,8 +1,7 @@
 package com.nordstrom.finance.dataintegration.ertm.readiness;
 
-import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
 import com.nordstrom.finance.dataintegration.ertm.config.AwsServiceConfig;
-import com.nordstrom.finance.dataintegration.ertm.config.S3Configuration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
@@ -12,15 +11,14 @@ import org.springframework.stereotype.Component;
 @Component
 @Profile({"!integrationTest & !loadTest"})
 public class S3BucketReadinessChecker implements ExternalServiceReadinessChecker {
-  @Autowired S3Configuration s3Configuration;
+  @Autowired ObjectStore objectStore;
   AwsServiceConfig awsServiceConfig;
 
   @Override
   public boolean isServiceReady() {
-    S3Utility s3Utility = s3Configuration.s3Utility();
     try {
-      s3Utility.listFileKeys(awsServiceConfig.getSourceBucket());
-      s3Utility.listFileKeys(awsServiceConfig.getProcessedBucket());
+      objectStore.listFileKeys(awsServiceConfig.getSourceBucket());
+      objectStore.listFileKeys(awsServiceConfig.getProcessedBucket());
       return true;
     } catch (Exception e) {
       return false;
@@ -1,33 +1,74 @@
 package com.nordstrom.finance.dataintegration.ertm.service;
 
-import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
 import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
 import com.nordstrom.finance.dataintegration.common.metric.MetricsCommonTag;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import com.nordstrom.finance.dataintegration.ertm.config.AsyncConfig;
 import com.nordstrom.finance.dataintegration.ertm.config.AwsServiceConfig;
 import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileIngestManifest;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileProcessingCheckpoint;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.RetailTransactionLine;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.Transaction;
+import com.nordstrom.finance.dataintegration.ertm.database.service.StagingTableDBService;
 import com.nordstrom.finance.dataintegration.ertm.database.service.TransactionDBService;
 import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseConnectionException;
 import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseOperationException;
 import com.nordstrom.finance.dataintegration.ertm.exception.FileMappingException;
+import com.nordstrom.finance.dataintegration.ertm.exception.PipelineStageException;
 import com.nordstrom.finance.dataintegration.ertm.mapper.RetailTransactionLineMapper;
 import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
 import com.nordstrom.finance.dataintegration.ertm.metric.MetricErrorCode;
 import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
-import com.opencsv.bean.CsvToBeanBuilder;
+import com.nordstrom.finance.dataintegration.ertm.parser.RetailTransactionLineParser;
+import com.nordstrom.finance.dataintegration.ertm.service.archive.ArchiveMover;
+import com.nordstrom.finance.dataintegration.ertm.service.batching.AdaptiveBatchSizeController;
+import com.nordstrom.finance.dataintegration.ertm.service.chunk.ChunkedSpoolFile;
+import com.nordstrom.finance.dataintegration.ertm.service.chunk.FileChunk;
+import com.nordstrom.finance.dataintegration.ertm.service.compression.CompressionCodec;
+import com.nordstrom.finance.dataintegration.ertm.service.compression.InputDecompressor;
+import com.nordstrom.finance.dataintegration.ertm.service.compression.InputDecompressor.DecompressedInput;
+import com.nordstrom.finance.dataintegration.ertm.service.dedupe.InFlightLineRegistry;
+import com.nordstrom.finance.dataintegration.ertm.service.dedupe.InFlightLines;
+import com.nordstrom.finance.dataintegration.ertm.service.dedupe.KnownTransactionIdFilter;
+import com.nordstrom.finance.dataintegration.ertm.service.download.ParallelRangeDownloader;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.AdjacentTransactionGrouper;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionBatch;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import com.nordstrom.finance.dataintegration.ertm.service.lease.FileLeaseManager;
+import com.nordstrom.finance.dataintegration.ertm.service.pipeline.StagedPipeline;
+import com.nordstrom.finance.dataintegration.ertm.service.quarantine.RecordQuarantine;
+import com.nordstrom.finance.dataintegration.ertm.service.quarantine.RecordQuarantineService;
+import com.nordstrom.finance.dataintegration.ertm.service.sort.ExternalTransactionSorter;
+import com.nordstrom.finance.dataintegration.ertm.service.sort.SortedSpoolFile;
+import com.nordstrom.finance.dataintegration.ertm.service.stats.FileProcessingStats;
+import com.nordstrom.finance.dataintegration.ertm.service.stats.FileProcessingStats.Stage;
 import jakarta.annotation.PreDestroy;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -41,6 +82,85 @@ import org.springframework.stereotype.Service;
  * processing - Filters duplicate transactions using database lookup - Maps CSV data to database
  * entities and persists them - Moves processed files to archive bucket - Provides comprehensive
  * metrics and error handling
+ *
+ * <p>When {@code file.processing.concurrency.max-files-in-flight} is greater than one, files are
+ * processed concurrently on the file processor thread pool. Each file keeps its own batch loop,
+ * database transactions, metrics and archive move, so a failure in one file does not affect the
+ * others. Files in flight claim their lines in one {@link InFlightLineRegistry}, so a transaction
+ * line carried by two of them is stored once.
+ *
+ * <p>When {@code file.processing.pipeline.enabled} is set, the batches of a single file flow
+ * through a {@link StagedPipeline}: parsing and transaction-boundary handling stay on the file
+ * thread, while duplicate filtering, entity mapping and persistence each run on their own stage
+ * worker connected by bounded queues. Parsing of the next batch therefore overlaps with the
+ * database round trips of the previous ones, and the queue capacity caps memory at a few batches.
+ * The duplicate lookup only sees committed rows, so batches claim their lines in {@link
+ * InFlightLines} until they are persisted and a line repeated by a batch still in flight is
+ * dropped.
+ *
+ * <p>With {@code file.processing.ingest-mode} set to {@link IngestMode#STAGING} the batch loop is
+ * bypassed: every record is streamed into the staging table with {@code COPY} and duplicate
+ * filtering and mapping run as set-based SQL in the database (see {@link StagingTableDBService}).
+ *
+ * <p>With {@code file.processing.checkpoint.enabled} every batch commits, together with its
+ * transactions, a {@link FileProcessingCheckpoint}: the byte offset of the first record that may
+ * not be stored yet. A file that is still in the source bucket with an unchanged ETag on the next
+ * run is resumed from that offset with S3 ranged reads (header row + remainder), so a crash costs
+ * the batches that were in flight instead of the whole file. The last batch commits the object size
+ * as offset, so a file whose last batch committed before the crash is only archived. Checkpoints
+ * need a parser that tracks source offsets and the {@link IngestMode#ENTITY} ingest mode.
+ *
+ * <p>With {@code file.processing.manifest.enabled} every fully processed file is recorded in the
+ * {@link FileIngestManifest} by key, ETag and size before it is archived. A file that is found in
+ * the source bucket again with the same ETag and size (e.g. because the archive move failed) costs
+ * one HEAD request: only the archive move is retried, the file is not downloaded or parsed.
+ *
+ * <p>With {@code file.processing.lease.enabled} several consumer pods can run at the same time: a
+ * pod processes a listed file only after claiming its lease with the {@link FileLeaseManager} and
+ * skips files claimed by others or already archived by them. Leases of a pod that died expire, so
+ * its files are picked up by the next run of any pod.
+ *
+ * <p>With {@code file.processing.download.parallel.enabled} the file (or the resumed remainder) is
+ * fetched by a {@link ParallelRangeDownloader} with several concurrent ranged GETs into a local
+ * spool file, and parsing reads the completed prefix while later parts are still downloading.
+ *
+ * <p>With {@code file.processing.chunked-parse.enabled} (and the {@link IngestMode#ENTITY} ingest
+ * mode) the file is first copied to a local {@link ChunkedSpoolFile} and split into byte ranges
+ * that never cut a transaction. Every chunk runs its own batch loop (parse, duplicate filtering and
+ * mapping) on the file parse thread pool, and the mapped batches of all chunks are merged into a
+ * single persistence stage. Batch numbers are assigned across chunks, so batch metrics and record
+ * counts cover the whole file.
+ *
+ * <p>Batching relies on the lines of a transaction being adjacent. With {@code
+ * file.processing.sort.mode} set to {@link TransactionSortMode#AUTO} the local copy of the file is
+ * checked by a pre-pass and, when a transaction id reappears, sorted by transaction id with the
+ * {@link ExternalTransactionSorter} before it is batched ({@link TransactionSortMode#ALWAYS} skips
+ * the check). Files that are copied to local disk for chunking or sorting are processed without
+ * checkpoints, since their records no longer map to offsets of the source object.
+ *
+ * <p>Source files compressed with gzip or zstd (by extension or magic number) are decompressed by
+ * the {@link InputDecompressor} on a separate thread while they are parsed. Their records do not
+ * map to offsets of the source object either, so they are processed without checkpoints.
+ *
+ * <p>Batches are cut at the size given by the {@link AdaptiveBatchSizeController}: the static
+ * {@code file.processing.batch.size}, or with {@code file.processing.batch.adaptive.enabled} a size
+ * that follows the save latency and heap headroom measured after every batch.
+ *
+ * <p>With {@code file.processing.dedupe-filter.enabled} the {@link KnownTransactionIdFilter} is
+ * loaded at the start of every run (ENTITY mode) and the duplicate lookup of a batch only queries
+ * the transaction ids it cannot rule out.
+ *
+ * <p>With {@code file.processing.quarantine.enabled} (and the {@link IngestMode#ENTITY} ingest
+ * mode) records that fail parsing and transactions that fail mapping are set aside in a {@link
+ * RecordQuarantine} instead of failing the file: the file is stored without them and their lines
+ * are uploaded as a reject file next to the archive. The file still fails when the rejects exceed
+ * the error budget. Rejects of chunks and of sorted copies are reported at their line and byte
+ * offset in the source file.
+ *
+ * <p>Every ingested file keeps {@link FileProcessingStats}: exclusive time per stage (download
+ * wait, parse, grouping, duplicate lookup, mapping, persistence), heap used and GC pauses are sent
+ * after every batch, and rows/s, bytes/s and the per-file detail are logged as one summary line
+ * when the file is done.
  */
 @Slf4j
 @Service
@@ -50,16 +170,77 @@ public class FileProcessorService {
   // === DEPENDENCIES ===
   private final AwsServiceConfig awsServiceConfig;
   private final TransactionDBService transactionDBService;
+  private final StagingTableDBService stagingTableDBService;
   private final RetailTransactionLineMapper retailTransactionLineMapper;
+  private final RetailTransactionLineParser retailTransactionLineParser;
   private final MetricsClient metricsClient;
-  private final S3Utility s3Utility;
+  private final ObjectStore objectStore;
+  private final ParallelRangeDownloader parallelRangeDownloader;
+  private final ExternalTransactionSorter externalTransactionSorter;
+  private final InputDecompressor inputDecompressor;
+  private final KnownTransactionIdFilter knownTransactionIdFilter;
+  private final InFlightLineRegistry inFlightLineRegistry;
+  private final FileLeaseManager fileLeaseManager;
+  private final AdaptiveBatchSizeController batchSizeController;
+  private final RecordQuarantineService recordQuarantineService;
+  private final ArchiveMover archiveMover;
+
+  @Qualifier(AsyncConfig.FILE_PROCESSOR_EXECUTOR_BEAN_NAME)
+  private final Executor fileProcessorTaskExecutor;
+
+  @Qualifier(AsyncConfig.FILE_STAGE_EXECUTOR_BEAN_NAME)
+  private final Executor fileStageTaskExecutor;
+
+  @Qualifier(AsyncConfig.FILE_PARSE_EXECUTOR_BEAN_NAME)
+  private final Executor fileParseTaskExecutor;
 
   // === CONFIGURATION ===
-  @Value("${file.processing.batch.size:30000}")
-  private int batchSize;
+  @Value("${file.processing.concurrency.max-files-in-flight:1}")
+  private int maxFilesInFlight;
+
+  @Value("${file.processing.pipeline.enabled:false}")
+  private boolean pipelineEnabled;
+
+  @Value("${file.processing.pipeline.queue-capacity:2}")
+  private int pipelineQueueCapacity;
+
+  @Value("${file.processing.ingest-mode:ENTITY}")
+  private IngestMode ingestMode;
+
+  @Value("${file.processing.checkpoint.enabled:false}")
+  private boolean checkpointEnabled;
+
+  @Value("${file.processing.manifest.enabled:false}")
+  private boolean manifestEnabled;
+
+  @Value("${file.processing.download.parallel.enabled:false}")
+  private boolean parallelDownloadEnabled;
+
+  @Value("${file.processing.chunked-parse.enabled:false}")
+  private boolean chunkedParseEnabled;
+
+  @Value("${file.processing.chunked-parse.chunks:0}")
+  private int parseChunks;
+
+  @Value("${file.processing.chunked-parse.min-chunk-size-mb:32}")
+  private int minChunkSizeMb;
+
+  @Value("${file.processing.sort.mode:OFF}")
+  private TransactionSortMode sortMode;
+
+  @Value("${file.processing.spool-directory:${java.io.tmpdir}}")
+  private String spoolDirectory;
+
+  private final AtomicInteger filesInFlight = new AtomicInteger();
 
   private static final int BUFFER_SIZE_KB = 64 * 1024; // 64KB buffer for large files
 
+  // === PIPELINE STAGES ===
+  private static final String STAGE_PARSE = "parse";
+  private static final String STAGE_DEDUPE = "dedupe";
+  private static final String STAGE_MAP = "map";
+  private static final String STAGE_PERSIST = "persist";
+
   /**
    * Main entry point: Process all CSV files from S3 bucket and store data in database. Downloads
    * files from source bucket, processes them in batches, and moves to processed bucket.
@@ -70,9 +251,11 @@ public class FileProcessorService {
     final long overallStartTime = System.currentTimeMillis();
 
     log.info(
-        "Starting CSV processing from S3 bucket: {} with batch size: {}", sourceBucket, batchSize);
+        "Starting CSV processing from S3 bucket: {} with batch size: {}",
+        sourceBucket,
+        batchSizeController.currentBatchSize());
     try {
-      final List<String> fileList = s3Utility.listFileKeys(sourceBucket);
+      final List<String> fileList = objectStore.listFileKeys(sourceBucket);
 
       if (fileList.isEmpty()) {
         log.info("No files found in source bucket: {}", sourceBucket);
@@ -80,10 +263,17 @@ public class FileProcessorService {
       }
 
       log.info("Found {} files to process", fileList.size());
+      if (ingestMode == IngestMode.ENTITY) {
+        knownTransactionIdFilter.warmUp();
+      }
 
-      // Process each file individually with error isolation
-      for (String fileName : fileList) {
-        processIndividualFile(fileName, sourceBucket, processedBucket);
+      if (maxFilesInFlight > 1 && fileList.size() > 1) {
+        processFilesConcurrently(fileList, sourceBucket, processedBucket);
+      } else {
+        // Process each file individually with error isolation
+        for (String fileName : fileList) {
+          processIndividualFile(fileName, sourceBucket, processedBucket);
+        }
       }
 
     } catch (Exception ex) {
@@ -91,6 +281,7 @@ public class FileProcessorService {
       metricsClient.incrementErrorCount(
           MetricsCommonTag.ERROR_CODE.getTag(MetricErrorCode.AWS_S3_CONNECTION_ERROR.name()));
     } finally {
+      archiveMover.awaitPendingMoves();
       // Record total processing time
       recordBucketProcessingMetrics(overallStartTime);
     }
@@ -109,29 +300,113 @@ public class FileProcessorService {
    */
   public void processFileData(BufferedReader reader)
       throws DatabaseConnectionException, DatabaseOperationException, FileMappingException {
+    processFileData(
+        reader,
+        null,
+        RecordQuarantine.disabled(),
+        false,
+        new FileProcessingStats(metricsClient, null));
+  }
 
-    log.info("Processing file data in streaming batches of {} records", batchSize);
+  /**
+   * @param grouped whether the input was checked or sorted to be grouped by transaction id
+   * @return number of records read
+   */
+  private long processFileData(
+      BufferedReader reader,
+      CheckpointTracker checkpointTracker,
+      RecordQuarantine quarantine,
+      boolean grouped,
+      FileProcessingStats stats)
+      throws DatabaseConnectionException, DatabaseOperationException, FileMappingException {
 
+    final long recordsProcessed;
     try {
-      processFileDataInStreamingBatches(reader);
+      if (ingestMode == IngestMode.STAGING) {
+        log.info("Processing file data through the staging table");
+        recordsProcessed = processFileDataThroughStagingTable(reader, stats);
+      } else {
+        log.info(
+            "Processing file data in streaming batches of {} records",
+            batchSizeController.currentBatchSize());
+        recordsProcessed =
+            processFileDataInStreamingBatches(
+                reader, checkpointTracker, quarantine, grouped, stats);
+      }
     } catch (Exception ex) {
       log.error("Critical error during file processing: {}", ex.getMessage(), ex);
       throw new FileMappingException("Error reading file data and mapping to objects");
     }
     log.info("File data processing completed successfully");
+    return recordsProcessed;
+  }
+
+  /**
+   * Process files concurrently on the file processor thread pool with at most {@code
+   * maxFilesInFlight} files in progress. Waits until every file has finished before returning.
+   */
+  private void processFilesConcurrently(
+      List<String> fileList, String sourceBucket, String processedBucket) {
+    log.info(
+        "Processing {} files concurrently with up to {} files in flight",
+        fileList.size(),
+        maxFilesInFlight);
+
+    final List<CompletableFuture<Void>> futures =
+        fileList.stream()
+            .map(
+                fileName ->
+                    CompletableFuture.runAsync(
+                            () -> processIndividualFile(fileName, sourceBucket, processedBucket),
+                            fileProcessorTaskExecutor)
+                        .exceptionally(
+                            ex -> {
+                              handleUnexpectedFileError(ex, fileName);
+                              return null;
+                            }))
+            .toList();
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
   }
 
   /** Process an individual file with comprehensive error handling and metrics. */
   private void processIndividualFile(String fileName, String sourceBucket, String processedBucket) {
     boolean isProcessingSuccessful = false;
+    // the archive move releases the lease once it is done
+    boolean isArchiveScheduled = false;
+    if (!fileLeaseManager.tryAcquire(sourceBucket, fileName)) {
+      metricsClient.count(
+          Metric.FILE_LEASE_SKIP_COUNT.getMetricName(), 1, MetricTag.FILE_NAME.getTag(fileName));
+      return;
+    }
     log.info("Processing file: {} from bucket: {}", fileName, sourceBucket);
     final long fileStartTime = System.currentTimeMillis();
+    metricsClient.recordGaugeValue(
+        Metric.FILES_IN_FLIGHT.getMetricName(), filesInFlight.incrementAndGet());
 
-    try (BufferedReader reader = createOptimizedFileReader(fileName, sourceBucket)) {
-
-      log.info("Successfully retrieved file {} from S3 bucket {}", fileName, sourceBucket);
-      processFileData(reader);
-      moveFileToProcessedBucket(fileName, sourceBucket, processedBucket);
+    try {
+      final ObjectMetadata metadata =
+          manifestEnabled || fileLeaseManager.isEnabled() || isCheckpointable(fileName)
+              ? objectStore.getObjectMetadata(fileName, sourceBucket)
+              : null;
+      if (fileLeaseManager.isEnabled() && metadata == null) {
+        // listed before another pod finished and archived it
+        log.info("File {} is no longer in bucket {}, skipping it", fileName, sourceBucket);
+      } else if (isAlreadyIngested(fileName, sourceBucket, metadata)) {
+        log.info(
+            "File {} was already ingested with ETag {}, only retrying the archive move",
+            fileName,
+            metadata.eTag());
+        metricsClient.count(
+            Metric.FILE_MANIFEST_SKIP_COUNT.getMetricName(),
+            1,
+            MetricTag.FILE_NAME.getTag(fileName));
+        archiveFile(fileName, sourceBucket, processedBucket, metadata, checkpointEnabled);
+        isArchiveScheduled = true;
+      } else {
+        ingestFile(fileName, sourceBucket, processedBucket, metadata, fileStartTime);
+        isArchiveScheduled = true;
+      }
       isProcessingSuccessful = true;
     } catch (IOException e) {
       handleFileReadError(e, fileName);
@@ -146,262 +421,920 @@ public class FileProcessorService {
         log.warn("Completed processing file '{}' with error.", fileName);
       }
       recordFileProcessingMetrics(fileName, fileStartTime);
+      metricsClient.recordGaugeValue(
+          Metric.FILES_IN_FLIGHT.getMetricName(), filesInFlight.decrementAndGet());
+      if (!isArchiveScheduled) {
+        fileLeaseManager.release(sourceBucket, fileName);
+      }
     }
 
     log.info("Successfully completed processing file: {}", fileName);
   }
 
+  /**
+   * Download, parse and store a file, record it in the manifest and archive it. Logs the {@link
+   * FileProcessingStats} summary of the file whether or not it succeeds.
+   */
+  private void ingestFile(
+      String fileName,
+      String sourceBucket,
+      String processedBucket,
+      ObjectMetadata metadata,
+      long fileStartTime)
+      throws IOException,
+          DatabaseConnectionException,
+          DatabaseOperationException,
+          FileMappingException {
+    final CheckpointTracker checkpointTracker =
+        startCheckpointTracking(fileName, sourceBucket, metadata);
+    if (checkpointTracker != null && checkpointTracker.isComplete()) {
+      log.info(
+          "File {} was stored completely before the restart ({} records), only archiving it",
+          fileName,
+          checkpointTracker.recordsProcessed);
+      recordIngested(
+          fileName, sourceBucket, metadata, checkpointTracker.recordsProcessed, fileStartTime);
+      archiveFile(fileName, sourceBucket, processedBucket, metadata, true);
+      return;
+    }
+    final FileProcessingStats stats = new FileProcessingStats(metricsClient, fileName);
+    boolean isIngested = false;
+    try {
+      long recordsProcessed;
+      boolean rejectsPublished = false;
+      try (RecordQuarantine quarantine = recordQuarantineService.open(fileName)) {
+        try {
+          if (isSpooledLocally()) {
+            recordsProcessed = processSpooledFile(fileName, sourceBucket, quarantine, stats);
+          } else {
+            try (BufferedReader reader =
+                createOptimizedFileReader(fileName, sourceBucket, checkpointTracker, stats)) {
+              log.info("Successfully retrieved file {} from S3 bucket {}", fileName, sourceBucket);
+              recordsProcessed =
+                  processFileData(reader, checkpointTracker, quarantine, false, stats);
+            }
+          }
+          quarantine.finish(recordsProcessed);
+        } finally {
+          // also the rejects of a file that failed, to show why it did
+          rejectsPublished = recordQuarantineService.publish(quarantine, processedBucket);
+        }
+      }
+      if (!rejectsPublished) {
+        throw new FileMappingException("Could not upload the rejected records of file " + fileName);
+      }
+      if (checkpointTracker != null && checkpointTracker.isResuming()) {
+        // records of the runs before the restart
+        recordsProcessed = checkpointTracker.recordsProcessed;
+      }
+      recordIngested(fileName, sourceBucket, metadata, recordsProcessed, fileStartTime);
+      archiveFile(fileName, sourceBucket, processedBucket, metadata, checkpointTracker != null);
+      isIngested = true;
+    } finally {
+      stats.finish(isIngested);
+    }
+  }
+
+  /**
+   * Whether the manifest has this version of the file. Lookup failures are logged and the file is
+   * processed as usual.
+   */
+  private boolean isAlreadyIngested(String fileName, String sourceBucket, ObjectMetadata metadata) {
+    if (!manifestEnabled) {
+      return false;
+    }
+    if (metadata == null || metadata.eTag() == null) {
+      log.warn("No ETag for file {}, processing it without the ingest manifest", fileName);
+      return false;
+    }
+    try {
+      return transactionDBService.isFileIngested(
+          sourceBucket, fileName, metadata.eTag(), metadata.size());
+    } catch (RuntimeException ex) {
+      log.warn(
+          "Could not read the ingest manifest for file {}, processing it: {}",
+          fileName,
+          ex.getMessage(),
+          ex);
+      return false;
+    }
+  }
+
+  private void recordIngested(
+      String fileName,
+      String sourceBucket,
+      ObjectMetadata metadata,
+      long recordsProcessed,
+      long fileStartTime) {
+    if (!manifestEnabled || metadata == null || metadata.eTag() == null) {
+      return;
+    }
+    transactionDBService.recordFileIngested(
+        FileIngestManifest.builder()
+            .sourceBucket(sourceBucket)
+            .fileKey(fileName)
+            .eTag(metadata.eTag())
+            .contentLength(metadata.size())
+            .recordsProcessed(recordsProcessed)
+            .durationMillis(System.currentTimeMillis() - fileStartTime)
+            .build());
+  }
+
   /** Creates an optimized BufferedReader for S3 file processing. */
-  private BufferedReader createOptimizedFileReader(String fileName, String sourceBucket)
+  private BufferedReader createOptimizedFileReader(
+      String fileName,
+      String sourceBucket,
+      CheckpointTracker checkpointTracker,
+      FileProcessingStats stats)
       throws IOException {
+    final InputStream source;
+    if (checkpointTracker != null && checkpointTracker.isResuming()) {
+      source = openResumedStream(fileName, sourceBucket, checkpointTracker);
+    } else {
+      final DecompressedInput input =
+          openDecompressed(
+              fileName, sourceBucket, checkpointTracker == null ? null : checkpointTracker.eTag);
+      if (input.isCompressed() && checkpointTracker != null) {
+        log.info(
+            "File {} is {} compressed, processing it without checkpoints", fileName, input.codec());
+        checkpointTracker.stop();
+      }
+      source = input.stream();
+    }
     return new BufferedReader(
-        new InputStreamReader(s3Utility.downloadFileAsStream(fileName, sourceBucket)),
-        BUFFER_SIZE_KB);
+        new InputStreamReader(stats.timeSource(source), StandardCharsets.UTF_8), BUFFER_SIZE_KB);
   }
 
-  /** Moves processed file to archive bucket with error handling. */
-  private void moveFileToProcessedBucket(
-      String fileName, String sourceBucket, String processedBucket) {
-    final boolean moveSuccess =
-        s3Utility.moveFileToAnotherBucket(fileName, sourceBucket, processedBucket);
-    if (moveSuccess) {
-      log.info("Successfully moved file {} to processed bucket", fileName);
-    } else {
+  /**
+   * Header row followed by the file from the checkpoint offset, both read with the ETag of the
+   * checkpoint so a file replaced in the meantime fails instead of being stitched together.
+   */
+  private InputStream openResumedStream(
+      String fileName, String sourceBucket, CheckpointTracker checkpointTracker)
+      throws IOException {
+    final InputStream header =
+        objectStore.downloadFileRangeAsStream(
+            fileName,
+            sourceBucket,
+            0,
+            checkpointTracker.dataStartOffset - 1,
+            checkpointTracker.eTag);
+    if (header == null) {
+      throw new IOException("Unable to read header row of file " + fileName);
+    }
+    final InputStream remainder;
+    try {
+      remainder =
+          parallelDownloadEnabled
+              ? parallelRangeDownloader.download(
+                  fileName, sourceBucket, checkpointTracker.resumeOffset, checkpointTracker.eTag)
+              : objectStore.downloadFileRangeAsStream(
+                  fileName,
+                  sourceBucket,
+                  checkpointTracker.resumeOffset,
+                  -1,
+                  checkpointTracker.eTag);
+    } catch (IOException ex) {
+      header.close();
+      throw ex;
+    }
+    if (remainder == null) {
+      header.close();
+      throw new IOException(
+          "Unable to resume file " + fileName + " from byte " + checkpointTracker.resumeOffset);
+    }
+    return new SequenceInputStream(header, remainder);
+  }
+
+  /**
+   * Set up checkpointing for a file and pick up the checkpoint of an interrupted earlier run.
+   * Returns {@code null} when checkpointing is disabled or not possible for this file.
+   */
+  private CheckpointTracker startCheckpointTracking(
+      String fileName, String sourceBucket, ObjectMetadata metadata) {
+    if (!isCheckpointable(fileName)) {
+      return null;
+    }
+    if (metadata == null || metadata.eTag() == null) {
+      log.warn("No ETag for file {}, processing it without checkpoints", fileName);
+      return null;
+    }
+
+    final FileProcessingCheckpoint checkpoint;
+    try {
+      checkpoint = transactionDBService.findCheckpoint(sourceBucket, fileName).orElse(null);
+    } catch (RuntimeException ex) {
       log.warn(
-          "Failed to move file {} to processed bucket - file may still exist in source", fileName);
+          "Could not read checkpoint of file {}, processing it without checkpoints: {}",
+          fileName,
+          ex.getMessage(),
+          ex);
+      return null;
+    }
+
+    if (checkpoint == null) {
+      return new CheckpointTracker(sourceBucket, fileName, metadata);
+    }
+    if (!metadata.eTag().equals(checkpoint.getETag())
+        || checkpoint.getDataStartByteOffset() <= 0
+        || checkpoint.getResumeByteOffset() < checkpoint.getDataStartByteOffset()
+        || checkpoint.getResumeByteOffset() > metadata.size()) {
+      log.info(
+          "Checkpoint of file {} does not match the current object, processing from the start",
+          fileName);
+      return new CheckpointTracker(sourceBucket, fileName, metadata);
+    }
+    if (checkpoint.getResumeByteOffset() == metadata.size()) {
+      return new CheckpointTracker(checkpoint, metadata.size());
     }
+
+    log.info(
+        "Resuming file {} after batch {} from byte {} of {} ({} records already processed)",
+        fileName,
+        checkpoint.getBatchNumber(),
+        checkpoint.getResumeByteOffset(),
+        metadata.size(),
+        checkpoint.getRecordsProcessed());
+    metricsClient.count(
+        Metric.FILE_RESUME_COUNT.getMetricName(), 1, MetricTag.FILE_NAME.getTag(fileName));
+    return new CheckpointTracker(checkpoint, metadata.size());
+  }
+
+  private boolean isCheckpointable(String fileName) {
+    return checkpointEnabled
+        && ingestMode == IngestMode.ENTITY
+        && !isSpooledLocally()
+        && inputDecompressor.codecOf(fileName) == CompressionCodec.NONE
+        && retailTransactionLineParser.tracksSourceOffsets();
+  }
+
+  /**
+   * Moves processed file to archive bucket, in the background if enabled (see {@link
+   * ArchiveMover}). Once the move is done the checkpoint is deleted if it succeeded and the lease
+   * on the file is released.
+   */
+  private void archiveFile(
+      String fileName,
+      String sourceBucket,
+      String processedBucket,
+      ObjectMetadata metadata,
+      boolean deleteCheckpoint) {
+    archiveMover.move(
+        fileName,
+        sourceBucket,
+        processedBucket,
+        metadata,
+        moved -> {
+          try {
+            if (moved && deleteCheckpoint) {
+              transactionDBService.deleteCheckpoint(sourceBucket, fileName);
+            }
+          } finally {
+            fileLeaseManager.release(sourceBucket, fileName);
+          }
+        });
   }
 
-  /** Process file data in streaming batches to handle large files efficiently. */
-  private void processFileDataInStreamingBatches(BufferedReader reader)
+  /**
+   * Process file data in streaming batches to handle large files efficiently. Batches hold whole
+   * transactions (see {@link AdjacentTransactionGrouper}).
+   *
+   * @return number of records read
+   */
+  private long processFileDataInStreamingBatches(
+      BufferedReader reader,
+      CheckpointTracker checkpointTracker,
+      RecordQuarantine quarantine,
+      boolean grouped,
+      FileProcessingStats stats)
       throws DatabaseConnectionException, DatabaseOperationException, FileMappingException {
 
-    int batchNumber = 1;
-    int totalRecordsProcessed = 0;
-    List<RetailTransactionLineDTO> overflowFromPreviousBatch = new ArrayList<>(batchSize);
-    List<RetailTransactionLineDTO> currentBatch = new ArrayList<>(batchSize);
+    int batchNumber = checkpointTracker == null ? 1 : checkpointTracker.firstBatchNumber;
+    long totalRecordsProcessed = 0;
+    final InFlightLines inFlightLines = inFlightLineRegistry.open();
+    final StagedPipeline<CompleteBatch> pipeline =
+        pipelineEnabled
+            ? createBatchPipeline(checkpointTracker, quarantine, inFlightLines, stats)
+            : null;
+    long parseStartTime = System.currentTimeMillis();
 
     try {
-      final Iterator<RetailTransactionLineDTO> csvIterator = createStreamingCsvIterator(reader);
+      final AdjacentTransactionGrouper grouper =
+          new AdjacentTransactionGrouper(
+              quarantine.guard(stats.timeParsing(retailTransactionLineParser.parse(reader))),
+              batchSizeController::currentBatchSize,
+              grouped);
 
-      log.info("Starting streaming CSV processing in batches of {} records", batchSize);
-      // Add any overflow records from previous batch
-      currentBatch.addAll(overflowFromPreviousBatch);
-      overflowFromPreviousBatch.clear();
-
-      int totalRecordsInFile = 0;
+      log.info(
+          "Starting streaming CSV processing in batches of {} records",
+          batchSizeController.currentBatchSize());
 
       // Stream through CSV records without loading entire file into memory
-      while (csvIterator.hasNext()) {
-        totalRecordsInFile++;
-
+      while (stats.time(Stage.GROUP, grouper::hasNext)) {
         try {
-          final RetailTransactionLineDTO record = csvIterator.next();
-          currentBatch.add(record);
-
-          // Process batch when we reach configured batch size
-          if (currentBatch.size() >= batchSize) {
-            final ProcessBatchResult result =
-                processBatchWithTransactionBoundaries(currentBatch, batchNumber);
-
-            // Update counters and prepare next batch
-            totalRecordsProcessed += result.recordsProcessed;
-            currentBatch = new ArrayList<>(batchSize);
-            currentBatch.addAll(result.overflow);
-            batchNumber++;
+          TransactionBatch batch = stats.time(Stage.GROUP, grouper::next);
+          if (checkpointTracker != null && totalRecordsProcessed == 0) {
+            checkpointTracker.recordDataStart(
+                batch.transactions().get(0).lines().get(0).getSourceByteOffset());
+          }
+          if (checkpointTracker != null && !stats.time(Stage.GROUP, grouper::hasNext)) {
+            batch = checkpointTracker.atEndOfFile(batch);
           }
+          recordParseStage(pipeline, parseStartTime, batch.recordCount());
+          dispatchBatch(
+              batch, batchNumber, pipeline, checkpointTracker, quarantine, inFlightLines, stats);
+          parseStartTime = System.currentTimeMillis();
 
+          totalRecordsProcessed += batch.recordCount();
+          batchNumber++;
         } catch (Exception ex) {
           log.error(
               "Error processing record {} in batch {}: {}",
-              totalRecordsInFile,
+              grouper.recordsRead(),
               batchNumber,
               ex.getMessage(),
               ex);
           throw new FileMappingException("Error processing CSV record in streaming mode");
         }
       }
+      logUngroupedTransactions(grouper);
 
-      // Process any remaining records in the final batch
-      if (!currentBatch.isEmpty()) {
-        log.info("Processing final batch {} with {} records", batchNumber, currentBatch.size());
-        final ProcessBatchResult finalResult =
-            processBatchWithTransactionBoundaries(currentBatch, batchNumber);
-        totalRecordsProcessed += finalResult.recordsProcessed;
+      if (pipeline != null) {
+        awaitPipeline(pipeline);
       }
 
       log.info(
           "Streaming processing completed successfully. Total records processed: {}",
           totalRecordsProcessed);
+      return totalRecordsProcessed;
 
     } catch (Exception ex) {
       log.error("Error in streaming batch processing: {}", ex.getMessage(), ex);
+      if (pipeline != null) {
+        pipeline.abort(ex);
+      }
       throw ex;
+    } finally {
+      // after the stage workers exited
+      inFlightLines.close();
     }
   }
 
-  /** Creates a streaming CSV iterator for memory-efficient processing. */
-  private Iterator<RetailTransactionLineDTO> createStreamingCsvIterator(BufferedReader reader) {
-    return new CsvToBeanBuilder<RetailTransactionLineDTO>(reader)
-        .withIgnoreLeadingWhiteSpace(true)
-        .withType(RetailTransactionLineDTO.class)
-        .withSeparator('|')
-        .build()
-        .iterator();
+  private void logUngroupedTransactions(AdjacentTransactionGrouper grouper) {
+    if (grouper.ungroupedTransactionCount() > 0) {
+      log.warn(
+          "{} transactions had lines that were not adjacent; they are merged within a batch only."
+              + " Consider file.processing.sort.mode AUTO",
+          grouper.ungroupedTransactionCount());
+    }
   }
 
-  /** Process a single batch with transaction boundary management and database persistence. */
-  private ProcessBatchResult processBatchWithTransactionBoundaries(
-      List<RetailTransactionLineDTO> batchRecords, int batchNumber)
-      throws DatabaseConnectionException, DatabaseOperationException {
-
-    final long batchStartTime = System.currentTimeMillis();
+  private boolean isChunkedParsing() {
+    return chunkedParseEnabled && ingestMode == IngestMode.ENTITY;
+  }
 
-    // Separate complete transactions from overflow (transaction boundary management)
-    final ProcessBatchResult result =
-        determineCompleteTransactionsAndOverflow(batchRecords, batchNumber);
+  private boolean isSpooledLocally() {
+    return isChunkedParsing()
+        || (sortMode != TransactionSortMode.OFF && ingestMode == IngestMode.ENTITY);
+  }
 
-    // Save processed transactions to database
-    saveTransactionsWithMetrics(result, batchNumber);
+  /**
+   * Copy the file to local disk, sort it by transaction id if needed, and process it in chunks or
+   * as one stream.
+   */
+  private long processSpooledFile(
+      String fileName, String sourceBucket, RecordQuarantine quarantine, FileProcessingStats stats)
+      throws IOException,
+          DatabaseConnectionException,
+          DatabaseOperationException,
+          FileMappingException {
+    final InputStream source =
+        stats.timeSource(openDecompressed(fileName, sourceBucket, null).stream());
+    try (source;
+        ChunkedSpoolFile spoolFile = ChunkedSpoolFile.spool(source, Path.of(spoolDirectory))) {
+      log.info(
+          "Successfully retrieved file {} ({} bytes) from S3 bucket {}",
+          fileName,
+          spoolFile.size(),
+          sourceBucket);
+      if (sortMode == TransactionSortMode.ALWAYS
+          || (sortMode == TransactionSortMode.AUTO
+              && !externalTransactionSorter.isGroupedByTransactionId(spoolFile))) {
+        log.info("Sorting file {} by transaction id before processing", fileName);
+        try (SortedSpoolFile sortedFile = externalTransactionSorter.sort(spoolFile, fileName)) {
+          quarantine.mapPositions(sortedFile.positions());
+          try {
+            return processLocalFile(sortedFile.file(), fileName, quarantine, true, stats);
+          } finally {
+            quarantine.mapPositions(null);
+          }
+        }
+      }
+      // grouped unless the sort mode is OFF: AUTO found no transaction id that reappears
+      return processLocalFile(
+          spoolFile, fileName, quarantine, sortMode != TransactionSortMode.OFF, stats);
+    }
+  }
 
-    // Record comprehensive batch processing metrics
-    recordBatchProcessingMetrics(batchNumber, result, batchStartTime);
+  /** Download the whole file and decompress it on the fly if it is compressed. */
+  private DecompressedInput openDecompressed(String fileName, String sourceBucket, String eTag)
+      throws IOException {
+    final InputStream source =
+        parallelDownloadEnabled
+            ? parallelRangeDownloader.download(fileName, sourceBucket, 0, eTag)
+            : objectStore.downloadFileAsStream(fileName, sourceBucket);
+    if (source == null) {
+      throw new IOException("Unable to read file " + fileName);
+    }
+    return inputDecompressor.open(source, fileName);
+  }
 
-    return result;
+  private long processLocalFile(
+      ChunkedSpoolFile spoolFile,
+      String fileName,
+      RecordQuarantine quarantine,
+      boolean grouped,
+      FileProcessingStats stats)
+      throws IOException,
+          DatabaseConnectionException,
+          DatabaseOperationException,
+          FileMappingException {
+    if (isChunkedParsing()) {
+      return processFileDataInChunks(spoolFile, fileName, quarantine, grouped, stats);
+    }
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(spoolFile.open(), StandardCharsets.UTF_8), BUFFER_SIZE_KB)) {
+      return processFileData(reader, null, quarantine, grouped, stats);
+    }
   }
 
   /**
-   * Determine which transactions are complete vs need to overflow to next batch. This ensures
-   * transaction integrity across batch boundaries.
+   * Parse, filter and map every chunk on its own worker and persist the mapped batches of all
+   * chunks through one persistence stage. The first failing chunk stops the others.
    */
-  private ProcessBatchResult determineCompleteTransactionsAndOverflow(
-      List<RetailTransactionLineDTO> batchRecords, int batchNumber) {
+  private long processFileDataInChunks(
+      ChunkedSpoolFile spoolFile,
+      String fileName,
+      RecordQuarantine quarantine,
+      boolean grouped,
+      FileProcessingStats stats)
+      throws IOException, FileMappingException {
+    final List<FileChunk> chunks =
+        spoolFile.split(
+            AsyncConfig.resolveParseChunks(parseChunks), minChunkSizeMb * 1024L * 1024L);
+    log.info(
+        "Processing file {} in {} chunks, batches of {} records",
+        fileName,
+        chunks.size(),
+        batchSizeController.currentBatchSize());
+    metricsClient.count(
+        Metric.FILE_CHUNK_COUNT.getMetricName(),
+        chunks.size(),
+        MetricTag.FILE_NAME.getTag(fileName));
 
-    if (batchRecords.isEmpty()) {
-      return new ProcessBatchResult(new ArrayList<>(), new ArrayList<>(), 0);
+    final StagedPipeline<ChunkBatch> persistence =
+        StagedPipeline.<ChunkBatch>builder(
+                fileStageTaskExecutor, pipelineQueueCapacity, metricsClient)
+            .sink(
+                STAGE_PERSIST,
+                batch -> {
+                  saveTransactionsWithMetrics(batch.result(), batch.batchNumber(), null, 0, stats);
+                  recordBatchProcessingMetrics(
+                      batch.batchNumber(), batch.result(), batch.startTime(), stats);
+                });
+    final AtomicInteger batchNumbers = new AtomicInteger(1);
+    final AtomicLong totalRecordsInFile = new AtomicLong();
+    // rejects are reported at their line of the file, not of the chunk
+    final long[] linesBefore =
+        quarantine.isEnabled() && retailTransactionLineParser.tracksSourceOffsets()
+            ? spoolFile.linesBefore(chunks)
+            : null;
+    final InFlightLines inFlightLines = inFlightLineRegistry.open();
+
+    final List<CompletableFuture<Void>> futures =
+        chunks.stream()
+            .map(
+                chunk ->
+                    CompletableFuture.runAsync(
+                        () -> {
+                          try {
+                            totalRecordsInFile.addAndGet(
+                                processChunk(
+                                    spoolFile,
+                                    chunk,
+                                    linesBefore,
+                                    batchNumbers,
+                                    persistence,
+                                    quarantine,
+                                    grouped,
+                                    inFlightLines,
+                                    stats));
+                          } catch (RuntimeException ex) {
+                            persistence.abort(ex);
+                            throw ex;
+                          }
+                        },
+                        fileParseTaskExecutor))
+            .toList();
+
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+      persistence.finish();
+    } catch (CompletionException | PipelineStageException ex) {
+      final Throwable cause =
+          ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+      log.error("Error in chunked processing of file {}: {}", fileName, cause.getMessage(), cause);
+      persistence.abort(cause);
+      throw new FileMappingException("Error processing CSV records in chunked mode");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      persistence.abort(ex);
+      throw new FileMappingException("Interrupted while waiting for chunks to complete");
+    } finally {
+      inFlightLines.close();
     }
 
-    log.debug("Processing batch {} with {} records", batchNumber, batchRecords.size());
+    metricsClient.count(
+        Metric.FILE_RECORDS_COUNT.getMetricName(),
+        totalRecordsInFile.get(),
+        MetricTag.FILE_NAME.getTag(fileName));
+    log.info(
+        "Chunked processing completed successfully. Total records processed: {}",
+        totalRecordsInFile.get());
+    return totalRecordsInFile.get();
+  }
 
-    // Group records by transaction ID for boundary analysis
-    final Map<String, List<RetailTransactionLineDTO>> groupedByTransactionId =
-        groupRecordsByTransactionId(batchRecords);
+  /**
+   * Batch loop of one chunk. Chunks never split a transaction, so every batch of a chunk holds
+   * whole transactions.
+   *
+   * @param linesBefore lines of the file before every chunk, to shift the positions of rejects;
+   *     null if the positions are not tracked
+   * @return number of records read from the chunk
+   */
+  private long processChunk(
+      ChunkedSpoolFile spoolFile,
+      FileChunk chunk,
+      long[] linesBefore,
+      AtomicInteger batchNumbers,
+      StagedPipeline<ChunkBatch> persistence,
+      RecordQuarantine quarantine,
+      boolean grouped,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats) {
+    log.debug("Parsing chunk {} (bytes {}-{})", chunk.index(), chunk.start(), chunk.end() - 1);
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(spoolFile.openChunk(chunk), StandardCharsets.UTF_8),
+            BUFFER_SIZE_KB)) {
+      final Iterator<RetailTransactionLineDTO> records =
+          stats.timeParsing(retailTransactionLineParser.parse(reader));
+      final AdjacentTransactionGrouper grouper =
+          new AdjacentTransactionGrouper(
+              linesBefore == null
+                  ? quarantine.guard(records)
+                  : quarantine.guard(
+                      records, linesBefore[chunk.index()], chunk.start() - spoolFile.headerSize()),
+              batchSizeController::currentBatchSize,
+              grouped);
+      long parseStartTime = System.currentTimeMillis();
+
+      while (stats.time(Stage.GROUP, grouper::hasNext)) {
+        submitChunkBatch(
+            stats.time(Stage.GROUP, grouper::next),
+            batchNumbers,
+            persistence,
+            parseStartTime,
+            quarantine,
+            inFlightLines,
+            stats);
+        parseStartTime = System.currentTimeMillis();
+      }
+      logUngroupedTransactions(grouper);
+      return grouper.recordsRead();
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Error reading chunk " + chunk.index(), ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new PipelineStageException("Interrupted while handing off chunk " + chunk.index(), ex);
+    }
+  }
 
-    // Simplified approach: if batch is full and has multiple transactions,
-    // move the last transaction to overflow to ensure completeness
-    final boolean isFullBatch = batchRecords.size() >= batchSize;
+  /**
+   * Filter and map the transactions of a chunk batch on the chunk worker and hand them to the
+   * persistence stage.
+   */
+  private void submitChunkBatch(
+      TransactionBatch batch,
+      AtomicInteger batchNumbers,
+      StagedPipeline<ChunkBatch> persistence,
+      long parseStartTime,
+      RecordQuarantine quarantine,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats)
+      throws InterruptedException {
+    final int batchNumber = batchNumbers.getAndIncrement();
+    persistence.recordStage(
+        STAGE_PARSE, System.currentTimeMillis() - parseStartTime, batch.recordCount());
 
-    List<RetailTransactionLineDTO> completeTransactionRecords = new ArrayList<>();
-    List<RetailTransactionLineDTO> overflowRecords = new ArrayList<>();
+    final long batchStartTime = System.currentTimeMillis();
+    final ProcessBatchResult result =
+        convertTransactionsToEntities(batch, batchNumber, quarantine, inFlightLines, stats);
+    persistence.recordStage(
+        STAGE_MAP, System.currentTimeMillis() - batchStartTime, result.recordsProcessed);
+    persistence.submit(
+        new ChunkBatch(batchNumber, result, batchStartTime), result.recordsProcessed);
+  }
 
-    if (isFullBatch && groupedByTransactionId.size() > 1) {
-      // Find the transaction ID that appears last in the batch
-      String lastTransactionId =
-          batchRecords.get(batchRecords.size() - 1).getSourceReferenceTransactionId();
+  /**
+   * Copy the whole file into the staging table, then merge it into the transaction tables in one
+   * database transaction. The staged rows are removed whether or not the merge succeeds.
+   */
+  private long processFileDataThroughStagingTable(BufferedReader reader, FileProcessingStats stats)
+      throws DatabaseOperationException {
+    final UUID loadId = UUID.randomUUID();
+    try {
+      final long stagedRows =
+          stagingTableDBService.copyToStaging(
+              loadId, stats.timeParsing(retailTransactionLineParser.parse(reader)));
+      stagingTableDBService.mergeStagedLoad(loadId, stagedRows);
+      log.info("Staging load {} completed. Total records processed: {}", loadId, stagedRows);
+      return stagedRows;
+    } finally {
+      stagingTableDBService.deleteStagedLoad(loadId);
+    }
+  }
 
-      // Move the last transaction to overflow, process all others as complete
-      for (Map.Entry<String, List<RetailTransactionLineDTO>> entry :
-          groupedByTransactionId.entrySet()) {
-        String txnId = entry.getKey();
-        List<RetailTransactionLineDTO> txnRecords = entry.getValue();
+  /** Hand a batch to the serial path or the stage pipeline. */
+  private void dispatchBatch(
+      TransactionBatch batch,
+      int batchNumber,
+      StagedPipeline<CompleteBatch> pipeline,
+      CheckpointTracker checkpointTracker,
+      RecordQuarantine quarantine,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats)
+      throws DatabaseConnectionException, DatabaseOperationException, FileMappingException {
 
-        if (txnId.equals(lastTransactionId)) {
-          overflowRecords.addAll(txnRecords);
-        } else {
-          completeTransactionRecords.addAll(txnRecords);
-        }
-      }
-    } else {
-      // Not a full batch, or only one transaction - process all as complete
-      groupedByTransactionId.values().forEach(completeTransactionRecords::addAll);
+    if (pipeline == null) {
+      processBatch(batch, batchNumber, checkpointTracker, quarantine, inFlightLines, stats);
+      return;
     }
 
-    // Convert complete transactions to database entities
-    final List<Transaction> processedTransactions =
-        convertCompleteTransactionsToEntities(completeTransactionRecords);
+    try {
+      pipeline.submit(
+          new CompleteBatch(batchNumber, batch, System.currentTimeMillis()), batch.recordCount());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new FileMappingException("Interrupted while handing batch " + batchNumber + " off");
+    }
+  }
 
-    log.debug(
-        "Batch {}: {} complete transactions, {} overflow records",
-        batchNumber,
-        processedTransactions.size(),
-        overflowRecords.size());
+  /** Create the dedupe -> map -> persist stage chain for one file. */
+  private StagedPipeline<CompleteBatch> createBatchPipeline(
+      CheckpointTracker checkpointTracker,
+      RecordQuarantine quarantine,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats) {
+    log.info(
+        "Processing file data through staged pipeline with queue capacity {}",
+        pipelineQueueCapacity);
+    return StagedPipeline.<CompleteBatch>builder(
+            fileStageTaskExecutor, pipelineQueueCapacity, metricsClient)
+        .stage(
+            STAGE_DEDUPE,
+            batch ->
+                new DedupedBatch(
+                    batch,
+                    dedupeTransactions(
+                        batch.batch().transactions(), quarantine, inFlightLines, stats)))
+        .stage(
+            STAGE_MAP,
+            deduped ->
+                new MappedBatch(
+                    deduped.batch(),
+                    new ProcessBatchResult(
+                        mapTransactions(deduped.transactions().lines(), quarantine, stats),
+                        deduped.batch().batch().recordCount(),
+                        deduped.transactions().claim())))
+        .sink(
+            STAGE_PERSIST,
+            mapped -> {
+              saveTransactionsWithMetrics(
+                  mapped.result(),
+                  mapped.batch().batchNumber(),
+                  checkpointTracker,
+                  mapped.batch().batch().resumeOffset(),
+                  stats);
+              recordBatchProcessingMetrics(
+                  mapped.batch().batchNumber(), mapped.result(), mapped.batch().startTime(), stats);
+            });
+  }
 
-    return new ProcessBatchResult(
-        processedTransactions, overflowRecords, completeTransactionRecords.size());
+  /** Wait for the stage pipeline to drain, surfacing stage failures as mapping errors. */
+  private void awaitPipeline(StagedPipeline<CompleteBatch> pipeline) throws FileMappingException {
+    try {
+      pipeline.finish();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new FileMappingException("Interrupted while waiting for pipeline stages to complete");
+    }
   }
 
-  /** Groups CSV records by transaction ID for processing. */
-  private Map<String, List<RetailTransactionLineDTO>> groupRecordsByTransactionId(
-      List<RetailTransactionLineDTO> batchRecords) {
-    return batchRecords.stream()
-        .collect(Collectors.groupingBy(RetailTransactionLineDTO::getSourceReferenceTransactionId));
+  /** Record how long the file thread spent reading and parsing one batch. */
+  private void recordParseStage(
+      StagedPipeline<CompleteBatch> pipeline, long parseStartTime, int records) {
+    if (pipeline != null) {
+      pipeline.recordStage(STAGE_PARSE, System.currentTimeMillis() - parseStartTime, records);
+    }
   }
 
-  /** Convert complete transaction records to database entities. */
-  private List<Transaction> convertCompleteTransactionsToEntities(
-      List<RetailTransactionLineDTO> completeTransactionRecords) {
+  /** Filter, map and persist a single batch on the file thread. */
+  private void processBatch(
+      TransactionBatch batch,
+      int batchNumber,
+      CheckpointTracker checkpointTracker,
+      RecordQuarantine quarantine,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats)
+      throws DatabaseConnectionException, DatabaseOperationException {
 
-    if (completeTransactionRecords.isEmpty()) {
-      return new ArrayList<>();
-    }
+    final long batchStartTime = System.currentTimeMillis();
+
+    final ProcessBatchResult result =
+        convertTransactionsToEntities(batch, batchNumber, quarantine, inFlightLines, stats);
 
-    final Map<String, List<RetailTransactionLineDTO>> completeGrouped =
-        groupRecordsByTransactionId(completeTransactionRecords);
+    // Save processed transactions (and the file checkpoint) to database
+    saveTransactionsWithMetrics(
+        result, batchNumber, checkpointTracker, batch.resumeOffset(), stats);
 
-    return filterDuplicateTransactions(completeGrouped).stream()
-        .map(this::mapTransactionLinesToEntity)
-        .filter(Objects::nonNull)
-        .toList();
+    // Record comprehensive batch processing metrics
+    recordBatchProcessingMetrics(batchNumber, result, batchStartTime, stats);
+  }
+
+  /**
+   * Drop quarantined transactions and duplicate lines of a batch and map the remaining transactions
+   * to entities.
+   */
+  private ProcessBatchResult convertTransactionsToEntities(
+      TransactionBatch batch,
+      int batchNumber,
+      RecordQuarantine quarantine,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats) {
+    log.debug(
+        "Processing batch {} with {} records in {} transactions",
+        batchNumber,
+        batch.recordCount(),
+        batch.transactions().size());
+
+    final DedupedTransactions deduped =
+        dedupeTransactions(batch.transactions(), quarantine, inFlightLines, stats);
+    final List<Transaction> processedTransactions =
+        mapTransactions(deduped.lines(), quarantine, stats);
+
+    return new ProcessBatchResult(processedTransactions, batch.recordCount(), deduped.claim());
+  }
+
+  /**
+   * Drop quarantined transactions, the lines held by batches not persisted yet and the lines
+   * already in the database. The lines are claimed before the lookup, so a batch committing in the
+   * meantime is either seen by the lookup or still holds its lines.
+   */
+  private DedupedTransactions dedupeTransactions(
+      List<TransactionGroup> transactions,
+      RecordQuarantine quarantine,
+      InFlightLines inFlightLines,
+      FileProcessingStats stats) {
+    return stats.time(
+        Stage.DEDUPE,
+        () -> {
+          final InFlightLines.Claim claim =
+              inFlightLines.claim(quarantine.dropRejectedTransactions(transactions));
+          return new DedupedTransactions(filterDuplicateTransactions(claim.transactions()), claim);
+        });
+  }
+
+  /** Map the remaining lines of every transaction to an entity, skipping quarantined ones. */
+  private List<Transaction> mapTransactions(
+      List<List<RetailTransactionLineDTO>> transactions,
+      RecordQuarantine quarantine,
+      FileProcessingStats stats) {
+    return stats.time(
+        Stage.MAP,
+        () ->
+            transactions.stream()
+                .map(lines -> mapTransactionLinesToEntity(lines, quarantine))
+                .filter(Objects::nonNull)
+                .toList());
   }
 
-  /** Save processed transactions with comprehensive metrics and logging. */
-  private void saveTransactionsWithMetrics(ProcessBatchResult result, int batchNumber)
+  /**
+   * Save processed transactions with comprehensive metrics and logging. With a checkpoint tracker
+   * the file checkpoint is saved in the same database transaction, even if the batch had no new
+   * transactions. The lines of the batch are released afterwards, whether or not it committed.
+   */
+  private void saveTransactionsWithMetrics(
+      ProcessBatchResult result,
+      int batchNumber,
+      CheckpointTracker checkpointTracker,
+      long resumeOffset,
+      FileProcessingStats stats)
       throws DatabaseConnectionException, DatabaseOperationException {
 
+    final long persistStartTime = System.currentTimeMillis();
+    try {
+      stats.time(
+          Stage.PERSIST,
+          () -> {
+            if (checkpointTracker != null && checkpointTracker.isTracking()) {
+              transactionDBService.saveAllTransaction(
+                  result.transactionsToSave,
+                  checkpointTracker.advance(
+                      batchNumber,
+                      resumeOffset,
+                      result.recordsProcessed,
+                      result.transactionsToSave.size()));
+            } else if (!result.transactionsToSave.isEmpty()) {
+              transactionDBService.saveAllTransaction(result.transactionsToSave);
+            }
+          });
+    } finally {
+      result.claim.release();
+    }
+    if (!result.transactionsToSave.isEmpty()) {
+      // a batch of duplicates only commits its checkpoint and says nothing about the database load
+      batchSizeController.recordPersist(
+          storedLines(result.transactionsToSave), System.currentTimeMillis() - persistStartTime);
+    }
+    knownTransactionIdFilter.recordSaved(
+        result.transactionsToSave.stream()
+            .map(Transaction::getSourceReferenceTransactionId)
+            .toList());
+
     if (!result.transactionsToSave.isEmpty()) {
-      transactionDBService.saveAllTransaction(result.transactionsToSave);
       log.info(
-          "Batch {} completed: {} transactions saved, {} records processed, {} overflow records",
+          "Batch {} completed: {} transactions saved, {} records processed",
           batchNumber,
           result.transactionsToSave.size(),
-          result.recordsProcessed,
-          result.overflow.size());
+          result.recordsProcessed);
     } else {
       log.info(
-          "Batch {} completed: No new transactions to save, {} records processed, {} overflow records",
+          "Batch {} completed: No new transactions to save, {} records processed",
           batchNumber,
-          result.recordsProcessed,
-          result.overflow.size());
+          result.recordsProcessed);
     }
   }
 
+  /** Lines a save inserts; the duplicates dropped from the batch are not among them. */
+  private static int storedLines(List<Transaction> transactions) {
+    int lines = 0;
+    for (Transaction transaction : transactions) {
+      if (transaction.getTransactionLines() != null) {
+        lines += transaction.getTransactionLines().size();
+      }
+    }
+    return lines;
+  }
+
   // === DATA TRANSFORMATION METHODS ===
 
-  /** Filter out duplicate transactions based on database lookup. */
+  /**
+   * Filter out duplicate transactions based on database lookup. Costs two set-based queries per
+   * batch (existing transaction ids, then existing line ids of those transactions) and hash lookups
+   * in memory. Transaction ids ruled out by the {@link KnownTransactionIdFilter} are not queried,
+   * so a batch of new transactions needs no query at all.
+   */
   private List<List<RetailTransactionLineDTO>> filterDuplicateTransactions(
-      Map<String, List<RetailTransactionLineDTO>> groupedByTransactionId) {
+      List<TransactionGroup> transactions) {
 
+    final List<String> possiblyKnownIds =
+        knownTransactionIdFilter.selectPossiblyKnown(transactions);
+    if (possiblyKnownIds.isEmpty()) {
+      return transactions.stream().map(TransactionGroup::lines).toList();
+    }
     List<String> existingTransactionIds =
-        transactionDBService.getExistingTransactionIds(
-            new ArrayList<>(groupedByTransactionId.keySet()));
+        transactionDBService.getExistingTransactionIds(possiblyKnownIds);
     if (existingTransactionIds == null || existingTransactionIds.isEmpty()) {
-      return new ArrayList<>(groupedByTransactionId.values());
+      return transactions.stream().map(TransactionGroup::lines).toList();
+    }
+
+    final Set<String> existingIds = new HashSet<>(existingTransactionIds);
+    final Map<String, List<String>> candidateLineIds = new HashMap<>();
+    for (TransactionGroup transaction : transactions) {
+      if (existingIds.contains(transaction.transactionId())) {
+        candidateLineIds.put(transaction.transactionId(), extractLineIds(transaction.lines()));
+      }
     }
+    final Map<String, Set<String>> duplicateLineIds =
+        transactionDBService.getExistingLineItemIds(candidateLineIds);
 
-    return groupedByTransactionId.entrySet().stream()
+    return transactions.stream()
         .map(
-            entry -> {
-              final String transactionId = entry.getKey();
-              if (existingTransactionIds.contains(transactionId)) {
-                final List<RetailTransactionLineDTO> transactionLines = entry.getValue();
-                final List<String> lineIds = extractLineIds(transactionLines);
-                final List<String> duplicateLineIds =
-                    transactionDBService.getExistingLineItemIds(transactionId, lineIds);
-                return removeDuplicateLines(duplicateLineIds, transactionLines);
-              } else {
-                return entry.getValue();
-              }
-            })
+            transaction ->
+                removeDuplicateLines(
+                    duplicateLineIds.get(transaction.transactionId()), transaction.lines()))
         .toList();
   }
 
@@ -414,7 +1347,7 @@ public class FileProcessorService {
 
   /** Remove duplicate transaction lines based on duplicate line IDs. */
   private List<RetailTransactionLineDTO> removeDuplicateLines(
-      List<String> duplicateLineIds, List<RetailTransactionLineDTO> transactionLines) {
+      Set<String> duplicateLineIds, List<RetailTransactionLineDTO> transactionLines) {
 
     if (duplicateLineIds == null || duplicateLineIds.isEmpty()) {
       return transactionLines;
@@ -425,15 +1358,27 @@ public class FileProcessorService {
         .toList();
   }
 
-  /** Maps a list of RetailTransactionLineDTO to a single Transaction entity. */
-  private Transaction mapTransactionLinesToEntity(List<RetailTransactionLineDTO> transactionLines) {
+  /**
+   * Maps a list of RetailTransactionLineDTO to a single Transaction entity. A transaction the
+   * mapper fails on is quarantined (mapped to {@code null}) if quarantining is enabled.
+   */
+  private Transaction mapTransactionLinesToEntity(
+      List<RetailTransactionLineDTO> transactionLines, RecordQuarantine quarantine) {
     Transaction transaction = null;
 
-    for (RetailTransactionLineDTO retailTransactionDTO : transactionLines) {
-      final RetailTransactionLine retailTransactionLine =
-          retailTransactionLineMapper.mapRecordToRetailTransactionLine(
-              retailTransactionDTO, transaction);
-      transaction = retailTransactionLine.getTransactionLine().getTransaction();
+    try {
+      for (RetailTransactionLineDTO retailTransactionDTO : transactionLines) {
+        final RetailTransactionLine retailTransactionLine =
+            retailTransactionLineMapper.mapRecordToRetailTransactionLine(
+                retailTransactionDTO, transaction);
+        transaction = retailTransactionLine.getTransactionLine().getTransaction();
+      }
+    } catch (RuntimeException ex) {
+      if (!quarantine.isEnabled()) {
+        throw ex;
+      }
+      quarantine.rejectTransaction(transactionLines, ex);
+      return null;
     }
 
     return transaction;
@@ -465,6 +1410,15 @@ public class FileProcessorService {
         MetricTag.FILE_NAME.getTag(fileName));
   }
 
+  /** Handle unexpected errors of a concurrently processed file so other files keep running. */
+  private void handleUnexpectedFileError(Throwable ex, String fileName) {
+    final Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+    log.error("Unexpected error processing file {}: {}", fileName, cause.getMessage(), cause);
+    metricsClient.incrementErrorCount(
+        MetricsCommonTag.ERROR_CODE.getTag(MetricErrorCode.FILE_PROCESSING_ERROR.name()),
+        MetricTag.FILE_NAME.getTag(fileName));
+  }
+
   // === METRICS RECORDING METHODS ===
 
   /** Record comprehensive file processing metrics. */
@@ -484,7 +1438,7 @@ public class FileProcessorService {
 
   /** Record comprehensive batch processing metrics. */
   private void recordBatchProcessingMetrics(
-      int batchNumber, ProcessBatchResult result, long batchStartTime) {
+      int batchNumber, ProcessBatchResult result, long batchStartTime, FileProcessingStats stats) {
     final long batchDuration = System.currentTimeMillis() - batchStartTime;
 
     metricsClient.recordExecutionTime(
@@ -494,34 +1448,149 @@ public class FileProcessorService {
         MetricTag.RECORDS_COUNT.getTag(String.valueOf(result.recordsProcessed)));
 
     metricsClient.count(Metric.BATCH_PROCESSING_COUNT.getMetricName(), 1);
+    stats.recordBatch();
   }
 
   /** Helper class to hold batch processing results. */
   private static class ProcessBatchResult {
     final List<Transaction> transactionsToSave;
-    final List<RetailTransactionLineDTO> overflow;
     final int recordsProcessed;
+    final InFlightLines.Claim claim;
 
     ProcessBatchResult(
-        List<Transaction> transactionsToSave,
-        List<RetailTransactionLineDTO> overflow,
-        int recordsProcessed) {
+        List<Transaction> transactionsToSave, int recordsProcessed, InFlightLines.Claim claim) {
       this.transactionsToSave = transactionsToSave;
-      this.overflow = overflow;
       this.recordsProcessed = recordsProcessed;
+      this.claim = claim;
+    }
+  }
+
+  /** Batch of whole transactions handed from the file thread to the stage pipeline. */
+  private record CompleteBatch(int batchNumber, TransactionBatch batch, long startTime) {}
+
+  /** Lines of a batch left after duplicate filtering, claimed until the batch is persisted. */
+  private record DedupedTransactions(
+      List<List<RetailTransactionLineDTO>> lines, InFlightLines.Claim claim) {}
+
+  /** Transactions of a batch that still have lines to insert after duplicate filtering. */
+  private record DedupedBatch(CompleteBatch batch, DedupedTransactions transactions) {}
+
+  /** Mapped entities of a batch, ready to be persisted. */
+  private record MappedBatch(CompleteBatch batch, ProcessBatchResult result) {}
+
+  /** Mapped entities of a chunk batch, handed from a chunk worker to the persistence stage. */
+  private record ChunkBatch(int batchNumber, ProcessBatchResult result, long startTime) {}
+
+  /**
+   * Checkpoint state of one file. Record offsets of a resumed file are relative to the stitched
+   * stream (header row + remainder) and are shifted back to file offsets here. Only the thread
+   * persisting batches calls {@link #advance}.
+   */
+  private static final class CheckpointTracker {
+    private final String sourceBucket;
+    private final String fileKey;
+    private final String eTag;
+    private final long contentLength;
+    private final long resumeOffset;
+    private final int firstBatchNumber;
+    private long dataStartOffset;
+    private long recordsProcessed;
+    private long transactionsSaved;
+    private boolean tracking = true;
+
+    CheckpointTracker(String sourceBucket, String fileKey, ObjectMetadata metadata) {
+      this.sourceBucket = sourceBucket;
+      this.fileKey = fileKey;
+      this.eTag = metadata.eTag();
+      this.contentLength = metadata.size();
+      this.resumeOffset = 0;
+      this.firstBatchNumber = 1;
+      this.dataStartOffset = -1;
+    }
+
+    CheckpointTracker(FileProcessingCheckpoint checkpoint, long contentLength) {
+      this.sourceBucket = checkpoint.getSourceBucket();
+      this.fileKey = checkpoint.getFileKey();
+      this.eTag = checkpoint.getETag();
+      this.contentLength = contentLength;
+      this.resumeOffset = checkpoint.getResumeByteOffset();
+      this.firstBatchNumber = checkpoint.getBatchNumber() + 1;
+      this.dataStartOffset = checkpoint.getDataStartByteOffset();
+      this.recordsProcessed = checkpoint.getRecordsProcessed();
+      this.transactionsSaved = checkpoint.getTransactionsSaved();
+    }
+
+    boolean isResuming() {
+      return resumeOffset > 0 && resumeOffset < contentLength;
+    }
+
+    /** Whether the last batch of the file committed before the restart. */
+    boolean isComplete() {
+      return resumeOffset > 0 && resumeOffset == contentLength;
+    }
+
+    /**
+     * The last batch of the file, resuming at the end of the object so that a restart finds the
+     * file complete.
+     */
+    TransactionBatch atEndOfFile(TransactionBatch batch) {
+      final long streamEnd =
+          isResuming() ? contentLength - resumeOffset + dataStartOffset : contentLength;
+      return new TransactionBatch(batch.transactions(), batch.recordCount(), streamEnd);
+    }
+
+    /**
+     * Stop writing checkpoints, e.g. when the content turns out to be compressed and its offsets no
+     * longer match the source object.
+     */
+    void stop() {
+      tracking = false;
+    }
+
+    boolean isTracking() {
+      return tracking;
+    }
+
+    /** Remember where the first record starts, i.e. the length of the header row. */
+    void recordDataStart(long firstRecordOffset) {
+      if (!isResuming()) {
+        dataStartOffset = firstRecordOffset;
+      }
+    }
+
+    FileProcessingCheckpoint advance(
+        int batchNumber, long streamResumeOffset, int batchRecords, int batchTransactions) {
+      recordsProcessed += batchRecords;
+      transactionsSaved += batchTransactions;
+      return FileProcessingCheckpoint.builder()
+          .sourceBucket(sourceBucket)
+          .fileKey(fileKey)
+          .eTag(eTag)
+          .resumeByteOffset(
+              isResuming()
+                  ? streamResumeOffset - dataStartOffset + resumeOffset
+                  : streamResumeOffset)
+          .dataStartByteOffset(dataStartOffset)
+          .batchNumber(batchNumber)
+          .recordsProcessed(recordsProcessed)
+          .transactionsSaved(transactionsSaved)
+          .build();
     }
   }
 
-  /** Cleanup method called before bean destruction. Closes S3 connections to release resources. */
+  /**
+   * Cleanup method called before bean destruction. Closes the object store (S3 connections) to
+   * release resources.
+   */
   @PreDestroy
   public void cleanup() {
     try {
-      if (s3Utility != null) {
-        log.debug("Closing S3 connection using s3Utility");
-        s3Utility.closeS3Client();
+      if (objectStore != null) {
+        log.debug("Closing object store connections");
+        objectStore.close();
       }
     } catch (Exception e) {
-      log.warn("Error during S3 resource cleanup: {}", e.getMessage(), e);
+      log.warn("Error during object store cleanup: {}", e.getMessage(), e);
     }
   }
 }
@@ -0,0 +1,9 @@
+package com.nordstrom.finance.dataintegration.ertm.service;
+
+/** How parsed records reach the database, selected through {@code file.processing.ingest-mode}. */
+public enum IngestMode {
+  /** Batches are deduped and mapped in Java and saved as JPA entities. */
+  ENTITY,
+  /** Records are copied into a staging table and merged with set-based SQL. */
+  STAGING
+}
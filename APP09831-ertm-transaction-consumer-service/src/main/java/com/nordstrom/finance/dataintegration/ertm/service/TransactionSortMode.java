@@ -0,0 +1,14 @@
+package com.nordstrom.finance.dataintegration.ertm.service;
+
+/**
+ * Whether source files are sorted by transaction id before batching, selected through {@code
+ * file.processing.sort.mode}. Batching relies on the lines of a transaction being adjacent.
+ */
+public enum TransactionSortMode {
+  /** Files are trusted to be grouped by transaction id and streamed as they are. */
+  OFF,
+  /** Files are checked with a pre-pass and sorted only when a transaction id reappears. */
+  AUTO,
+  /** Every file is sorted. */
+  ALWAYS
+}
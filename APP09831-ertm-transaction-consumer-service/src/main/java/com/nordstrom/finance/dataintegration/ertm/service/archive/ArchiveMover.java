@@ -0,0 +1,274 @@
+package com.nordstrom.finance.dataintegration.ertm.service.archive;
+
+import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import com.nordstrom.finance.dataintegration.ertm.config.AsyncConfig;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+/**
+ * Moves processed files to the archive bucket. With {@code file.processing.archive.async-enabled}
+ * the move runs on the archive thread pool and the file thread goes on with the next file at once;
+ * {@link #awaitPendingMoves()} waits for the moves still in flight before the run ends.
+ *
+ * <p>With {@code file.processing.archive.multipart.enabled} files of at least {@code threshold-mb}
+ * are copied with parallel UploadPartCopy requests instead of one CopyObject request, which is slow
+ * for multi-GB objects and fails above 5 GB. All parts are pinned to the ETag of the processed
+ * object; the source file is only deleted once the multipart upload is complete. Multipart copies
+ * need S3; with a local or in-memory object store every file is moved in one call.
+ */
+@Slf4j
+@Service
+public class ArchiveMover {
+
+  private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+  private static final long MAX_PARTS = 10_000;
+  private static final int MAX_PART_ATTEMPTS = 3;
+
+  private final ObjectStore objectStore;
+
+  /** The object store if it is S3, for multipart copies; null otherwise. */
+  private final S3Utility s3Utility;
+
+  private final MetricsClient metricsClient;
+  private final Executor archiveExecutor;
+  private final Executor partExecutor;
+  private final boolean asyncEnabled;
+  private final boolean multipartEnabled;
+  private final long multipartThreshold;
+  private final long partSize;
+
+  private final Set<CompletableFuture<Void>> pendingMoves = ConcurrentHashMap.newKeySet();
+
+  public ArchiveMover(
+      ObjectStore objectStore,
+      MetricsClient metricsClient,
+      @Qualifier(AsyncConfig.FILE_ARCHIVE_EXECUTOR_BEAN_NAME) Executor archiveExecutor,
+      @Qualifier(AsyncConfig.FILE_ARCHIVE_PART_EXECUTOR_BEAN_NAME) Executor partExecutor,
+      @Value("${file.processing.archive.async-enabled:false}") boolean asyncEnabled,
+      @Value("${file.processing.archive.multipart.enabled:false}") boolean multipartEnabled,
+      @Value("${file.processing.archive.multipart.threshold-mb:256}") int thresholdMb,
+      @Value("${file.processing.archive.multipart.part-size-mb:128}") int partSizeMb) {
+    this.objectStore = objectStore;
+    this.s3Utility = objectStore instanceof S3Utility s3 ? s3 : null;
+    this.metricsClient = metricsClient;
+    this.archiveExecutor = archiveExecutor;
+    this.partExecutor = partExecutor;
+    this.asyncEnabled = asyncEnabled;
+    if (multipartEnabled && s3Utility == null) {
+      log.warn("Multipart archive copies need S3, moving files in one call instead");
+    }
+    this.multipartEnabled = multipartEnabled && s3Utility != null;
+    this.partSize = Math.max(MIN_PART_SIZE, partSizeMb * 1024L * 1024L);
+    // a multipart copy needs at least two parts
+    this.multipartThreshold = Math.max(2 * partSize, thresholdMb * 1024L * 1024L);
+  }
+
+  /**
+   * Move a file from the source to the archive bucket, in the background if enabled.
+   *
+   * @param fileName key of the file
+   * @param sourceBucket bucket the file was processed from
+   * @param destinationBucket archive bucket
+   * @param metadata size and ETag of the processed file, or null if it was not read
+   * @param whenDone called with the outcome once the move is done or failed
+   */
+  public void move(
+      String fileName,
+      String sourceBucket,
+      String destinationBucket,
+      ObjectMetadata metadata,
+      Consumer<Boolean> whenDone) {
+    final Runnable task =
+        () -> {
+          boolean moved = false;
+          try {
+            moved = moveNow(fileName, sourceBucket, destinationBucket, metadata);
+          } catch (RuntimeException ex) {
+            log.error(
+                "Error moving file {} to processed bucket: {}", fileName, ex.getMessage(), ex);
+          } finally {
+            try {
+              whenDone.accept(moved);
+            } catch (RuntimeException ex) {
+              log.warn("Error finishing the move of file {}: {}", fileName, ex.getMessage(), ex);
+            }
+          }
+        };
+    if (!asyncEnabled) {
+      task.run();
+      return;
+    }
+
+    final CompletableFuture<Void> pendingMove;
+    try {
+      pendingMove = CompletableFuture.runAsync(task, archiveExecutor);
+    } catch (RejectedExecutionException ex) {
+      log.warn("Archive pool is shutting down, moving file {} on the file thread", fileName);
+      task.run();
+      return;
+    }
+    pendingMoves.add(pendingMove);
+    recordPendingMoves();
+    pendingMove.whenComplete(
+        (result, ex) -> {
+          pendingMoves.remove(pendingMove);
+          recordPendingMoves();
+        });
+  }
+
+  /** Wait until every move handed off so far is done. */
+  @PreDestroy
+  public void awaitPendingMoves() {
+    final List<CompletableFuture<Void>> moves = List.copyOf(pendingMoves);
+    if (moves.isEmpty()) {
+      return;
+    }
+    log.info("Waiting for {} archive moves to finish", moves.size());
+    // the move tasks handle their own failures
+    CompletableFuture.allOf(moves.toArray(new CompletableFuture<?>[0])).join();
+  }
+
+  private boolean moveNow(
+      String fileName, String sourceBucket, String destinationBucket, ObjectMetadata metadata) {
+    final long startTime = System.currentTimeMillis();
+    final ObjectMetadata object =
+        metadata == null && multipartEnabled
+            ? objectStore.getObjectMetadata(fileName, sourceBucket)
+            : metadata;
+
+    final boolean moved;
+    if (multipartEnabled && object != null && object.size() >= multipartThreshold) {
+      moved = moveInParts(fileName, sourceBucket, destinationBucket, object.size(), object.eTag());
+    } else {
+      moved = objectStore.moveFileToAnotherBucket(fileName, sourceBucket, destinationBucket);
+    }
+
+    if (moved) {
+      log.info("Successfully moved file {} to processed bucket", fileName);
+      metricsClient.recordExecutionTime(
+          Metric.FILE_ARCHIVE_TIME.getMetricName(),
+          System.currentTimeMillis() - startTime,
+          MetricTag.FILE_NAME.getTag(fileName));
+    } else {
+      log.warn(
+          "Failed to move file {} to processed bucket - file may still exist in source", fileName);
+    }
+    return moved;
+  }
+
+  /** Copy the file with parallel UploadPartCopy requests, then delete the source. */
+  private boolean moveInParts(
+      String fileName, String sourceBucket, String destinationBucket, long size, String eTag) {
+    // S3 allows at most 10,000 parts
+    final long effectivePartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+    final int partCount = (int) ((size + effectivePartSize - 1) / effectivePartSize);
+    log.info(
+        "Copying file {} ({} bytes) to bucket {} in {} parts of {} bytes",
+        fileName,
+        size,
+        destinationBucket,
+        partCount,
+        effectivePartSize);
+
+    final String uploadId = s3Utility.createMultipartUpload(fileName, destinationBucket);
+    if (uploadId == null) {
+      return false;
+    }
+    final AtomicBoolean failed = new AtomicBoolean();
+    final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>(partCount);
+    for (int part = 0; part < partCount; part++) {
+      final int partNumber = part + 1;
+      final long firstByte = part * effectivePartSize;
+      final long lastByte = Math.min(size, firstByte + effectivePartSize) - 1;
+      parts.add(
+          CompletableFuture.supplyAsync(
+              () ->
+                  copyPart(
+                      fileName,
+                      sourceBucket,
+                      destinationBucket,
+                      uploadId,
+                      partNumber,
+                      firstByte,
+                      lastByte,
+                      eTag,
+                      failed),
+              partExecutor));
+    }
+
+    final List<CompletedPart> completedParts = new ArrayList<>(partCount);
+    for (CompletableFuture<CompletedPart> part : parts) {
+      final CompletedPart completedPart = part.join();
+      if (completedPart != null) {
+        completedParts.add(completedPart);
+      }
+    }
+    if (completedParts.size() != partCount
+        || !s3Utility.completeMultipartUpload(
+            fileName, destinationBucket, uploadId, completedParts)) {
+      s3Utility.abortMultipartUpload(fileName, destinationBucket, uploadId);
+      return false;
+    }
+
+    if (!s3Utility.deleteFile(fileName, sourceBucket)) {
+      log.warn(
+          "File {} was copied to bucket {} but is still in the source", fileName, sourceBucket);
+      return false;
+    }
+    return true;
+  }
+
+  /** Copy one part, retrying it on failure; null once it failed or another part did. */
+  private CompletedPart copyPart(
+      String fileName,
+      String sourceBucket,
+      String destinationBucket,
+      String uploadId,
+      int partNumber,
+      long firstByte,
+      long lastByte,
+      String eTag,
+      AtomicBoolean failed) {
+    for (int attempt = 1; attempt <= MAX_PART_ATTEMPTS && !failed.get(); attempt++) {
+      final CompletedPart part =
+          s3Utility.uploadPartCopy(
+              fileName,
+              sourceBucket,
+              destinationBucket,
+              uploadId,
+              partNumber,
+              firstByte,
+              lastByte,
+              eTag);
+      if (part != null) {
+        return part;
+      }
+      log.warn("Attempt {} to copy part {} of file {} failed", attempt, partNumber, fileName);
+    }
+    failed.set(true);
+    return null;
+  }
+
+  private void recordPendingMoves() {
+    metricsClient.recordGaugeValue(
+        Metric.FILE_ARCHIVE_PENDING.getMetricName(), pendingMoves.size());
+  }
+}
@@ -0,0 +1,156 @@
+package com.nordstrom.finance.dataintegration.ertm.service.batching;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Batch size of the ENTITY ingest mode. Without {@code file.processing.batch.adaptive.enabled} it
+ * is the static {@code file.processing.batch.size}; with it the size starts there and is adjusted
+ * after every persisted batch between {@code min-size} and {@code max-size}:
+ *
+ * <ul>
+ *   <li>halved when the batch took longer than {@code target-persist-millis} to save or the old
+ *       generation had less than {@code min-heap-free-percent} free after its last collection
+ *       (Aurora under pressure, or too many large batches in flight)
+ *   <li>otherwise grown by {@code increase-step}, but not beyond the batch the recent throughput
+ *       (rows stored per second, smoothed) saves within the target
+ * </ul>
+ *
+ * <p>The controller is shared by all files in flight, since they compete for the same database. The
+ * current size is published as the {@link Metric#BATCH_SIZE} gauge.
+ */
+@Slf4j
+@Service
+public class AdaptiveBatchSizeController {
+
+  private static final double THROUGHPUT_SMOOTHING = 0.3;
+
+  private final MetricsClient metricsClient;
+  private final boolean enabled;
+  private final int minSize;
+  private final int maxSize;
+  private final long targetPersistMillis;
+  private final int increaseStep;
+  private final double minHeapFree;
+
+  private final MemoryPoolMXBean tenuredPool = findTenuredPool();
+
+  private volatile int batchSize;
+  private double rowsPerSecond;
+
+  public AdaptiveBatchSizeController(
+      MetricsClient metricsClient,
+      @Value("${file.processing.batch.size:30000}") int batchSize,
+      @Value("${file.processing.batch.adaptive.enabled:false}") boolean enabled,
+      @Value("${file.processing.batch.adaptive.min-size:5000}") int minSize,
+      @Value("${file.processing.batch.adaptive.max-size:100000}") int maxSize,
+      @Value("${file.processing.batch.adaptive.target-persist-millis:5000}")
+          long targetPersistMillis,
+      @Value("${file.processing.batch.adaptive.increase-step:2000}") int increaseStep,
+      @Value("${file.processing.batch.adaptive.min-heap-free-percent:25}") int minHeapFreePercent) {
+    if (enabled && (minSize <= 0 || minSize > maxSize)) {
+      throw new IllegalArgumentException(
+          "file.processing.batch.adaptive.min-size must be positive and not above max-size");
+    }
+    this.metricsClient = metricsClient;
+    this.enabled = enabled;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.targetPersistMillis = Math.max(1, targetPersistMillis);
+    this.increaseStep = Math.max(1, increaseStep);
+    this.minHeapFree = minHeapFreePercent / 100.0;
+    this.batchSize = enabled ? Math.clamp(batchSize, minSize, maxSize) : Math.max(1, batchSize);
+  }
+
+  /** Records per batch for the next batch that is cut. */
+  public int currentBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Feed back the save of one batch and adjust the batch size.
+   *
+   * @param rows rows the batch stored; duplicates dropped before the save do not count
+   * @param persistMillis time taken by the database save
+   */
+  public synchronized void recordPersist(int rows, long persistMillis) {
+    if (!enabled || rows <= 0) {
+      return;
+    }
+    final double batchRowsPerSecond = rows * 1000.0 / Math.max(1, persistMillis);
+    rowsPerSecond =
+        rowsPerSecond == 0
+            ? batchRowsPerSecond
+            : THROUGHPUT_SMOOTHING * batchRowsPerSecond
+                + (1 - THROUGHPUT_SMOOTHING) * rowsPerSecond;
+    final double heapFree = heapFreeFraction();
+
+    final int previous = batchSize;
+    if (persistMillis > targetPersistMillis || heapFree < minHeapFree) {
+      batchSize = Math.max(minSize, previous / 2);
+    } else {
+      // largest batch the recent throughput saves within the target
+      final long withinTarget = (long) (rowsPerSecond * targetPersistMillis / 1000);
+      batchSize =
+          (int)
+              Math.max(
+                  previous, Math.min(maxSize, Math.min(previous + increaseStep, withinTarget)));
+    }
+
+    if (batchSize != previous) {
+      log.info(
+          "Batch size {} -> {}: {} rows saved in {} ms ({} rows/s smoothed), {}% heap free",
+          previous,
+          batchSize,
+          rows,
+          persistMillis,
+          Math.round(rowsPerSecond),
+          Math.round(heapFree * 100));
+    }
+    metricsClient.recordGaugeValue(Metric.BATCH_SIZE.getMetricName(), batchSize);
+  }
+
+  /**
+   * Share of the old generation that was free after its last collection. Unlike the current heap
+   * usage this leaves out garbage that is not collected yet, so it only drops when live data, such
+   * as batches in flight, fills the heap. Before the first collection the old generation counts as
+   * free.
+   */
+  double heapFreeFraction() {
+    if (tenuredPool == null) {
+      // no old generation pool to ask: current usage, garbage included
+      final Runtime runtime = Runtime.getRuntime();
+      return 1 - (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+    }
+    final MemoryUsage afterCollection = tenuredPool.getCollectionUsage();
+    if (afterCollection == null) {
+      return 1;
+    }
+    final long max =
+        afterCollection.getMax() > 0 ? afterCollection.getMax() : Runtime.getRuntime().maxMemory();
+    return 1 - (double) afterCollection.getUsed() / max;
+  }
+
+  /**
+   * The heap pool holding long-lived objects: of the heap pools only the old generation (or the
+   * single generation of a non-generational collector) supports a usage threshold.
+   */
+  private static MemoryPoolMXBean findTenuredPool() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP
+          && pool.isUsageThresholdSupported()
+          && pool.isCollectionUsageThresholdSupported()) {
+        return pool;
+      }
+    }
+    log.warn("No old generation memory pool found, batch sizing uses the current heap usage");
+    return null;
+  }
+}
@@ -0,0 +1,316 @@
+package com.nordstrom.finance.dataintegration.ertm.service.chunk;
+
+import com.nordstrom.finance.dataintegration.ertm.parser.RawLineFields;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local copy of an ERTM source file whose records can be parsed in several byte ranges at once.
+ * {@link #split} cuts the records into roughly equal {@link FileChunk chunks} and moves every cut
+ * forward to the next line where {@code SOURCE_REFERENCE_TRANSACTION_ID} changes, so the lines of a
+ * transaction always end up in the same chunk. {@link #openChunk} streams the header row followed
+ * by the bytes of one chunk, which any {@link
+ * com.nordstrom.finance.dataintegration.ertm.parser.RetailTransactionLineParser} can read like a
+ * whole file. Record line numbers and byte offsets reported by the parser are therefore relative to
+ * the chunk stream; {@link #headerSize} and {@link #linesBefore} give the shift to the file.
+ *
+ * <p>Cuts are found on raw bytes: quoted fields must not contain line breaks. The spool file is
+ * deleted when this object is closed; chunk streams may be read concurrently until then.
+ */
+@Slf4j
+public final class ChunkedSpoolFile implements Closeable {
+
+  /** Writes the content of a new spool file. */
+  @FunctionalInterface
+  public interface SpoolWriter {
+    void writeTo(OutputStream target) throws IOException;
+  }
+
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final int LINE_SCAN_SIZE = 8 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+  private final byte[] header;
+  private final int transactionIdColumn;
+
+  private ChunkedSpoolFile(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+    final Line headerLine = readLine(0);
+    this.header = readBytes(0, (int) headerLine.next());
+    this.transactionIdColumn =
+        RawLineFields.findColumn(
+            new String(headerLine.bytes(), StandardCharsets.UTF_8),
+            RawLineFields.TRANSACTION_ID_COLUMN);
+  }
+
+  /**
+   * Copy a source stream into a new spool file in {@code directory}. The source is read to its end
+   * but not closed.
+   *
+   * @param source the file content, starting with the header row
+   * @param directory directory of the spool file
+   * @return the spooled file
+   * @throws IOException if the source cannot be read or the spool file written
+   */
+  public static ChunkedSpoolFile spool(InputStream source, Path directory) throws IOException {
+    return spool(target -> source.transferTo(target), directory);
+  }
+
+  /**
+   * Create a new spool file in {@code directory} with the content written by {@code writer}.
+   *
+   * @param writer writes the file content, starting with the header row
+   * @param directory directory of the spool file
+   * @return the spooled file
+   * @throws IOException if the content cannot be produced or the spool file written
+   */
+  public static ChunkedSpoolFile spool(SpoolWriter writer, Path directory) throws IOException {
+    final Path file = Files.createTempFile(directory, "ertm-", ".chunks");
+    FileChannel channel = null;
+    try {
+      channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
+      // not closed: closing the channel stream would close (and delete) the spool file
+      final OutputStream target =
+          new BufferedOutputStream(Channels.newOutputStream(channel), COPY_BUFFER_SIZE);
+      writer.writeTo(target);
+      target.flush();
+      return new ChunkedSpoolFile(channel);
+    } catch (IOException | RuntimeException e) {
+      if (channel != null) {
+        channel.close();
+      } else {
+        Files.deleteIfExists(file);
+      }
+      throw e;
+    }
+  }
+
+  /** Size of the spooled file in bytes. */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Cut the records into at most {@code maxChunks} chunks of at least {@code minChunkBytes} bytes
+   * each (before alignment). Always returns at least one chunk, covering every record in order.
+   */
+  public List<FileChunk> split(int maxChunks, long minChunkBytes) throws IOException {
+    final long dataStart = header.length;
+    final long dataLength = size - dataStart;
+    int chunkCount =
+        (int) Math.max(1, Math.min(maxChunks, dataLength / Math.max(1, minChunkBytes)));
+    if (chunkCount > 1 && transactionIdColumn < 0) {
+      log.warn(
+          "No {} column in the header row, parsing in one chunk",
+          RawLineFields.TRANSACTION_ID_COLUMN);
+      chunkCount = 1;
+    }
+
+    final List<FileChunk> chunks = new ArrayList<>(chunkCount);
+    long start = dataStart;
+    for (int i = 1; i < chunkCount; i++) {
+      final long target = dataStart + dataLength * i / chunkCount;
+      if (target <= start) {
+        // the previous transaction reached past this cut
+        continue;
+      }
+      final long boundary = transactionBoundaryAfter(target);
+      if (boundary >= size) {
+        break;
+      }
+      chunks.add(new FileChunk(chunks.size(), start, boundary));
+      start = boundary;
+    }
+    chunks.add(new FileChunk(chunks.size(), start, size));
+    return chunks;
+  }
+
+  /** Size of the header row in bytes, line break included; the first chunk starts here. */
+  public long headerSize() {
+    return header.length;
+  }
+
+  /**
+   * Count the lines before every chunk in one pass over the file, header row excluded.
+   *
+   * @param chunks chunks of this file, in file order
+   * @return the number of lines between the header row and the start of each chunk
+   */
+  public long[] linesBefore(List<FileChunk> chunks) throws IOException {
+    final long[] lines = new long[chunks.size()];
+    final ByteBuffer scan = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+    long position = header.length;
+    long count = 0;
+    for (int i = 0; i < chunks.size(); i++) {
+      final long start = chunks.get(i).start();
+      while (position < start) {
+        scan.clear().limit((int) Math.min(scan.capacity(), start - position));
+        final int read = channel.read(scan, position);
+        if (read <= 0) {
+          throw new IOException("Spool file is shorter than expected");
+        }
+        final byte[] bytes = scan.array();
+        for (int j = 0; j < read; j++) {
+          if (bytes[j] == LINE_FEED) {
+            count++;
+          }
+        }
+        position += read;
+      }
+      lines[i] = count;
+    }
+    return lines;
+  }
+
+  /** Stream of the whole file, header row included. */
+  public InputStream open() {
+    return openChunk(new FileChunk(0, header.length, size));
+  }
+
+  /**
+   * Stream of the header row followed by the bytes of one chunk. Closing it leaves the spool file
+   * open.
+   */
+  public InputStream openChunk(FileChunk chunk) {
+    return new SequenceInputStream(
+        new ByteArrayInputStream(header), new RangeInputStream(chunk.start(), chunk.end()));
+  }
+
+  /** Delete the spool file. */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Start of the first line at or after {@code target} whose transaction id differs from the one of
+   * the first complete line after {@code target}; {@link #size} if there is none.
+   */
+  private long transactionBoundaryAfter(long target) throws IOException {
+    final long firstLineStart = readLine(target - 1).next();
+    if (firstLineStart >= size) {
+      return size;
+    }
+    Line line = readLine(firstLineStart);
+    final String transactionId = transactionId(line.bytes());
+    while (line.next() < size) {
+      final Line nextLine = readLine(line.next());
+      if (!transactionId.equals(transactionId(nextLine.bytes()))) {
+        break;
+      }
+      line = nextLine;
+    }
+    return line.next();
+  }
+
+  /** The line at {@code start} without its line break, and the start of the following line. */
+  private Line readLine(long start) throws IOException {
+    final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    final ByteBuffer scan = ByteBuffer.allocate(LINE_SCAN_SIZE);
+    long position = start;
+    while (position < size) {
+      scan.clear();
+      final int read = channel.read(scan, position);
+      if (read <= 0) {
+        break;
+      }
+      final byte[] bytes = scan.array();
+      for (int i = 0; i < read; i++) {
+        if (bytes[i] == LINE_FEED) {
+          line.write(bytes, 0, i);
+          return new Line(stripCarriageReturn(line.toByteArray()), position + i + 1);
+        }
+      }
+      line.write(bytes, 0, read);
+      position += read;
+    }
+    return new Line(stripCarriageReturn(line.toByteArray()), size);
+  }
+
+  private byte[] readBytes(long position, int length) throws IOException {
+    final ByteBuffer target = ByteBuffer.allocate(length);
+    while (target.hasRemaining()) {
+      if (channel.read(target, position + target.position()) < 0) {
+        throw new IOException("Spool file is shorter than expected");
+      }
+    }
+    return target.array();
+  }
+
+  private static byte[] stripCarriageReturn(byte[] line) {
+    if (line.length > 0 && line[line.length - 1] == CARRIAGE_RETURN) {
+      final byte[] stripped = new byte[line.length - 1];
+      System.arraycopy(line, 0, stripped, 0, stripped.length);
+      return stripped;
+    }
+    return line;
+  }
+
+  /** Transaction id of a record line, empty if the line has no such field. */
+  private String transactionId(byte[] line) {
+    final String value =
+        RawLineFields.field(new String(line, StandardCharsets.UTF_8), transactionIdColumn);
+    return value == null ? "" : value;
+  }
+
+  private record Line(byte[] bytes, long next) {}
+
+  /** Positional reads of one byte range; any number of them can read the channel at once. */
+  private final class RangeInputStream extends InputStream {
+    private final long end;
+    private long position;
+
+    RangeInputStream(long start, long end) {
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      final int read =
+          channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+      if (read < 0) {
+        throw new IOException("Spool file is shorter than expected");
+      }
+      position += read;
+      return read;
+    }
+  }
+}
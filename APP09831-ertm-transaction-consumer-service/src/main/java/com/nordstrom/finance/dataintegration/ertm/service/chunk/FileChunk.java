@@ -0,0 +1,16 @@
+package com.nordstrom.finance.dataintegration.ertm.service.chunk;
+
+/**
+ * Byte range {@code start..end-1} of the records of a spooled file. A chunk starts at a line start
+ * and never splits the lines of one transaction.
+ *
+ * @param index position of the chunk in the file
+ * @param start offset of the first byte of the chunk
+ * @param end offset after the last byte of the chunk
+ */
+public record FileChunk(int index, long start, long end) {
+
+  public long length() {
+    return end - start;
+  }
+}
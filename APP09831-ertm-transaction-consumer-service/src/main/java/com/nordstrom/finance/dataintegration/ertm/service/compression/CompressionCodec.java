@@ -0,0 +1,68 @@
+package com.nordstrom.finance.dataintegration.ertm.service.compression;
+
+import java.util.Locale;
+
+/** Compression formats of source files that are decompressed while they are read. */
+public enum CompressionCodec {
+  /** Plain text, read as is. */
+  NONE(null, new byte[0]),
+  /** gzip (RFC 1952), including files of several concatenated members. */
+  GZIP(".gz", new byte[] {(byte) 0x1F, (byte) 0x8B}),
+  /** Zstandard frames. */
+  ZSTD(".zst", new byte[] {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD});
+
+  /** Bytes needed to recognise every codec by its magic number. */
+  static final int MAGIC_LENGTH = 4;
+
+  private final String extension;
+  private final byte[] magic;
+
+  CompressionCodec(String extension, byte[] magic) {
+    this.extension = extension;
+    this.magic = magic;
+  }
+
+  /**
+   * Codec of a file by its extension (case-insensitive).
+   *
+   * @param fileName the object key
+   * @return the codec, or {@link #NONE} for any other extension
+   */
+  public static CompressionCodec fromFileName(String fileName) {
+    final String name = fileName.toLowerCase(Locale.ROOT);
+    for (CompressionCodec codec : values()) {
+      if (codec.extension != null && name.endsWith(codec.extension)) {
+        return codec;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Codec of a stream by the magic number at its start.
+   *
+   * @param head the first bytes of the stream
+   * @param length number of valid bytes in {@code head}
+   * @return the codec, or {@link #NONE} if no magic number matches
+   */
+  static CompressionCodec fromMagic(byte[] head, int length) {
+    for (CompressionCodec codec : values()) {
+      if (codec.magic.length > 0 && startsWith(head, length, codec.magic)) {
+        return codec;
+      }
+    }
+    return NONE;
+  }
+
+  private static boolean startsWith(byte[] head, int length, byte[] prefix) {
+    if (length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (head[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
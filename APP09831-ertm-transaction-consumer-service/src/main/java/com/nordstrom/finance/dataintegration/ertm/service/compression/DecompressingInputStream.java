@@ -0,0 +1,162 @@
+package com.nordstrom.finance.dataintegration.ertm.service.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongConsumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stream of decompressed bytes that are produced ahead of the reader on a separate thread. The
+ * decoder fills fixed-size blocks into a bounded queue, so decompression overlaps with parsing
+ * while memory stays at {@code readAheadBlocks} blocks. Closing the stream stops the decoder and
+ * releases the compressed source.
+ */
+@Slf4j
+final class DecompressingInputStream extends InputStream {
+
+  private static final byte[] END_OF_STREAM = new byte[0];
+
+  private final String description;
+  private final InputStream decoder;
+  private final BlockingQueue<byte[]> blocks;
+  private final int blockSize;
+  private final LongConsumer onComplete;
+
+  private volatile boolean closed;
+  private volatile IOException failure;
+  private byte[] current = new byte[0];
+  private int position;
+  private boolean finished;
+
+  /**
+   * @param description file name used in log and error messages
+   * @param decoder the decompressing stream over the compressed source; owned by this stream
+   * @param blockSize bytes per decompressed block
+   * @param readAheadBlocks blocks decompressed ahead of the reader
+   * @param executor runs the decoder
+   * @param onComplete called with the number of decompressed bytes once the decoder is done
+   */
+  DecompressingInputStream(
+      String description,
+      InputStream decoder,
+      int blockSize,
+      int readAheadBlocks,
+      Executor executor,
+      LongConsumer onComplete)
+      throws IOException {
+    this.description = description;
+    this.decoder = decoder;
+    this.blockSize = blockSize;
+    this.blocks = new ArrayBlockingQueue<>(readAheadBlocks + 1);
+    this.onComplete = onComplete;
+    try {
+      executor.execute(this::decompress);
+    } catch (RejectedExecutionException ex) {
+      decoder.close();
+      throw new IOException("Unable to start decompression of file " + description, ex);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] single = new byte[1];
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (closed) {
+      throw new IOException("Stream of file " + description + " is closed");
+    }
+    if (length == 0) {
+      return 0;
+    }
+    while (position == current.length) {
+      if (finished) {
+        return -1;
+      }
+      nextBlock();
+    }
+    final int count = Math.min(length, current.length - position);
+    System.arraycopy(current, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return current.length - position;
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      // frees a decoder blocked on a full queue; it sees the flag and stops
+      blocks.clear();
+    }
+  }
+
+  private void nextBlock() throws IOException {
+    final byte[] block;
+    try {
+      block = blocks.take();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while decompressing file " + description);
+    }
+    if (block == END_OF_STREAM) {
+      if (failure != null) {
+        throw new IOException("Unable to decompress file " + description, failure);
+      }
+      finished = true;
+    }
+    current = block;
+    position = 0;
+  }
+
+  private void decompress() {
+    long bytes = 0;
+    try (decoder) {
+      while (!closed) {
+        final byte[] block = decoder.readNBytes(blockSize);
+        if (block.length == 0) {
+          break;
+        }
+        bytes += block.length;
+        blocks.put(block);
+      }
+      if (!closed) {
+        onComplete.accept(bytes);
+      }
+    } catch (IOException ex) {
+      failure = ex;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      failure = new InterruptedIOException("Decompression of file " + description + " interrupted");
+    } catch (RuntimeException ex) {
+      failure = new IOException(ex.getMessage(), ex);
+    } finally {
+      if (!closed) {
+        // waits for the reader to take a block or to close the stream
+        endStream();
+      } else if (failure != null) {
+        log.debug("Decompression of closed file {} stopped: {}", description, failure.getMessage());
+      }
+    }
+  }
+
+  private void endStream() {
+    try {
+      blocks.put(END_OF_STREAM);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      log.warn("Interrupted while ending decompressed stream of file {}", description);
+    }
+  }
+}
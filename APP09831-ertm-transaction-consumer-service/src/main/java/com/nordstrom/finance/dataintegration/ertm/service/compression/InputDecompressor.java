@@ -0,0 +1,149 @@
+package com.nordstrom.finance.dataintegration.ertm.service.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.config.AsyncConfig;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Transparent decompression of gzip and zstd source files. The codec is taken from the file
+ * extension ({@code .gz}, {@code .zst}) or, for other names, from the magic number at the start of
+ * the stream. Compressed streams are decoded on the decompression thread pool into a bounded
+ * read-ahead queue (see {@link DecompressingInputStream}); nothing is buffered beyond that queue.
+ */
+@Slf4j
+@Service
+public class InputDecompressor {
+
+  private static final int SOURCE_BUFFER_SIZE = 64 * 1024;
+
+  private final MetricsClient metricsClient;
+  private final Executor decompressExecutor;
+  private final boolean enabled;
+  private final int blockSize;
+  private final int readAheadBlocks;
+
+  public InputDecompressor(
+      MetricsClient metricsClient,
+      @Qualifier(AsyncConfig.FILE_DECOMPRESS_EXECUTOR_BEAN_NAME) Executor decompressExecutor,
+      @Value("${file.processing.decompression.enabled:true}") boolean enabled,
+      @Value("${file.processing.decompression.block-size-kb:256}") int blockSizeKb,
+      @Value("${file.processing.decompression.read-ahead-blocks:8}") int readAheadBlocks) {
+    this.metricsClient = metricsClient;
+    this.decompressExecutor = decompressExecutor;
+    this.enabled = enabled;
+    this.blockSize = Math.max(1, blockSizeKb) * 1024;
+    this.readAheadBlocks = Math.max(1, readAheadBlocks);
+  }
+
+  /**
+   * Codec of a source file by its name, before anything is downloaded.
+   *
+   * @param fileName the object key
+   * @return the codec, or {@link CompressionCodec#NONE} when decompression is disabled
+   */
+  public CompressionCodec codecOf(String fileName) {
+    return enabled ? CompressionCodec.fromFileName(fileName) : CompressionCodec.NONE;
+  }
+
+  /**
+   * Open the decompressed content of a source file. Plain files are returned buffered but otherwise
+   * untouched. The caller is responsible for closing the returned stream, which also closes {@code
+   * source}.
+   *
+   * @param source the raw object stream
+   * @param fileName the object key, used for extension detection, logs and metrics
+   * @return the (decompressed) content of the file
+   * @throws IOException if the codec cannot be detected or the decoder cannot be started
+   */
+  public DecompressedInput open(InputStream source, String fileName) throws IOException {
+    final BufferedInputStream buffered = new BufferedInputStream(source, SOURCE_BUFFER_SIZE);
+    try {
+      final CompressionCodec codec = detect(buffered, fileName);
+      if (codec == CompressionCodec.NONE) {
+        return new DecompressedInput(codec, buffered);
+      }
+      log.info("Decompressing {} file {} while reading it", codec, fileName);
+      final long startTime = System.currentTimeMillis();
+      final InputStream stream =
+          new DecompressingInputStream(
+              fileName,
+              decoder(codec, buffered),
+              blockSize,
+              readAheadBlocks,
+              decompressExecutor,
+              bytes -> recordDecompression(fileName, codec, bytes, startTime));
+      return new DecompressedInput(codec, stream);
+    } catch (IOException | RuntimeException ex) {
+      buffered.close();
+      throw ex;
+    }
+  }
+
+  private CompressionCodec detect(BufferedInputStream source, String fileName) throws IOException {
+    if (!enabled) {
+      return CompressionCodec.NONE;
+    }
+    final CompressionCodec byName = CompressionCodec.fromFileName(fileName);
+    if (byName != CompressionCodec.NONE) {
+      return byName;
+    }
+    source.mark(CompressionCodec.MAGIC_LENGTH);
+    final byte[] head = source.readNBytes(CompressionCodec.MAGIC_LENGTH);
+    source.reset();
+    return CompressionCodec.fromMagic(head, head.length);
+  }
+
+  private InputStream decoder(CompressionCodec codec, InputStream source) throws IOException {
+    return switch (codec) {
+      case GZIP -> new GZIPInputStream(source, SOURCE_BUFFER_SIZE);
+      case ZSTD -> new ZstdInputStream(source);
+      case NONE -> source;
+    };
+  }
+
+  private void recordDecompression(
+      String fileName, CompressionCodec codec, long bytes, long startTime) {
+    final long executionTime = System.currentTimeMillis() - startTime;
+    log.info("Decompressed {} file {}: {} bytes in {} ms", codec, fileName, bytes, executionTime);
+    metricsClient.recordExecutionTime(
+        Metric.FILE_DECOMPRESS_TIME.getMetricName(),
+        executionTime,
+        MetricTag.FILE_NAME.getTag(fileName),
+        MetricTag.COMPRESSION_CODEC.getTag(codec.name()));
+    metricsClient.count(
+        Metric.FILE_DECOMPRESSED_BYTES.getMetricName(),
+        bytes,
+        MetricTag.FILE_NAME.getTag(fileName),
+        MetricTag.COMPRESSION_CODEC.getTag(codec.name()));
+  }
+
+  /**
+   * Content of a source file together with the codec it was stored in.
+   *
+   * @param codec the detected codec
+   * @param stream the decompressed content
+   */
+  public record DecompressedInput(CompressionCodec codec, InputStream stream) implements Closeable {
+
+    public boolean isCompressed() {
+      return codec != CompressionCodec.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+      stream.close();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+
+/**
+ * Claimed lines of all files processed concurrently. Files in flight can carry the same
+ * transaction, and the duplicate lookup of one only sees the committed rows of the other, so every
+ * file claims its lines in this shared set: a line is stored by the first batch of any file that
+ * claims it, and the other files drop it while that batch is in flight.
+ */
+@Service
+public class InFlightLineRegistry {
+
+  private final Set<InFlightLines.LineKey> claimed = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @return the claims of one file; close them when the file is done
+   */
+  public InFlightLines open() {
+    return new InFlightLines(claimed);
+  }
+
+  /**
+   * @return number of lines currently claimed by all files
+   */
+  public int size() {
+    return claimed.size();
+  }
+}
@@ -0,0 +1,129 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lines that passed the duplicate check but are not committed yet. The duplicate lookup only sees
+ * committed rows, so while a batch waits in the map and persist stages a later batch repeating one
+ * of its lines would pass the lookup as well, and the line would be stored twice. Every batch
+ * therefore claims its lines (by transaction id and line id) before the lookup: a line another
+ * batch holds is dropped as a duplicate. The claim is released once the batch is persisted, after
+ * its database transaction committed, so a later batch repeating the line finds it in the lookup.
+ *
+ * <p>A line dropped here is stored by the batch holding it, or, if that batch fails, its file fails
+ * and the line is stored when that file is processed again. Closing releases the claims of batches
+ * that never reached persistence. The claims of files processed concurrently share one set (see
+ * {@link InFlightLineRegistry}).
+ */
+@Slf4j
+public class InFlightLines implements AutoCloseable {
+
+  private final Set<LineKey> claimed;
+  private final Set<LineKey> held = ConcurrentHashMap.newKeySet();
+
+  /** Claims of a single file, not shared with other files. */
+  public InFlightLines() {
+    this(ConcurrentHashMap.newKeySet());
+  }
+
+  InFlightLines(Set<LineKey> claimed) {
+    this.claimed = claimed;
+  }
+
+  /**
+   * Claim the lines of a batch.
+   *
+   * @param transactions the transactions of the batch
+   * @return the claim, holding the transactions without the lines claimed by other batches
+   */
+  public Claim claim(List<TransactionGroup> transactions) {
+    final List<LineKey> keys = new ArrayList<>();
+    final List<TransactionGroup> unclaimed = new ArrayList<>(transactions.size());
+    int dropped = 0;
+    for (TransactionGroup transaction : transactions) {
+      List<RetailTransactionLineDTO> lines = transaction.lines();
+      for (int i = 0; i < transaction.lines().size(); i++) {
+        final RetailTransactionLineDTO line = transaction.lines().get(i);
+        final LineKey key =
+            new LineKey(transaction.transactionId(), line.getSourceReferenceLineId());
+        if (claimed.add(key)) {
+          held.add(key);
+          keys.add(key);
+          if (lines != transaction.lines()) {
+            lines.add(line);
+          }
+        } else {
+          dropped++;
+          if (lines == transaction.lines()) {
+            // copy only the transactions that lose a line
+            lines = new ArrayList<>(transaction.lines().subList(0, i));
+          }
+        }
+      }
+      if (lines == transaction.lines()) {
+        unclaimed.add(transaction);
+      } else if (!lines.isEmpty()) {
+        unclaimed.add(new TransactionGroup(transaction.transactionId(), lines));
+      }
+    }
+    if (dropped > 0) {
+      log.info("Dropped {} lines that a batch not committed yet already holds", dropped);
+    }
+    return new Claim(unclaimed, keys);
+  }
+
+  /**
+   * @return number of lines this file currently holds
+   */
+  public int size() {
+    return held.size();
+  }
+
+  /** Release every claim of this file that is still held. */
+  @Override
+  public void close() {
+    held.forEach(this::release);
+  }
+
+  private void release(LineKey key) {
+    // only one of a batch release and close removes the shared claim
+    if (held.remove(key)) {
+      claimed.remove(key);
+    }
+  }
+
+  record LineKey(String transactionId, String lineId) {}
+
+  /** Lines claimed by one batch. */
+  public final class Claim {
+    private final List<TransactionGroup> transactions;
+    private final List<LineKey> keys;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Claim(List<TransactionGroup> transactions, List<LineKey> keys) {
+      this.transactions = transactions;
+      this.keys = keys;
+    }
+
+    /**
+     * @return the transactions of the batch without the lines other batches hold
+     */
+    public List<TransactionGroup> transactions() {
+      return transactions;
+    }
+
+    /** Release the lines once the batch is committed (or failed); later calls do nothing. */
+    public void release() {
+      if (released.compareAndSet(false, true)) {
+        keys.forEach(InFlightLines.this::release);
+      }
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.database.service.TransactionDBService;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pre-filter of the duplicate check. At job start the ids of the ERTM transactions of the last
+ * {@code business-date-window-days} days are loaded into a {@link TransactionIdBloomFilter}, and
+ * every committed batch adds its ids. Transactions the filter has definitely not seen skip the
+ * duplicate lookup in the database; only possible duplicates are queried.
+ *
+ * <p>Transactions with a business date before the window (or without one) are always queried, since
+ * their ids were not loaded; this relies on a transaction id keeping its business date across
+ * extracts. While the filter is disabled, not yet warmed up or failed to warm up, every transaction
+ * is queried as before.
+ *
+ * <p>The filter only learns the commits of this pod after warm-up, so it cannot be combined with
+ * file leasing ({@code file.processing.lease.enabled}), under which other pods commit transactions
+ * this filter would report as new.
+ */
+@Slf4j
+@Service
+public class KnownTransactionIdFilter {
+
+  private final TransactionDBService transactionDBService;
+  private final MetricsClient metricsClient;
+  private final boolean enabled;
+  private final int businessDateWindowDays;
+  private final double falsePositiveRate;
+  private final long expectedNewIds;
+  private final long maxBytes;
+
+  private volatile WarmFilter warmFilter;
+
+  public KnownTransactionIdFilter(
+      TransactionDBService transactionDBService,
+      MetricsClient metricsClient,
+      @Value("${file.processing.dedupe-filter.enabled:false}") boolean enabled,
+      @Value("${file.processing.dedupe-filter.business-date-window-days:30}")
+          int businessDateWindowDays,
+      @Value("${file.processing.dedupe-filter.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${file.processing.dedupe-filter.expected-new-ids:5000000}") long expectedNewIds,
+      @Value("${file.processing.dedupe-filter.max-memory-mb:256}") int maxMemoryMb,
+      @Value("${file.processing.lease.enabled:false}") boolean leaseEnabled) {
+    if (enabled && leaseEnabled) {
+      throw new IllegalArgumentException(
+          "file.processing.dedupe-filter.enabled cannot be combined with"
+              + " file.processing.lease.enabled: commits of other pods would skip the duplicate"
+              + " check");
+    }
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException(
+          "file.processing.dedupe-filter.false-positive-rate must be between 0 and 1");
+    }
+    this.transactionDBService = transactionDBService;
+    this.metricsClient = metricsClient;
+    this.enabled = enabled;
+    this.businessDateWindowDays = Math.max(0, businessDateWindowDays);
+    this.falsePositiveRate = falsePositiveRate;
+    this.expectedNewIds = Math.max(0, expectedNewIds);
+    this.maxBytes = Math.max(1, maxMemoryMb) * 1024L * 1024L;
+  }
+
+  /**
+   * Rebuild the filter from the database. Failures are logged and leave the filter off, so the job
+   * falls back to querying every transaction.
+   */
+  public void warmUp() {
+    if (!enabled) {
+      return;
+    }
+    warmFilter = null;
+    final long startTime = System.currentTimeMillis();
+    final LocalDate fromBusinessDate = LocalDate.now().minusDays(businessDateWindowDays);
+    try {
+      final long knownIds = transactionDBService.countTransactionIds(fromBusinessDate);
+      final TransactionIdBloomFilter filter =
+          TransactionIdBloomFilter.create(knownIds + expectedNewIds, falsePositiveRate, maxBytes);
+      final long loadedIds =
+          transactionDBService.forEachTransactionId(fromBusinessDate, filter::add);
+      warmFilter = new WarmFilter(filter, fromBusinessDate);
+
+      final long executionTime = System.currentTimeMillis() - startTime;
+      log.info(
+          "Duplicate pre-filter loaded {} transaction ids from business date {} in {} ms: {} bytes,"
+              + " {} hash functions, expected false-positive rate {}",
+          loadedIds,
+          fromBusinessDate,
+          executionTime,
+          filter.sizeInBytes(),
+          filter.hashCount(),
+          String.format("%.4f", filter.expectedFalsePositiveRate(loadedIds)));
+      metricsClient.recordExecutionTime(
+          Metric.DEDUPE_FILTER_WARMUP_TIME.getMetricName(), executionTime);
+      metricsClient.recordGaugeValue(
+          Metric.DEDUPE_FILTER_MEMORY.getMetricName(), filter.sizeInBytes());
+    } catch (RuntimeException ex) {
+      log.warn(
+          "Could not load the duplicate pre-filter, checking every transaction in the database: {}",
+          ex.getMessage(),
+          ex);
+    }
+  }
+
+  /**
+   * Transactions of a batch that may already be stored and need the database lookup.
+   *
+   * @param transactions the transactions of the batch
+   * @return ids the filter cannot rule out, all ids while the filter is off
+   */
+  public List<String> selectPossiblyKnown(List<TransactionGroup> transactions) {
+    final WarmFilter current = warmFilter;
+    if (current == null) {
+      return transactions.stream().map(TransactionGroup::transactionId).toList();
+    }
+    final List<String> possiblyKnown = new ArrayList<>();
+    long hits = 0;
+    long misses = 0;
+    long bypassed = 0;
+    for (TransactionGroup transaction : transactions) {
+      if (!current.covers(transaction.lines())) {
+        bypassed++;
+        possiblyKnown.add(transaction.transactionId());
+      } else if (current.filter.mightContain(transaction.transactionId())) {
+        hits++;
+        possiblyKnown.add(transaction.transactionId());
+      } else {
+        misses++;
+      }
+    }
+    metricsClient.count(Metric.DEDUPE_FILTER_HIT_COUNT.getMetricName(), hits);
+    metricsClient.count(Metric.DEDUPE_FILTER_MISS_COUNT.getMetricName(), misses);
+    if (bypassed > 0) {
+      metricsClient.count(Metric.DEDUPE_FILTER_BYPASS_COUNT.getMetricName(), bypassed);
+    }
+    return possiblyKnown;
+  }
+
+  /**
+   * Add the ids of committed transactions, so later batches and files of this job see them.
+   *
+   * @param transactionIds ids of the saved transactions
+   */
+  public void recordSaved(Collection<String> transactionIds) {
+    final WarmFilter current = warmFilter;
+    if (current != null) {
+      transactionIds.forEach(current.filter::add);
+    }
+  }
+
+  private record WarmFilter(TransactionIdBloomFilter filter, LocalDate fromBusinessDate) {
+
+    /** Whether every line has a business date inside the loaded window. */
+    boolean covers(List<RetailTransactionLineDTO> transactionLines) {
+      for (RetailTransactionLineDTO line : transactionLines) {
+        if (line.getBusinessDate() == null || line.getBusinessDate().isBefore(fromBusinessDate)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
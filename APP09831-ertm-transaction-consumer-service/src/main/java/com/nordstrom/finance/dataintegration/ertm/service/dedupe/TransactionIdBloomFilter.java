@@ -0,0 +1,96 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over transaction ids. Adding is lock-free and may run concurrently with lookups, so
+ * the chunk workers and the persistence stage can share one filter. Lookups never miss an added id
+ * and report an id that was never added with about the configured false-positive probability as
+ * long as no more than the expected number of ids are added.
+ */
+public final class TransactionIdBloomFilter {
+
+  private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+  private static final double LN2 = Math.log(2);
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+
+  private TransactionIdBloomFilter(long bitCount, int hashCount) {
+    this.words = new AtomicLongArray((int) ((bitCount + Long.SIZE - 1) / Long.SIZE));
+    this.bitCount = bitCount;
+    this.hashCount = hashCount;
+  }
+
+  /**
+   * Filter sized for {@code expectedIds} ids at {@code falsePositiveRate}, but no larger than
+   * {@code maxBytes}. A capped filter keeps working with a higher false-positive rate.
+   */
+  public static TransactionIdBloomFilter create(
+      long expectedIds, double falsePositiveRate, long maxBytes) {
+    final long ids = Math.max(1, expectedIds);
+    final long optimalBits = (long) Math.ceil(-ids * Math.log(falsePositiveRate) / (LN2 * LN2));
+    final long bitCount =
+        Math.max(Long.SIZE, Math.min(optimalBits, Math.min(maxBytes * 8, MAX_BITS)));
+    final int hashCount = Math.max(1, (int) Math.round((double) bitCount / ids * LN2));
+    return new TransactionIdBloomFilter(bitCount, hashCount);
+  }
+
+  public void add(String transactionId) {
+    final long hash = hash(transactionId);
+    final long hash1 = mix(hash);
+    final long hash2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      final long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      final int word = (int) (bit >>> 6);
+      final long mask = 1L << bit;
+      if ((words.get(word) & mask) == 0) {
+        words.getAndAccumulate(word, mask, (current, set) -> current | set);
+      }
+    }
+  }
+
+  public boolean mightContain(String transactionId) {
+    final long hash = hash(transactionId);
+    final long hash1 = mix(hash);
+    final long hash2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      final long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Heap taken by the bit array. */
+  long sizeInBytes() {
+    return (long) words.length() * Long.BYTES;
+  }
+
+  int hashCount() {
+    return hashCount;
+  }
+
+  /** Expected false-positive rate after {@code ids} distinct ids were added. */
+  double expectedFalsePositiveRate(long ids) {
+    return Math.pow(1 - Math.exp(-(double) hashCount * ids / bitCount), hashCount);
+  }
+
+  private static long hash(String value) {
+    long hash = 0xCBF29CE484222325L ^ value.length();
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+    }
+    return hash;
+  }
+
+  // finalizer of SplitMix64, spreads the FNV-1a state over all 64 bits
+  private static long mix(long value) {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,178 @@
+package com.nordstrom.finance.dataintegration.ertm.service.download;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import com.nordstrom.finance.dataintegration.ertm.config.AsyncConfig;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.http.Abortable;
+
+/**
+ * Downloads large S3 objects with several concurrent ranged GETs instead of one TCP stream. The
+ * parts land in a local spool file and the returned stream hands out the completed prefix while
+ * later parts are still in flight (see {@link SpoolFileInputStream}). All parts are pinned to one
+ * ETag, so an object replaced during the download fails instead of being mixed. Objects smaller
+ * than two parts are read with a single ranged GET.
+ */
+@Slf4j
+@Service
+public class ParallelRangeDownloader {
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_PART_ATTEMPTS = 3;
+
+  private final ObjectStore objectStore;
+  private final MetricsClient metricsClient;
+  private final Executor downloadExecutor;
+  private final long partSize;
+  private final int concurrency;
+  private final Path spoolDirectory;
+
+  public ParallelRangeDownloader(
+      ObjectStore objectStore,
+      MetricsClient metricsClient,
+      @Qualifier(AsyncConfig.FILE_DOWNLOAD_EXECUTOR_BEAN_NAME) Executor downloadExecutor,
+      @Value("${file.processing.download.parallel.part-size-mb:16}") int partSizeMb,
+      @Value("${file.processing.download.parallel.concurrency:4}") int concurrency,
+      @Value("${file.processing.spool-directory:${java.io.tmpdir}}") String spoolDirectory) {
+    this.objectStore = objectStore;
+    this.metricsClient = metricsClient;
+    this.downloadExecutor = downloadExecutor;
+    this.partSize = Math.max(1, partSizeMb) * 1024L * 1024L;
+    this.concurrency = Math.max(1, concurrency);
+    this.spoolDirectory = Path.of(spoolDirectory);
+  }
+
+  /**
+   * Open the object from {@code firstByte} to its end. The caller is responsible for closing the
+   * returned stream, which also deletes the spool file.
+   *
+   * @param fileName the name/key of the file
+   * @param bucketName the name of the S3 bucket
+   * @param firstByte offset of the first byte to read
+   * @param eTag ETag the object must have, or null to pin the download to the current version
+   * @return stream over the requested bytes
+   * @throws IOException if the object cannot be read
+   */
+  public InputStream download(String fileName, String bucketName, long firstByte, String eTag)
+      throws IOException {
+    final ObjectMetadata metadata = objectStore.getObjectMetadata(fileName, bucketName);
+    if (metadata == null) {
+      throw new IOException("Unable to read size of file " + fileName);
+    }
+    final String pinnedETag = eTag != null ? eTag : metadata.eTag();
+    final long size = metadata.size();
+
+    if (size - firstByte < 2 * partSize) {
+      log.debug("File {} is smaller than two parts, reading it with a single request", fileName);
+      final InputStream stream =
+          objectStore.downloadFileRangeAsStream(fileName, bucketName, firstByte, -1, pinnedETag);
+      if (stream == null) {
+        throw new IOException("Unable to read file " + fileName + " from byte " + firstByte);
+      }
+      return stream;
+    }
+
+    log.info(
+        "Downloading bytes {}-{} of file {} in parts of {} bytes, {} at a time",
+        firstByte,
+        size - 1,
+        fileName,
+        partSize,
+        concurrency);
+    final long startTime = System.currentTimeMillis();
+    return new SpoolFileInputStream(
+        fileName,
+        firstByte,
+        size,
+        partSize,
+        concurrency,
+        spoolDirectory,
+        downloadExecutor,
+        (partStart, partEnd, spool, spoolOffset) ->
+            fetchPart(fileName, bucketName, pinnedETag, partStart, partEnd, spool, spoolOffset),
+        () ->
+            metricsClient.recordExecutionTime(
+                Metric.FILE_DOWNLOAD_TIME.getMetricName(),
+                System.currentTimeMillis() - startTime,
+                MetricTag.FILE_NAME.getTag(fileName)));
+  }
+
+  /** Copy one ranged GET into the spool, retrying the whole part on failure. */
+  private void fetchPart(
+      String fileName,
+      String bucketName,
+      String eTag,
+      long partStart,
+      long partEnd,
+      FileChannel spool,
+      long spoolOffset)
+      throws IOException {
+    IOException lastFailure = null;
+    for (int attempt = 1; attempt <= MAX_PART_ATTEMPTS; attempt++) {
+      final InputStream part =
+          objectStore.downloadFileRangeAsStream(fileName, bucketName, partStart, partEnd, eTag);
+      if (part == null) {
+        lastFailure = new IOException("Ranged GET returned no data");
+        continue;
+      }
+      try {
+        final long copied = copy(part, spool, spoolOffset);
+        if (copied != partEnd - partStart + 1) {
+          throw new IOException("Expected " + (partEnd - partStart + 1) + " bytes, got " + copied);
+        }
+        return;
+      } catch (ClosedChannelException e) {
+        // the stream was closed by its reader, stop without retrying
+        abort(part);
+        throw e;
+      } catch (IOException e) {
+        abort(part);
+        lastFailure = e;
+        log.warn(
+            "Attempt {} to download bytes {}-{} of file {} failed: {}",
+            attempt,
+            partStart,
+            partEnd,
+            fileName,
+            e.getMessage());
+      } finally {
+        part.close();
+      }
+    }
+    throw lastFailure;
+  }
+
+  /** Drop the connection of a failed part instead of draining it on close. */
+  private static void abort(InputStream part) {
+    if (part instanceof Abortable abortable) {
+      abortable.abort();
+    }
+  }
+
+  private static long copy(InputStream source, FileChannel spool, long spoolOffset)
+      throws IOException {
+    final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    long position = spoolOffset;
+    int read;
+    while ((read = source.read(buffer)) > 0) {
+      final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+      while (chunk.hasRemaining()) {
+        position += spool.write(chunk, position);
+      }
+    }
+    return position - spoolOffset;
+  }
+}
@@ -0,0 +1,219 @@
+package com.nordstrom.finance.dataintegration.ertm.service.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stream over an S3 object range that is fetched as fixed-size parts by several concurrent ranged
+ * GETs into a local spool file. Parts are claimed in file order, and reads are served from the
+ * spool as soon as the part under the read position is complete, so parsing starts while later
+ * parts are still downloading. The spool file is deleted when the stream is closed.
+ */
+@Slf4j
+final class SpoolFileInputStream extends InputStream {
+
+  /**
+   * Fetches bytes {@code firstByte..lastByte} of the object into the spool at {@code spoolOffset}.
+   */
+  @FunctionalInterface
+  interface PartFetcher {
+    void fetch(long firstByte, long lastByte, FileChannel spool, long spoolOffset)
+        throws IOException;
+  }
+
+  private final String description;
+  private final long firstByte;
+  private final long endByte;
+  private final long partSize;
+  private final int partCount;
+  private final PartFetcher fetcher;
+  private final FileChannel spool;
+  private final AtomicInteger nextPart = new AtomicInteger();
+  private final boolean[] partDone;
+  private final long startTime = System.currentTimeMillis();
+  private final Runnable onComplete;
+
+  private int completedParts;
+  private IOException failure;
+  private int failedPart = Integer.MAX_VALUE;
+  private volatile boolean closed;
+  private long position;
+
+  /**
+   * @param description object name used in log and error messages
+   * @param firstByte offset of the first byte of the range in the object
+   * @param endByte offset after the last byte of the range (the object size for a suffix range)
+   * @param partSize bytes per ranged GET
+   * @param concurrency parts downloaded at the same time
+   * @param spoolDirectory directory of the spool file
+   * @param executor runs the part downloads
+   * @param fetcher downloads one part
+   * @param onComplete called once every part is in the spool
+   */
+  SpoolFileInputStream(
+      String description,
+      long firstByte,
+      long endByte,
+      long partSize,
+      int concurrency,
+      Path spoolDirectory,
+      Executor executor,
+      PartFetcher fetcher,
+      Runnable onComplete)
+      throws IOException {
+    this.description = description;
+    this.firstByte = firstByte;
+    this.endByte = endByte;
+    this.partSize = partSize;
+    this.partCount = (int) ((endByte - firstByte + partSize - 1) / partSize);
+    this.partDone = new boolean[partCount];
+    this.fetcher = fetcher;
+    this.onComplete = onComplete;
+    this.position = firstByte;
+
+    final Path spoolFile = Files.createTempFile(spoolDirectory, "ertm-", ".spool");
+    this.spool =
+        FileChannel.open(
+            spoolFile,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.DELETE_ON_CLOSE);
+
+    final int workers = Math.max(1, Math.min(concurrency, partCount));
+    try {
+      for (int i = 0; i < workers; i++) {
+        executor.execute(this::downloadParts);
+      }
+    } catch (RuntimeException e) {
+      fail(0, new IOException("Unable to start download of " + description, e));
+    }
+  }
+
+  /**
+   * Worker loop: claim the next part in file order until all are claimed or the stream fails. Parts
+   * claimed before a failure are still fetched, so the prefix before the failed part stays
+   * readable.
+   */
+  private void downloadParts() {
+    int part;
+    while (!closed && !hasFailed() && (part = nextPart.getAndIncrement()) < partCount) {
+      final long partStart = firstByte + part * partSize;
+      final long partEnd = Math.min(partStart + partSize, endByte) - 1;
+      try {
+        fetcher.fetch(partStart, partEnd, spool, partStart - firstByte);
+        partCompleted(part);
+      } catch (IOException | RuntimeException e) {
+        if (!closed) {
+          fail(
+              part,
+              new IOException(
+                  "Failed to download bytes " + partStart + "-" + partEnd + " of " + description,
+                  e));
+        }
+      }
+    }
+  }
+
+  private synchronized boolean hasFailed() {
+    return failure != null;
+  }
+
+  /** Record a failed part; reads fail from the earliest failed part on. */
+  private synchronized void fail(int part, IOException e) {
+    if (part < failedPart) {
+      failedPart = part;
+      failure = e;
+    }
+    log.error(e.getMessage(), e);
+    notifyAll();
+  }
+
+  private void partCompleted(int part) {
+    final boolean allDone;
+    synchronized (this) {
+      partDone[part] = true;
+      allDone = ++completedParts == partCount;
+      notifyAll();
+    }
+    if (allDone) {
+      final long duration = System.currentTimeMillis() - startTime;
+      log.info(
+          "Downloaded {} bytes of {} in {} parts in {}ms",
+          endByte - firstByte,
+          description,
+          partCount,
+          duration);
+      onComplete.run();
+    }
+  }
+
+  /** Block until the given part is in the spool. */
+  private synchronized void awaitPart(int part) throws IOException {
+    while (!partDone[part]) {
+      if (part >= failedPart) {
+        throw failure;
+      }
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for download of " + description, e);
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] single = new byte[1];
+    final int read = read(single, 0, 1);
+    return read < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= endByte) {
+      return -1;
+    }
+    final int part = (int) ((position - firstByte) / partSize);
+    awaitPart(part);
+    final long partEnd = Math.min(firstByte + (part + 1) * partSize, endByte);
+    final ByteBuffer target = ByteBuffer.wrap(b, off, (int) Math.min(len, partEnd - position));
+    int read = 0;
+    while (target.hasRemaining()) {
+      final int n = spool.read(target, position - firstByte + read);
+      if (n < 0) {
+        throw new IOException("Spool file of " + description + " is shorter than expected");
+      }
+      read += n;
+    }
+    position += read;
+    return read;
+  }
+
+  /** Stop outstanding downloads and delete the spool file. */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    spool.close();
+  }
+}
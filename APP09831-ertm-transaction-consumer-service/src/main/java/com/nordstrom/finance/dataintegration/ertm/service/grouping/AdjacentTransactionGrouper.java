@@ -0,0 +1,128 @@
+package com.nordstrom.finance.dataintegration.ertm.service.grouping;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+
+/**
+ * Single pass from parsed records to batches of whole transactions. A transaction ends where the
+ * transaction id changes, and a batch is closed on the first transaction boundary after it reached
+ * the batch size, so batches hold complete transactions and nothing overflows into the next one.
+ * The record that starts the next batch is held back until then.
+ *
+ * <p>The input is expected to be grouped by transaction id (see {@code file.processing.sort.mode}).
+ * Unless the input is known to be grouped, lines of a transaction that reappear later in the same
+ * batch are still merged into it, so ungrouped input never yields two groups of one transaction
+ * within a batch; such transactions are counted in {@link #ungroupedTransactionCount()}. Input
+ * checked or sorted by the {@code ExternalTransactionSorter} keeps only the transaction being read.
+ */
+public final class AdjacentTransactionGrouper implements Iterator<TransactionBatch> {
+
+  private final Iterator<RetailTransactionLineDTO> records;
+  private final IntSupplier batchSize;
+  // null if the input is known to be grouped
+  private final Map<String, TransactionGroup> batchTransactions;
+
+  private RetailTransactionLineDTO pending;
+  private long recordsRead;
+  private long ungroupedTransactions;
+
+  /**
+   * @param records parsed records, grouped by transaction id
+   * @param batchSize lines after which a batch is closed on the next transaction boundary
+   */
+  public AdjacentTransactionGrouper(Iterator<RetailTransactionLineDTO> records, int batchSize) {
+    this(records, () -> batchSize);
+  }
+
+  /**
+   * @param records parsed records, grouped by transaction id
+   * @param batchSize read at the start of every batch, so the size can change while a file is read
+   */
+  public AdjacentTransactionGrouper(
+      Iterator<RetailTransactionLineDTO> records, IntSupplier batchSize) {
+    this(records, batchSize, false);
+  }
+
+  /**
+   * @param records parsed records
+   * @param batchSize read at the start of every batch, so the size can change while a file is read
+   * @param grouped whether the records are known to be grouped by transaction id, so reappearing
+   *     lines need not be merged
+   */
+  public AdjacentTransactionGrouper(
+      Iterator<RetailTransactionLineDTO> records, IntSupplier batchSize, boolean grouped) {
+    this.records = records;
+    this.batchSize = batchSize;
+    this.batchTransactions = grouped ? null : new HashMap<>();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return pending != null || records.hasNext();
+  }
+
+  @Override
+  public TransactionBatch next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final int size = Math.max(1, batchSize.getAsInt());
+    final List<TransactionGroup> transactions = new ArrayList<>();
+    if (batchTransactions != null) {
+      batchTransactions.clear();
+    }
+    int recordCount = 0;
+    TransactionGroup current = null;
+    RetailTransactionLineDTO record = pending != null ? pending : read();
+    pending = null;
+
+    while (true) {
+      final String transactionId = record.getSourceReferenceTransactionId();
+      if (current == null || !Objects.equals(current.transactionId(), transactionId)) {
+        if (recordCount >= size) {
+          pending = record;
+          return new TransactionBatch(transactions, recordCount, record.getSourceByteOffset());
+        }
+        current = batchTransactions == null ? null : batchTransactions.get(transactionId);
+        if (current == null) {
+          current = new TransactionGroup(transactionId, new ArrayList<>());
+          transactions.add(current);
+          if (batchTransactions != null) {
+            batchTransactions.put(transactionId, current);
+          }
+        } else {
+          ungroupedTransactions++;
+        }
+      }
+      current.lines().add(record);
+      recordCount++;
+      if (!records.hasNext()) {
+        return new TransactionBatch(transactions, recordCount, record.getSourceByteOffset());
+      }
+      record = read();
+    }
+  }
+
+  /** Records taken from the input so far, including the one held back for the next batch. */
+  public long recordsRead() {
+    return recordsRead;
+  }
+
+  /** Times a transaction id came back after other transactions within a batch. */
+  public long ungroupedTransactionCount() {
+    return ungroupedTransactions;
+  }
+
+  private RetailTransactionLineDTO read() {
+    final RetailTransactionLineDTO record = records.next();
+    recordsRead++;
+    return record;
+  }
+}
@@ -0,0 +1,15 @@
+package com.nordstrom.finance.dataintegration.ertm.service.grouping;
+
+import java.util.List;
+
+/**
+ * Batch of whole transactions. A batch never ends inside a transaction, so nothing carries over
+ * into the next batch.
+ *
+ * @param transactions the transactions in file order
+ * @param recordCount number of lines in the batch
+ * @param resumeOffset source offset of the first record after the batch, or of the last record of
+ *     the batch at the end of the input
+ */
+public record TransactionBatch(
+    List<TransactionGroup> transactions, int recordCount, long resumeOffset) {}
@@ -0,0 +1,12 @@
+package com.nordstrom.finance.dataintegration.ertm.service.grouping;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import java.util.List;
+
+/**
+ * All lines of one transaction, in file order.
+ *
+ * @param transactionId the source reference transaction id
+ * @param lines the lines of the transaction
+ */
+public record TransactionGroup(String transactionId, List<RetailTransactionLineDTO> lines) {}
@@ -0,0 +1,188 @@
+package com.nordstrom.finance.dataintegration.ertm.service.lease;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.config.AsyncConfig;
+import com.nordstrom.finance.dataintegration.ertm.database.service.TransactionDBService;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+/**
+ * Claims source files for this pod, so several consumer pods can work through the same bucket
+ * without processing a file twice. A file is processed only after its lease row in {@code
+ * file_processing_lease} was claimed; a heartbeat extends all leases of the pod every {@code
+ * heartbeat-seconds}, and the lease of a pod that died expires after {@code ttl-seconds}, after
+ * which any pod may claim the file on its next run.
+ *
+ * <p>While leasing is disabled every claim succeeds without touching the database.
+ */
+@Slf4j
+@Service
+public class FileLeaseManager {
+
+  private final TransactionDBService transactionDBService;
+  private final MetricsClient metricsClient;
+  private final TaskScheduler leaseScheduler;
+  private final boolean enabled;
+  private final int ttlSeconds;
+  private final int heartbeatSeconds;
+  private final String ownerId;
+
+  // claims, releases and heartbeats hold this lock, so a heartbeat counts exactly the held leases
+  private final Set<String> heldLeases = new HashSet<>();
+  private ScheduledFuture<?> heartbeat;
+
+  public FileLeaseManager(
+      TransactionDBService transactionDBService,
+      MetricsClient metricsClient,
+      @Qualifier(AsyncConfig.FILE_LEASE_SCHEDULER_BEAN_NAME) TaskScheduler leaseScheduler,
+      @Value("${file.processing.lease.enabled:false}") boolean enabled,
+      @Value("${file.processing.lease.ttl-seconds:300}") int ttlSeconds,
+      @Value("${file.processing.lease.heartbeat-seconds:60}") int heartbeatSeconds,
+      @Value("${file.processing.lease.owner-id:${HOSTNAME:ertm}}") String ownerName) {
+    if (heartbeatSeconds <= 0 || heartbeatSeconds >= ttlSeconds) {
+      throw new IllegalArgumentException(
+          "file.processing.lease.heartbeat-seconds must be positive and below ttl-seconds");
+    }
+    this.transactionDBService = transactionDBService;
+    this.metricsClient = metricsClient;
+    this.leaseScheduler = leaseScheduler;
+    this.enabled = enabled;
+    this.ttlSeconds = ttlSeconds;
+    this.heartbeatSeconds = heartbeatSeconds;
+    // a restarted pod keeps its host name, but must not inherit the leases of its predecessor
+    this.ownerId = ownerName + "-" + UUID.randomUUID().toString().substring(0, 8);
+  }
+
+  @PostConstruct
+  void startHeartbeat() {
+    if (enabled) {
+      log.info(
+          "File leasing enabled for owner {}: lease {} s, heartbeat every {} s",
+          ownerId,
+          ttlSeconds,
+          heartbeatSeconds);
+      heartbeat =
+          leaseScheduler.scheduleAtFixedRate(this::heartbeat, Duration.ofSeconds(heartbeatSeconds));
+    }
+  }
+
+  /** Whether files are claimed before they are processed. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Claim a file for this pod. A failed database call counts as a lost claim, so the file is left
+   * for a later run instead of being processed without a lease.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   * @return true if this pod may process the file
+   */
+  public boolean tryAcquire(String sourceBucket, String fileKey) {
+    if (!enabled) {
+      return true;
+    }
+    final boolean acquired;
+    synchronized (heldLeases) {
+      try {
+        acquired = transactionDBService.tryAcquireLease(sourceBucket, fileKey, ownerId, ttlSeconds);
+      } catch (RuntimeException ex) {
+        log.warn(
+            "Could not claim file {}, leaving it for a later run: {}", fileKey, ex.getMessage());
+        return false;
+      }
+      if (acquired) {
+        heldLeases.add(leaseKey(sourceBucket, fileKey));
+      }
+    }
+    if (acquired) {
+      log.info("Claimed file {} for owner {}", fileKey, ownerId);
+    } else {
+      log.info("File {} is claimed by another consumer, skipping it", fileKey);
+    }
+    return acquired;
+  }
+
+  /**
+   * Give up the lease of a file once it is processed or failed.
+   *
+   * @param sourceBucket bucket of the file
+   * @param fileKey key of the file
+   */
+  public void release(String sourceBucket, String fileKey) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (heldLeases) {
+      if (heldLeases.remove(leaseKey(sourceBucket, fileKey))) {
+        transactionDBService.releaseLease(sourceBucket, fileKey, ownerId);
+      }
+    }
+  }
+
+  /**
+   * Extend every lease of this pod. Fewer renewed rows than held leases means a lease expired and
+   * was claimed by another pod, e.g. after a long pause of this JVM.
+   */
+  void heartbeat() {
+    final int held;
+    final int renewed;
+    try {
+      synchronized (heldLeases) {
+        held = heldLeases.size();
+        if (held == 0) {
+          return;
+        }
+        renewed = transactionDBService.renewLeases(ownerId, ttlSeconds);
+      }
+      if (renewed < held) {
+        log.warn(
+            "Owner {} renewed {} of {} file leases; the other files may be processed twice",
+            ownerId,
+            renewed,
+            held);
+        metricsClient.count(Metric.FILE_LEASE_LOST_COUNT.getMetricName(), held - renewed);
+      } else {
+        log.debug("Owner {} renewed {} file leases", ownerId, renewed);
+      }
+    } catch (RuntimeException ex) {
+      log.warn("Could not renew the file leases of owner {}: {}", ownerId, ex.getMessage(), ex);
+    }
+  }
+
+  String ownerId() {
+    return ownerId;
+  }
+
+  @PreDestroy
+  void stopHeartbeat() {
+    if (heartbeat != null) {
+      heartbeat.cancel(false);
+    }
+    final List<String> leases;
+    synchronized (heldLeases) {
+      leases = List.copyOf(heldLeases);
+    }
+    for (String lease : leases) {
+      final int separator = lease.indexOf('/');
+      release(lease.substring(0, separator), lease.substring(separator + 1));
+    }
+  }
+
+  private static String leaseKey(String sourceBucket, String fileKey) {
+    return sourceBucket + "/" + fileKey;
+  }
+}
@@ -0,0 +1,249 @@
+package com.nordstrom.finance.dataintegration.ertm.service.pipeline;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.exception.PipelineStageException;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Linear chain of processing stages connected by bounded hand-off queues. Every stage runs on its
+ * own worker thread, so a slow stage (typically persistence) overlaps with the stages in front of
+ * it, while the bounded queues apply backpressure to the producer and cap the number of batches
+ * held in memory at roughly {@code stages * (queueCapacity + 1)}.
+ *
+ * <p>The first failure in any stage stops all workers; the producer sees it as a {@link
+ * PipelineStageException} on its next {@link #submit} or on {@link #finish}.
+ *
+ * @param <I> type of the items submitted to the first stage
+ */
+@Slf4j
+public final class StagedPipeline<I> {
+
+  /** Work done by a stage; a {@code null} result is dropped instead of handed to the next one. */
+  @FunctionalInterface
+  public interface StageFunction<T, R> {
+    R apply(T input) throws Exception;
+  }
+
+  /** Work done by the last stage of the pipeline. */
+  @FunctionalInterface
+  public interface StageConsumer<T> {
+    void accept(T input) throws Exception;
+  }
+
+  private static final Object END_OF_STREAM = new Object();
+  private static final long HAND_OFF_POLL_MILLIS = 100;
+
+  private final List<Stage> stages;
+  private final List<BlockingQueue<Object>> queues;
+  private final MetricsClient metricsClient;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final CountDownLatch completed;
+
+  private StagedPipeline(List<Stage> stages, int queueCapacity, MetricsClient metricsClient) {
+    this.stages = List.copyOf(stages);
+    this.metricsClient = metricsClient;
+    this.completed = new CountDownLatch(stages.size());
+    this.queues = new ArrayList<>(stages.size());
+    for (int i = 0; i < stages.size(); i++) {
+      queues.add(new ArrayBlockingQueue<>(Math.max(1, queueCapacity)));
+    }
+  }
+
+  /**
+   * Starts describing a pipeline whose stage workers run on {@code executor}. The executor must
+   * have a free thread for every stage, otherwise the pipeline stalls.
+   */
+  public static <I> Builder<I, I> builder(
+      Executor executor, int queueCapacity, MetricsClient metricsClient) {
+    return new Builder<>(executor, queueCapacity, metricsClient);
+  }
+
+  /**
+   * Hands an item to the first stage, blocking while its queue is full.
+   *
+   * @param item the item to process
+   * @param records number of source records the item represents, used for throughput metrics
+   * @throws PipelineStageException if a stage has failed
+   * @throws InterruptedException if interrupted while waiting for queue capacity
+   */
+  public void submit(I item, int records) throws InterruptedException {
+    throwIfFailed();
+    if (!handOff(queues.get(0), new Envelope(item, records), stages.get(0).name())) {
+      throwIfFailed();
+    }
+  }
+
+  /**
+   * Signals the end of input and waits until every stage has drained its queue.
+   *
+   * @throws PipelineStageException if a stage has failed
+   * @throws InterruptedException if interrupted while waiting for the stages
+   */
+  public void finish() throws InterruptedException {
+    handOff(queues.get(0), END_OF_STREAM, stages.get(0).name());
+    completed.await();
+    throwIfFailed();
+  }
+
+  /** Stops all stages after a producer-side failure and waits for the workers to exit. */
+  public void abort(Throwable cause) {
+    failure.compareAndSet(null, cause);
+    try {
+      completed.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Records timing and throughput for a stage that runs outside the pipeline (e.g. parsing). */
+  public void recordStage(String stageName, long durationMs, int records) {
+    metricsClient.recordExecutionTime(
+        Metric.PIPELINE_STAGE_TIME.getMetricName(),
+        durationMs,
+        MetricTag.PIPELINE_STAGE.getTag(stageName));
+    metricsClient.count(
+        Metric.PIPELINE_STAGE_RECORDS_COUNT.getMetricName(),
+        records,
+        MetricTag.PIPELINE_STAGE.getTag(stageName));
+  }
+
+  private void start(Executor executor) {
+    for (int i = 0; i < stages.size(); i++) {
+      final int stageIndex = i;
+      executor.execute(() -> runStage(stageIndex));
+    }
+  }
+
+  /** Worker loop: take from the stage queue, apply the stage, hand the result downstream. */
+  private void runStage(int stageIndex) {
+    final Stage stage = stages.get(stageIndex);
+    final BlockingQueue<Object> input = queues.get(stageIndex);
+    final boolean isLastStage = stageIndex == stages.size() - 1;
+
+    try {
+      while (failure.get() == null) {
+        final Object next = input.poll(HAND_OFF_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (next == null) {
+          continue;
+        }
+        if (next == END_OF_STREAM) {
+          if (!isLastStage) {
+            handOff(queues.get(stageIndex + 1), END_OF_STREAM, stages.get(stageIndex + 1).name());
+          }
+          return;
+        }
+
+        recordQueueDepth(stage.name(), input.size());
+        final Envelope envelope = (Envelope) next;
+        final long stageStartTime = System.currentTimeMillis();
+        final Object result = stage.function().apply(envelope.payload());
+        recordStage(stage.name(), System.currentTimeMillis() - stageStartTime, envelope.records());
+
+        if (!isLastStage && result != null) {
+          handOff(
+              queues.get(stageIndex + 1),
+              new Envelope(result, envelope.records()),
+              stages.get(stageIndex + 1).name());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(
+          null, new PipelineStageException("Stage '" + stage.name() + "' was interrupted", e));
+    } catch (Exception e) {
+      log.error("Pipeline stage '{}' failed: {}", stage.name(), e.getMessage(), e);
+      failure.compareAndSet(
+          null, new PipelineStageException("Stage '" + stage.name() + "' failed", e));
+    } finally {
+      completed.countDown();
+    }
+  }
+
+  /**
+   * Puts an item on a queue, waiting for capacity. Gives up and returns {@code false} once any
+   * stage has failed so that neither the producer nor a worker blocks on a dead consumer.
+   */
+  private boolean handOff(BlockingQueue<Object> queue, Object item, String consumerStage)
+      throws InterruptedException {
+    while (!queue.offer(item, HAND_OFF_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+      if (failure.get() != null) {
+        return false;
+      }
+    }
+    recordQueueDepth(consumerStage, queue.size());
+    return true;
+  }
+
+  private void recordQueueDepth(String stageName, int depth) {
+    metricsClient.recordGaugeValue(
+        Metric.PIPELINE_QUEUE_DEPTH.getMetricName(),
+        depth,
+        MetricTag.PIPELINE_STAGE.getTag(stageName));
+  }
+
+  private void throwIfFailed() {
+    final Throwable cause = failure.get();
+    if (cause instanceof PipelineStageException stageException) {
+      throw stageException;
+    }
+    if (cause != null) {
+      throw new PipelineStageException("Pipeline aborted: " + cause.getMessage(), cause);
+    }
+  }
+
+  private record Stage(String name, StageFunction<Object, Object> function) {}
+
+  private record Envelope(Object payload, int records) {}
+
+  /**
+   * Type-safe description of the stage chain.
+   *
+   * @param <I> type accepted by the first stage
+   * @param <C> type produced by the last stage added so far
+   */
+  public static final class Builder<I, C> {
+    private final Executor executor;
+    private final int queueCapacity;
+    private final MetricsClient metricsClient;
+    private final List<Stage> stages = new ArrayList<>();
+
+    private Builder(Executor executor, int queueCapacity, MetricsClient metricsClient) {
+      this.executor = executor;
+      this.queueCapacity = queueCapacity;
+      this.metricsClient = metricsClient;
+    }
+
+    /** Appends an intermediate stage. */
+    @SuppressWarnings("unchecked")
+    public <N> Builder<I, N> stage(String stageName, StageFunction<? super C, N> function) {
+      stages.add(new Stage(stageName, (StageFunction<Object, Object>) function));
+      return (Builder<I, N>) this;
+    }
+
+    /** Appends the final stage and starts all stage workers. */
+    public StagedPipeline<I> sink(String stageName, StageConsumer<? super C> consumer) {
+      stages.add(
+          new Stage(
+              stageName,
+              input -> {
+                @SuppressWarnings("unchecked")
+                final C typedInput = (C) input;
+                consumer.accept(typedInput);
+                return null;
+              }));
+      final StagedPipeline<I> pipeline = new StagedPipeline<>(stages, queueCapacity, metricsClient);
+      pipeline.start(executor);
+      return pipeline;
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package com.nordstrom.finance.dataintegration.ertm.service.quarantine;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.exception.FileMappingException;
+import com.nordstrom.finance.dataintegration.ertm.exception.FileParseException;
+import com.nordstrom.finance.dataintegration.ertm.exception.RejectedRecordException;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rejected records of one source file. Records the parser rejects and transactions the mapper fails
+ * on are appended to a local reject file (created on the first reject) instead of failing the file.
+ * A transaction is stored whole or not at all: once one of its records is rejected, its other
+ * records are rejected with it.
+ *
+ * <p>The file fails once more than {@code max-rejected-records} records were rejected, or at the
+ * end when more than {@code max-rejected-percent} of its records were.
+ *
+ * <p>Line numbers and byte offsets in the reject file are those of the source file. Records parsed
+ * in chunks are shifted by the position of their chunk (see {@link #guard(Iterator, long, long)}),
+ * and records of a copy sorted by transaction id are mapped back through the {@link
+ * SourcePositions} of the copy. For a file resumed from a checkpoint they count from the start of
+ * the resumed remainder.
+ *
+ * <p>Rejects may come from several chunk workers or pipeline stages of the same file at once.
+ */
+@Slf4j
+public class RecordQuarantine implements Closeable {
+
+  static final String HEADER =
+      "LINE_NUMBER|SOURCE_BYTE_OFFSET|SOURCE_REFERENCE_TRANSACTION_ID|SOURCE_REFERENCE_LINE_ID|ERROR";
+  static final String REJECTED_WITH_TRANSACTION = "Another record of the transaction was rejected";
+
+  private final String fileName;
+  private final boolean enabled;
+  private final long maxRejectedRecords;
+  private final double maxRejectedPercent;
+  private final Path spoolDirectory;
+
+  private final Set<String> rejectedTransactionIds = ConcurrentHashMap.newKeySet();
+  // guarded by this
+  private long rejectedRecords;
+  private long unparsedRecords;
+  private Path rejectFile;
+  private BufferedWriter writer;
+  private SourcePositions sourcePositions;
+
+  RecordQuarantine(
+      String fileName,
+      boolean enabled,
+      long maxRejectedRecords,
+      double maxRejectedPercent,
+      Path spoolDirectory) {
+    this.fileName = fileName;
+    this.enabled = enabled;
+    this.maxRejectedRecords = maxRejectedRecords;
+    this.maxRejectedPercent = maxRejectedPercent;
+    this.spoolDirectory = spoolDirectory;
+  }
+
+  /** Quarantine that lets the first bad record fail the file, for data without a source file. */
+  public static RecordQuarantine disabled() {
+    return new RecordQuarantine(null, false, 0, 0, null);
+  }
+
+  /** Whether bad records are quarantined; otherwise the first one fails the file. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Wrap the record iterator of a parser so that rejected records are written to the reject file
+   * and skipped.
+   */
+  public Iterator<RetailTransactionLineDTO> guard(Iterator<RetailTransactionLineDTO> records) {
+    return guard(records, 0, 0);
+  }
+
+  /**
+   * Wrap the record iterator of a parser reading one chunk of the file. The line numbers and byte
+   * offsets the parser reports count from the start of the chunk stream and are shifted to those of
+   * the file.
+   *
+   * @param records records of the chunk
+   * @param lineShift lines of the file before the chunk, header row excluded
+   * @param byteShift bytes of the file before the chunk, header row excluded
+   */
+  public Iterator<RetailTransactionLineDTO> guard(
+      Iterator<RetailTransactionLineDTO> records, long lineShift, long byteShift) {
+    if (!enabled) {
+      return records;
+    }
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        while (true) {
+          try {
+            return records.hasNext();
+          } catch (RejectedRecordException ex) {
+            rejectRecord(ex, lineShift, byteShift);
+          }
+        }
+      }
+
+      @Override
+      public RetailTransactionLineDTO next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final RetailTransactionLineDTO record = records.next();
+        if (lineShift != 0 || byteShift != 0) {
+          record.setSourceLineNumber(record.getSourceLineNumber() + lineShift);
+          record.setSourceByteOffset(record.getSourceByteOffset() + byteShift);
+        }
+        return record;
+      }
+    };
+  }
+
+  /**
+   * Report rejects at their position in the source file while a rewritten copy of it is processed.
+   *
+   * @param sourcePositions positions of the records of the copy; null once the copy is done
+   */
+  public synchronized void mapPositions(SourcePositions sourcePositions) {
+    this.sourcePositions = sourcePositions;
+  }
+
+  /**
+   * Drop the transactions of a batch that have a rejected record and write their remaining records
+   * to the reject file.
+   */
+  public List<TransactionGroup> dropRejectedTransactions(List<TransactionGroup> transactions) {
+    if (rejectedTransactionIds.isEmpty()) {
+      return transactions;
+    }
+    final List<TransactionGroup> accepted = new ArrayList<>(transactions.size());
+    for (TransactionGroup transaction : transactions) {
+      if (rejectedTransactionIds.contains(transaction.transactionId())) {
+        rejectLines(transaction.lines(), REJECTED_WITH_TRANSACTION);
+      } else {
+        accepted.add(transaction);
+      }
+    }
+    return accepted;
+  }
+
+  /**
+   * Reject every record of a transaction the mapper failed on.
+   *
+   * @param lines records of the transaction that were about to be stored
+   * @param error mapping failure
+   */
+  public void rejectTransaction(List<RetailTransactionLineDTO> lines, RuntimeException error) {
+    final String transactionId =
+        lines.isEmpty() ? null : lines.get(0).getSourceReferenceTransactionId();
+    log.warn(
+        "Rejecting transaction {} of file {}: {}", transactionId, fileName, error.getMessage());
+    if (transactionId != null) {
+      rejectedTransactionIds.add(transactionId);
+    }
+    rejectLines(lines, String.valueOf(error.getMessage()));
+  }
+
+  /**
+   * Check the relative error budget once the file is read.
+   *
+   * @param recordsRead records the parser returned, excluding the ones it rejected
+   * @throws FileMappingException if too large a share of the records was rejected
+   */
+  public synchronized void finish(long recordsRead) throws FileMappingException {
+    if (rejectedRecords == 0) {
+      return;
+    }
+    final double rejectedPercent = rejectedRecords * 100.0 / (recordsRead + unparsedRecords);
+    log.warn(
+        "File {}: {} of {} records rejected ({}%)",
+        fileName,
+        rejectedRecords,
+        recordsRead + unparsedRecords,
+        String.format("%.3f", rejectedPercent));
+    if (rejectedPercent > maxRejectedPercent) {
+      throw new FileMappingException(
+          String.format(
+              "File %s exceeds the error budget: %.3f%% of its records were rejected, at most"
+                  + " %.3f%% allowed",
+              fileName, rejectedPercent, maxRejectedPercent));
+    }
+  }
+
+  /** Number of records written to the reject file. */
+  public synchronized long rejectedRecords() {
+    return rejectedRecords;
+  }
+
+  String fileName() {
+    return fileName;
+  }
+
+  /** Flush and return the reject file, or {@code null} if nothing was rejected. */
+  synchronized Path flushRejectFile() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    }
+    return rejectFile;
+  }
+
+  /** Close and delete the local reject file. */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      if (writer != null) {
+        writer.close();
+      }
+    } finally {
+      writer = null;
+      if (rejectFile != null) {
+        Files.deleteIfExists(rejectFile);
+      }
+    }
+  }
+
+  private void rejectRecord(RejectedRecordException ex, long lineShift, long byteShift) {
+    log.warn(
+        "Rejecting line {} of file {}: {}",
+        ex.getLineNumber() + lineShift,
+        fileName,
+        ex.getMessage());
+    if (ex.getSourceReferenceTransactionId() != null) {
+      rejectedTransactionIds.add(ex.getSourceReferenceTransactionId());
+    }
+    synchronized (this) {
+      unparsedRecords++;
+      write(
+          ex.getLineNumber() + lineShift,
+          ex.getSourceByteOffset() + byteShift,
+          ex.getSourceReferenceTransactionId(),
+          null,
+          ex.getMessage());
+    }
+  }
+
+  private synchronized void rejectLines(List<RetailTransactionLineDTO> lines, String error) {
+    for (RetailTransactionLineDTO line : lines) {
+      write(
+          line.getSourceLineNumber(),
+          line.getSourceByteOffset(),
+          line.getSourceReferenceTransactionId(),
+          line.getSourceReferenceLineId(),
+          error);
+    }
+  }
+
+  private void write(
+      long lineNumber, long byteOffset, String transactionId, String lineId, String error) {
+    try {
+      if (writer == null) {
+        rejectFile = Files.createTempFile(spoolDirectory, "ertm-", ".rejects");
+        writer = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+        writer.write(HEADER);
+        writer.newLine();
+      }
+      if (sourcePositions != null && lineNumber > 0) {
+        final SourcePositions.SourcePosition position = sourcePositions.of(lineNumber, byteOffset);
+        lineNumber = position.lineNumber();
+        byteOffset = position.byteOffset();
+      }
+      writer.write(
+          String.join(
+              "|",
+              String.valueOf(lineNumber),
+              String.valueOf(byteOffset),
+              quote(transactionId),
+              quote(lineId),
+              quote(error)));
+      writer.newLine();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing rejected records of file " + fileName, e);
+    }
+    rejectedRecords++;
+    if (rejectedRecords > maxRejectedRecords) {
+      throw new FileParseException(
+          String.format(
+              "File %s exceeds the error budget: more than %d records were rejected",
+              fileName, maxRejectedRecords));
+    }
+  }
+
+  /** Quote a value the way the source files do, so the reject file reads like one. */
+  private static String quote(String value) {
+    return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+}
@@ -0,0 +1,109 @@
+package com.nordstrom.finance.dataintegration.ertm.service.quarantine;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsCommonTag;
+import com.nordstrom.finance.dataintegration.common.store.ObjectStore;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricErrorCode;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.io.IOException;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Opens the {@link RecordQuarantine} of every processed file and publishes its rejected records.
+ * With {@code file.processing.quarantine.enabled} records that fail parsing or mapping are set
+ * aside within the error budget; the reject file is uploaded next to the archived source file as
+ * {@code <file key>.rejects.csv}. Without it the first bad record fails the file, as before.
+ */
+@Slf4j
+@Service
+public class RecordQuarantineService {
+
+  static final String REJECT_FILE_SUFFIX = ".rejects.csv";
+
+  private final MetricsClient metricsClient;
+  private final ObjectStore objectStore;
+  private final boolean enabled;
+  private final long maxRejectedRecords;
+  private final double maxRejectedPercent;
+  private final Path spoolDirectory;
+
+  public RecordQuarantineService(
+      MetricsClient metricsClient,
+      ObjectStore objectStore,
+      @Value("${file.processing.quarantine.enabled:false}") boolean enabled,
+      @Value("${file.processing.quarantine.max-rejected-records:1000}") long maxRejectedRecords,
+      @Value("${file.processing.quarantine.max-rejected-percent:1.0}") double maxRejectedPercent,
+      @Value("${file.processing.spool-directory:${java.io.tmpdir}}") String spoolDirectory) {
+    if (enabled && (maxRejectedRecords < 0 || maxRejectedPercent < 0)) {
+      throw new IllegalArgumentException(
+          "file.processing.quarantine.max-rejected-records and max-rejected-percent must not be"
+              + " negative");
+    }
+    this.metricsClient = metricsClient;
+    this.objectStore = objectStore;
+    this.enabled = enabled;
+    this.maxRejectedRecords = maxRejectedRecords;
+    this.maxRejectedPercent = maxRejectedPercent;
+    this.spoolDirectory = Path.of(spoolDirectory);
+  }
+
+  /**
+   * Start quarantining the records of a file. The caller closes the quarantine once it is
+   * published.
+   *
+   * @param fileName key of the source file
+   * @return quarantine of the file; a disabled one if quarantining is off
+   */
+  public RecordQuarantine open(String fileName) {
+    return new RecordQuarantine(
+        fileName, enabled, maxRejectedRecords, maxRejectedPercent, spoolDirectory);
+  }
+
+  /**
+   * Upload the rejected records of a file to the archive bucket. Files without rejects upload
+   * nothing.
+   *
+   * @param quarantine quarantine of the file
+   * @param processedBucket bucket the source file is archived to
+   * @return false if there were rejected records and they could not be uploaded
+   */
+  public boolean publish(RecordQuarantine quarantine, String processedBucket) {
+    final long rejectedRecords = quarantine.rejectedRecords();
+    if (rejectedRecords == 0) {
+      return true;
+    }
+    final String fileName = quarantine.fileName();
+    metricsClient.count(
+        Metric.FILE_REJECTED_RECORDS_COUNT.getMetricName(),
+        rejectedRecords,
+        MetricTag.FILE_NAME.getTag(fileName));
+
+    final String rejectKey = fileName + REJECT_FILE_SUFFIX;
+    boolean uploaded;
+    try {
+      uploaded =
+          objectStore.uploadLocalFile(quarantine.flushRejectFile(), rejectKey, processedBucket);
+    } catch (IOException ex) {
+      log.error("Error writing rejected records of file {}: {}", fileName, ex.getMessage(), ex);
+      uploaded = false;
+    }
+    if (uploaded) {
+      log.warn(
+          "{} rejected records of file {} written to {}/{}",
+          rejectedRecords,
+          fileName,
+          processedBucket,
+          rejectKey);
+    } else {
+      log.error("Could not upload {} rejected records of file {}", rejectedRecords, fileName);
+      metricsClient.incrementErrorCount(
+          MetricsCommonTag.ERROR_CODE.getTag(MetricErrorCode.AWS_S3_FILE_UPLOAD_ERROR.name()),
+          MetricTag.FILE_NAME.getTag(fileName));
+    }
+    return uploaded;
+  }
+}
@@ -0,0 +1,22 @@
+package com.nordstrom.finance.dataintegration.ertm.service.quarantine;
+
+import java.io.IOException;
+
+/**
+ * Maps the records of a rewritten copy of a source file, such as the copy sorted by transaction id,
+ * back to their position in the source file, so rejects point at the line that was received.
+ */
+@FunctionalInterface
+public interface SourcePositions {
+
+  /**
+   * @param lineNumber line number of a record in the copy
+   * @param byteOffset byte offset of the record in the copy
+   * @return position of the record in the source file; the given one if the copy has no such line
+   * @throws IOException if the position cannot be read
+   */
+  SourcePosition of(long lineNumber, long byteOffset) throws IOException;
+
+  /** Line number and byte offset of a record. */
+  record SourcePosition(long lineNumber, long byteOffset) {}
+}
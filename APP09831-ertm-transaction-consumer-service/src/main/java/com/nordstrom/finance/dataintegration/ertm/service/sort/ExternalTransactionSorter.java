@@ -0,0 +1,517 @@
+package com.nordstrom.finance.dataintegration.ertm.service.sort;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import com.nordstrom.finance.dataintegration.ertm.parser.RawLineFields;
+import com.nordstrom.finance.dataintegration.ertm.service.chunk.ChunkedSpoolFile;
+import com.nordstrom.finance.dataintegration.ertm.service.dedupe.TransactionIdBloomFilter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sorts the lines of a spooled ERTM file by {@code SOURCE_REFERENCE_TRANSACTION_ID} with an
+ * external merge sort, so the batch loop sees the lines of every transaction next to each other.
+ * Lines are collected into sorted runs of at most {@code file.processing.sort.max-run-size-mb} of
+ * heap, every run is spilled to a temp file, and the runs are merged ({@code merge-fan-in} at a
+ * time) into a new spool file. The sort is stable: lines of one transaction keep their file order.
+ * Every line carries its line number and byte offset in the source file through the runs into a
+ * {@link SourcePositionIndex}, so rejects of the sorted copy can be reported at their source line.
+ *
+ * <p>{@link #isGroupedByTransactionId} is the cheap pre-pass that decides whether a file needs the
+ * sort at all.
+ *
+ * <p>Both work on physical lines: quoted fields must not contain line breaks, since the sort would
+ * move the rest of such a record away from its start. A file holding one fails with an {@link
+ * IOException} instead of being reordered.
+ */
+@Slf4j
+@Service
+public class ExternalTransactionSorter {
+
+  private static final String PHASE_RUN = "run";
+  private static final String PHASE_MERGE = "merge";
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+  private static final long MERGE_PROGRESS_INTERVAL = 500_000;
+  // String headers, list slot and sort entry on top of the characters of a line
+  private static final long LINE_OVERHEAD_BYTES = 112;
+  private static final char RUN_FIELD_SEPARATOR = '|';
+  private static final double GROUPING_FALSE_POSITIVE_RATE = 0.0001;
+  private static final long GROUPING_FILTER_MAX_BYTES = 32L * 1024 * 1024;
+
+  private final MetricsClient metricsClient;
+  private final long maxRunBytes;
+  private final int mergeFanIn;
+  private final int maxTrackedIds;
+  private final Path tempDirectory;
+
+  public ExternalTransactionSorter(
+      MetricsClient metricsClient,
+      @Value("${file.processing.sort.max-run-size-mb:64}") int maxRunSizeMb,
+      @Value("${file.processing.sort.merge-fan-in:32}") int mergeFanIn,
+      @Value("${file.processing.sort.max-tracked-ids:100000}") int maxTrackedIds,
+      @Value("${file.processing.spool-directory:${java.io.tmpdir}}") String tempDirectory) {
+    this.metricsClient = metricsClient;
+    this.maxRunBytes = Math.max(1, maxRunSizeMb) * 1024L * 1024L;
+    this.mergeFanIn = Math.max(2, mergeFanIn);
+    this.maxTrackedIds = maxTrackedIds;
+    this.tempDirectory = Path.of(tempDirectory);
+  }
+
+  /**
+   * Pre-pass over the file: {@code false} if a transaction id shows up again after other ids. The
+   * first pass only keeps the previous id and a Bloom filter of the ids seen, and collects the ids
+   * the filter cannot rule out as suspects. Only if there are any, a second pass checks the
+   * suspects exactly; with more than {@code max-tracked-ids} of them the file counts as ungrouped
+   * without it. A file without a transaction id column counts as grouped, since it cannot be sorted
+   * either.
+   *
+   * @throws IOException if the file cannot be read or a quoted field spans a line break
+   */
+  public boolean isGroupedByTransactionId(ChunkedSpoolFile file) throws IOException {
+    final Set<String> suspects = new HashSet<>();
+    try (BufferedReader reader = openReader(file)) {
+      final int column = transactionIdColumn(reader.readLine());
+      if (column < 0) {
+        return true;
+      }
+      TransactionIdBloomFilter seenIds = null;
+      String previousId = null;
+      long lineNumber = 1;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        checkComplete(line, ++lineNumber);
+        final String transactionId = transactionId(line, column);
+        if (transactionId.equals(previousId)) {
+          continue;
+        }
+        if (seenIds == null) {
+          // the file cannot hold more transactions than lines
+          final long expectedIds = file.size() / Math.max(1, line.length() + 1);
+          seenIds =
+              TransactionIdBloomFilter.create(
+                  expectedIds, GROUPING_FALSE_POSITIVE_RATE, GROUPING_FILTER_MAX_BYTES);
+        }
+        if (seenIds.mightContain(transactionId)) {
+          suspects.add(transactionId);
+          if (suspects.size() > maxTrackedIds) {
+            return false;
+          }
+        }
+        seenIds.add(transactionId);
+        previousId = transactionId;
+      }
+      if (suspects.isEmpty()) {
+        return true;
+      }
+      log.debug("Checking {} possibly repeated transaction ids in a second pass", suspects.size());
+    }
+    return suspectsAreGrouped(file, suspects);
+  }
+
+  /** Second pass of the pre-pass: whether every suspect id shows up in one run of lines. */
+  private static boolean suspectsAreGrouped(ChunkedSpoolFile file, Set<String> suspects)
+      throws IOException {
+    final Set<String> finished = new HashSet<>();
+    try (BufferedReader reader = openReader(file)) {
+      final int column = transactionIdColumn(reader.readLine());
+      String previousId = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String transactionId = transactionId(line, column);
+        if (transactionId.equals(previousId)) {
+          continue;
+        }
+        if (suspects.contains(transactionId) && !finished.add(transactionId)) {
+          return false;
+        }
+        previousId = transactionId;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Write a copy of the file with its lines sorted by transaction id. The caller closes the
+   * returned file.
+   *
+   * @param file the file to sort
+   * @param fileName source file name for logs and metrics
+   * @return the sorted copy and the source position of each of its lines
+   * @throws IOException if the file cannot be read, has no transaction id column or a quoted field
+   *     spanning a line break, or the runs cannot be written
+   */
+  public SortedSpoolFile sort(ChunkedSpoolFile file, String fileName) throws IOException {
+    final long startTime = System.currentTimeMillis();
+    metricsClient.count(
+        Metric.FILE_SORT_COUNT.getMetricName(), 1, MetricTag.FILE_NAME.getTag(fileName));
+    final List<Path> runs = new ArrayList<>();
+    try (PositionedLineReader reader = new PositionedLineReader(file.open());
+        SourcePositionIndex.Builder positions = new SourcePositionIndex.Builder(tempDirectory)) {
+      final String header = reader.readLine();
+      final int column = transactionIdColumn(header);
+      if (column < 0) {
+        throw new IOException(
+            "File " + fileName + " has no " + RawLineFields.TRANSACTION_ID_COLUMN + " column");
+      }
+
+      final List<SortLine> run = new ArrayList<>();
+      long runBytes = 0;
+      long records = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        checkComplete(line, reader.lineNumber());
+        final SortLine sortLine =
+            new SortLine(
+                transactionId(line, column), line, 0, reader.lineNumber(), reader.lineOffset());
+        run.add(sortLine);
+        runBytes += LINE_OVERHEAD_BYTES + line.length() + sortLine.key().length();
+        records++;
+        if (runBytes >= maxRunBytes) {
+          runs.add(spillRun(run, fileName));
+          run.clear();
+          runBytes = 0;
+        }
+      }
+
+      final ChunkedSpoolFile sorted;
+      if (runs.isEmpty()) {
+        // fits in one run: no temp files needed
+        run.sort(SortLine.ORDER);
+        metricsClient.count(
+            Metric.SORT_RECORDS_COUNT.getMetricName(),
+            run.size(),
+            MetricTag.FILE_NAME.getTag(fileName),
+            MetricTag.SORT_PHASE.getTag(PHASE_RUN));
+        recordPhase(PHASE_RUN, startTime, fileName);
+        sorted =
+            ChunkedSpoolFile.spool(
+                target -> writeLines(target, header, run, positions), tempDirectory);
+      } else {
+        if (!run.isEmpty()) {
+          runs.add(spillRun(run, fileName));
+          run.clear();
+        }
+        recordPhase(PHASE_RUN, startTime, fileName);
+        final long mergeStartTime = System.currentTimeMillis();
+        while (runs.size() > mergeFanIn) {
+          mergeIntermediateRuns(runs, column, fileName);
+        }
+        sorted =
+            ChunkedSpoolFile.spool(
+                target -> {
+                  final Writer writer = newWriter(target);
+                  writer.write(header);
+                  writer.write('\n');
+                  mergeRuns(
+                      runs,
+                      column,
+                      merged -> {
+                        writer.write(merged.line());
+                        writer.write('\n');
+                        positions.add(merged.sourceLine(), merged.sourceOffset());
+                      },
+                      fileName);
+                  writer.flush();
+                },
+                tempDirectory);
+        recordPhase(PHASE_MERGE, mergeStartTime, fileName);
+      }
+      log.info(
+          "Sorted {} records of file {} by transaction id in {} runs in {}ms",
+          records,
+          fileName,
+          Math.max(1, runs.size()),
+          System.currentTimeMillis() - startTime);
+      try {
+        return new SortedSpoolFile(sorted, positions.build());
+      } catch (IOException | RuntimeException e) {
+        sorted.close();
+        throw e;
+      }
+    } finally {
+      for (Path run : runs) {
+        Files.deleteIfExists(run);
+      }
+    }
+  }
+
+  /** Sort one run in memory and write it to a temp file. */
+  private Path spillRun(List<SortLine> run, String fileName) throws IOException {
+    run.sort(SortLine.ORDER);
+    final Path runFile = Files.createTempFile(tempDirectory, "ertm-sort-", ".run");
+    try (Writer writer = Files.newBufferedWriter(runFile, StandardCharsets.UTF_8)) {
+      for (SortLine sortLine : run) {
+        writeRunLine(writer, sortLine);
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(runFile);
+      throw e;
+    }
+    metricsClient.count(
+        Metric.SORT_RUN_COUNT.getMetricName(), 1, MetricTag.FILE_NAME.getTag(fileName));
+    metricsClient.count(
+        Metric.SORT_RECORDS_COUNT.getMetricName(),
+        run.size(),
+        MetricTag.FILE_NAME.getTag(fileName),
+        MetricTag.SORT_PHASE.getTag(PHASE_RUN));
+    log.debug("Spilled sort run {} with {} records of file {}", runFile, run.size(), fileName);
+    return runFile;
+  }
+
+  /** Replace the first {@code mergeFanIn} runs by their merge, keeping the run order stable. */
+  private void mergeIntermediateRuns(List<Path> runs, int column, String fileName)
+      throws IOException {
+    final List<Path> group = new ArrayList<>(runs.subList(0, mergeFanIn));
+    final Path merged = Files.createTempFile(tempDirectory, "ertm-sort-", ".run");
+    try (BufferedWriter writer = Files.newBufferedWriter(merged, StandardCharsets.UTF_8)) {
+      mergeRuns(group, column, line -> writeRunLine(writer, line), fileName);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(merged);
+      throw e;
+    }
+    runs.subList(0, mergeFanIn).clear();
+    runs.add(0, merged);
+    for (Path run : group) {
+      Files.deleteIfExists(run);
+    }
+  }
+
+  /**
+   * K-way merge of sorted runs. Ties between runs go to the earlier run, which holds the earlier
+   * lines of the file, so the merge stays stable.
+   */
+  private void mergeRuns(List<Path> runs, int column, LineSink target, String fileName)
+      throws IOException {
+    final List<BufferedReader> readers = new ArrayList<>(runs.size());
+    try {
+      final PriorityQueue<SortLine> heads = new PriorityQueue<>(runs.size(), SortLine.ORDER);
+      for (int i = 0; i < runs.size(); i++) {
+        final BufferedReader reader = Files.newBufferedReader(runs.get(i), StandardCharsets.UTF_8);
+        readers.add(reader);
+        offerNext(heads, reader, i, column);
+      }
+      long merged = 0;
+      while (!heads.isEmpty()) {
+        final SortLine next = heads.poll();
+        target.accept(next);
+        offerNext(heads, readers.get(next.run()), next.run(), column);
+        if (++merged % MERGE_PROGRESS_INTERVAL == 0) {
+          reportMergeProgress(fileName, MERGE_PROGRESS_INTERVAL, merged);
+        }
+      }
+      reportMergeProgress(fileName, merged % MERGE_PROGRESS_INTERVAL, merged);
+    } finally {
+      for (BufferedReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  private static void offerNext(
+      PriorityQueue<SortLine> heads, BufferedReader reader, int run, int column)
+      throws IOException {
+    final String runLine = reader.readLine();
+    if (runLine != null) {
+      // <source line>|<source offset>|<line>, see writeRunLine
+      final int offsetStart = runLine.indexOf(RUN_FIELD_SEPARATOR) + 1;
+      final int lineStart = runLine.indexOf(RUN_FIELD_SEPARATOR, offsetStart) + 1;
+      final String line = runLine.substring(lineStart);
+      heads.add(
+          new SortLine(
+              transactionId(line, column),
+              line,
+              run,
+              Long.parseLong(runLine, 0, offsetStart - 1, 10),
+              Long.parseLong(runLine, offsetStart, lineStart - 1, 10)));
+    }
+  }
+
+  /** Write a line to a run file, prefixed with its source position. */
+  private static void writeRunLine(Writer writer, SortLine line) throws IOException {
+    writer.write(Long.toString(line.sourceLine()));
+    writer.write(RUN_FIELD_SEPARATOR);
+    writer.write(Long.toString(line.sourceOffset()));
+    writer.write(RUN_FIELD_SEPARATOR);
+    writer.write(line.line());
+    writer.write('\n');
+  }
+
+  private void reportMergeProgress(String fileName, long delta, long merged) {
+    metricsClient.count(
+        Metric.SORT_RECORDS_COUNT.getMetricName(),
+        delta,
+        MetricTag.FILE_NAME.getTag(fileName),
+        MetricTag.SORT_PHASE.getTag(PHASE_MERGE));
+    log.info("Merged {} sorted records of file {}", merged, fileName);
+  }
+
+  private void recordPhase(String phase, long startTime, String fileName) {
+    metricsClient.recordExecutionTime(
+        Metric.SORT_TIME.getMetricName(),
+        System.currentTimeMillis() - startTime,
+        MetricTag.FILE_NAME.getTag(fileName),
+        MetricTag.SORT_PHASE.getTag(phase));
+  }
+
+  private static void writeLines(
+      OutputStream target,
+      String header,
+      List<SortLine> lines,
+      SourcePositionIndex.Builder positions)
+      throws IOException {
+    final Writer writer = newWriter(target);
+    writer.write(header);
+    writer.write('\n');
+    for (SortLine line : lines) {
+      writer.write(line.line());
+      writer.write('\n');
+      positions.add(line.sourceLine(), line.sourceOffset());
+    }
+    writer.flush();
+  }
+
+  private static Writer newWriter(OutputStream target) {
+    return new BufferedWriter(
+        new OutputStreamWriter(target, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+  }
+
+  private static BufferedReader openReader(ChunkedSpoolFile file) {
+    return new BufferedReader(
+        new InputStreamReader(file.open(), StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+  }
+
+  private static int transactionIdColumn(String header) {
+    return header == null
+        ? -1
+        : RawLineFields.findColumn(header, RawLineFields.TRANSACTION_ID_COLUMN);
+  }
+
+  /** Fail on a record that goes on after a line break inside quotes. */
+  private static void checkComplete(String line, long lineNumber) throws IOException {
+    if (RawLineFields.endsInsideQuotes(line)) {
+      throw new IOException(
+          "Line "
+              + lineNumber
+              + " has a quoted field spanning a line break; such records cannot be sorted");
+    }
+  }
+
+  private static String transactionId(String line, int column) {
+    final String value = RawLineFields.field(line, column);
+    return value == null ? "" : value;
+  }
+
+  /** A line with its sort key, the run it was read from and its position in the source file. */
+  private record SortLine(String key, String line, int run, long sourceLine, long sourceOffset) {
+    static final Comparator<SortLine> ORDER =
+        Comparator.comparing(SortLine::key).thenComparingInt(SortLine::run);
+  }
+
+  /** Receives the merged lines in order. */
+  @FunctionalInterface
+  private interface LineSink {
+    void accept(SortLine line) throws IOException;
+  }
+
+  /**
+   * Reads the lines of a UTF-8 stream with their line number and byte offset. Unlike {@link
+   * BufferedReader} it knows how many bytes every line break took.
+   */
+  private static final class PositionedLineReader implements Closeable {
+    private final InputStream input;
+    private final byte[] buffer = new byte[IO_BUFFER_SIZE];
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private int position;
+    private int limit;
+    private long lineNumber;
+    private long lineOffset;
+    private long nextOffset;
+
+    PositionedLineReader(InputStream input) {
+      this.input = input;
+    }
+
+    /** The next line without its line break, or {@code null} at the end of the stream. */
+    String readLine() throws IOException {
+      lineOffset = nextOffset;
+      partialLine.reset();
+      while (true) {
+        if (position == limit && !fill()) {
+          if (nextOffset == lineOffset) {
+            return null;
+          }
+          return decode(partialLine.toByteArray(), 0, partialLine.size());
+        }
+        int end = position;
+        while (end < limit && buffer[end] != '\n') {
+          end++;
+        }
+        nextOffset += end - position;
+        if (end == limit) {
+          partialLine.write(buffer, position, end - position);
+          position = limit;
+          continue;
+        }
+        nextOffset++;
+        final int start = position;
+        position = end + 1;
+        if (partialLine.size() == 0) {
+          return decode(buffer, start, end - start);
+        }
+        partialLine.write(buffer, start, end - start);
+        return decode(partialLine.toByteArray(), 0, partialLine.size());
+      }
+    }
+
+    /** Line number of the last line read; the first line is 1. */
+    long lineNumber() {
+      return lineNumber;
+    }
+
+    /** Byte offset of the last line read. */
+    long lineOffset() {
+      return lineOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+
+    private boolean fill() throws IOException {
+      final int read = input.read(buffer);
+      position = 0;
+      limit = Math.max(0, read);
+      return read > 0;
+    }
+
+    private String decode(byte[] bytes, int offset, int length) {
+      lineNumber++;
+      if (length > 0 && bytes[offset + length - 1] == '\r') {
+        length--;
+      }
+      return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+  }
+}
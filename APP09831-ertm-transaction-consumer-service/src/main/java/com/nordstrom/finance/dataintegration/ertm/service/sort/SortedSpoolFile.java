@@ -0,0 +1,23 @@
+package com.nordstrom.finance.dataintegration.ertm.service.sort;
+
+import com.nordstrom.finance.dataintegration.ertm.service.chunk.ChunkedSpoolFile;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A spooled file sorted by transaction id and the source position of each of its records.
+ *
+ * @param file the sorted copy
+ * @param positions line number and byte offset of every record of the copy in the source file
+ */
+public record SortedSpoolFile(ChunkedSpoolFile file, SourcePositionIndex positions)
+    implements Closeable {
+
+  /** Delete the sorted copy and its position index. */
+  @Override
+  public void close() throws IOException {
+    try (positions) {
+      file.close();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.nordstrom.finance.dataintegration.ertm.service.sort;
+
+import com.nordstrom.finance.dataintegration.ertm.service.quarantine.SourcePositions;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line number and byte offset in the source file of every record line of a sorted copy, in the
+ * order of the copy: one 16 byte entry per line in a temp file, deleted on close. Entries are only
+ * read for rejected records, one positional read each.
+ */
+public final class SourcePositionIndex implements SourcePositions, Closeable {
+
+  private static final int ENTRY_SIZE = 2 * Long.BYTES;
+  // the header row is line 1 of the copy, its first record line 2
+  private static final long FIRST_RECORD_LINE = 2;
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final long entries;
+
+  private SourcePositionIndex(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.entries = channel.size() / ENTRY_SIZE;
+  }
+
+  @Override
+  public SourcePosition of(long lineNumber, long byteOffset) throws IOException {
+    final long entry = lineNumber - FIRST_RECORD_LINE;
+    if (entry < 0 || entry >= entries) {
+      return new SourcePosition(lineNumber, byteOffset);
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, entry * ENTRY_SIZE + buffer.position()) < 0) {
+        throw new IOException("Source position index is shorter than expected");
+      }
+    }
+    return new SourcePosition(buffer.getLong(0), buffer.getLong(Long.BYTES));
+  }
+
+  /** Delete the index file. */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /** Appends the entries of a new index; deletes them when closed before {@link #build}. */
+  static final class Builder implements Closeable {
+    private final Path file;
+    private final DataOutputStream output;
+    private boolean built;
+
+    Builder(Path directory) throws IOException {
+      this.file = Files.createTempFile(directory, "ertm-sort-", ".positions");
+      this.output =
+          new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(file), WRITE_BUFFER_SIZE));
+    }
+
+    /** Add the source position of the next record line of the copy. */
+    void add(long lineNumber, long byteOffset) throws IOException {
+      output.writeLong(lineNumber);
+      output.writeLong(byteOffset);
+    }
+
+    SourcePositionIndex build() throws IOException {
+      output.close();
+      final SourcePositionIndex index =
+          new SourcePositionIndex(
+              FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE));
+      built = true;
+      return index;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!built) {
+        output.close();
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+}
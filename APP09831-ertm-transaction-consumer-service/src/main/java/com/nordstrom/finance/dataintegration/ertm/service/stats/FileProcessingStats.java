@@ -0,0 +1,270 @@
+package com.nordstrom.finance.dataintegration.ertm.service.stats;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stage timings, throughput and heap use of one file. Stage times are exclusive: time spent in a
+ * stage timed inside another one (download wait inside parse, parse inside grouping) only counts
+ * for the inner stage, so the stages of a file add up to the busy time of its threads and a slow
+ * night can be pinned on S3, the parser, the duplicate queries, the mapper or the flush.
+ *
+ * <p>Stage times, heap used and GC pauses are sent after every batch, tagged with the stage only.
+ * Heap and GC figures are JVM-wide, so with several files in flight they cover all of them.
+ * Per-file detail goes into the summary line logged by {@link #finish}.
+ */
+@Slf4j
+public final class FileProcessingStats {
+
+  /** Timed stages of a file, with their {@code file.stage} tag value. */
+  public enum Stage {
+    DOWNLOAD_WAIT("download_wait"),
+    PARSE("parse"),
+    GROUP("group"),
+    DEDUPE("dedupe"),
+    MAP("map"),
+    PERSIST("persist");
+
+    private final String tagValue;
+
+    Stage(String tagValue) {
+      this.tagValue = tagValue;
+    }
+  }
+
+  /** Time of the timed sections that ran on this thread, read by the section around them. */
+  private static final ThreadLocal<long[]> TIMED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+  private final MetricsClient metricsClient;
+  private final String fileName;
+  private final long startNanos = System.nanoTime();
+  private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+  private final LongAdder records = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final long gcStartMillis;
+  private final long gcStartCount;
+
+  // guarded by this
+  private final long[] sentStageNanos = new long[Stage.values().length];
+  private long sentGcMillis;
+  private long sentGcCount;
+  private long peakHeapUsed;
+
+  /**
+   * @param metricsClient receives the per-batch metrics and the throughput
+   * @param fileName key of the file; null for data without a source file, whose summary line then
+   *     names no file
+   */
+  public FileProcessingStats(MetricsClient metricsClient, String fileName) {
+    this.metricsClient = metricsClient;
+    this.fileName = fileName;
+    for (int i = 0; i < stageNanos.length; i++) {
+      stageNanos[i] = new LongAdder();
+    }
+    this.gcStartMillis = gcPauseMillis();
+    this.gcStartCount = gcPauseCount();
+    this.sentGcMillis = gcStartMillis;
+    this.sentGcCount = gcStartCount;
+  }
+
+  /** Run a section of a stage and add its time, less the stages timed inside it. */
+  public <T> T time(Stage stage, Supplier<T> section) {
+    final long[] timedNanos = TIMED_NANOS.get();
+    final long innerNanos = timedNanos[0];
+    final long startTime = System.nanoTime();
+    try {
+      return section.get();
+    } finally {
+      addSection(stage, timedNanos, innerNanos, startTime);
+    }
+  }
+
+  /** Run a section of a stage and add its time, less the stages timed inside it. */
+  public void time(Stage stage, Runnable section) {
+    time(
+        stage,
+        () -> {
+          section.run();
+          return null;
+        });
+  }
+
+  /** Time the parser: every record it returns is counted and its reads are parse time. */
+  public <T> Iterator<T> timeParsing(Iterator<T> parsed) {
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return time(Stage.PARSE, parsed::hasNext);
+      }
+
+      @Override
+      public T next() {
+        final T record = time(Stage.PARSE, parsed::next);
+        records.increment();
+        return record;
+      }
+    };
+  }
+
+  /** Count the bytes read from the source and the time spent waiting for them. */
+  public InputStream timeSource(InputStream source) {
+    return new FilterInputStream(source) {
+      @Override
+      public int read() throws IOException {
+        final long[] timedNanos = TIMED_NANOS.get();
+        final long innerNanos = timedNanos[0];
+        final long startTime = System.nanoTime();
+        final int read = super.read();
+        addSection(Stage.DOWNLOAD_WAIT, timedNanos, innerNanos, startTime);
+        if (read >= 0) {
+          bytes.increment();
+        }
+        return read;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        final long[] timedNanos = TIMED_NANOS.get();
+        final long innerNanos = timedNanos[0];
+        final long startTime = System.nanoTime();
+        final int read = super.read(buffer, offset, length);
+        addSection(Stage.DOWNLOAD_WAIT, timedNanos, innerNanos, startTime);
+        if (read > 0) {
+          bytes.add(read);
+        }
+        return read;
+      }
+    };
+  }
+
+  /** Send the stage times since the last batch, the heap used and the GC pauses of a batch. */
+  public synchronized void recordBatch() {
+    batches.increment();
+    sendStageTimes();
+
+    final long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    peakHeapUsed = Math.max(peakHeapUsed, heapUsed);
+    metricsClient.recordGaugeValue(Metric.BATCH_HEAP_USED.getMetricName(), heapUsed);
+
+    final long gcMillis = gcPauseMillis();
+    final long gcCount = gcPauseCount();
+    metricsClient.recordExecutionTime(
+        Metric.BATCH_GC_PAUSE_TIME.getMetricName(), gcMillis - sentGcMillis);
+    metricsClient.count(Metric.BATCH_GC_COUNT.getMetricName(), gcCount - sentGcCount);
+    sentGcMillis = gcMillis;
+    sentGcCount = gcCount;
+  }
+
+  /** Send the remaining stage times and the throughput, and log the summary line of the file. */
+  public synchronized void finish(boolean successful) {
+    sendStageTimes();
+    final long durationMillis =
+        Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    final long rowsPerSecond = records.sum() * 1000 / durationMillis;
+    final long bytesPerSecond = bytes.sum() * 1000 / durationMillis;
+    metricsClient.recordGaugeValue(Metric.FILE_ROWS_PER_SECOND.getMetricName(), rowsPerSecond);
+    metricsClient.recordGaugeValue(Metric.FILE_BYTES_PER_SECOND.getMetricName(), bytesPerSecond);
+
+    final StringBuilder summary = new StringBuilder("File summary:");
+    if (fileName != null) {
+      summary.append(" file=").append(fileName);
+    }
+    summary
+        .append(" status=")
+        .append(successful ? "success" : "error")
+        .append(" duration_ms=")
+        .append(durationMillis)
+        .append(" records=")
+        .append(records.sum())
+        .append(" bytes=")
+        .append(bytes.sum())
+        .append(" batches=")
+        .append(batches.sum())
+        .append(" rows_per_sec=")
+        .append(rowsPerSecond)
+        .append(" bytes_per_sec=")
+        .append(bytesPerSecond);
+    for (Stage stage : Stage.values()) {
+      summary.append(' ').append(stage.tagValue).append("_ms=").append(stageMillis(stage));
+    }
+    summary
+        .append(" heap_peak_bytes=")
+        .append(peakHeapUsed)
+        .append(" gc_pause_ms=")
+        .append(gcPauseMillis() - gcStartMillis)
+        .append(" gc_count=")
+        .append(gcPauseCount() - gcStartCount);
+    log.info(summary.toString());
+  }
+
+  /** Time of a stage so far in milliseconds. */
+  public long stageMillis(Stage stage) {
+    return TimeUnit.NANOSECONDS.toMillis(stageNanos[stage.ordinal()].sum());
+  }
+
+  public long records() {
+    return records.sum();
+  }
+
+  public long bytes() {
+    return bytes.sum();
+  }
+
+  private void addSection(Stage stage, long[] timedNanos, long innerNanos, long startTime) {
+    final long elapsed = System.nanoTime() - startTime;
+    stageNanos[stage.ordinal()].add(elapsed - (timedNanos[0] - innerNanos));
+    timedNanos[0] = innerNanos + elapsed;
+  }
+
+  private void sendStageTimes() {
+    for (Stage stage : Stage.values()) {
+      final long total = stageNanos[stage.ordinal()].sum();
+      final long millis = TimeUnit.NANOSECONDS.toMillis(total - sentStageNanos[stage.ordinal()]);
+      if (millis > 0) {
+        metricsClient.recordExecutionTime(
+            Metric.FILE_STAGE_TIME.getMetricName(),
+            millis,
+            MetricTag.FILE_STAGE.getTag(stage.tagValue));
+        sentStageNanos[stage.ordinal()] += TimeUnit.MILLISECONDS.toNanos(millis);
+      }
+    }
+  }
+
+  /** Collection time of the stop-the-world collectors; concurrent cycles are not pauses. */
+  private static long gcPauseMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (isPauseCollector(collector)) {
+        millis += Math.max(0, collector.getCollectionTime());
+      }
+    }
+    return millis;
+  }
+
+  private static long gcPauseCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (isPauseCollector(collector)) {
+        count += Math.max(0, collector.getCollectionCount());
+      }
+    }
+    return count;
+  }
+
+  private static boolean isPauseCollector(GarbageCollectorMXBean collector) {
+    final String name = collector.getName();
+    return !name.contains("Concurrent") && !name.contains("Cycles");
+  }
+}
@@ -0,0 +1,118 @@
+package com.nordstrom.finance.dataintegration.ertm.database.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.database.constant.StagingQueryConstants;
+import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseOperationException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class StagingTableDBServiceTest {
+
+  private static final UUID LOAD_ID = UUID.fromString("2f1c6f1e-7a0e-4a35-9d6a-3b9d1f6b8c11");
+
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private MetricsClient metricsClient;
+  @InjectMocks private StagingTableDBService stagingTableDBService;
+
+  private AutoCloseable closeable;
+
+  @BeforeEach
+  void setUp() {
+    closeable = MockitoAnnotations.openMocks(this);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    closeable.close();
+  }
+
+  @Test
+  void testAppendCopyRow_escapesTextAndWritesNulls() {
+    RetailTransactionLineDTO record =
+        RetailTransactionLineDTO.builder()
+            .sourceReferenceTransactionId("1")
+            .transactionDate(LocalDate.of(2023, 4, 26))
+            .transactionReversalCode("N   ")
+            .sourceReferenceLineId("a\tb\\c\nd\re")
+            .departmentId("")
+            .lineItemAmount(new BigDecimal("1E+2"))
+            .build();
+
+    StringBuilder row = new StringBuilder();
+    StagingTableDBService.appendCopyRow(row, LOAD_ID, 7, record);
+
+    String[] fields = row.toString().split("\t", -1);
+    assertEquals(29, fields.length);
+    assertEquals(LOAD_ID.toString(), fields[0]);
+    assertEquals("7", fields[1]);
+    assertEquals("1", fields[2]);
+    assertEquals("\\N", fields[3]);
+    assertEquals("2023-04-26", fields[4]);
+    assertEquals("N   ", fields[7]);
+    assertEquals("a\\tb\\\\c\\nd\\re", fields[8]);
+    assertEquals("", fields[13]);
+    assertEquals("100", fields[20]);
+    assertEquals("\\N\n", fields[28]);
+  }
+
+  @Test
+  void testMergeStagedLoad_insertsNewLinesAndCountsDuplicates() {
+    when(jdbcTemplate.update(StagingQueryConstants.ASSIGN_IDS, LOAD_ID, LOAD_ID)).thenReturn(8);
+    when(jdbcTemplate.update(StagingQueryConstants.INSERT_TRANSACTIONS, LOAD_ID)).thenReturn(2);
+
+    StagingTableDBService.MergeResult result = stagingTableDBService.mergeStagedLoad(LOAD_ID, 10);
+
+    assertEquals(new StagingTableDBService.MergeResult(2, 8, 2), result);
+    InOrder inOrder = inOrder(jdbcTemplate);
+    inOrder.verify(jdbcTemplate).execute(StagingQueryConstants.LOCK_MERGE);
+    inOrder.verify(jdbcTemplate).update(StagingQueryConstants.ASSIGN_IDS, LOAD_ID, LOAD_ID);
+    verify(jdbcTemplate).update(StagingQueryConstants.INSERT_TRANSACTION_LINES, LOAD_ID);
+    verify(jdbcTemplate).update(StagingQueryConstants.INSERT_RETAIL_TRANSACTION_LINES, LOAD_ID);
+    verify(metricsClient, times(2)).count(anyString(), eq(2L));
+  }
+
+  @Test
+  void testMergeStagedLoad_allDuplicates_skipsInserts() {
+    when(jdbcTemplate.update(StagingQueryConstants.ASSIGN_IDS, LOAD_ID, LOAD_ID)).thenReturn(0);
+
+    StagingTableDBService.MergeResult result = stagingTableDBService.mergeStagedLoad(LOAD_ID, 5);
+
+    assertEquals(new StagingTableDBService.MergeResult(0, 0, 5), result);
+    verify(jdbcTemplate, never()).update(StagingQueryConstants.INSERT_TRANSACTIONS, LOAD_ID);
+    verify(jdbcTemplate, never()).update(StagingQueryConstants.INSERT_TRANSACTION_LINES, LOAD_ID);
+  }
+
+  @Test
+  void testMergeStagedLoad_failure() {
+    when(jdbcTemplate.update(StagingQueryConstants.ASSIGN_IDS, LOAD_ID, LOAD_ID)).thenReturn(3);
+    when(jdbcTemplate.update(StagingQueryConstants.INSERT_TRANSACTIONS, LOAD_ID))
+        .thenThrow(new DataIntegrityViolationException("null value in column"));
+
+    assertThrows(
+        DatabaseOperationException.class, () -> stagingTableDBService.mergeStagedLoad(LOAD_ID, 3));
+  }
+
+  @Test
+  void testDeleteStagedLoad_failureIsNotPropagated() {
+    when(jdbcTemplate.update(StagingQueryConstants.DELETE_LOAD, LOAD_ID))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertDoesNotThrow(() -> stagingTableDBService.deleteStagedLoad(LOAD_ID));
+  }
+}
@@ -1,24 +1,39 @@
 package com.nordstrom.finance.dataintegration.ertm.database.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileIngestManifest;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileProcessingCheckpoint;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.Transaction;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.ExistingLineItem;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.FileIngestManifestRepository;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.FileProcessingCheckpointRepository;
+import com.nordstrom.finance.dataintegration.ertm.database.repository.FileProcessingLeaseRepository;
 import com.nordstrom.finance.dataintegration.ertm.database.repository.TransactionRepository;
+import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseOperationException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.test.context.ActiveProfiles;
 
 @ActiveProfiles("test")
 public class TransactionDBServiceTest {
 
   @Mock private TransactionRepository transactionRepository;
+  @Mock private FileProcessingCheckpointRepository checkpointRepository;
+  @Mock private FileIngestManifestRepository manifestRepository;
+  @Mock private FileProcessingLeaseRepository leaseRepository;
   @Mock private MetricsClient metricsClient;
   @InjectMocks private TransactionDBService transactionDBService;
 
@@ -33,20 +48,21 @@ public class TransactionDBServiceTest {
   void testIsDuplicateTransaction() {
     String transactionId = "TXN123";
     String lineId = "LINE123";
-    when(transactionRepository.getExistingLineItemIds(transactionId, List.of(lineId)))
-        .thenReturn(List.of(lineId));
+    ExistingLineItem existingLineItem = existingLineItem(transactionId, lineId);
+    when(transactionRepository.getExistingLineItems(
+            new String[] {transactionId}, new String[] {lineId}))
+        .thenReturn(List.of(existingLineItem));
 
-    List<String> result =
-        transactionDBService.getExistingLineItemIds(transactionId, List.of(lineId));
+    Map<String, Set<String>> result =
+        transactionDBService.getExistingLineItemIds(Map.of(transactionId, List.of(lineId)));
 
-    assertTrue(result.contains(lineId));
+    assertTrue(result.get(transactionId).contains(lineId));
+    verify(metricsClient, times(1)).count(anyString(), eq(1L));
   }
 
   @Test
   void testSaveTransaction_successfulSave() throws Exception {
     Transaction transaction = new Transaction();
-    when(transactionRepository.getExistingLineItemIds(any(), any()))
-        .thenReturn(Collections.emptyList());
     when(transactionRepository.save(transaction)).thenReturn(transaction);
 
     assertDoesNotThrow(() -> transactionDBService.saveTransaction(transaction));
@@ -55,10 +71,31 @@ public class TransactionDBServiceTest {
 
   @Test
   void testSaveTransaction_duplicate_skipsSave() throws Exception {
-    when(transactionRepository.getExistingLineItemIds(any(), any())).thenReturn(List.of("LINE123"));
+    ExistingLineItem existingLineItem = existingLineItem("TXN123", "LINE123");
+    when(transactionRepository.getExistingLineItems(any(), any()))
+        .thenReturn(List.of(existingLineItem));
+
+    Map<String, Set<String>> result =
+        transactionDBService.getExistingLineItemIds(
+            Map.of("TXN123", List.of("LINE123", "LINE124")));
+    assertEquals(Set.of("LINE123"), result.get("TXN123"));
+  }
 
-    List<String> result = transactionDBService.getExistingLineItemIds("TXN123", List.of("LINE123"));
-    assertTrue(result.contains("LINE123"));
+  @Test
+  void testGetExistingLineItemIds_singleQueryPerChunk() {
+    Map<String, List<String>> candidates = new HashMap<>();
+    for (int i = 0; i < 2_501; i++) {
+      candidates.put("TXN" + i, List.of("1", "2", "3", "4"));
+    }
+    when(transactionRepository.getExistingLineItems(any(), any()))
+        .thenReturn(Collections.emptyList());
+
+    Map<String, Set<String>> result = transactionDBService.getExistingLineItemIds(candidates);
+
+    // 10,004 candidate pairs -> two queries of at most 10,000 pairs
+    assertTrue(result.isEmpty());
+    verify(transactionRepository, times(2)).getExistingLineItems(any(), any());
+    verify(metricsClient, never()).count(anyString(), anyLong());
   }
 
   @Test
@@ -77,4 +114,58 @@ public class TransactionDBServiceTest {
     transactionDBService.saveAllTransaction(List.of(transaction));
     verify(transactionRepository, times(1)).saveAll(any());
   }
+
+  @Test
+  void testSaveAllTransaction_withCheckpoint_savesCheckpointEvenWithoutTransactions() {
+    FileProcessingCheckpoint checkpoint =
+        FileProcessingCheckpoint.builder().fileKey("file_1").resumeByteOffset(42).build();
+
+    transactionDBService.saveAllTransaction(List.of(), checkpoint);
+
+    verify(transactionRepository, never()).saveAll(any());
+    verify(checkpointRepository, times(1)).upsertCheckpoint(checkpoint);
+  }
+
+  @Test
+  void testSaveAllTransaction_checkpointFailure() {
+    FileProcessingCheckpoint checkpoint = FileProcessingCheckpoint.builder().build();
+    when(checkpointRepository.upsertCheckpoint(checkpoint))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertThrows(
+        DatabaseOperationException.class,
+        () -> transactionDBService.saveAllTransaction(List.of(new Transaction()), checkpoint));
+  }
+
+  @Test
+  void testDeleteCheckpoint_failureIsNotPropagated() {
+    when(checkpointRepository.deleteBySourceBucketAndFileKey("bucket", "file_1"))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertDoesNotThrow(() -> transactionDBService.deleteCheckpoint("bucket", "file_1"));
+  }
+
+  @Test
+  void testRecordFileIngested_failureIsNotPropagated() {
+    FileIngestManifest manifest = FileIngestManifest.builder().fileKey("file_1").build();
+    when(manifestRepository.upsertManifest(manifest))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertDoesNotThrow(() -> transactionDBService.recordFileIngested(manifest));
+  }
+
+  @Test
+  void testTryAcquireLease() {
+    when(leaseRepository.tryAcquire("bucket", "file_1", "pod-1", 300)).thenReturn(1);
+
+    assertTrue(transactionDBService.tryAcquireLease("bucket", "file_1", "pod-1", 300));
+    assertFalse(transactionDBService.tryAcquireLease("bucket", "file_1", "pod-2", 300));
+  }
+
+  private static ExistingLineItem existingLineItem(String transactionId, String lineId) {
+    ExistingLineItem existingLineItem = mock(ExistingLineItem.class);
+    when(existingLineItem.getTransactionId()).thenReturn(transactionId);
+    when(existingLineItem.getLineId()).thenReturn(lineId);
+    return existingLineItem;
+  }
 }
@@ -0,0 +1,22 @@
+package com.nordstrom.finance.dataintegration.ertm.exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class FileParseExceptionTest {
+
+  @Test
+  void testMessageConstructor() {
+    FileParseException ex = new FileParseException("Parse error");
+    assertEquals("Parse error", ex.getMessage());
+  }
+
+  @Test
+  void testMessageAndCauseConstructor() {
+    Throwable cause = new RuntimeException("Root cause");
+    FileParseException ex = new FileParseException("Parse error", cause);
+    assertEquals("Parse error", ex.getMessage());
+    assertEquals(cause, ex.getCause());
+  }
+}
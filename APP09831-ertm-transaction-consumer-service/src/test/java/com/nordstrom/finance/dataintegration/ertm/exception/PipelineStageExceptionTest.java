@@ -0,0 +1,22 @@
+package com.nordstrom.finance.dataintegration.ertm.exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class PipelineStageExceptionTest {
+
+  @Test
+  void testMessageConstructor() {
+    PipelineStageException ex = new PipelineStageException("Stage error");
+    assertEquals("Stage error", ex.getMessage());
+  }
+
+  @Test
+  void testMessageAndCauseConstructor() {
+    Throwable cause = new RuntimeException("Root cause");
+    PipelineStageException ex = new PipelineStageException("Stage error", cause);
+    assertEquals("Stage error", ex.getMessage());
+    assertEquals(cause, ex.getCause());
+  }
+}
@@ -0,0 +1,19 @@
+package com.nordstrom.finance.dataintegration.ertm.exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RejectedRecordExceptionTest {
+
+  @Test
+  void testConstructor() {
+    FileParseException cause = new FileParseException("Invalid TRANSACTION_DATE value");
+    RejectedRecordException ex = new RejectedRecordException(12, 2048, "TXN001", cause);
+    assertEquals("Invalid TRANSACTION_DATE value", ex.getMessage());
+    assertEquals(cause, ex.getCause());
+    assertEquals(12, ex.getLineNumber());
+    assertEquals(2048, ex.getSourceByteOffset());
+    assertEquals("TXN001", ex.getSourceReferenceTransactionId());
+  }
+}
@@ -0,0 +1,251 @@
+package com.nordstrom.finance.dataintegration.ertm.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.exception.FileParseException;
+import com.nordstrom.finance.dataintegration.ertm.exception.RejectedRecordException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PipeDelimitedRetailTransactionLineParserTest {
+
+  private static final String HEADER =
+      "\"SOURCE_REFERENCE_TRANSACTION_ID\"|\"TRANSACTION_DATE\"|\"TENDER_TYPE\"|\"LINE_ITEM_AMOUNT\"|\"STORE_CHARGE_FLAG\"|\"DATA_SOURCE_CODE\"\n";
+
+  private static final List<Function<RetailTransactionLineDTO, Object>> PROPERTIES =
+      List.of(
+          RetailTransactionLineDTO::getSourceReferenceTransactionId,
+          RetailTransactionLineDTO::getSourceProcessedDate,
+          RetailTransactionLineDTO::getTransactionDate,
+          RetailTransactionLineDTO::getBusinessDate,
+          RetailTransactionLineDTO::getTransactionType,
+          RetailTransactionLineDTO::getTransactionReversalCode,
+          RetailTransactionLineDTO::getSourceReferenceLineId,
+          RetailTransactionLineDTO::getSourceReferenceLineType,
+          RetailTransactionLineDTO::getTransactionLineType,
+          RetailTransactionLineDTO::getRingingStore,
+          RetailTransactionLineDTO::getStoreOfIntent,
+          RetailTransactionLineDTO::getDepartmentId,
+          RetailTransactionLineDTO::getClassId,
+          RetailTransactionLineDTO::getFeeCode,
+          RetailTransactionLineDTO::getTenderType,
+          RetailTransactionLineDTO::getTenderCardType,
+          RetailTransactionLineDTO::getTenderCardSubType,
+          RetailTransactionLineDTO::getTenderAdjustmentCode,
+          RetailTransactionLineDTO::getLineItemAmount,
+          RetailTransactionLineDTO::getTaxAmount,
+          RetailTransactionLineDTO::getEmployeeDiscountAmount,
+          RetailTransactionLineDTO::getTenderAmount,
+          RetailTransactionLineDTO::getCashDisbursementLine1,
+          RetailTransactionLineDTO::getCashDisbursementLine2,
+          RetailTransactionLineDTO::getWaivedReasonCode,
+          RetailTransactionLineDTO::getWaivedAmount,
+          RetailTransactionLineDTO::getFulfillmentTypeDropshipCode,
+          RetailTransactionLineDTO::getDataSourceCode);
+
+  private final RetailTransactionLineParser parser = new PipeDelimitedRetailTransactionLineParser();
+  private final RetailTransactionLineParser openCsvParser =
+      new OpenCsvRetailTransactionLineParser();
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "ertm_source/ERTM_Valid_Data.csv",
+        "ertm_source/ERTM_Valid_Multi_Data.csv",
+        "ertm_source/ERTM_Data_Source_RPOS.csv",
+        "ertm_source/ERTM_Existing_Transaction.csv",
+        "ertm_source/ERTM_Null_Data.csv",
+        "ertm_source/ERTM_negative_amount.csv"
+      })
+  void testParityWithOpenCsv(String fileName) {
+    List<RetailTransactionLineDTO> expected = readAll(openCsvParser, resource(fileName));
+    List<RetailTransactionLineDTO> actual = readAll(parser, resource(fileName));
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      for (Function<RetailTransactionLineDTO, Object> property : PROPERTIES) {
+        assertEquals(property.apply(expected.get(i)), property.apply(actual.get(i)));
+      }
+    }
+  }
+
+  @Test
+  void testQuotedFieldsAndLineEndings() {
+    List<RetailTransactionLineDTO> records =
+        readAll(
+            parser,
+            new StringReader(
+                HEADER
+                    + "\" 1\"|\"2023-04-26\"|  \"a\"\"b|c\"|\"1.50\"|Y|\"multi\nline\"\r\n"
+                    + "2|2023-04-27|N   | 7 ||RPOS"));
+
+    assertEquals(2, records.size());
+    assertEquals(" 1", records.get(0).getSourceReferenceTransactionId());
+    assertEquals(LocalDate.of(2023, 4, 26), records.get(0).getTransactionDate());
+    assertEquals("a\"b|c", records.get(0).getTenderType());
+    assertEquals(new BigDecimal("1.50"), records.get(0).getLineItemAmount());
+    assertEquals("multi\nline", records.get(0).getDataSourceCode());
+    assertEquals("N   ", records.get(1).getTenderType());
+    assertEquals(new BigDecimal("7"), records.get(1).getLineItemAmount());
+    assertEquals("RPOS", records.get(1).getDataSourceCode());
+  }
+
+  @Test
+  void testBlankValues() {
+    RetailTransactionLineDTO record =
+        readAll(parser, new StringReader(HEADER + "1|||   ||\n")).get(0);
+
+    assertNull(record.getTransactionDate());
+    assertEquals("", record.getTenderType());
+    assertNull(record.getLineItemAmount());
+    assertEquals("", record.getDataSourceCode());
+    assertNull(record.getBusinessDate());
+  }
+
+  @Test
+  void testRepeatedValuesAreReused() {
+    List<RetailTransactionLineDTO> records =
+        readAll(
+            parser,
+            new StringReader(HEADER + "1|2023-04-26|NC|1|Y|RPOS\n1|2023-04-26|NC|2|Y|RPOS\n"));
+
+    assertSame(
+        records.get(0).getSourceReferenceTransactionId(),
+        records.get(1).getSourceReferenceTransactionId());
+    assertSame(records.get(0).getTransactionDate(), records.get(1).getTransactionDate());
+    assertEquals(new BigDecimal("2"), records.get(1).getLineItemAmount());
+  }
+
+  @Test
+  void testByteOrderMarkAndHeaderOnly() {
+    assertTrue(readAll(parser, new StringReader("\uFEFF" + HEADER)).isEmpty());
+    assertTrue(readAll(parser, new StringReader("")).isEmpty());
+
+    RetailTransactionLineDTO record =
+        readAll(parser, new StringReader("\uFEFF" + HEADER + "9|2023-04-26|NC|1|Y|RPOS\n")).get(0);
+    assertEquals("9", record.getSourceReferenceTransactionId());
+  }
+
+  @Test
+  void testSourceByteOffsets() {
+    StringBuilder content = new StringBuilder("\uFEFF").append(HEADER);
+    List<Integer> expectedOffsets = new ArrayList<>();
+    String[] rows = {
+      "1|2023-04-26|Caf\u00e9 \u20ac|1|Y|\"multi\r\nline\"\r\n",
+      "2|2023-04-26|\uD83D\uDE00|2|Y|RPOS\n",
+      "3|2023-04-26|" + "x".repeat(70_000) + "|3|Y|RPOS\n",
+      "4|2023-04-26|NC|4|Y|RPOS"
+    };
+    for (String row : rows) {
+      expectedOffsets.add(content.toString().getBytes(StandardCharsets.UTF_8).length);
+      content.append(row);
+    }
+
+    List<RetailTransactionLineDTO> records = readAll(parser, new StringReader(content.toString()));
+
+    assertTrue(parser.tracksSourceOffsets());
+    assertEquals(rows.length, records.size());
+    for (int i = 0; i < rows.length; i++) {
+      assertEquals(expectedOffsets.get(i).longValue(), records.get(i).getSourceByteOffset());
+    }
+  }
+
+  @Test
+  void testInvalidDate() {
+    Iterator<RetailTransactionLineDTO> records =
+        parser.parse(new StringReader(HEADER + "1|2023-04-26|NC|1|Y|RPOS\n2|2023-4-26|NC|1|Y|X\n"));
+    records.next();
+
+    FileParseException ex = assertThrows(FileParseException.class, records::next);
+    assertTrue(ex.getMessage().contains("TRANSACTION_DATE"));
+    assertTrue(ex.getMessage().contains("line 3"));
+  }
+
+  @Test
+  void testInvalidAmount() {
+    Iterator<RetailTransactionLineDTO> records =
+        parser.parse(new StringReader(HEADER + "1|2023-04-26|NC|1x|Y|RPOS\n"));
+
+    assertThrows(FileParseException.class, records::next);
+  }
+
+  @Test
+  void testFieldCountMismatch() {
+    Iterator<RetailTransactionLineDTO> records =
+        parser.parse(new StringReader(HEADER + "1|2023-04-26|NC\n"));
+
+    FileParseException ex = assertThrows(FileParseException.class, records::next);
+    assertTrue(ex.getMessage().contains("has 3 fields but the header has 6"));
+  }
+
+  @Test
+  void testUnexpectedQuote() {
+    Iterator<RetailTransactionLineDTO> records =
+        parser.parse(new StringReader(HEADER + "1|2023-04-26|N\"C|1|Y|RPOS\n"));
+
+    assertThrows(FileParseException.class, records::next);
+  }
+
+  @Test
+  void testRejectedRecordsAreSkipped() {
+    String rows =
+        "1|2023-04-26|NC|1|Y|RPOS\n"
+            + "2|2023-4-26|NC|1|Y|RPOS\n"
+            + "3|2023-04-26|N\"C|1|Y|RPOS\r\n"
+            + "4|2023-04-26|NC\n"
+            + "5|2023-04-26|\"N|C\"|1|Y|RPOS\n";
+    Iterator<RetailTransactionLineDTO> records = parser.parse(new StringReader(HEADER + rows));
+
+    assertEquals("1", records.next().getSourceReferenceTransactionId());
+    RejectedRecordException invalidDate =
+        assertThrows(RejectedRecordException.class, records::next);
+    assertEquals(3, invalidDate.getLineNumber());
+    assertEquals(HEADER.length() + 25, invalidDate.getSourceByteOffset());
+    assertEquals("2", invalidDate.getSourceReferenceTransactionId());
+    assertTrue(invalidDate.getMessage().contains("TRANSACTION_DATE"));
+
+    RejectedRecordException strayQuote = assertThrows(RejectedRecordException.class, records::next);
+    assertEquals(4, strayQuote.getLineNumber());
+    assertEquals(5, assertThrows(RejectedRecordException.class, records::next).getLineNumber());
+
+    RetailTransactionLineDTO last = records.next();
+    assertEquals("5", last.getSourceReferenceTransactionId());
+    assertEquals("N|C", last.getTenderType());
+    assertFalse(records.hasNext());
+  }
+
+  @Test
+  void testUnterminatedQuoteEndsTheFile() {
+    Iterator<RetailTransactionLineDTO> records =
+        parser.parse(new StringReader(HEADER + "1|2023-04-26|\"NC|1|Y|RPOS\n2|x\n"));
+
+    FileParseException ex = assertThrows(FileParseException.class, records::next);
+    assertFalse(ex instanceof RejectedRecordException);
+  }
+
+  private static List<RetailTransactionLineDTO> readAll(
+      RetailTransactionLineParser parser, Reader reader) {
+    List<RetailTransactionLineDTO> records = new ArrayList<>();
+    parser.parse(reader).forEachRemaining(records::add);
+    return records;
+  }
+
+  private static Reader resource(String fileName) {
+    return new InputStreamReader(
+        PipeDelimitedRetailTransactionLineParserTest.class
+            .getClassLoader()
+            .getResourceAsStream(fileName));
+  }
+}
@@ -1,38 +1,89 @@
 package com.nordstrom.finance.dataintegration.ertm.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
 
 import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
 import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import com.nordstrom.finance.dataintegration.ertm.config.AsyncConfig;
 import com.nordstrom.finance.dataintegration.ertm.config.AwsServiceConfig;
+import com.nordstrom.finance.dataintegration.ertm.config.ParserConfig;
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileIngestManifest;
+import com.nordstrom.finance.dataintegration.ertm.database.entity.FileProcessingCheckpoint;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.RetailTransactionLine;
 import com.nordstrom.finance.dataintegration.ertm.database.entity.Transaction;
+import com.nordstrom.finance.dataintegration.ertm.database.service.StagingTableDBService;
 import com.nordstrom.finance.dataintegration.ertm.database.service.TransactionDBService;
 import com.nordstrom.finance.dataintegration.ertm.exception.DataSourceExtractException;
+import com.nordstrom.finance.dataintegration.ertm.exception.DatabaseOperationException;
 import com.nordstrom.finance.dataintegration.ertm.exception.FileMappingException;
 import com.nordstrom.finance.dataintegration.ertm.mapper.RecordGenerator;
 import com.nordstrom.finance.dataintegration.ertm.mapper.RetailTransactionLineMapper;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.service.archive.ArchiveMover;
+import com.nordstrom.finance.dataintegration.ertm.service.batching.AdaptiveBatchSizeController;
+import com.nordstrom.finance.dataintegration.ertm.service.compression.InputDecompressor;
+import com.nordstrom.finance.dataintegration.ertm.service.dedupe.InFlightLineRegistry;
+import com.nordstrom.finance.dataintegration.ertm.service.dedupe.KnownTransactionIdFilter;
+import com.nordstrom.finance.dataintegration.ertm.service.download.ParallelRangeDownloader;
+import com.nordstrom.finance.dataintegration.ertm.service.lease.FileLeaseManager;
+import com.nordstrom.finance.dataintegration.ertm.service.quarantine.RecordQuarantineService;
+import com.nordstrom.finance.dataintegration.ertm.service.sort.ExternalTransactionSorter;
 import com.opencsv.exceptions.CsvException;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-@SpringBootTest(classes = {FileProcessorService.class})
+@SpringBootTest(
+    classes = {
+      FileProcessorService.class,
+      ParserConfig.class,
+      ExternalTransactionSorter.class,
+      InputDecompressor.class,
+      KnownTransactionIdFilter.class,
+      InFlightLineRegistry.class,
+      FileLeaseManager.class,
+      AdaptiveBatchSizeController.class,
+      RecordQuarantineService.class,
+      ArchiveMover.class
+    })
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
 public class FileProcessorServiceTest {
@@ -43,9 +94,41 @@ public class FileProcessorServiceTest {
   @MockitoBean private S3Utility s3Utility;
   @MockitoBean private AwsServiceConfig awsServiceConfig;
   @MockitoBean private TransactionDBService transactionDBService;
+  @MockitoBean private StagingTableDBService stagingTableDBService;
   @MockitoBean private RetailTransactionLineMapper retailTransactionLineMapper;
+  @MockitoBean private ParallelRangeDownloader parallelRangeDownloader;
+
+  @MockitoBean(name = AsyncConfig.FILE_PROCESSOR_EXECUTOR_BEAN_NAME)
+  private Executor fileProcessorTaskExecutor;
+
+  @MockitoBean(name = AsyncConfig.FILE_STAGE_EXECUTOR_BEAN_NAME)
+  private Executor fileStageTaskExecutor;
+
+  @MockitoBean(name = AsyncConfig.FILE_PARSE_EXECUTOR_BEAN_NAME)
+  private Executor fileParseTaskExecutor;
+
+  @MockitoBean(name = AsyncConfig.FILE_DECOMPRESS_EXECUTOR_BEAN_NAME)
+  private Executor fileDecompressTaskExecutor;
+
+  @MockitoBean(name = AsyncConfig.FILE_ARCHIVE_EXECUTOR_BEAN_NAME)
+  private Executor fileArchiveTaskExecutor;
+
+  @MockitoBean(name = AsyncConfig.FILE_ARCHIVE_PART_EXECUTOR_BEAN_NAME)
+  private Executor fileArchivePartTaskExecutor;
+
+  @MockitoBean(name = AsyncConfig.FILE_LEASE_SCHEDULER_BEAN_NAME)
+  private TaskScheduler fileLeaseTaskScheduler;
+
+  @Autowired private FileLeaseManager fileLeaseManager;
+  @Autowired private RecordQuarantineService recordQuarantineService;
+  @Autowired private InFlightLineRegistry inFlightLineRegistry;
+
+  @TempDir Path spoolDirectory;
+
   @Mock private software.amazon.awssdk.services.s3.model.S3Object mockS3Object;
   @Mock private ResponseInputStream<GetObjectResponse> mockS3InputStream;
+  @Captor private ArgumentCaptor<List<String>> transactionIdLookups;
+  @Captor private ArgumentCaptor<List<Transaction>> savedTransactions;
   @MockitoBean BufferedReader mockBufferedReader;
   @MockitoBean InputStream mockInputStream;
   RetailTransactionLine retailTransactionLine;
@@ -59,8 +142,8 @@ public class FileProcessorServiceTest {
   @Test
   public void processCsvFromS3Test_success() throws IOException, DataSourceExtractException {
     try (MockedStatic<S3Utility> mockedS3Util = Mockito.mockStatic(S3Utility.class)) {
-      when(transactionDBService.getExistingLineItemIds(anyString(), anyList()))
-          .thenReturn(Collections.emptyList());
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
       when(mockBufferedReader.readLine()).thenReturn("first line");
       when(s3Utility.downloadFileAsStream(any(), eq("bucket"))).thenReturn(mockS3InputStream);
       when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
@@ -86,12 +169,92 @@ public class FileProcessorServiceTest {
     }
   }
 
+  @Test
+  public void processCsvFromS3Test_concurrentFiles_isolatesFailures() {
+    ReflectionTestUtils.setField(fileProcessorService, "maxFilesInFlight", 2);
+    try {
+      doAnswer(
+              invocation -> {
+                ((Runnable) invocation.getArgument(0)).run();
+                return null;
+              })
+          .when(fileProcessorTaskExecutor)
+          .execute(any(Runnable.class));
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1", "file_2"));
+      when(s3Utility.downloadFileAsStream(eq("file_1"), eq("bucket"))).thenReturn(null);
+      when(s3Utility.downloadFileAsStream(eq("file_2"), eq("bucket")))
+          .thenReturn(s3InputStream("ertm_source/ERTM_Valid_Data.csv"));
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(fileProcessorTaskExecutor, times(2)).execute(any(Runnable.class));
+      verify(transactionDBService, times(1)).saveAllTransaction(any());
+      verify(s3Utility, never()).moveFileToAnotherBucket(eq("file_1"), any(), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_2", "bucket", "processed");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "maxFilesInFlight", 1);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_concurrentFiles_storeSharedTransactionOnce() {
+    ReflectionTestUtils.setField(fileProcessorService, "maxFilesInFlight", 2);
+    try {
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileProcessorTaskExecutor)
+          .execute(any(Runnable.class));
+      String csvContent = createTestCsvContent();
+      byte[] sharedTransaction =
+          csvContent.substring(0, csvContent.indexOf("TXN002|")).getBytes(StandardCharsets.UTF_8);
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1", "file_2"));
+      when(s3Utility.downloadFileAsStream(any(), eq("bucket")))
+          .thenAnswer(invocation -> s3InputStream(sharedTransaction));
+      when(s3Utility.moveFileToAnotherBucket(any(), eq("bucket"), eq("processed")))
+          .thenReturn(true);
+      CountDownLatch otherFileBatchDone = new CountDownLatch(1);
+      doAnswer(
+              invocation -> {
+                otherFileBatchDone.countDown();
+                return null;
+              })
+          .when(metricsClient)
+          .count(eq(Metric.BATCH_PROCESSING_COUNT.getMetricName()), eq(1L));
+      doAnswer(
+              invocation -> {
+                // the file that claimed the lines commits only after the other one dropped them
+                assertTrue(otherFileBatchDone.await(5, TimeUnit.SECONDS));
+                return null;
+              })
+          .when(transactionDBService)
+          .saveAllTransaction(any());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(retailTransactionLineMapper, times(5)).mapRecordToRetailTransactionLine(any(), any());
+      verify(transactionDBService, times(1)).saveAllTransaction(any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_2", "bucket", "processed");
+      assertEquals(0, inFlightLineRegistry.size());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "maxFilesInFlight", 1);
+    }
+  }
+
   @Test
   public void processBatch_success() throws IOException, CsvException, FileMappingException {
     BufferedReader reader = readCsvFile("ertm_source/ERTM_Valid_Data.csv");
 
-    when(transactionDBService.getExistingLineItemIds(eq("1"), anyList()))
-        .thenReturn(Collections.emptyList());
+    when(transactionDBService.getExistingLineItemIds(anyMap())).thenReturn(Collections.emptyMap());
     doNothing().when(transactionDBService).saveTransaction(any(Transaction.class));
     when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
         .thenReturn(retailTransactionLine);
@@ -108,11 +271,12 @@ public class FileProcessorServiceTest {
     when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
         .thenReturn(retailTransactionLine);
     when(transactionDBService.getExistingTransactionIds(anyList())).thenReturn(List.of("1"));
-    when(transactionDBService.getExistingLineItemIds(anyString(), anyList()))
-        .thenReturn(List.of("101"));
+    when(transactionDBService.getExistingLineItemIds(anyMap()))
+        .thenReturn(Map.of("1", Set.of("101")));
     fileProcessorService.processFileData(reader);
 
     verify(retailTransactionLineMapper, times(0)).mapRecordToRetailTransactionLine(any(), any());
+    verify(transactionDBService, times(1)).getExistingLineItemIds(anyMap());
   }
 
   @Test
@@ -120,8 +284,7 @@ public class FileProcessorServiceTest {
     BufferedReader reader = readCsvFile("ertm_source/ERTM_Valid_Data.csv");
 
     Transaction transaction = RecordGenerator.generateTransaction();
-    when(transactionDBService.getExistingLineItemIds(anyString(), anyList()))
-        .thenReturn(Collections.emptyList());
+    when(transactionDBService.getExistingLineItemIds(anyMap())).thenReturn(Collections.emptyMap());
     when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(
             any(), any(Transaction.class)))
         .thenReturn(mock(RetailTransactionLine.class));
@@ -138,8 +301,7 @@ public class FileProcessorServiceTest {
     BufferedReader reader = readCsvFile("ertm_source/ERTM_Valid_Data.csv");
 
     Transaction transaction = RecordGenerator.generateTransaction();
-    when(transactionDBService.getExistingLineItemIds(anyString(), anyList()))
-        .thenReturn(Collections.emptyList());
+    when(transactionDBService.getExistingLineItemIds(anyMap())).thenReturn(Collections.emptyMap());
     when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(
             any(), any(Transaction.class)))
         .thenReturn(mock(RetailTransactionLine.class));
@@ -159,8 +321,7 @@ public class FileProcessorServiceTest {
     BufferedReader reader = new BufferedReader(new StringReader(csvContent));
 
     // Mock no duplicates
-    when(transactionDBService.getExistingLineItemIds(anyString(), anyList()))
-        .thenReturn(Collections.emptyList());
+    when(transactionDBService.getExistingLineItemIds(anyMap())).thenReturn(Collections.emptyMap());
 
     // Mock retail transaction line mapper
     when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
@@ -185,8 +346,7 @@ public class FileProcessorServiceTest {
     BufferedReader reader = new BufferedReader(new StringReader(csvContent));
 
     // Mock no duplicates
-    when(transactionDBService.getExistingLineItemIds(anyString(), anyList()))
-        .thenReturn(Collections.emptyList());
+    when(transactionDBService.getExistingLineItemIds(anyMap())).thenReturn(Collections.emptyMap());
 
     // Mock retail transaction line mapper
     when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
@@ -202,6 +362,613 @@ public class FileProcessorServiceTest {
     verify(transactionDBService, times(2)).saveAllTransaction(any());
   }
 
+  @Test
+  public void processBatch_pipelineEnabled_validateTransactionBoundaries()
+      throws IOException, FileMappingException {
+    ReflectionTestUtils.setField(fileProcessorService, "pipelineEnabled", true);
+    try {
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileStageTaskExecutor)
+          .execute(any(Runnable.class));
+      BufferedReader reader =
+          new BufferedReader(new StringReader(createTestCsvWithTransactionBoundaries()));
+
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processFileData(reader);
+
+      // dedupe, map and persist workers
+      verify(fileStageTaskExecutor, times(3)).execute(any(Runnable.class));
+      verify(retailTransactionLineMapper, times(15)).mapRecordToRetailTransactionLine(any(), any());
+      verify(transactionDBService, times(2)).saveAllTransaction(any());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "pipelineEnabled", false);
+    }
+  }
+
+  @Test
+  public void processBatch_pipelineEnabled_dropsLineRepeatedBeforeEarlierBatchCommits()
+      throws FileMappingException {
+    ReflectionTestUtils.setField(fileProcessorService, "pipelineEnabled", true);
+    try {
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileStageTaskExecutor)
+          .execute(any(Runnable.class));
+      String csvContent = createTestCsvContent();
+      // batch 1 holds TXN001 and TXN002, batch 2 TXN003 and a repeat of TXN001_2
+      BufferedReader reader =
+          new BufferedReader(
+              new StringReader(
+                  csvContent.substring(0, csvContent.indexOf("TXN004|"))
+                      + csvContent
+                          .lines()
+                          .filter(line -> line.contains("|TXN001_2|"))
+                          .findFirst()
+                          .get()
+                      + "\n"));
+      CountDownLatch secondLookup = new CountDownLatch(2);
+      when(transactionDBService.getExistingTransactionIds(anyList()))
+          .thenAnswer(
+              invocation -> {
+                secondLookup.countDown();
+                return List.of();
+              });
+      doAnswer(
+              invocation -> {
+                // batch 1 commits only after batch 2 went through the duplicate lookup
+                assertTrue(secondLookup.await(5, TimeUnit.SECONDS));
+                return null;
+              })
+          .when(transactionDBService)
+          .saveAllTransaction(any());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processFileData(reader);
+
+      verify(transactionDBService, times(2)).getExistingTransactionIds(anyList());
+      verify(retailTransactionLineMapper, times(15)).mapRecordToRetailTransactionLine(any(), any());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "pipelineEnabled", false);
+    }
+  }
+
+  @Test
+  public void processBatch_pipelineEnabled_persistFailure() {
+    ReflectionTestUtils.setField(fileProcessorService, "pipelineEnabled", true);
+    try {
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileStageTaskExecutor)
+          .execute(any(Runnable.class));
+      BufferedReader reader = new BufferedReader(new StringReader(createTestCsvContent()));
+
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+      doThrow(new DatabaseOperationException("Failed to save transactions"))
+          .when(transactionDBService)
+          .saveAllTransaction(any());
+
+      assertThrows(FileMappingException.class, () -> fileProcessorService.processFileData(reader));
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "pipelineEnabled", false);
+    }
+  }
+
+  @Test
+  public void processFileData_stagingMode_copiesAndMergesWholeFile() throws FileMappingException {
+    ReflectionTestUtils.setField(fileProcessorService, "ingestMode", IngestMode.STAGING);
+    try {
+      BufferedReader reader = new BufferedReader(new StringReader(createTestCsvContent()));
+      when(stagingTableDBService.copyToStaging(any(), any()))
+          .thenAnswer(
+              invocation -> {
+                Iterator<?> records = invocation.getArgument(1);
+                long count = 0;
+                for (; records.hasNext(); records.next()) {
+                  count++;
+                }
+                return count;
+              });
+
+      fileProcessorService.processFileData(reader);
+
+      verify(stagingTableDBService, times(1)).mergeStagedLoad(any(), eq(25L));
+      verify(stagingTableDBService, times(1)).deleteStagedLoad(any());
+      verify(retailTransactionLineMapper, never()).mapRecordToRetailTransactionLine(any(), any());
+      verify(transactionDBService, never()).saveAllTransaction(any());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "ingestMode", IngestMode.ENTITY);
+    }
+  }
+
+  @Test
+  public void processFileData_stagingMode_mergeFailureDeletesStagedRows() {
+    ReflectionTestUtils.setField(fileProcessorService, "ingestMode", IngestMode.STAGING);
+    try {
+      BufferedReader reader = new BufferedReader(new StringReader(createTestCsvContent()));
+      when(stagingTableDBService.copyToStaging(any(), any())).thenReturn(25L);
+      when(stagingTableDBService.mergeStagedLoad(any(), eq(25L)))
+          .thenThrow(new DatabaseOperationException("Failed to merge staged transactions"));
+
+      assertThrows(FileMappingException.class, () -> fileProcessorService.processFileData(reader));
+      verify(stagingTableDBService, times(1)).deleteStagedLoad(any());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "ingestMode", IngestMode.ENTITY);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_checkpointEnabled_savesCheckpointWithEveryBatch() {
+    ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", true);
+    try {
+      String csvContent = createTestCsvContent();
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(csvContent.length(), "\"e1\"", null));
+      when(transactionDBService.findCheckpoint("bucket", "file_1")).thenReturn(Optional.empty());
+      when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+          .thenReturn(s3InputStream(csvContent.getBytes(StandardCharsets.UTF_8)));
+      when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(true);
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      ArgumentCaptor<FileProcessingCheckpoint> checkpoints =
+          ArgumentCaptor.forClass(FileProcessingCheckpoint.class);
+      // batches close on the first transaction boundary after 10 records
+      verify(transactionDBService, times(3)).saveAllTransaction(anyList(), checkpoints.capture());
+      verify(transactionDBService, never()).saveAllTransaction(anyList());
+      assertEquals(
+          List.of(
+              (long) csvContent.indexOf("TXN003|"),
+              (long) csvContent.indexOf("TXN005|"),
+              (long) csvContent.length()),
+          checkpoints.getAllValues().stream()
+              .map(FileProcessingCheckpoint::getResumeByteOffset)
+              .toList());
+      FileProcessingCheckpoint last = checkpoints.getValue();
+      assertEquals("\"e1\"", last.getETag());
+      assertEquals(3, last.getBatchNumber());
+      assertEquals(25, last.getRecordsProcessed());
+      assertEquals(csvContent.indexOf("TXN001|"), last.getDataStartByteOffset());
+      verify(transactionDBService, times(1)).deleteCheckpoint("bucket", "file_1");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_checkpointEnabled_resumesFromCheckpointOffset() {
+    ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", true);
+    try {
+      String csvContent = createTestCsvContent();
+      int dataStart = csvContent.indexOf("TXN001|");
+      int resumeOffset = csvContent.indexOf("TXN004|");
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(csvContent.length(), "\"e1\"", null));
+      when(transactionDBService.findCheckpoint("bucket", "file_1"))
+          .thenReturn(
+              Optional.of(
+                  FileProcessingCheckpoint.builder()
+                      .sourceBucket("bucket")
+                      .fileKey("file_1")
+                      .eTag("\"e1\"")
+                      .resumeByteOffset(resumeOffset)
+                      .dataStartByteOffset(dataStart)
+                      .batchNumber(3)
+                      .recordsProcessed(15)
+                      .transactionsSaved(3)
+                      .build()));
+      when(s3Utility.downloadFileRangeAsStream("file_1", "bucket", 0, dataStart - 1, "\"e1\""))
+          .thenReturn(
+              s3InputStream(csvContent.substring(0, dataStart).getBytes(StandardCharsets.UTF_8)));
+      when(s3Utility.downloadFileRangeAsStream("file_1", "bucket", resumeOffset, -1, "\"e1\""))
+          .thenReturn(
+              s3InputStream(csvContent.substring(resumeOffset).getBytes(StandardCharsets.UTF_8)));
+      when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(true);
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(s3Utility, never()).downloadFileAsStream(any(), any());
+      verify(retailTransactionLineMapper, times(10)).mapRecordToRetailTransactionLine(any(), any());
+      ArgumentCaptor<FileProcessingCheckpoint> checkpoints =
+          ArgumentCaptor.forClass(FileProcessingCheckpoint.class);
+      verify(transactionDBService, times(1)).saveAllTransaction(anyList(), checkpoints.capture());
+      FileProcessingCheckpoint last = checkpoints.getValue();
+      assertEquals(4, last.getBatchNumber());
+      assertEquals(csvContent.length(), last.getResumeByteOffset());
+      assertEquals(25, last.getRecordsProcessed());
+      verify(transactionDBService, times(1)).deleteCheckpoint("bucket", "file_1");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_checkpointAtEndOfFile_onlyArchivesFile() {
+    ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", true);
+    try {
+      String csvContent = createTestCsvContent();
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(csvContent.length(), "\"e1\"", null));
+      when(transactionDBService.findCheckpoint("bucket", "file_1"))
+          .thenReturn(
+              Optional.of(
+                  FileProcessingCheckpoint.builder()
+                      .sourceBucket("bucket")
+                      .fileKey("file_1")
+                      .eTag("\"e1\"")
+                      .resumeByteOffset(csvContent.length())
+                      .dataStartByteOffset(csvContent.indexOf("TXN001|"))
+                      .batchNumber(3)
+                      .recordsProcessed(25)
+                      .transactionsSaved(5)
+                      .build()));
+      when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(true);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(s3Utility, never()).downloadFileAsStream(any(), any());
+      verify(s3Utility, never())
+          .downloadFileRangeAsStream(any(), any(), anyLong(), anyLong(), any());
+      verify(transactionDBService, never()).saveAllTransaction(anyList(), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+      verify(transactionDBService, times(1)).deleteCheckpoint("bucket", "file_1");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_manifestHit_onlyRetriesArchiveMove() {
+    ReflectionTestUtils.setField(fileProcessorService, "manifestEnabled", true);
+    try {
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(100L, "\"e1\"", null));
+      when(transactionDBService.isFileIngested("bucket", "file_1", "\"e1\"", 100L))
+          .thenReturn(true);
+      when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(true);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(s3Utility, never()).downloadFileAsStream(any(), any());
+      verify(transactionDBService, never()).recordFileIngested(any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+      verify(metricsClient)
+          .count(eq(Metric.FILE_MANIFEST_SKIP_COUNT.getMetricName()), eq(1L), any());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "manifestEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_manifestEnabled_recordsIngestedFile() {
+    ReflectionTestUtils.setField(fileProcessorService, "manifestEnabled", true);
+    try {
+      String csvContent = createTestCsvContent();
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(csvContent.length(), "\"e1\"", null));
+      when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+          .thenReturn(s3InputStream(csvContent.getBytes(StandardCharsets.UTF_8)));
+      when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(false);
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      ArgumentCaptor<FileIngestManifest> manifest =
+          ArgumentCaptor.forClass(FileIngestManifest.class);
+      verify(transactionDBService, times(1)).recordFileIngested(manifest.capture());
+      assertEquals("file_1", manifest.getValue().getFileKey());
+      assertEquals("\"e1\"", manifest.getValue().getETag());
+      assertEquals(csvContent.length(), manifest.getValue().getContentLength());
+      assertEquals(25, manifest.getValue().getRecordsProcessed());
+      verify(retailTransactionLineMapper, times(25)).mapRecordToRetailTransactionLine(any(), any());
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "manifestEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_leaseEnabled_processesOnlyClaimedFiles() {
+    ReflectionTestUtils.setField(fileLeaseManager, "enabled", true);
+    try {
+      String csvContent = createTestCsvContent();
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1", "file_2", "file_3"));
+      when(transactionDBService.tryAcquireLease(eq("bucket"), eq("file_1"), any(), anyInt()))
+          .thenReturn(true);
+      when(transactionDBService.tryAcquireLease(eq("bucket"), eq("file_3"), any(), anyInt()))
+          .thenReturn(true);
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(csvContent.length(), "\"e1\"", null));
+      // file_3 was archived by another pod after it was listed here
+      when(s3Utility.getObjectMetadata("file_3", "bucket")).thenReturn(null);
+      when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+          .thenReturn(s3InputStream(csvContent.getBytes(StandardCharsets.UTF_8)));
+      when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(true);
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(s3Utility, times(1)).downloadFileAsStream(any(), any());
+      verify(s3Utility, never()).getObjectMetadata("file_2", "bucket");
+      verify(s3Utility, times(1)).moveFileToAnotherBucket(any(), any(), any());
+      verify(metricsClient)
+          .count(eq(Metric.FILE_LEASE_SKIP_COUNT.getMetricName()), eq(1L), eq("file.name:file_2"));
+      verify(transactionDBService).releaseLease(eq("bucket"), eq("file_1"), any());
+      verify(transactionDBService).releaseLease(eq("bucket"), eq("file_3"), any());
+    } finally {
+      ReflectionTestUtils.setField(fileLeaseManager, "enabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_parallelDownload_readsFromDownloader() throws IOException {
+    ReflectionTestUtils.setField(fileProcessorService, "parallelDownloadEnabled", true);
+    try {
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(parallelRangeDownloader.download("file_1", "bucket", 0, null))
+          .thenReturn(
+              new ByteArrayInputStream(createTestCsvContent().getBytes(StandardCharsets.UTF_8)));
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(s3Utility, never()).downloadFileAsStream(any(), any());
+      verify(retailTransactionLineMapper, times(25)).mapRecordToRetailTransactionLine(any(), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "parallelDownloadEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_chunkedParse_processesAllChunks() throws IOException {
+    ReflectionTestUtils.setField(fileProcessorService, "chunkedParseEnabled", true);
+    ReflectionTestUtils.setField(fileProcessorService, "parseChunks", 3);
+    ReflectionTestUtils.setField(fileProcessorService, "minChunkSizeMb", 0);
+    ReflectionTestUtils.setField(fileProcessorService, "spoolDirectory", spoolDirectory.toString());
+    try {
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileParseTaskExecutor)
+          .execute(any(Runnable.class));
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileStageTaskExecutor)
+          .execute(any(Runnable.class));
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+          .thenReturn(s3InputStream(createTestCsvContent().getBytes(StandardCharsets.UTF_8)));
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      // 3 chunk workers, 1 persistence worker
+      verify(fileParseTaskExecutor, times(3)).execute(any(Runnable.class));
+      verify(fileStageTaskExecutor, times(1)).execute(any(Runnable.class));
+      verify(retailTransactionLineMapper, times(25)).mapRecordToRetailTransactionLine(any(), any());
+      // chunks of 10, 10 and 5 records, one batch each
+      verify(transactionDBService, times(3)).saveAllTransaction(any());
+      verify(metricsClient).count(eq(Metric.FILE_CHUNK_COUNT.getMetricName()), eq(3L), any());
+      verify(metricsClient).count(eq(Metric.FILE_RECORDS_COUNT.getMetricName()), eq(25L), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+      try (var spoolFiles = Files.list(spoolDirectory)) {
+        assertEquals(0, spoolFiles.count());
+      }
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "chunkedParseEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_sortAuto_sortsInterleavedTransactions() {
+    ReflectionTestUtils.setField(fileProcessorService, "sortMode", TransactionSortMode.AUTO);
+    ReflectionTestUtils.setField(fileProcessorService, "spoolDirectory", spoolDirectory.toString());
+    try {
+      // lines of every transaction spread over the file: line 1 of all, then line 2 of all, ...
+      String[] lines = createTestCsvContent().split("\n");
+      StringBuilder interleaved = new StringBuilder(lines[0]).append('\n');
+      for (int line = 0; line < 5; line++) {
+        for (int txn = 4; txn >= 0; txn--) {
+          interleaved.append(lines[1 + txn * 5 + line]).append('\n');
+        }
+      }
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+          .thenReturn(s3InputStream(interleaved.toString().getBytes(StandardCharsets.UTF_8)));
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(metricsClient).count(eq(Metric.FILE_SORT_COUNT.getMetricName()), eq(1L), any());
+      // sorted input: batches close on a transaction boundary, never split a transaction
+      verify(transactionDBService, times(3))
+          .getExistingTransactionIds(transactionIdLookups.capture());
+      assertEquals(
+          List.of(List.of("TXN001", "TXN002"), List.of("TXN003", "TXN004"), List.of("TXN005")),
+          transactionIdLookups.getAllValues());
+      verify(retailTransactionLineMapper, times(25)).mapRecordToRetailTransactionLine(any(), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "sortMode", TransactionSortMode.OFF);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_gzipWithoutExtension_decompressesWithoutCheckpoints()
+      throws IOException {
+    ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", true);
+    try {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+        gzip.write(createTestCsvContent().getBytes(StandardCharsets.UTF_8));
+      }
+      doAnswer(
+              invocation -> {
+                new Thread((Runnable) invocation.getArgument(0)).start();
+                return null;
+              })
+          .when(fileDecompressTaskExecutor)
+          .execute(any(Runnable.class));
+      when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+      when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+      when(s3Utility.getObjectMetadata("file_1", "bucket"))
+          .thenReturn(new ObjectMetadata(compressed.size(), "\"e1\"", null));
+      when(transactionDBService.findCheckpoint("bucket", "file_1")).thenReturn(Optional.empty());
+      when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+          .thenReturn(s3InputStream(compressed.toByteArray()));
+      when(transactionDBService.getExistingLineItemIds(anyMap()))
+          .thenReturn(Collections.emptyMap());
+      when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+          .thenReturn(retailTransactionLine);
+
+      fileProcessorService.processCsvFromS3();
+
+      verify(fileDecompressTaskExecutor, times(1)).execute(any(Runnable.class));
+      verify(retailTransactionLineMapper, times(25)).mapRecordToRetailTransactionLine(any(), any());
+      // offsets of decompressed content cannot be resumed with ranged reads of the object
+      verify(transactionDBService, times(3)).saveAllTransaction(anyList());
+      verify(transactionDBService, never()).saveAllTransaction(anyList(), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+    } finally {
+      ReflectionTestUtils.setField(fileProcessorService, "checkpointEnabled", false);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_quarantine_rejectsBadTransactionsAndArchivesFile() {
+    ReflectionTestUtils.setField(recordQuarantineService, "enabled", true);
+    ReflectionTestUtils.setField(recordQuarantineService, "maxRejectedPercent", 50.0);
+    try {
+      List<String> rejects = stubQuarantineRun();
+
+      fileProcessorService.processCsvFromS3();
+
+      // TXN002 has an invalid date on line 9, the mapper fails on TXN004
+      verify(transactionDBService, atLeastOnce()).saveAllTransaction(savedTransactions.capture());
+      assertEquals(3, savedTransactions.getAllValues().stream().mapToInt(List::size).sum());
+      verify(retailTransactionLineMapper, never())
+          .mapRecordToRetailTransactionLine(
+              argThat(line -> "TXN002".equals(line.getSourceReferenceTransactionId())), any());
+
+      assertEquals(11, rejects.size());
+      assertTrue(rejects.get(1).startsWith("9|"));
+      assertTrue(rejects.get(1).contains("\"TXN002\"|"));
+      assertTrue(rejects.get(1).contains("TRANSACTION_DATE"));
+      assertEquals(4, rejects.stream().filter(line -> line.contains("\"TXN002_")).count());
+      assertEquals(
+          5, rejects.stream().filter(line -> line.contains("Unknown tender type")).count());
+      verify(metricsClient)
+          .count(eq(Metric.FILE_REJECTED_RECORDS_COUNT.getMetricName()), eq(10L), any());
+      verify(s3Utility, times(1)).moveFileToAnotherBucket("file_1", "bucket", "processed");
+    } finally {
+      ReflectionTestUtils.setField(recordQuarantineService, "enabled", false);
+      ReflectionTestUtils.setField(recordQuarantineService, "maxRejectedPercent", 1.0);
+    }
+  }
+
+  @Test
+  public void processCsvFromS3_quarantine_failsFileOverErrorBudget() {
+    ReflectionTestUtils.setField(recordQuarantineService, "enabled", true);
+    try {
+      List<String> rejects = stubQuarantineRun();
+
+      fileProcessorService.processCsvFromS3();
+
+      // 10 of 25 records rejected, the default budget allows 1%
+      assertEquals(11, rejects.size());
+      verify(s3Utility, never()).moveFileToAnotherBucket(any(), any(), any());
+    } finally {
+      ReflectionTestUtils.setField(recordQuarantineService, "enabled", false);
+    }
+  }
+
+  /** 25 records with an invalid date on line 9 (TXN002) and a mapper failing on TXN004. */
+  private List<String> stubQuarantineRun() {
+    String[] lines = createTestCsvContent().split("\n");
+    lines[8] = lines[8].replaceFirst("2023-04-26", "2023-02-30");
+    when(awsServiceConfig.getProcessedBucket()).thenReturn("processed");
+    when(s3Utility.listFileKeys("bucket")).thenReturn(List.of("file_1"));
+    when(s3Utility.downloadFileAsStream("file_1", "bucket"))
+        .thenReturn(
+            s3InputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8)));
+    when(transactionDBService.getExistingLineItemIds(anyMap())).thenReturn(Collections.emptyMap());
+    when(retailTransactionLineMapper.mapRecordToRetailTransactionLine(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              RetailTransactionLineDTO line = invocation.getArgument(0);
+              if ("TXN004".equals(line.getSourceReferenceTransactionId())) {
+                throw new IllegalArgumentException("Unknown tender type");
+              }
+              return retailTransactionLine;
+            });
+    when(s3Utility.moveFileToAnotherBucket(any(), any(), any())).thenReturn(true);
+    List<String> rejects = new ArrayList<>();
+    when(s3Utility.uploadLocalFile(any(Path.class), eq("file_1.rejects.csv"), eq("processed")))
+        .thenAnswer(
+            invocation -> {
+              rejects.addAll(Files.readAllLines(invocation.getArgument(0)));
+              return true;
+            });
+    return rejects;
+  }
+
   /**
    * Creates test CSV content with 25 records across 5 transactions (5 lines each) This should
    * result in multiple batches with batch size 10
@@ -264,6 +1031,19 @@ public class FileProcessorServiceTest {
     return csv.toString();
   }
 
+  ResponseInputStream<GetObjectResponse> s3InputStream(byte[] content) {
+    return new ResponseInputStream<>(
+        GetObjectResponse.builder().build(),
+        AbortableInputStream.create(new ByteArrayInputStream(content)));
+  }
+
+  ResponseInputStream<GetObjectResponse> s3InputStream(String fileName) {
+    InputStream inputStream =
+        FileProcessorServiceTest.class.getClassLoader().getResourceAsStream(fileName);
+    return new ResponseInputStream<>(
+        GetObjectResponse.builder().build(), AbortableInputStream.create(inputStream));
+  }
+
   BufferedReader readCsvFile(String fileName) throws IOException {
     InputStream inputStream =
         FileProcessorServiceTest.class.getClassLoader().getResourceAsStream(fileName);
@@ -0,0 +1,193 @@
+package com.nordstrom.finance.dataintegration.ertm.service.archive;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+class ArchiveMoverTest {
+
+  private static final long MB = 1024 * 1024;
+
+  private S3Utility s3Utility;
+  private MetricsClient metricsClient;
+  private final AtomicReference<Boolean> outcome = new AtomicReference<>();
+
+  @BeforeEach
+  void setup() {
+    s3Utility = mock(S3Utility.class);
+    metricsClient = mock(MetricsClient.class);
+    when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed")).thenReturn(true);
+    when(s3Utility.createMultipartUpload("file_1", "processed")).thenReturn("upload-1");
+    when(s3Utility.uploadPartCopy(
+            eq("file_1"),
+            eq("bucket"),
+            eq("processed"),
+            eq("upload-1"),
+            anyInt(),
+            anyLong(),
+            anyLong(),
+            eq("etag-1")))
+        .thenAnswer(
+            invocation ->
+                CompletedPart.builder()
+                    .partNumber(invocation.getArgument(4))
+                    .eTag("part-" + invocation.getArgument(4))
+                    .build());
+    when(s3Utility.completeMultipartUpload(eq("file_1"), eq("processed"), eq("upload-1"), any()))
+        .thenReturn(true);
+    when(s3Utility.deleteFile("file_1", "bucket")).thenReturn(true);
+  }
+
+  @Test
+  void testSmallFileIsMovedWithOneCopy() {
+    mover(false, true).move("file_1", "bucket", "processed", object(9 * MB), outcome::set);
+
+    assertTrue(outcome.get());
+    verify(s3Utility).moveFileToAnotherBucket("file_1", "bucket", "processed");
+    verify(s3Utility, never()).createMultipartUpload(any(), any());
+    verify(metricsClient)
+        .recordExecutionTime(eq(Metric.FILE_ARCHIVE_TIME.getMetricName()), anyLong(), any());
+  }
+
+  @Test
+  void testMissingMetadataIsReadOnlyForMultipartMoves() {
+    when(s3Utility.getObjectMetadata("file_1", "bucket")).thenReturn(object(25 * MB));
+
+    mover(false, false).move("file_1", "bucket", "processed", null, outcome::set);
+    verify(s3Utility, never()).getObjectMetadata(any(), any());
+    verify(s3Utility).moveFileToAnotherBucket("file_1", "bucket", "processed");
+
+    mover(false, true).move("file_1", "bucket", "processed", null, outcome::set);
+    verify(s3Utility).getObjectMetadata("file_1", "bucket");
+    verify(s3Utility).createMultipartUpload("file_1", "processed");
+    assertTrue(outcome.get());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testLargeFileIsCopiedInParts() {
+    mover(false, true).move("file_1", "bucket", "processed", object(23 * MB), outcome::set);
+
+    assertTrue(outcome.get());
+    verify(s3Utility)
+        .uploadPartCopy("file_1", "bucket", "processed", "upload-1", 1, 0, 5 * MB - 1, "etag-1");
+    verify(s3Utility)
+        .uploadPartCopy(
+            "file_1", "bucket", "processed", "upload-1", 5, 20 * MB, 23 * MB - 1, "etag-1");
+    ArgumentCaptor<List<CompletedPart>> parts = ArgumentCaptor.forClass(List.class);
+    verify(s3Utility)
+        .completeMultipartUpload(eq("file_1"), eq("processed"), eq("upload-1"), parts.capture());
+    assertEquals(5, parts.getValue().size());
+    verify(s3Utility).deleteFile("file_1", "bucket");
+    verify(s3Utility, never()).moveFileToAnotherBucket(any(), any(), any());
+    verify(s3Utility, never()).abortMultipartUpload(any(), any(), any());
+  }
+
+  @Test
+  void testFailedPartAbortsTheUpload() {
+    when(s3Utility.uploadPartCopy(
+            "file_1", "bucket", "processed", "upload-1", 3, 10 * MB, 15 * MB - 1, "etag-1"))
+        .thenReturn(null);
+
+    mover(false, true).move("file_1", "bucket", "processed", object(23 * MB), outcome::set);
+
+    assertFalse(outcome.get());
+    verify(s3Utility, times(3))
+        .uploadPartCopy(
+            "file_1", "bucket", "processed", "upload-1", 3, 10 * MB, 15 * MB - 1, "etag-1");
+    verify(s3Utility, never()).completeMultipartUpload(any(), any(), any(), any());
+    verify(s3Utility).abortMultipartUpload("file_1", "processed", "upload-1");
+    verify(s3Utility, never()).deleteFile(any(), any());
+  }
+
+  @Test
+  void testFailedCompletionAbortsTheUpload() {
+    when(s3Utility.completeMultipartUpload(eq("file_1"), eq("processed"), eq("upload-1"), any()))
+        .thenReturn(false);
+
+    mover(false, true).move("file_1", "bucket", "processed", object(23 * MB), outcome::set);
+
+    assertFalse(outcome.get());
+    verify(s3Utility).abortMultipartUpload("file_1", "processed", "upload-1");
+    verify(s3Utility, never()).deleteFile(any(), any());
+  }
+
+  @Test
+  void testCallbackErrorIsNotPropagated() {
+    when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed"))
+        .thenThrow(new IllegalStateException("S3 down"));
+
+    assertDoesNotThrow(
+        () ->
+            mover(false, false)
+                .move(
+                    "file_1",
+                    "bucket",
+                    "processed",
+                    null,
+                    moved -> {
+                      outcome.set(moved);
+                      throw new IllegalStateException("lease table down");
+                    }));
+    assertFalse(outcome.get());
+  }
+
+  @Test
+  void testAsyncMovesAreAwaited() throws Exception {
+    final CountDownLatch copying = new CountDownLatch(1);
+    when(s3Utility.moveFileToAnotherBucket("file_1", "bucket", "processed"))
+        .thenAnswer(
+            invocation -> {
+              assertTrue(copying.await(10, TimeUnit.SECONDS));
+              return true;
+            });
+    final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor();
+    try {
+      ArchiveMover mover =
+          new ArchiveMover(
+              s3Utility, metricsClient, archiveExecutor, Runnable::run, true, false, 256, 128);
+
+      mover.move("file_1", "bucket", "processed", null, outcome::set);
+      assertNull(outcome.get());
+
+      copying.countDown();
+      mover.awaitPendingMoves();
+      assertTrue(outcome.get());
+      verify(metricsClient, atLeastOnce())
+          .recordGaugeValue(Metric.FILE_ARCHIVE_PENDING.getMetricName(), 1);
+    } finally {
+      archiveExecutor.shutdownNow();
+    }
+  }
+
+  private ArchiveMover mover(boolean asyncEnabled, boolean multipartEnabled) {
+    return new ArchiveMover(
+        s3Utility,
+        metricsClient,
+        Runnable::run,
+        Runnable::run,
+        asyncEnabled,
+        multipartEnabled,
+        10,
+        5);
+  }
+
+  private static ObjectMetadata object(long size) {
+    return new ObjectMetadata(size, "etag-1", null);
+  }
+}
@@ -0,0 +1,124 @@
+package com.nordstrom.finance.dataintegration.ertm.service.batching;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveBatchSizeControllerTest {
+
+  private MetricsClient metricsClient;
+  private double heapFree;
+
+  @BeforeEach
+  void setup() {
+    metricsClient = mock(MetricsClient.class);
+    heapFree = 0.8;
+  }
+
+  @Test
+  void testDisabledControllerKeepsStaticSize() {
+    AdaptiveBatchSizeController controller =
+        new AdaptiveBatchSizeController(
+            metricsClient, 30_000, false, 5_000, 100_000, 5_000, 2_000, 25);
+
+    controller.recordPersist(30_000, 60_000);
+
+    assertEquals(30_000, controller.currentBatchSize());
+    verifyNoInteractions(metricsClient);
+  }
+
+  @Test
+  void testFastSavesGrowAdditively() {
+    AdaptiveBatchSizeController controller = controller(10_000);
+
+    // 10k records in 1s: 50k would still fit the 5s target, growth is one step per batch
+    controller.recordPersist(10_000, 1_000);
+    assertEquals(12_000, controller.currentBatchSize());
+    controller.recordPersist(12_000, 1_200);
+    assertEquals(14_000, controller.currentBatchSize());
+    verify(metricsClient).recordGaugeValue(Metric.BATCH_SIZE.getMetricName(), 14_000);
+  }
+
+  @Test
+  void testGrowthIsCappedByThroughputAndMaximum() {
+    AdaptiveBatchSizeController controller = controller(10_000);
+
+    // 2.2k rows/s fit 11k records in the 5s target
+    controller.recordPersist(10_000, 4_500);
+    assertEquals(11_111, controller.currentBatchSize());
+
+    controller = controller(99_000);
+    controller.recordPersist(99_000, 1_000);
+    assertEquals(100_000, controller.currentBatchSize());
+  }
+
+  @Test
+  void testSlowSaveHalvesDownToMinimum() {
+    AdaptiveBatchSizeController controller = controller(12_000);
+
+    controller.recordPersist(12_000, 8_000);
+    assertEquals(6_000, controller.currentBatchSize());
+    controller.recordPersist(6_000, 8_000);
+    assertEquals(5_000, controller.currentBatchSize());
+  }
+
+  @Test
+  void testLowHeapHalvesSize() {
+    AdaptiveBatchSizeController controller = controller(40_000);
+    heapFree = 0.1;
+
+    controller.recordPersist(40_000, 1_000);
+
+    assertEquals(20_000, controller.currentBatchSize());
+  }
+
+  @Test
+  void testHeapFreeIsMeasuredAfterCollection() {
+    AdaptiveBatchSizeController controller =
+        new AdaptiveBatchSizeController(
+            metricsClient, 30_000, true, 5_000, 100_000, 5_000, 2_000, 25);
+
+    MemoryPoolMXBean oldGeneration =
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
+            .findFirst()
+            .orElseThrow();
+    MemoryUsage afterCollection = oldGeneration.getCollectionUsage();
+    long max =
+        afterCollection.getMax() > 0 ? afterCollection.getMax() : Runtime.getRuntime().maxMemory();
+
+    // whatever the young generation holds, including garbage, is not part of the signal
+    assertEquals(
+        1 - (double) oldGeneration.getCollectionUsage().getUsed() / max,
+        controller.heapFreeFraction(),
+        1e-9);
+  }
+
+  @Test
+  void testInvalidBounds() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new AdaptiveBatchSizeController(
+                metricsClient, 30_000, true, 50_000, 10_000, 5_000, 2_000, 25));
+  }
+
+  private AdaptiveBatchSizeController controller(int batchSize) {
+    return new AdaptiveBatchSizeController(
+        metricsClient, batchSize, true, 5_000, 100_000, 5_000, 2_000, 25) {
+      @Override
+      double heapFreeFraction() {
+        return heapFree;
+      }
+    };
+  }
+}
@@ -0,0 +1,176 @@
+package com.nordstrom.finance.dataintegration.ertm.service.chunk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.parser.PipeDelimitedRetailTransactionLineParser;
+import com.nordstrom.finance.dataintegration.ertm.parser.RetailTransactionLineParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChunkedSpoolFileTest {
+
+  private static final String HEADER =
+      "\"TRANSACTION_DATE\"|\"SOURCE_REFERENCE_TRANSACTION_ID\"|\"SOURCE_REFERENCE_LINE_ID\"|\"LINE_ITEM_AMOUNT\"\n";
+
+  @TempDir Path spoolDirectory;
+
+  private final RetailTransactionLineParser parser = new PipeDelimitedRetailTransactionLineParser();
+
+  @Test
+  void testSplitKeepsTransactionsTogether() throws IOException {
+    // transactions of 1 to 7 lines, so most even cuts land inside a transaction
+    StringBuilder content = new StringBuilder(HEADER);
+    int lines = 0;
+    for (int txn = 1; txn <= 40; txn++) {
+      for (int line = 1; line <= txn % 7 + 1; line++) {
+        content.append(
+            String.format("2023-04-26|\"TXN%03d\"|TXN%03d_%d|%d.95\r\n", txn, txn, line, line));
+        lines++;
+      }
+    }
+
+    try (ChunkedSpoolFile spoolFile = spool(content.toString())) {
+      List<FileChunk> chunks = spoolFile.split(6, 1);
+
+      assertEquals(6, chunks.size());
+      assertEquals(HEADER.length(), chunks.get(0).start());
+      assertEquals(spoolFile.size(), chunks.get(chunks.size() - 1).end());
+      Set<String> seenTransactions = new HashSet<>();
+      List<RetailTransactionLineDTO> records = new ArrayList<>();
+      for (int i = 0; i < chunks.size(); i++) {
+        FileChunk chunk = chunks.get(i);
+        assertEquals(i, chunk.index());
+        if (i > 0) {
+          assertEquals(chunks.get(i - 1).end(), chunk.start());
+        }
+        Set<String> chunkTransactions = new HashSet<>();
+        for (RetailTransactionLineDTO record : parse(spoolFile, chunk)) {
+          chunkTransactions.add(record.getSourceReferenceTransactionId());
+          records.add(record);
+        }
+        for (String transactionId : chunkTransactions) {
+          assertTrue(seenTransactions.add(transactionId), transactionId + " is in two chunks");
+        }
+      }
+      assertEquals(lines, records.size());
+      assertEquals("TXN001_1", records.get(0).getSourceReferenceLineId());
+      assertEquals("TXN040_6", records.get(lines - 1).getSourceReferenceLineId());
+    }
+  }
+
+  @Test
+  void testLinesBeforeShiftChunkPositionsToTheFile() throws IOException {
+    StringBuilder content = new StringBuilder(HEADER);
+    for (int txn = 1; txn <= 30; txn++) {
+      for (int line = 1; line <= txn % 3 + 1; line++) {
+        content.append(
+            String.format("2023-04-26|TXN%03d|TXN%03d_%d|%d.95\r\n", txn, txn, line, line));
+      }
+    }
+
+    try (ChunkedSpoolFile spoolFile = spool(content.toString())) {
+      List<RetailTransactionLineDTO> whole =
+          parse(spoolFile, new FileChunk(0, spoolFile.headerSize(), spoolFile.size()));
+      List<FileChunk> chunks = spoolFile.split(4, 1);
+      long[] linesBefore = spoolFile.linesBefore(chunks);
+
+      assertEquals(4, linesBefore.length);
+      assertEquals(0, linesBefore[0]);
+      int index = 0;
+      for (FileChunk chunk : chunks) {
+        List<RetailTransactionLineDTO> records = parse(spoolFile, chunk);
+        assertEquals(index, linesBefore[chunk.index()]);
+        for (RetailTransactionLineDTO record : records) {
+          RetailTransactionLineDTO expected = whole.get(index++);
+          assertEquals(
+              expected.getSourceLineNumber(),
+              record.getSourceLineNumber() + linesBefore[chunk.index()]);
+          assertEquals(
+              expected.getSourceByteOffset(),
+              record.getSourceByteOffset() + chunk.start() - spoolFile.headerSize());
+        }
+      }
+      assertEquals(whole.size(), index);
+    }
+  }
+
+  @Test
+  void testSplitHonoursMinimumChunkSize() throws IOException {
+    String content =
+        HEADER
+            + "2023-04-26|TXN001|TXN001_1|1.00\n"
+            + "2023-04-26|TXN002|TXN002_1|1.00\n"
+            + "2023-04-26|TXN003|TXN003_1|1.00\n";
+
+    try (ChunkedSpoolFile spoolFile = spool(content)) {
+      List<FileChunk> chunks = spoolFile.split(8, 1024);
+
+      assertEquals(List.of(new FileChunk(0, HEADER.length(), spoolFile.size())), chunks);
+    }
+  }
+
+  @Test
+  void testSingleTransactionIsNotSplit() throws IOException {
+    StringBuilder content = new StringBuilder(HEADER);
+    for (int line = 1; line <= 20; line++) {
+      content.append(String.format("2023-04-26|TXN001|TXN001_%d|1.00%n", line));
+    }
+
+    try (ChunkedSpoolFile spoolFile = spool(content.toString())) {
+      List<FileChunk> chunks = spoolFile.split(4, 1);
+
+      assertEquals(1, chunks.size());
+      assertEquals(20, parse(spoolFile, chunks.get(0)).size());
+    }
+  }
+
+  @Test
+  void testMissingTransactionIdColumnUsesOneChunk() throws IOException {
+    String content =
+        "\"TRANSACTION_DATE\"|\"LINE_ITEM_AMOUNT\"\n2023-04-26|1.00\n2023-04-27|2.00\n";
+
+    try (ChunkedSpoolFile spoolFile = spool(content)) {
+      assertEquals(1, spoolFile.split(4, 1).size());
+    }
+  }
+
+  @Test
+  void testSpoolFileIsDeletedOnClose() throws IOException {
+    ChunkedSpoolFile spoolFile = spool(HEADER);
+
+    spoolFile.close();
+
+    assertThrows(
+        IOException.class,
+        () -> spoolFile.openChunk(new FileChunk(0, 0, HEADER.length())).readAllBytes());
+
+    try (var files = Files.list(spoolDirectory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  private ChunkedSpoolFile spool(String content) throws IOException {
+    return ChunkedSpoolFile.spool(
+        new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), spoolDirectory);
+  }
+
+  private List<RetailTransactionLineDTO> parse(ChunkedSpoolFile spoolFile, FileChunk chunk) {
+    List<RetailTransactionLineDTO> records = new ArrayList<>();
+    Iterator<RetailTransactionLineDTO> iterator =
+        parser.parse(new InputStreamReader(spoolFile.openChunk(chunk), StandardCharsets.UTF_8));
+    iterator.forEachRemaining(records::add);
+    return records;
+  }
+}
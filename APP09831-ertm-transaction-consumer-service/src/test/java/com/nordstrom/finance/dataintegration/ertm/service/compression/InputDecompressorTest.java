@@ -0,0 +1,149 @@
+package com.nordstrom.finance.dataintegration.ertm.service.compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.service.compression.InputDecompressor.DecompressedInput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InputDecompressorTest {
+
+  private MetricsClient metricsClient;
+  private InputDecompressor decompressor;
+
+  @BeforeEach
+  void setup() {
+    metricsClient = mock(MetricsClient.class);
+    // 1KB blocks and 2 blocks of read-ahead, so the decoder waits for the reader
+    decompressor =
+        new InputDecompressor(metricsClient, runnable -> new Thread(runnable).start(), true, 1, 2);
+  }
+
+  @Test
+  void testGzipByExtension() throws IOException {
+    byte[] content = content(200_000);
+
+    try (DecompressedInput input = open(gzip(content), "ertm_20230426.csv.gz")) {
+      assertEquals(CompressionCodec.GZIP, input.codec());
+      assertArrayEquals(content, input.stream().readAllBytes());
+    }
+    verify(metricsClient, timeout(1_000))
+        .count(
+            eq(Metric.FILE_DECOMPRESSED_BYTES.getMetricName()),
+            eq((long) content.length),
+            any(),
+            eq("compression.codec:GZIP"));
+  }
+
+  @Test
+  void testZstdByMagicNumber() throws IOException {
+    byte[] content = content(200_000);
+
+    try (DecompressedInput input = open(zstd(content), "ertm_20230426.csv")) {
+      assertEquals(CompressionCodec.ZSTD, input.codec());
+      assertArrayEquals(content, input.stream().readAllBytes());
+    }
+  }
+
+  @Test
+  void testPlainFileIsReadAsIs() throws IOException {
+    byte[] content = content(10_000);
+    Executor executor = mock(Executor.class);
+    decompressor = new InputDecompressor(metricsClient, executor, true, 1, 2);
+
+    try (DecompressedInput input = open(content, "ertm_20230426.csv")) {
+      assertFalse(input.isCompressed());
+      assertArrayEquals(content, input.stream().readAllBytes());
+    }
+    verifyNoInteractions(executor);
+  }
+
+  @Test
+  void testDisabledDecompressionIgnoresCodec() throws IOException {
+    byte[] compressed = gzip(content(1_000));
+    decompressor = new InputDecompressor(metricsClient, mock(Executor.class), false, 1, 2);
+
+    assertEquals(CompressionCodec.NONE, decompressor.codecOf("ertm_20230426.csv.gz"));
+    try (DecompressedInput input = open(compressed, "ertm_20230426.csv.gz")) {
+      assertFalse(input.isCompressed());
+      assertArrayEquals(compressed, input.stream().readAllBytes());
+    }
+  }
+
+  @Test
+  void testCorruptContentFailsTheReader() throws IOException {
+    byte[] compressed = gzip(content(200_000));
+    byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+    try (DecompressedInput input = open(truncated, "ertm_20230426.csv.gz")) {
+      IOException failure = assertThrows(IOException.class, () -> input.stream().readAllBytes());
+      assertTrue(failure.getMessage().contains("ertm_20230426.csv.gz"));
+    }
+  }
+
+  @Test
+  void testCloseStopsDecoderAndClosesSource() throws IOException, InterruptedException {
+    AtomicBoolean sourceClosed = new AtomicBoolean();
+    InputStream source =
+        new ByteArrayInputStream(gzip(content(500_000))) {
+          @Override
+          public void close() {
+            sourceClosed.set(true);
+          }
+        };
+
+    DecompressedInput input = decompressor.open(source, "ertm_20230426.csv.gz");
+    assertEquals('0', input.stream().read());
+    input.stream().close();
+
+    for (int i = 0; i < 100 && !sourceClosed.get(); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(sourceClosed.get(), "Decoder should release the source");
+    verify(metricsClient, never())
+        .count(eq(Metric.FILE_DECOMPRESSED_BYTES.getMetricName()), anyLong(), any(), any());
+  }
+
+  private DecompressedInput open(byte[] bytes, String fileName) throws IOException {
+    return decompressor.open(new ByteArrayInputStream(bytes), fileName);
+  }
+
+  private static byte[] content(int length) {
+    StringBuilder content = new StringBuilder();
+    for (int line = 0; content.length() < length; line++) {
+      content.append(line).append("|2023-04-26|TXN").append(line / 3).append('\n');
+    }
+    return content.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] gzip(byte[] content) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(content);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static byte[] zstd(byte[] content) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream zstd = new ZstdOutputStream(compressed)) {
+      zstd.write(content);
+    }
+    return compressed.toByteArray();
+  }
+}
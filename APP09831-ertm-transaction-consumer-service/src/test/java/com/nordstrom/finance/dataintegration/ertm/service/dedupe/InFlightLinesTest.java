@@ -0,0 +1,88 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class InFlightLinesTest {
+
+  @Test
+  void testLinesHeldByAnotherBatchAreDroppedUntilReleased() {
+    InFlightLines inFlightLines = new InFlightLines();
+    TransactionGroup first = transaction("TXN001", "L1", "L2");
+
+    InFlightLines.Claim firstClaim = inFlightLines.claim(List.of(first));
+    assertSame(first, firstClaim.transactions().get(0), "Nothing dropped, nothing copied");
+
+    InFlightLines.Claim secondClaim =
+        inFlightLines.claim(
+            List.of(transaction("TXN001", "L2", "L3"), transaction("TXN002", "L1")));
+    assertEquals(List.of("TXN001:L3", "TXN002:L1"), keys(secondClaim.transactions()));
+    assertEquals(
+        List.of(), inFlightLines.claim(List.of(transaction("TXN001", "L1"))).transactions());
+
+    firstClaim.release();
+    firstClaim.release();
+    assertEquals(
+        List.of("TXN001:L1", "TXN001:L2"),
+        keys(inFlightLines.claim(List.of(first)).transactions()));
+    assertEquals(4, inFlightLines.size());
+
+    secondClaim.release();
+    inFlightLines.close();
+    assertEquals(0, inFlightLines.size());
+  }
+
+  @Test
+  void testFilesShareTheRegistryButReleaseOnlyTheirOwnLines() {
+    InFlightLineRegistry registry = new InFlightLineRegistry();
+    InFlightLines firstFile = registry.open();
+    InFlightLines secondFile = registry.open();
+
+    firstFile.claim(List.of(transaction("TXN001", "L1")));
+    assertEquals(
+        List.of("TXN002:L1"),
+        keys(
+            secondFile
+                .claim(List.of(transaction("TXN001", "L1"), transaction("TXN002", "L1")))
+                .transactions()));
+    assertEquals(2, registry.size());
+
+    firstFile.close();
+    assertEquals(1, registry.size());
+    assertEquals(1, secondFile.size());
+    assertEquals(
+        List.of("TXN001:L1"),
+        keys(secondFile.claim(List.of(transaction("TXN001", "L1"))).transactions()));
+    secondFile.close();
+    assertEquals(0, registry.size());
+  }
+
+  private static TransactionGroup transaction(String transactionId, String... lineIds) {
+    return new TransactionGroup(
+        transactionId,
+        Arrays.stream(lineIds)
+            .map(
+                lineId ->
+                    RetailTransactionLineDTO.builder()
+                        .sourceReferenceTransactionId(transactionId)
+                        .sourceReferenceLineId(lineId)
+                        .build())
+            .toList());
+  }
+
+  private static List<String> keys(List<TransactionGroup> transactions) {
+    return transactions.stream()
+        .flatMap(
+            transaction ->
+                transaction.lines().stream()
+                    .map(
+                        line ->
+                            transaction.transactionId() + ":" + line.getSourceReferenceLineId()))
+        .toList();
+  }
+}
@@ -0,0 +1,139 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.database.service.TransactionDBService;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KnownTransactionIdFilterTest {
+
+  private TransactionDBService transactionDBService;
+  private MetricsClient metricsClient;
+
+  @BeforeEach
+  void setup() {
+    transactionDBService = mock(TransactionDBService.class);
+    metricsClient = mock(MetricsClient.class);
+    when(transactionDBService.countTransactionIds(any())).thenReturn(2L);
+    when(transactionDBService.forEachTransactionId(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              Consumer<String> consumer = invocation.getArgument(1);
+              consumer.accept("TXN001");
+              consumer.accept("TXN002");
+              return 2L;
+            });
+  }
+
+  @Test
+  void testOnlyPossiblyKnownIdsAreSelected() {
+    KnownTransactionIdFilter filter = filter(true);
+    filter.warmUp();
+
+    List<String> selected =
+        filter.selectPossiblyKnown(
+            batch(
+                line("TXN001", LocalDate.now()),
+                line("TXN003", LocalDate.now()),
+                line("TXN004", LocalDate.now().minusDays(31))));
+
+    assertEquals(List.of("TXN001", "TXN004"), selected);
+    verify(transactionDBService).forEachTransactionId(eq(LocalDate.now().minusDays(30)), any());
+    verify(metricsClient).count(Metric.DEDUPE_FILTER_HIT_COUNT.getMetricName(), 1L);
+    verify(metricsClient).count(Metric.DEDUPE_FILTER_MISS_COUNT.getMetricName(), 1L);
+    verify(metricsClient).count(Metric.DEDUPE_FILTER_BYPASS_COUNT.getMetricName(), 1L);
+    verify(metricsClient)
+        .recordGaugeValue(eq(Metric.DEDUPE_FILTER_MEMORY.getMetricName()), anyLong());
+  }
+
+  @Test
+  void testSavedIdsBecomeKnown() {
+    KnownTransactionIdFilter filter = filter(true);
+    filter.warmUp();
+
+    filter.recordSaved(List.of("TXN003"));
+
+    assertEquals(
+        List.of("TXN003"), filter.selectPossiblyKnown(batch(line("TXN003", LocalDate.now()))));
+  }
+
+  @Test
+  void testDisabledFilterSelectsEveryId() {
+    KnownTransactionIdFilter filter = filter(false);
+    filter.warmUp();
+
+    assertEquals(
+        List.of("TXN003", "TXN004"),
+        filter.selectPossiblyKnown(
+            batch(line("TXN003", LocalDate.now()), line("TXN004", LocalDate.now()))));
+    verifyNoInteractions(transactionDBService);
+  }
+
+  @Test
+  void testFailedWarmUpSelectsEveryId() {
+    doThrow(new IllegalStateException("connection refused"))
+        .when(transactionDBService)
+        .forEachTransactionId(any(), any());
+    KnownTransactionIdFilter filter = filter(true);
+    filter.warmUp();
+
+    assertEquals(
+        List.of("TXN003"), filter.selectPossiblyKnown(batch(line("TXN003", LocalDate.now()))));
+    verify(metricsClient, never())
+        .count(eq(Metric.DEDUPE_FILTER_MISS_COUNT.getMetricName()), anyLong());
+  }
+
+  @Test
+  void testInvalidFalsePositiveRateIsRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new KnownTransactionIdFilter(
+                transactionDBService, metricsClient, true, 30, 1.0, 0, 1, false));
+  }
+
+  @Test
+  void testLeasingIsRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new KnownTransactionIdFilter(
+                transactionDBService, metricsClient, true, 30, 0.01, 0, 1, true));
+    assertDoesNotThrow(
+        () ->
+            new KnownTransactionIdFilter(
+                transactionDBService, metricsClient, false, 30, 0.01, 0, 1, true));
+  }
+
+  private KnownTransactionIdFilter filter(boolean enabled) {
+    return new KnownTransactionIdFilter(
+        transactionDBService, metricsClient, enabled, 30, 0.01, 1_000, 1, false);
+  }
+
+  private static List<TransactionGroup> batch(RetailTransactionLineDTO... lines) {
+    List<TransactionGroup> batch = new ArrayList<>();
+    for (RetailTransactionLineDTO line : lines) {
+      batch.add(new TransactionGroup(line.getSourceReferenceTransactionId(), List.of(line)));
+    }
+    return batch;
+  }
+
+  private static RetailTransactionLineDTO line(String transactionId, LocalDate businessDate) {
+    return RetailTransactionLineDTO.builder()
+        .sourceReferenceTransactionId(transactionId)
+        .sourceReferenceLineId(transactionId + "_1")
+        .businessDate(businessDate)
+        .build();
+  }
+}
@@ -0,0 +1,48 @@
+package com.nordstrom.finance.dataintegration.ertm.service.dedupe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TransactionIdBloomFilterTest {
+
+  @Test
+  void testAddedIdsAreAlwaysFound() {
+    TransactionIdBloomFilter filter = TransactionIdBloomFilter.create(100_000, 0.01, 1L << 20);
+
+    for (int i = 0; i < 100_000; i++) {
+      filter.add("TXN" + i);
+    }
+
+    for (int i = 0; i < 100_000; i++) {
+      assertTrue(filter.mightContain("TXN" + i), "TXN" + i);
+    }
+  }
+
+  @Test
+  void testFalsePositiveRateStaysNearTarget() {
+    TransactionIdBloomFilter filter = TransactionIdBloomFilter.create(100_000, 0.01, 1L << 20);
+    for (int i = 0; i < 100_000; i++) {
+      filter.add("TXN" + i);
+    }
+
+    int falsePositives = 0;
+    for (int i = 100_000; i < 200_000; i++) {
+      if (filter.mightContain("TXN" + i)) {
+        falsePositives++;
+      }
+    }
+
+    assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    assertEquals(0.01, filter.expectedFalsePositiveRate(100_000), 0.002);
+  }
+
+  @Test
+  void testSizeIsCappedByMemoryLimit() {
+    TransactionIdBloomFilter filter = TransactionIdBloomFilter.create(10_000_000, 0.001, 1024);
+
+    assertEquals(1024, filter.sizeInBytes());
+    filter.add("TXN1");
+    assertTrue(filter.mightContain("TXN1"));
+  }
+}
@@ -0,0 +1,135 @@
+package com.nordstrom.finance.dataintegration.ertm.service.download;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.common.store.ObjectMetadata;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+class ParallelRangeDownloaderTest {
+
+  private static final int MB = 1024 * 1024;
+  private static final String ETAG = "\"e1\"";
+
+  @TempDir Path spoolDirectory;
+
+  private ExecutorService executor;
+  private S3Utility s3Utility;
+  private MetricsClient metricsClient;
+  private ParallelRangeDownloader downloader;
+  private byte[] content;
+
+  @BeforeEach
+  void setup() {
+    executor = Executors.newFixedThreadPool(3);
+    s3Utility = mock(S3Utility.class);
+    metricsClient = mock(MetricsClient.class);
+    downloader =
+        new ParallelRangeDownloader(
+            s3Utility, metricsClient, executor, 1, 3, spoolDirectory.toString());
+    content = new byte[5 * MB + 12345];
+    new Random(42).nextBytes(content);
+    when(s3Utility.getObjectMetadata("file_1", "bucket"))
+        .thenReturn(new ObjectMetadata(content.length, ETAG, null));
+    when(s3Utility.downloadFileRangeAsStream(
+            eq("file_1"), eq("bucket"), anyLong(), anyLong(), any()))
+        .thenAnswer(
+            invocation -> {
+              long first = invocation.getArgument(2);
+              long last = invocation.getArgument(3);
+              return range(first, last < 0 ? content.length - 1 : last);
+            });
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testDownloadInPartsMatchesObject() throws IOException {
+    try (InputStream stream = downloader.download("file_1", "bucket", 0, null)) {
+      assertArrayEquals(content, stream.readAllBytes());
+    }
+
+    // 6 parts of 1MB, all pinned to the ETag read with HEAD
+    verify(s3Utility, times(6))
+        .downloadFileRangeAsStream(eq("file_1"), eq("bucket"), anyLong(), anyLong(), eq(ETAG));
+    verify(s3Utility)
+        .downloadFileRangeAsStream("file_1", "bucket", 5L * MB, content.length - 1, ETAG);
+    verify(metricsClient).recordExecutionTime(anyString(), anyLong(), any(String[].class));
+    try (var spoolFiles = Files.list(spoolDirectory)) {
+      assertEquals(0, spoolFiles.count(), "Spool file should be deleted on close");
+    }
+  }
+
+  @Test
+  void testDownloadFromOffset() throws IOException {
+    int offset = 1_234_567;
+    try (InputStream stream = downloader.download("file_1", "bucket", offset, ETAG)) {
+      assertArrayEquals(Arrays.copyOfRange(content, offset, content.length), stream.readAllBytes());
+    }
+    verify(s3Utility).downloadFileRangeAsStream("file_1", "bucket", offset, offset + MB - 1, ETAG);
+  }
+
+  @Test
+  void testSmallObjectUsesSingleRequest() throws IOException {
+    int offset = content.length - MB;
+    try (InputStream stream = downloader.download("file_1", "bucket", offset, null)) {
+      assertEquals(MB, stream.readAllBytes().length);
+    }
+    verify(s3Utility, times(1))
+        .downloadFileRangeAsStream(eq("file_1"), eq("bucket"), anyLong(), anyLong(), any());
+    verify(s3Utility).downloadFileRangeAsStream("file_1", "bucket", offset, -1, ETAG);
+  }
+
+  @Test
+  void testFailedPartIsRetriedThenSurfacesOnRead() throws IOException {
+    when(s3Utility.downloadFileRangeAsStream("file_1", "bucket", 2L * MB, 3L * MB - 1, ETAG))
+        .thenReturn(null)
+        .thenReturn(range(2L * MB, 3L * MB - 1));
+    when(s3Utility.downloadFileRangeAsStream("file_1", "bucket", 4L * MB, 5L * MB - 1, ETAG))
+        .thenReturn(null);
+
+    try (InputStream stream = downloader.download("file_1", "bucket", 0, null)) {
+      byte[] prefix = stream.readNBytes(4 * MB);
+      assertArrayEquals(Arrays.copyOf(content, 4 * MB), prefix);
+      IOException ex = assertThrows(IOException.class, stream::readAllBytes);
+      assertTrue(ex.getMessage().contains("bytes 4194304-5242879"));
+    }
+    verify(s3Utility, times(3))
+        .downloadFileRangeAsStream("file_1", "bucket", 4L * MB, 5L * MB - 1, ETAG);
+  }
+
+  @Test
+  void testMissingObject() {
+    when(s3Utility.getObjectMetadata("file_1", "bucket")).thenReturn(null);
+
+    assertThrows(IOException.class, () -> downloader.download("file_1", "bucket", 0, null));
+  }
+
+  private ResponseInputStream<GetObjectResponse> range(long first, long last) {
+    return new ResponseInputStream<>(
+        GetObjectResponse.builder().build(),
+        AbortableInputStream.create(
+            new ByteArrayInputStream(content, (int) first, (int) (last - first + 1))));
+  }
+}
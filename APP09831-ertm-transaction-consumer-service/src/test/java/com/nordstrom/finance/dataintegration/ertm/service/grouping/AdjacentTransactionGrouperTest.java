@@ -0,0 +1,113 @@
+package com.nordstrom.finance.dataintegration.ertm.service.grouping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AdjacentTransactionGrouperTest {
+
+  @Test
+  void testBatchesCloseOnTransactionBoundary() {
+    AdjacentTransactionGrouper grouper =
+        new AdjacentTransactionGrouper(
+            records("TXN1", "TXN1", "TXN1", "TXN2", "TXN2", "TXN3").iterator(), 4);
+
+    TransactionBatch first = grouper.next();
+    assertEquals(List.of("TXN1", "TXN2"), ids(first));
+    assertEquals(5, first.recordCount());
+    assertEquals(5, first.resumeOffset(), "Resume at the first record of TXN3");
+    assertEquals(6, grouper.recordsRead());
+
+    TransactionBatch second = grouper.next();
+    assertEquals(List.of("TXN3"), ids(second));
+    assertEquals(1, second.recordCount());
+    assertEquals(5, second.resumeOffset());
+    assertFalse(grouper.hasNext());
+    assertEquals(0, grouper.ungroupedTransactionCount());
+  }
+
+  @Test
+  void testTransactionLargerThanBatchStaysWhole() {
+    AdjacentTransactionGrouper grouper =
+        new AdjacentTransactionGrouper(records("TXN1", "TXN1", "TXN1", "TXN2").iterator(), 2);
+
+    TransactionBatch first = grouper.next();
+    assertEquals(List.of("TXN1"), ids(first));
+    assertEquals(3, first.transactions().get(0).lines().size());
+    assertEquals(List.of("TXN2"), ids(grouper.next()));
+    assertFalse(grouper.hasNext());
+  }
+
+  @Test
+  void testUngroupedLinesAreMergedWithinBatch() {
+    AdjacentTransactionGrouper grouper =
+        new AdjacentTransactionGrouper(records("TXN1", "TXN2", "TXN1", "TXN3").iterator(), 10);
+
+    TransactionBatch batch = grouper.next();
+    assertEquals(List.of("TXN1", "TXN2", "TXN3"), ids(batch));
+    assertEquals(
+        List.of(0L, 2L),
+        batch.transactions().get(0).lines().stream()
+            .map(RetailTransactionLineDTO::getSourceByteOffset)
+            .toList());
+    assertEquals(1, grouper.ungroupedTransactionCount());
+  }
+
+  @Test
+  void testGroupedInputKeepsOnlyTheCurrentTransaction() {
+    AdjacentTransactionGrouper grouper =
+        new AdjacentTransactionGrouper(
+            records("TXN1", "TXN1", "TXN2", "TXN1", "TXN3").iterator(), () -> 10, true);
+
+    TransactionBatch batch = grouper.next();
+    assertEquals(List.of("TXN1", "TXN2", "TXN1", "TXN3"), ids(batch));
+    assertEquals(5, batch.recordCount());
+    assertEquals(0, grouper.ungroupedTransactionCount());
+  }
+
+  @Test
+  void testBatchSizeIsReadPerBatch() {
+    AtomicInteger batchSize = new AtomicInteger(1);
+    AdjacentTransactionGrouper grouper =
+        new AdjacentTransactionGrouper(
+            records("TXN1", "TXN2", "TXN3", "TXN4", "TXN5").iterator(), batchSize::get);
+
+    assertEquals(List.of("TXN1"), ids(grouper.next()));
+    batchSize.set(3);
+    assertEquals(List.of("TXN2", "TXN3", "TXN4"), ids(grouper.next()));
+    assertEquals(List.of("TXN5"), ids(grouper.next()));
+  }
+
+  @Test
+  void testEmptyInput() {
+    AdjacentTransactionGrouper grouper =
+        new AdjacentTransactionGrouper(Collections.<RetailTransactionLineDTO>emptyIterator(), 10);
+
+    assertFalse(grouper.hasNext());
+    assertThrows(NoSuchElementException.class, grouper::next);
+  }
+
+  private static List<String> ids(TransactionBatch batch) {
+    return batch.transactions().stream().map(TransactionGroup::transactionId).toList();
+  }
+
+  // record i starts at byte offset i
+  private static List<RetailTransactionLineDTO> records(String... transactionIds) {
+    List<RetailTransactionLineDTO> records = new ArrayList<>();
+    for (int i = 0; i < transactionIds.length; i++) {
+      records.add(
+          RetailTransactionLineDTO.builder()
+              .sourceReferenceTransactionId(transactionIds[i])
+              .sourceReferenceLineId(transactionIds[i] + "_" + i)
+              .sourceByteOffset(i)
+              .build());
+    }
+    return records;
+  }
+}
@@ -0,0 +1,95 @@
+package com.nordstrom.finance.dataintegration.ertm.service.lease;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.database.service.TransactionDBService;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.TaskScheduler;
+
+class FileLeaseManagerTest {
+
+  private TransactionDBService transactionDBService;
+  private MetricsClient metricsClient;
+  private TaskScheduler leaseScheduler;
+
+  @BeforeEach
+  void setup() {
+    transactionDBService = mock(TransactionDBService.class);
+    metricsClient = mock(MetricsClient.class);
+    leaseScheduler = mock(TaskScheduler.class);
+  }
+
+  @Test
+  void testDisabledLeasingClaimsEveryFile() {
+    FileLeaseManager leases = manager(false);
+    leases.startHeartbeat();
+
+    assertTrue(leases.tryAcquire("bucket", "file_1"));
+    leases.release("bucket", "file_1");
+    verifyNoInteractions(transactionDBService, leaseScheduler);
+  }
+
+  @Test
+  void testClaimAndRelease() {
+    FileLeaseManager leases = manager(true);
+    leases.startHeartbeat();
+    when(transactionDBService.tryAcquireLease("bucket", "file_1", leases.ownerId(), 300))
+        .thenReturn(true);
+
+    assertTrue(leases.tryAcquire("bucket", "file_1"));
+    assertFalse(leases.tryAcquire("bucket", "file_2"), "file_2 is claimed by another pod");
+    leases.release("bucket", "file_1");
+    leases.release("bucket", "file_2");
+
+    verify(leaseScheduler).scheduleAtFixedRate(any(Runnable.class), eq(Duration.ofSeconds(60)));
+    verify(transactionDBService, times(1)).releaseLease("bucket", "file_1", leases.ownerId());
+    verify(transactionDBService, never()).releaseLease(eq("bucket"), eq("file_2"), any());
+  }
+
+  @Test
+  void testDatabaseFailureLeavesFileUnclaimed() {
+    FileLeaseManager leases = manager(true);
+    when(transactionDBService.tryAcquireLease(any(), any(), any(), anyInt()))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertFalse(leases.tryAcquire("bucket", "file_1"));
+  }
+
+  @Test
+  void testHeartbeatCountsLostLeases() {
+    FileLeaseManager leases = manager(true);
+    when(transactionDBService.tryAcquireLease(any(), any(), any(), anyInt())).thenReturn(true);
+    when(transactionDBService.renewLeases(leases.ownerId(), 300)).thenReturn(1);
+
+    leases.heartbeat();
+    verify(transactionDBService, never()).renewLeases(any(), anyInt());
+
+    leases.tryAcquire("bucket", "file_1");
+    leases.tryAcquire("bucket", "file_2");
+    leases.heartbeat();
+
+    verify(metricsClient).count(Metric.FILE_LEASE_LOST_COUNT.getMetricName(), 1);
+  }
+
+  @Test
+  void testOwnersAreUniquePerInstance() {
+    assertNotEquals(manager(true).ownerId(), manager(true).ownerId());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new FileLeaseManager(
+                transactionDBService, metricsClient, leaseScheduler, true, 60, 60, "pod"));
+  }
+
+  private FileLeaseManager manager(boolean enabled) {
+    return new FileLeaseManager(
+        transactionDBService, metricsClient, leaseScheduler, enabled, 300, 60, "ertm-pod-1");
+  }
+}
@@ -0,0 +1,95 @@
+package com.nordstrom.finance.dataintegration.ertm.service.pipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.exception.PipelineStageException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StagedPipelineTest {
+
+  private ExecutorService executor;
+  private MetricsClient metricsClient;
+
+  @BeforeEach
+  void setup() {
+    executor = Executors.newCachedThreadPool();
+    metricsClient = mock(MetricsClient.class);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testItemsFlowThroughAllStagesInOrder() throws InterruptedException {
+    List<String> received = new CopyOnWriteArrayList<>();
+    StagedPipeline<Integer> pipeline =
+        StagedPipeline.<Integer>builder(executor, 1, metricsClient)
+            .stage("double", value -> value * 2)
+            .stage("skipTen", value -> value == 10 ? null : "v" + value)
+            .sink("collect", received::add);
+
+    for (int i = 1; i <= 20; i++) {
+      pipeline.submit(i, 1);
+    }
+    pipeline.finish();
+
+    assertEquals(19, received.size());
+    assertEquals("v2", received.get(0));
+    assertEquals("v40", received.get(18));
+    assertFalse(received.contains("v10"));
+  }
+
+  @Test
+  void testStageFailureSurfacesOnFinish() throws InterruptedException {
+    StagedPipeline<Integer> pipeline =
+        StagedPipeline.<Integer>builder(executor, 1, metricsClient)
+            .stage(
+                "fail",
+                value -> {
+                  if (value == 3) {
+                    throw new IllegalStateException("boom");
+                  }
+                  return value;
+                })
+            .sink("collect", value -> {});
+
+    PipelineStageException ex =
+        assertThrows(
+            PipelineStageException.class,
+            () -> {
+              for (int i = 1; i <= 100; i++) {
+                pipeline.submit(i, 1);
+              }
+              pipeline.finish();
+            });
+    assertInstanceOf(IllegalStateException.class, ex.getCause());
+    assertTrue(ex.getMessage().contains("fail"));
+  }
+
+  @Test
+  void testAbortStopsWorkers() throws InterruptedException {
+    List<Integer> received = new CopyOnWriteArrayList<>();
+    StagedPipeline<Integer> pipeline =
+        StagedPipeline.<Integer>builder(executor, 1, metricsClient)
+            .stage("identity", value -> value)
+            .sink("collect", received::add);
+
+    pipeline.submit(1, 1);
+    pipeline.abort(new IllegalArgumentException("parse error"));
+
+    PipelineStageException ex =
+        assertThrows(PipelineStageException.class, () -> pipeline.submit(2, 1));
+    assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+    assertFalse(received.contains(2));
+  }
+}
@@ -0,0 +1,228 @@
+package com.nordstrom.finance.dataintegration.ertm.service.quarantine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.aws.S3Utility;
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.consumer.model.RetailTransactionLineDTO;
+import com.nordstrom.finance.dataintegration.ertm.exception.FileMappingException;
+import com.nordstrom.finance.dataintegration.ertm.exception.FileParseException;
+import com.nordstrom.finance.dataintegration.ertm.exception.RejectedRecordException;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.service.grouping.TransactionGroup;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecordQuarantineServiceTest {
+
+  @TempDir Path spoolDirectory;
+
+  private MetricsClient metricsClient;
+  private S3Utility s3Utility;
+
+  @BeforeEach
+  void setup() {
+    metricsClient = mock(MetricsClient.class);
+    s3Utility = mock(S3Utility.class);
+  }
+
+  @Test
+  void testDisabledQuarantineKeepsParserErrors() {
+    Iterator<RetailTransactionLineDTO> records = parsed(line("TXN1", 2));
+    RecordQuarantine quarantine = service(true, 10, 100).open("file_1");
+    RecordQuarantine disabled = service(false, 10, 100).open("file_1");
+
+    assertSame(records, disabled.guard(records));
+    assertNotSame(records, quarantine.guard(records));
+    assertFalse(RecordQuarantine.disabled().isEnabled());
+  }
+
+  @Test
+  void testRejectedRecordsAreSkippedWithTheirTransaction() throws Exception {
+    RecordQuarantineService service = service(true, 10, 100);
+    RecordQuarantine quarantine = service.open("file_1");
+
+    Iterator<RetailTransactionLineDTO> records =
+        quarantine.guard(
+            parsed(
+                line("TXN1", 2),
+                rejected("TXN2", 3),
+                line("TXN2", 4),
+                rejected(null, 5),
+                line("TXN3", 6)));
+    List<TransactionGroup> transactions = new ArrayList<>();
+    while (records.hasNext()) {
+      RetailTransactionLineDTO record = records.next();
+      transactions.add(
+          new TransactionGroup(record.getSourceReferenceTransactionId(), List.of(record)));
+    }
+    assertThrows(NoSuchElementException.class, records::next);
+
+    assertEquals(
+        List.of("TXN1", "TXN3"),
+        quarantine.dropRejectedTransactions(transactions).stream()
+            .map(TransactionGroup::transactionId)
+            .toList());
+    quarantine.rejectTransaction(List.of(line("TXN3", 6)), new IllegalStateException("no store"));
+    assertEquals(4, quarantine.rejectedRecords());
+
+    List<String> rejects = Files.readAllLines(quarantine.flushRejectFile());
+    assertEquals(
+        List.of(
+            RecordQuarantine.HEADER,
+            "3|30|\"TXN2\"||\"Invalid value on line 3\"",
+            "5|50|||\"Invalid value on line 5\"",
+            "4|40|\"TXN2\"|\"TXN2_4\"|\"" + RecordQuarantine.REJECTED_WITH_TRANSACTION + "\"",
+            "6|60|\"TXN3\"|\"TXN3_6\"|\"no store\""),
+        rejects);
+
+    when(s3Utility.uploadLocalFile(any(Path.class), eq("file_1.rejects.csv"), eq("processed")))
+        .thenReturn(true);
+    assertTrue(service.publish(quarantine, "processed"));
+    verify(metricsClient)
+        .count(eq(Metric.FILE_REJECTED_RECORDS_COUNT.getMetricName()), eq(4L), any());
+
+    Path rejectFile = quarantine.flushRejectFile();
+    quarantine.close();
+    assertFalse(Files.exists(rejectFile));
+  }
+
+  @Test
+  void testRejectsOfChunksAndSortedCopiesPointAtTheSourceFile() throws Exception {
+    RecordQuarantine quarantine = service(true, 10, 100).open("file_1");
+
+    // a chunk starting at line 102 (byte 1010) of the file, parsed as lines 2.. of its stream
+    Iterator<RetailTransactionLineDTO> records =
+        quarantine.guard(parsed(line("TXN1", 2), rejected("TXN2", 3)), 100, 990);
+    RetailTransactionLineDTO record = records.next();
+    assertFalse(records.hasNext());
+    assertEquals(102, record.getSourceLineNumber());
+    assertEquals(1010, record.getSourceByteOffset());
+
+    // a sorted copy whose line n is line 1000 + n of the source file
+    quarantine.mapPositions(
+        (lineNumber, byteOffset) -> new SourcePositions.SourcePosition(1000 + lineNumber, 7));
+    quarantine.rejectTransaction(List.of(line("TXN3", 4)), new IllegalStateException("bad"));
+    quarantine.mapPositions(null);
+    quarantine.rejectTransaction(List.of(line("TXN4", 5)), new IllegalStateException("bad"));
+
+    assertEquals(
+        List.of(
+            RecordQuarantine.HEADER,
+            "103|1020|\"TXN2\"||\"Invalid value on line 3\"",
+            "1004|7|\"TXN3\"|\"TXN3_4\"|\"bad\"",
+            "5|50|\"TXN4\"|\"TXN4_5\"|\"bad\""),
+        Files.readAllLines(quarantine.flushRejectFile()));
+    quarantine.close();
+  }
+
+  @Test
+  void testRecordBudgetFailsOnFirstRejectOverIt() {
+    RecordQuarantine quarantine = service(true, 1, 100).open("file_1");
+    Iterator<RetailTransactionLineDTO> records =
+        quarantine.guard(parsed(rejected("TXN1", 2), rejected("TXN2", 3), line("TXN3", 4)));
+
+    FileParseException ex = assertThrows(FileParseException.class, records::hasNext);
+    assertTrue(ex.getMessage().contains("more than 1 records were rejected"));
+  }
+
+  @Test
+  void testPercentBudgetIsCheckedAtTheEnd() throws Exception {
+    RecordQuarantine quarantine = service(true, 10, 20).open("file_1");
+    quarantine.finish(0);
+
+    Iterator<RetailTransactionLineDTO> records =
+        quarantine.guard(parsed(line("TXN1", 2), line("TXN2", 3), rejected("TXN3", 4)));
+    records.forEachRemaining(record -> {});
+    // 1 of 3 records
+    assertThrows(FileMappingException.class, () -> quarantine.finish(2));
+    quarantine.finish(4);
+  }
+
+  @Test
+  void testPublish() {
+    RecordQuarantineService service = service(true, 10, 100);
+    RecordQuarantine quarantine = service.open("file_1");
+
+    assertTrue(service.publish(quarantine, "processed"));
+    verifyNoInteractions(s3Utility);
+
+    quarantine.rejectTransaction(List.of(line("TXN1", 2)), new IllegalStateException("bad"));
+    when(s3Utility.uploadLocalFile(any(Path.class), any(), any())).thenReturn(false);
+    assertFalse(service.publish(quarantine, "processed"));
+    verify(metricsClient).incrementErrorCount(contains("AWS_S3_FILE_UPLOAD_ERROR"), any());
+  }
+
+  @Test
+  void testInvalidBudget() {
+    assertThrows(IllegalArgumentException.class, () -> service(true, -1, 1));
+  }
+
+  private RecordQuarantineService service(
+      boolean enabled, long maxRejectedRecords, double maxRejectedPercent) {
+    return new RecordQuarantineService(
+        metricsClient,
+        s3Utility,
+        enabled,
+        maxRejectedRecords,
+        maxRejectedPercent,
+        spoolDirectory.toString());
+  }
+
+  // line number n starts at byte offset 10 * n
+  private static RetailTransactionLineDTO line(String transactionId, long lineNumber) {
+    return RetailTransactionLineDTO.builder()
+        .sourceReferenceTransactionId(transactionId)
+        .sourceReferenceLineId(transactionId + "_" + lineNumber)
+        .sourceLineNumber(lineNumber)
+        .sourceByteOffset(lineNumber * 10)
+        .build();
+  }
+
+  private static RejectedRecordException rejected(String transactionId, long lineNumber) {
+    return new RejectedRecordException(
+        lineNumber,
+        lineNumber * 10,
+        transactionId,
+        new FileParseException("Invalid value on line " + lineNumber));
+  }
+
+  /** Parser iterator that rejects the exception entries from hasNext(), like the pipe parser. */
+  private static Iterator<RetailTransactionLineDTO> parsed(Object... entries) {
+    Iterator<Object> source = List.of(entries).iterator();
+    return new Iterator<>() {
+      private RetailTransactionLineDTO next;
+
+      @Override
+      public boolean hasNext() {
+        if (next == null && source.hasNext()) {
+          Object entry = source.next();
+          if (entry instanceof RejectedRecordException ex) {
+            throw ex;
+          }
+          next = (RetailTransactionLineDTO) entry;
+        }
+        return next != null;
+      }
+
+      @Override
+      public RetailTransactionLineDTO next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        RetailTransactionLineDTO record = next;
+        next = null;
+        return record;
+      }
+    };
+  }
+}
@@ -0,0 +1,201 @@
+package com.nordstrom.finance.dataintegration.ertm.service.sort;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.service.chunk.ChunkedSpoolFile;
+import com.nordstrom.finance.dataintegration.ertm.service.quarantine.SourcePositions.SourcePosition;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExternalTransactionSorterTest {
+
+  private static final String HEADER =
+      "\"TRANSACTION_DATE\"|\"SOURCE_REFERENCE_TRANSACTION_ID\"|\"SOURCE_REFERENCE_LINE_ID\"";
+
+  @TempDir Path spoolDirectory;
+
+  private MetricsClient metricsClient;
+
+  @BeforeEach
+  void setup() {
+    metricsClient = mock(MetricsClient.class);
+  }
+
+  @Test
+  void testIsGroupedByTransactionId() throws IOException {
+    ExternalTransactionSorter sorter = sorter(64, 1_000);
+
+    assertTrue(isGrouped(sorter, "2023-04-26|B|B_1", "2023-04-26|B|B_2", "2023-04-26|A|A_1"));
+    assertFalse(isGrouped(sorter, "2023-04-26|B|B_1", "2023-04-26|A|A_1", "2023-04-26|B|B_2"));
+    assertTrue(isGrouped(sorter, "2023-04-26|\"A\"|A_1", "2023-04-26|A|A_2"));
+  }
+
+  @Test
+  void testIsGroupedChecksManyIdsWithoutRememberingThem() throws IOException {
+    ExternalTransactionSorter sorter = sorter(64, 1_000);
+    List<String> lines = new ArrayList<>();
+    // descending ids: grouping does not depend on the order of the transactions
+    for (int txn = 20_000; txn > 0; txn--) {
+      lines.add(String.format("2023-04-26|TXN%05d|TXN%05d_1", txn, txn));
+      lines.add(String.format("2023-04-26|TXN%05d|TXN%05d_2", txn, txn));
+    }
+
+    assertTrue(isGrouped(sorter, lines.toArray(String[]::new)));
+    lines.add("2023-04-26|TXN12345|TXN12345_3");
+    assertFalse(isGrouped(sorter, lines.toArray(String[]::new)));
+    assertFalse(
+        isGrouped(sorter(64, 0), lines.toArray(String[]::new)),
+        "Too many suspects count as ungrouped");
+  }
+
+  @Test
+  void testSortInMemoryIsStable() throws IOException {
+    ExternalTransactionSorter sorter = sorter(64, 1_000);
+    List<String> lines =
+        List.of(
+            "2023-04-26|TXN2|TXN2_1",
+            "2023-04-26|TXN1|TXN1_1",
+            "2023-04-26|TXN2|TXN2_2",
+            "2023-04-26|TXN1|TXN1_2");
+
+    try (ChunkedSpoolFile file = spool(lines);
+        SortedSpoolFile sorted = sorter.sort(file, "file_1")) {
+      assertEquals(
+          HEADER
+              + "\n2023-04-26|TXN1|TXN1_1\n2023-04-26|TXN1|TXN1_2\n"
+              + "2023-04-26|TXN2|TXN2_1\n2023-04-26|TXN2|TXN2_2\n",
+          content(sorted.file()));
+    }
+    verify(metricsClient, never())
+        .count(eq(Metric.SORT_RUN_COUNT.getMetricName()), anyLong(), any());
+  }
+
+  @Test
+  void testSortSpillsRunsAndMergesThem() throws IOException {
+    // 1MB runs and a fan-in of 2 force spilled runs and intermediate merge passes
+    ExternalTransactionSorter sorter =
+        new ExternalTransactionSorter(metricsClient, 1, 2, 1_000, spoolDirectory.toString());
+    List<String> lines = new ArrayList<>();
+    for (int txn = 0; txn < 6_000; txn++) {
+      for (int line = 1; line <= 3; line++) {
+        lines.add(
+            String.format("2023-04-26|TXN%05d|TXN%05d_%d_%s", txn, txn, line, "x".repeat(40)));
+      }
+    }
+    // random transaction order, but the lines of every transaction stay in file order
+    List<Integer> slots = new ArrayList<>();
+    for (int txn = 0; txn < 6_000; txn++) {
+      slots.addAll(List.of(txn, txn, txn));
+    }
+    Collections.shuffle(slots, new Random(7));
+    int[] nextLine = new int[6_000];
+    List<String> shuffled = new ArrayList<>();
+    for (int txn : slots) {
+      shuffled.add(lines.get(txn * 3 + nextLine[txn]++));
+    }
+
+    try (ChunkedSpoolFile file = spool(shuffled);
+        SortedSpoolFile sorted = sorter.sort(file, "file_1")) {
+      assertEquals(HEADER + "\n" + String.join("\n", lines) + "\n", content(sorted.file()));
+    }
+
+    verify(metricsClient, atLeast(3))
+        .count(eq(Metric.SORT_RUN_COUNT.getMetricName()), eq(1L), any());
+    verify(metricsClient)
+        .recordExecutionTime(
+            eq(Metric.SORT_TIME.getMetricName()), anyLong(), any(), eq("sort.phase:merge"));
+    try (var files = Files.list(spoolDirectory)) {
+      assertEquals(0, files.count(), "Sort runs should be deleted");
+    }
+  }
+
+  @Test
+  void testSortedLinesKeepTheirSourcePositions() throws IOException {
+    ExternalTransactionSorter sorter = sorter(64, 1_000);
+    String content =
+        HEADER + "\r\n2023-04-26|TXN2|TXN2_1\r\n2023-04-26|TXN1|Zürich\r\n2023-04-26|TXN1|TXN1_2";
+
+    try (ChunkedSpoolFile file =
+            ChunkedSpoolFile.spool(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                spoolDirectory);
+        SortedSpoolFile sorted = sorter.sort(file, "file_1")) {
+      int firstLine = HEADER.length() + 2;
+      int secondLine = firstLine + "2023-04-26|TXN2|TXN2_1\r\n".length();
+      // the umlaut takes two bytes
+      int thirdLine = secondLine + "2023-04-26|TXN1|Zürich\r\n".length() + 1;
+      assertEquals(
+          HEADER + "\n2023-04-26|TXN1|Zürich\n2023-04-26|TXN1|TXN1_2\n2023-04-26|TXN2|TXN2_1\n",
+          content(sorted.file()));
+      assertEquals(new SourcePosition(3, secondLine), sorted.positions().of(2, 0));
+      assertEquals(new SourcePosition(4, thirdLine), sorted.positions().of(3, 0));
+      assertEquals(new SourcePosition(2, firstLine), sorted.positions().of(4, 0));
+      assertEquals(new SourcePosition(5, 99), sorted.positions().of(5, 99), "Not in the copy");
+    }
+    try (var files = Files.list(spoolDirectory)) {
+      assertEquals(0, files.count(), "The position index should be deleted");
+    }
+  }
+
+  @Test
+  void testSortWithoutTransactionIdColumnFails() throws IOException {
+    ExternalTransactionSorter sorter = sorter(64, 1_000);
+
+    try (ChunkedSpoolFile file =
+        ChunkedSpoolFile.spool(
+            new ByteArrayInputStream("A|B\n1|2\n".getBytes(StandardCharsets.UTF_8)),
+            spoolDirectory)) {
+      assertThrows(IOException.class, () -> sorter.sort(file, "file_1"));
+    }
+  }
+
+  @Test
+  void testQuotedLineBreakFailsInsteadOfBeingReordered() throws IOException {
+    ExternalTransactionSorter sorter = sorter(64, 1_000);
+
+    try (ChunkedSpoolFile file =
+        spool(List.of("2023-04-26|B|\"B\n1\"", "2023-04-26|A|A_1", "2023-04-26|B|B_2"))) {
+      IOException error = assertThrows(IOException.class, () -> sorter.sort(file, "file_1"));
+      assertTrue(error.getMessage().startsWith("Line 2 "), error.getMessage());
+      assertThrows(IOException.class, () -> sorter.isGroupedByTransactionId(file));
+    }
+    assertTrue(isGrouped(sorter, "2023-04-26|\"A|1\"|A_1", "2023-04-26|\"\"|A_2"));
+  }
+
+  private ExternalTransactionSorter sorter(int maxRunSizeMb, int maxTrackedIds) {
+    return new ExternalTransactionSorter(
+        metricsClient, maxRunSizeMb, 32, maxTrackedIds, spoolDirectory.toString());
+  }
+
+  private boolean isGrouped(ExternalTransactionSorter sorter, String... lines) throws IOException {
+    try (ChunkedSpoolFile file = spool(List.of(lines))) {
+      return sorter.isGroupedByTransactionId(file);
+    }
+  }
+
+  private ChunkedSpoolFile spool(List<String> lines) throws IOException {
+    String content = HEADER + "\n" + String.join("\n", lines) + "\n";
+    return ChunkedSpoolFile.spool(
+        new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), spoolDirectory);
+  }
+
+  private static String content(ChunkedSpoolFile file) throws IOException {
+    try (var stream = file.open()) {
+      return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
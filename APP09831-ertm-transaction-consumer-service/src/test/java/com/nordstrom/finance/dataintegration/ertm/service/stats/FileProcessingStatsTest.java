@@ -0,0 +1,136 @@
+package com.nordstrom.finance.dataintegration.ertm.service.stats;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nordstrom.finance.dataintegration.common.metric.MetricsClient;
+import com.nordstrom.finance.dataintegration.ertm.metric.Metric;
+import com.nordstrom.finance.dataintegration.ertm.metric.MetricTag;
+import com.nordstrom.finance.dataintegration.ertm.service.stats.FileProcessingStats.Stage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FileProcessingStatsTest {
+
+  private MetricsClient metricsClient;
+  private FileProcessingStats stats;
+
+  @BeforeEach
+  void setup() {
+    metricsClient = mock(MetricsClient.class);
+    stats = new FileProcessingStats(metricsClient, "file_1");
+  }
+
+  @Test
+  void testNestedStageTimeCountsForTheInnerStage() {
+    stats.time(
+        Stage.GROUP,
+        () -> {
+          sleep(30);
+          stats.time(Stage.PARSE, () -> sleep(50));
+        });
+
+    assertTrue(stats.stageMillis(Stage.PARSE) >= 50);
+    assertTrue(stats.stageMillis(Stage.GROUP) >= 30);
+    assertTrue(stats.stageMillis(Stage.GROUP) < 80);
+  }
+
+  @Test
+  void testParsingCountsRecordsAndSourceBytes() {
+    byte[] content = "a\nb\nc\n".getBytes(StandardCharsets.UTF_8);
+    BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(
+                stats.timeSource(new ByteArrayInputStream(content)), StandardCharsets.UTF_8));
+
+    Iterator<String> lines = stats.timeParsing(lines(reader));
+    int read = 0;
+    while (lines.hasNext()) {
+      lines.next();
+      read++;
+    }
+
+    assertEquals(3, read);
+    assertEquals(3, stats.records());
+    assertEquals(content.length, stats.bytes());
+  }
+
+  @Test
+  void testBatchSendsStageTimesSinceThePreviousBatch() {
+    stats.time(Stage.PERSIST, () -> sleep(5));
+
+    stats.recordBatch();
+    stats.recordBatch();
+
+    verify(metricsClient, times(1))
+        .recordExecutionTime(
+            eq(Metric.FILE_STAGE_TIME.getMetricName()),
+            longThat(millis -> millis >= 5),
+            eq(MetricTag.FILE_STAGE.getTag("persist")));
+    verify(metricsClient, never())
+        .recordExecutionTime(
+            eq(Metric.FILE_STAGE_TIME.getMetricName()),
+            anyLong(),
+            eq(MetricTag.FILE_STAGE.getTag("dedupe")));
+    verify(metricsClient, times(2))
+        .recordGaugeValue(eq(Metric.BATCH_HEAP_USED.getMetricName()), longThat(bytes -> bytes > 0));
+    verify(metricsClient, times(2))
+        .recordExecutionTime(eq(Metric.BATCH_GC_PAUSE_TIME.getMetricName()), anyLong());
+  }
+
+  @Test
+  void testFinishSendsThroughput() {
+    Iterator<String> lines = stats.timeParsing(List.of("a", "b").iterator());
+    lines.next();
+    lines.next();
+
+    stats.finish(true);
+
+    verify(metricsClient)
+        .recordGaugeValue(eq(Metric.FILE_ROWS_PER_SECOND.getMetricName()), longThat(r -> r > 0));
+    verify(metricsClient).recordGaugeValue(Metric.FILE_BYTES_PER_SECOND.getMetricName(), 0L);
+  }
+
+  private static Iterator<String> lines(BufferedReader reader) {
+    return new Iterator<>() {
+      private String next;
+
+      @Override
+      public boolean hasNext() {
+        try {
+          if (next == null) {
+            next = reader.readLine();
+          }
+          return next != null;
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }
+
+      @Override
+      public String next() {
+        hasNext();
+        final String line = next;
+        next = null;
+        return line;
+      }
+    };
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,39 @@
+-- Staging table for the ERTM consumer STAGING ingest mode. Rows are loaded with COPY, merged into
+-- transaction / transaction_line / retail_transaction_line and deleted again, so the table is
+-- unlogged: it never holds data that has to survive a crash.
+create unlogged table if not exists "ertm_transaction_staging" (
+    "load_id" uuid not null,
+    "line_number" bigint not null,
+    "source_reference_transaction_id" varchar(100),
+    "source_processed_date" date,
+    "transaction_date" date,
+    "business_date" date,
+    "transaction_type" varchar(100),
+    "transaction_reversal_code" varchar(100),
+    "source_reference_line_id" varchar(100),
+    "source_reference_line_type" varchar(100),
+    "transaction_line_type" varchar(100),
+    "ringing_store" varchar(100),
+    "store_of_intent" varchar(100),
+    "department_id" varchar(100),
+    "class_id" varchar(100),
+    "fee_code" varchar(100),
+    "tender_type" varchar(100),
+    "tender_card_type" varchar(100),
+    "tender_card_subtype" varchar(100),
+    "tender_adjustment_code" varchar(100),
+    "line_item_amount" decimal,
+    "tax_amount" decimal,
+    "employee_discount_amount" decimal,
+    "tender_amount" decimal,
+    "cash_disbursement_line1" varchar(100),
+    "cash_disbursement_line2" varchar(100),
+    "waived_reason_code" varchar(100),
+    "waived_amount" decimal,
+    "fulfillment_type_dropship_code" varchar(100),
+    "transaction_id" bigint,
+    "transaction_line_id" bigint,
+    "retail_transaction_line_id" bigint
+);
+create index if not exists idx_ertm_transaction_staging_load_id
+    on "ertm_transaction_staging" ("load_id", "source_reference_transaction_id");
@@ -0,0 +1,17 @@
+-- Progress of ERTM source files that are being processed. A row is upserted in the same database
+-- transaction as every saved batch and deleted once the file is archived, so a consumer restarted
+-- after a crash resumes the file from the last committed transaction boundary.
+create table if not exists "file_processing_checkpoint" (
+    "file_processing_checkpoint_id" bigserial primary key,
+    "source_bucket" varchar(255) not null,
+    "file_key" varchar(1024) not null,
+    "e_tag" varchar(100) not null,
+    "resume_byte_offset" bigint not null,
+    "data_start_byte_offset" bigint not null,
+    "batch_number" integer not null,
+    "records_processed" bigint not null,
+    "transactions_saved" bigint not null,
+    "created_datetime" timestamp default current_timestamp,
+    "last_updated_datetime" timestamp default current_timestamp,
+    constraint unique_file_processing_checkpoint_file unique ("source_bucket", "file_key")
+);
@@ -0,0 +1,15 @@
+-- ERTM source files that were fully ingested, keyed by object key, ETag and size. A file that is
+-- still in the source bucket on the next run (e.g. because the archive move failed) and matches a
+-- row here is only moved to the archive bucket again, never re-parsed.
+create table if not exists "file_ingest_manifest" (
+    "file_ingest_manifest_id" bigserial primary key,
+    "source_bucket" varchar(255) not null,
+    "file_key" varchar(1024) not null,
+    "e_tag" varchar(100) not null,
+    "content_length" bigint not null,
+    "records_processed" bigint not null,
+    "duration_millis" bigint not null,
+    "created_datetime" timestamp default current_timestamp,
+    "last_updated_datetime" timestamp default current_timestamp,
+    constraint unique_file_ingest_manifest_object unique ("source_bucket", "file_key", "e_tag", "content_length")
+);
@@ -0,0 +1,15 @@
+-- Claims of ERTM source files by consumer pods. A pod processes a file only while it holds the
+-- lease row of the file; the row expires unless the pod renews it with a heartbeat, so the files of
+-- a pod that died are picked up by another pod. All times come from the database clock.
+create table if not exists "file_processing_lease" (
+    "file_processing_lease_id" bigserial primary key,
+    "source_bucket" varchar(255) not null,
+    "file_key" varchar(1024) not null,
+    "owner_id" varchar(255) not null,
+    "expires_datetime" timestamp not null,
+    "created_datetime" timestamp default current_timestamp,
+    "last_updated_datetime" timestamp default current_timestamp,
+    constraint unique_file_processing_lease_file unique ("source_bucket", "file_key")
+);
+
+create index if not exists "idx_file_processing_lease_owner" on "file_processing_lease" ("owner_id");